@@ -0,0 +1,48 @@
+/*
+ * Java LOLCODE - LOLCODE parser and interpreter (http://lolcode.com/)
+ * Copyright (C) 2007-2011  Brett Kail (bkail@iastate.edu)
+ * http://bkail.public.iastate.edu/lolcode/
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.linxdroid.lolinterpreter;
+
+// Implements the fixed-arity calls by packing the arguments into an array;
+// functions that can store arguments straight into a frame override them.
+abstract class AbstractFunction implements Function {
+	static final Value[] NO_ARGUMENTS = new Value[0];
+
+	public Value call(Value target) {
+		return call(target, NO_ARGUMENTS);
+	}
+
+	public Value call(Value target, Value argument) {
+		return call(target, new Value[] { argument });
+	}
+
+	public Value call(Value target, Value argument1, Value argument2) {
+		return call(target, new Value[] { argument1, argument2 });
+	}
+
+	public Value call(Value target, Value argument1, Value argument2, Value argument3) {
+		return call(target, new Value[] { argument1, argument2, argument3 });
+	}
+
+	static void checkArgumentCount(int numArguments, int expected) {
+		if (numArguments != expected) {
+			throw new LOLCodeException(LOLCodeException.BAD_ARGUMENT_COUNT, "Received: " + numArguments + ", Expected: " + expected);
+		}
+	}
+}
@@ -19,9 +19,37 @@
 
 package net.linxdroid.lolinterpreter;
 
-import java.util.List;
-
 abstract class AbstractScalarValue implements Value {
+	final int tag;
+
+	protected AbstractScalarValue(int tag) {
+		this.tag = tag;
+	}
+
+	public final boolean isTroof() {
+		return tag == ValueTag.TROOF;
+	}
+
+	public final boolean isNumeric() {
+		return tag == ValueTag.NUMBR || tag == ValueTag.NUMBAR;
+	}
+
+	public final boolean isNumbr() {
+		return tag == ValueTag.NUMBR;
+	}
+
+	public final boolean isNumbar() {
+		return tag == ValueTag.NUMBAR;
+	}
+
+	public boolean isMathNumbar() {
+		return tag == ValueTag.NUMBAR;
+	}
+
+	public final boolean isYarn() {
+		return tag == ValueTag.YARN;
+	}
+
 	public Value castToMathNumbr() {
 		throw new LOLCodeException(LOLCodeException.BAD_MATH_TYPE, getType());
 	}
@@ -38,11 +66,7 @@ abstract class AbstractScalarValue implements Value {
 		throw new LOLCodeException(LOLCodeException.BAD_BUKKIT_TYPE, getType());
 	}
 
-	public int getNumSlots() {
-		throw new LOLCodeException(LOLCodeException.BAD_BUKKIT_TYPE, getType());
-	}
-
-	public Value getSlots() {
+	public SlotIterator getSlotIterator() {
 		throw new LOLCodeException(LOLCodeException.BAD_BUKKIT_TYPE, getType());
 	}
 
@@ -71,7 +95,19 @@ abstract class AbstractScalarValue implements Value {
 		return this;
 	}
 
-	public Value call(Value target, List<Value> arguments) {
+	public Value call(Value target, Value argument) {
+		return call(target, new Value[] { argument });
+	}
+
+	public Value call(Value target, Value argument1, Value argument2) {
+		return call(target, new Value[] { argument1, argument2 });
+	}
+
+	public Value call(Value target, Value argument1, Value argument2, Value argument3) {
+		return call(target, new Value[] { argument1, argument2, argument3 });
+	}
+
+	public Value call(Value target, Value[] arguments) {
 		throw new LOLCodeException(LOLCodeException.BAD_CALL_TYPE, getType());
 	}
 }
@@ -20,32 +20,16 @@
 package net.linxdroid.lolinterpreter;
 
 abstract class AbstractTypedScalarValue extends AbstractScalarValue {
-	public Value castToTroof() {
-		return TroofValue.getInstance(getBoolean());
-	}
-
-	public boolean isTroof() {
-		return false;
+	protected AbstractTypedScalarValue(int tag) {
+		super(tag);
 	}
 
-	public boolean isNumeric() {
-		return false;
-	}
-
-	public boolean isNumbr() {
-		return false;
+	public Value castToTroof() {
+		return TroofValue.getInstance(getBoolean());
 	}
 
 	public Value castToNumbr() {
-		return new NumbrValue(getInt());
-	}
-
-	public boolean isNumbar() {
-		return false;
-	}
-
-	public boolean isMathNumbar() {
-		return false;
+		return NumbrValue.valueOf(getInt());
 	}
 
 	public float getFloat() {
@@ -56,10 +40,6 @@ abstract class AbstractTypedScalarValue extends AbstractScalarValue {
 		return new NumbarValue(getFloat());
 	}
 
-	public boolean isYarn() {
-		return false;
-	}
-
 	public Value castToYarn() {
 		return new YarnValue(getString());
 	}
@@ -19,11 +19,8 @@
 
 package net.linxdroid.lolinterpreter;
 
-import java.util.Set;
-
 interface Bukkit {
 	Bukkit getParent();
 	boolean containsSlot(Value index);
 	Value getSlot(Value index);
-	void getSlots(Set<Value> added, BukkitValue slots);
 }
@@ -0,0 +1,70 @@
+/*
+ * Java LOLCODE - LOLCODE parser and interpreter (http://lolcode.com/)
+ * Copyright (C) 2007-2011  Brett Kail (bkail@iastate.edu)
+ * http://bkail.public.iastate.edu/lolcode/
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.linxdroid.lolinterpreter;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// What the bukkits of one execution share: the root of their layout tree,
+// the validity cells behind their InheritedSlots entries and the count of
+// parents their lookups walked.  A bukkit takes the heap of its parent, so a
+// whole LIEK hierarchy uses the heap of the execution that created its root.
+// Executions run on one thread at a time and never share a heap, so none of
+// this is synchronized.
+final class BukkitHeap {
+	private final BukkitLayout rootLayout = new BukkitLayout(true);
+	private final Map<Value, Cell> cells = new HashMap<Value, Cell>();
+	private long numHops;
+
+	public BukkitLayout getRootLayout() {
+		return rootLayout;
+	}
+
+	// Parents visited one level at a time by slot lookups.
+	public long getNumHops() {
+		return numHops;
+	}
+
+	void countHops(int hops) {
+		numHops += hops;
+	}
+
+	Cell getCell(Value name) {
+		Cell cell = cells.get(name);
+		if (cell == null) {
+			cell = new Cell();
+			cells.put(name, cell);
+		}
+
+		return cell;
+	}
+
+	// Called when a bukkit with children gets a new slot.
+	void invalidate(Value name) {
+		Cell cell = cells.remove(name);
+		if (cell != null) {
+			cell.valid = false;
+		}
+	}
+
+	static final class Cell {
+		boolean valid = true;
+	}
+}
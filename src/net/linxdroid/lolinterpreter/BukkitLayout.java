@@ -0,0 +1,119 @@
+/*
+ * Java LOLCODE - LOLCODE parser and interpreter (http://lolcode.com/)
+ * Copyright (C) 2007-2011  Brett Kail (bkail@iastate.edu)
+ * http://bkail.public.iastate.edu/lolcode/
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.linxdroid.lolinterpreter;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// A shared layout is a node in a transition tree of named slots, and a
+// bukkit on it keeps those slots in a plain array at the offsets given by
+// the names in the order they were added.  Each BukkitHeap, and so each
+// execution, roots its own tree, as does each parent for its children.  A
+// bukkit with too many named slots, or one that would grow its tree past
+// MAX_LAYOUTS, leaves the tree for an unshared layout and keeps its slots in
+// a SlotTable instead.
+final class BukkitLayout {
+	private static final int MAX_FIELDS = 32;
+	private static final int MAX_LAYOUTS = 1024;
+	private static final Value[] NO_NAMES = new Value[0];
+
+	private final boolean shared;
+	private final BukkitLayout root;
+	private final Value[] names;
+	private Map<Value, BukkitLayout> transitions;
+
+	// Only counted on the root.
+	private int numLayouts = 1;
+
+	public BukkitLayout(boolean shared) {
+		this.shared = shared;
+		root = this;
+		names = NO_NAMES;
+	}
+
+	private BukkitLayout(BukkitLayout previous, Value name) {
+		shared = true;
+		root = previous.root;
+
+		Value[] names = new Value[previous.names.length + 1];
+		System.arraycopy(previous.names, 0, names, 0, previous.names.length);
+		names[previous.names.length] = name;
+		this.names = names;
+	}
+
+	public boolean isShared() {
+		return shared;
+	}
+
+	public int getNumFields() {
+		return names.length;
+	}
+
+	public Value getName(int offset) {
+		return names[offset];
+	}
+
+	public int getOffset(Value index) {
+		Value[] names = this.names;
+		if (names.length == 0 || !index.isYarn()) {
+			return -1;
+		}
+
+		for (int i = 0; i < names.length; i++) {
+			if (names[i] == index) {
+				return i;
+			}
+		}
+
+		String string = index.getString();
+		for (int i = 0; i < names.length; i++) {
+			if (names[i].getString().equals(string)) {
+				return i;
+			}
+		}
+
+		return -1;
+	}
+
+	// A tree only ever belongs to one execution, so it is not locked.
+	public BukkitLayout addSlot(Value index) {
+		if (!shared || names.length == MAX_FIELDS) {
+			return new BukkitLayout(false);
+		}
+
+		Map<Value, BukkitLayout> transitions = this.transitions;
+		if (transitions == null) {
+			transitions = this.transitions = new HashMap<Value, BukkitLayout>();
+		}
+
+		BukkitLayout layout = transitions.get(index);
+		if (layout == null) {
+			if (root.numLayouts == MAX_LAYOUTS) {
+				return new BukkitLayout(false);
+			}
+
+			layout = new BukkitLayout(this, index);
+			transitions.put(index, layout);
+			root.numLayouts++;
+		}
+
+		return layout;
+	}
+}
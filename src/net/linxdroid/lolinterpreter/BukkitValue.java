@@ -19,27 +19,62 @@
 
 package net.linxdroid.lolinterpreter;
 
-import java.util.HashSet;
-import java.util.Iterator;
-import java.util.LinkedHashMap;
-import java.util.List;
-import java.util.Map;
-import java.util.Set;
-
-class BukkitValue extends LinkedHashMap<Value, Value> implements InMahBukkit, Bukkit {
-	private static final long serialVersionUID = 0;
+import java.util.NoSuchElementException;
+
+// A bukkit keeps its slots in one of three modes.  While every key is a
+// NUMBR >= 0 it holds them in an array, packed or with holes, as long as at
+// least a quarter of the array is used.  While every key is a YARN and the
+// bukkit is on the shared layout tree, the layout gives each slot a field
+// offset.  Otherwise the slots go into a SlotTable; a table whose keys are
+// all NUMBRs >= 0 goes back to an array once it would be half full, so arrays
+// filled back to front or in strides end up as arrays.  Slots are listed in
+// insertion order in every mode, and switching modes never reorders them: an
+// array whose elements were not all added in ascending order keeps their
+// indices in insertion order on the side.
+class BukkitValue implements InMahBukkit, Bukkit {
 	private static final Bukkit DEFAULT_PARENT = new EmptyParent();
+	private static final int MIN_ELEMENTS = 8;
+	private static final int MIN_FIELDS = 4;
 
 	private Bukkit parent;
-	private int size;
+	private BukkitHeap heap;
+	private BukkitLayout layout;
+	private BukkitLayout childLayout;
+
+	// Array mode: values may be null until the first element.
 	private Value[] values;
+	private int length;
+	private int numElements;
+	// The indices of the elements in insertion order, once one was added
+	// below the last.
+	private int[] order;
+
+	// Field mode, while the layout is shared and has fields.
+	private Value[] fields;
+
+	// Slots found above this bukkit by its children.
+	private InheritedSlots inheritedSlots;
 
+	// Table mode, with the largest key while all keys are NUMBRs >= 0.
+	private SlotTable slots;
+	private boolean numbrKeys;
+	private int maxIndex;
+
+	// A bukkit made outside an execution gets a heap of its own.
 	public BukkitValue() {
-		this(DEFAULT_PARENT);
+		this(new BukkitHeap());
+	}
+
+	public BukkitValue(BukkitHeap heap) {
+		this.parent = DEFAULT_PARENT;
+		this.heap = heap;
+		layout = heap.getRootLayout();
 	}
 
-	public BukkitValue(Bukkit parent) {
+	public BukkitValue(BukkitValue parent) {
 		this.parent = parent;
+		this.heap = parent.heap;
+		layout = parent.getChildLayout();
 	}
 
 	@Override
@@ -47,12 +82,31 @@ class BukkitValue extends LinkedHashMap<Value, Value> implements InMahBukkit, Bu
 		StringBuilder builder = new StringBuilder(getClass().getName());
 		builder.append('@').append(Integer.toHexString(hashCode()));
 
-		if (values == null) {
-			builder.append(super.toString());
+		if (slots != null) {
+			builder.append('{');
+			for (int i = 0; i < slots.size(); i++) {
+				if (i != 0) {
+					builder.append(", ");
+				}
+				builder.append(slots.getKey(i)).append('=').append(slots.getValue(i));
+			}
+			builder.append('}');
+		} else if (fields != null) {
+			builder.append('{');
+			for (int i = 0; i < layout.getNumFields(); i++) {
+				if (i != 0) {
+					builder.append(", ");
+				}
+				builder.append(layout.getName(i)).append('=').append(fields[i]);
+			}
+			builder.append('}');
 		} else {
-			builder.append('[').append(values[0]);
-			for (int i = 1; i < size; i++) {
-				builder.append(", ").append(values[i]);
+			builder.append('[');
+			for (int i = 0; i < length; i++) {
+				if (i != 0) {
+					builder.append(", ");
+				}
+				builder.append(values[i]);
 			}
 			builder.append(']');
 		}
@@ -60,16 +114,6 @@ class BukkitValue extends LinkedHashMap<Value, Value> implements InMahBukkit, Bu
 		return builder.toString();
 	}
 
-	@Override
-	public int hashCode() {
-		return System.identityHashCode(this);
-	}
-
-	@Override
-	public boolean equals(Object o) {
-		return o == this;
-	}
-
 	public String getType() {
 		return "BUKKIT";
 	}
@@ -79,11 +123,11 @@ class BukkitValue extends LinkedHashMap<Value, Value> implements InMahBukkit, Bu
 	}
 
 	public boolean getBoolean() {
-		throw new LOLCodeException(LOLCodeException.BAD_BUKKIT_USE);
+		throw LOLCodeException.get(LOLCodeException.BAD_BUKKIT_USE);
 	}
 
 	public Value castToTroof() {
-		throw new LOLCodeException(LOLCodeException.BAD_BUKKIT_USE);
+		throw LOLCodeException.get(LOLCodeException.BAD_BUKKIT_USE);
 	}
 
 	public boolean isNumeric() {
@@ -95,11 +139,11 @@ class BukkitValue extends LinkedHashMap<Value, Value> implements InMahBukkit, Bu
 	}
 
 	public int getInt() {
-		throw new LOLCodeException(LOLCodeException.BAD_BUKKIT_USE);
+		throw LOLCodeException.get(LOLCodeException.BAD_BUKKIT_USE);
 	}
 
 	public Value castToNumbr() {
-		throw new LOLCodeException(LOLCodeException.BAD_BUKKIT_USE);
+		throw LOLCodeException.get(LOLCodeException.BAD_BUKKIT_USE);
 	}
 
 	public Value castToMathNumbr() {
@@ -115,11 +159,11 @@ class BukkitValue extends LinkedHashMap<Value, Value> implements InMahBukkit, Bu
 	}
 
 	public float getFloat() {
-		throw new LOLCodeException(LOLCodeException.BAD_BUKKIT_USE);
+		throw LOLCodeException.get(LOLCodeException.BAD_BUKKIT_USE);
 	}
 
 	public Value castToNumbar() {
-		throw new LOLCodeException(LOLCodeException.BAD_BUKKIT_USE);
+		throw LOLCodeException.get(LOLCodeException.BAD_BUKKIT_USE);
 	}
 
 	public boolean isYarn() {
@@ -127,88 +171,321 @@ class BukkitValue extends LinkedHashMap<Value, Value> implements InMahBukkit, Bu
 	}
 
 	public String getString() {
-		throw new LOLCodeException(LOLCodeException.BAD_BUKKIT_USE);
+		throw LOLCodeException.get(LOLCodeException.BAD_BUKKIT_USE);
 	}
 
 	public Value castToYarn() {
-		throw new LOLCodeException(LOLCodeException.BAD_BUKKIT_USE);
+		throw LOLCodeException.get(LOLCodeException.BAD_BUKKIT_USE);
 	}
 
-	private void convertValues() {
-		for (int i = 0; i < values.length; i++) {
-			if (values[i] != null) {
-				put(new NumbrValue(i), values[i]);
+	private void toTable() {
+		if (fields != null) {
+			int numFields = layout.getNumFields();
+			slots = new SlotTable(numFields + 1);
+			for (int i = 0; i < numFields; i++) {
+				slots.put(layout.getName(i), fields[i]);
+			}
+
+			numbrKeys = false;
+			fields = null;
+		} else {
+			slots = new SlotTable(numElements + 1);
+			if (order != null) {
+				for (int i = 0; i < numElements; i++) {
+					slots.put(order[i], values[order[i]]);
+				}
+			} else {
+				for (int i = 0; i < length; i++) {
+					if (values[i] != null) {
+						slots.put(i, values[i]);
+					}
+				}
+			}
+
+			numbrKeys = true;
+			maxIndex = length - 1;
+			values = null;
+			length = 0;
+			numElements = 0;
+			order = null;
+		}
+
+		// Field offsets only hold for bukkits in field mode.
+		if (layout.isShared()) {
+			layout = new BukkitLayout(false);
+		}
+	}
+
+	private void toArray() {
+		int numSlots = slots.size();
+		Value[] values = new Value[Math.max(maxIndex + 1, MIN_ELEMENTS)];
+		int[] order = null;
+		for (int i = 0; i < numSlots; i++) {
+			int index = slots.getInt(i);
+			if (order == null && i > 0 && index < slots.getInt(i - 1)) {
+				order = new int[Math.max(numSlots * 2, MIN_ELEMENTS)];
+				for (int j = 0; j < i; j++) {
+					order[j] = slots.getInt(j);
+				}
+			}
+
+			values[index] = slots.getValue(i);
+			if (order != null) {
+				order[i] = index;
+			}
+		}
+
+		this.values = values;
+		this.order = order;
+		length = maxIndex + 1;
+		numElements = numSlots;
+		slots = null;
+	}
+
+	// Appends an element added below the last one to the insertion order,
+	// which until then was the order of the indices.
+	private void addToOrder(int index) {
+		int[] order = this.order;
+		if (order == null) {
+			order = new int[Math.max(numElements * 2, MIN_ELEMENTS)];
+			int count = 0;
+			for (int i = 0; i < length; i++) {
+				if (values[i] != null) {
+					order[count++] = i;
+				}
+			}
+			this.order = order;
+		} else if (numElements == order.length) {
+			int[] newOrder = new int[order.length * 2];
+			System.arraycopy(order, 0, newOrder, 0, numElements);
+			this.order = order = newOrder;
+		}
+
+		order[numElements] = index;
+	}
+
+	// Returns false when the element would leave the array too sparse.
+	private boolean setElement(int index, Value value) {
+		Value[] values = this.values;
+
+		if (index < length) {
+			if (index < 0) {
+				return false;
+			}
+
+			if (values[index] == null) {
+				addToOrder(index);
+				numElements++;
+			}
+		} else if (values == null || index >= values.length) {
+			if (index >= MIN_ELEMENTS && (numElements + 1) * 4 <= index) {
+				return false;
+			}
+
+			int capacity = values == null ? MIN_ELEMENTS : values.length * 2;
+			Value[] newValues = new Value[Math.max(capacity, index + 1)];
+			if (values != null) {
+				System.arraycopy(values, 0, newValues, 0, length);
 			}
+			this.values = values = newValues;
 		}
 
-		values = null;
+		if (index >= length) {
+			if (order != null) {
+				addToOrder(index);
+			}
+
+			numElements++;
+			length = index + 1;
+		}
+
+		values[index] = value;
+		return true;
+	}
+
+	// Returns false when the layout tree sends the bukkit to a table.
+	private boolean addField(Value index, Value value) {
+		BukkitLayout next = layout.addSlot(index);
+		if (!next.isShared()) {
+			return false;
+		}
+
+		int offset = next.getNumFields() - 1;
+		Value[] fields = this.fields;
+		if (fields == null) {
+			this.fields = fields = new Value[MIN_FIELDS];
+		} else if (offset == fields.length) {
+			Value[] newFields = new Value[fields.length * 2];
+			System.arraycopy(fields, 0, newFields, 0, fields.length);
+			this.fields = fields = newFields;
+		}
+
+		fields[offset] = value;
+		layout = next;
+		return true;
 	}
 
 	public Bukkit getParent() {
 		return parent;
 	}
 
-	public boolean containsSlot(Value index) {
-		return containsKey(index) || parent.containsSlot(index);
+	public BukkitHeap getHeap() {
+		return heap;
 	}
 
-	public void declareSlot(Value index, Value value) {
-		if (values != null) {
-			convertValues();
+	public BukkitLayout getLayout() {
+		return layout;
+	}
+
+	// Only valid for the offsets of the current layout.
+	public Value getField(int offset) {
+		return fields[offset];
+	}
+
+	private BukkitLayout getChildLayout() {
+		if (childLayout == null) {
+			// A parent's slots are read through inline caches, so from now on
+			// every write to it has to be visible as a layout change.
+			if (fields != null) {
+				toTable();
+			}
+
+			childLayout = new BukkitLayout(true);
+			layout = new BukkitLayout(false);
 		}
 
-		put(index, value);
+		return childLayout;
 	}
 
-	private boolean setSlot(int index, Value value) {
-		if (values == null) {
-			if (!isEmpty() || index != 0) {
-				return false;
+	private Value put(Value index, Value value) {
+		if (slots == null) {
+			if (index.isYarn() && layout.isShared() && (fields != null || numElements == 0)) {
+				int offset = layout.getOffset(index);
+				if (offset >= 0) {
+					Value previous = fields[offset];
+					fields[offset] = value;
+					return previous;
+				}
+
+				if (addField(index, value)) {
+					return null;
+				}
 			}
 
-			values = new Value[8];
-			values[0] = value;
-			size = 1;
-			return true;
+			toTable();
 		}
 
-		if (index == size) {
-			if (size == values.length) {
-				Value[] newValues = new Value[size * 2];
-				System.arraycopy(values, 0, newValues, 0, size);
-				values = newValues;
+		Value previous = slots.put(index, value);
+
+		if (index.isYarn() && (previous == null || childLayout != null)) {
+			layout = layout.addSlot(index);
+
+			if (previous == null && childLayout != null) {
+				heap.invalidate(index);
 			}
+		}
 
-			values[size++] = value;
-			return true;
+		if (numbrKeys && previous == null) {
+			if (!index.isNumbr() || index.getInt() < 0) {
+				numbrKeys = false;
+			} else {
+				maxIndex = Math.max(maxIndex, index.getInt());
+				if (slots.size() * 2 > maxIndex) {
+					toArray();
+				}
+			}
+		}
+
+		return previous;
+	}
+
+	public Value getOwnSlot(Value index) {
+		if (slots == null) {
+			if (fields != null) {
+				int offset = layout.getOffset(index);
+				if (offset >= 0) {
+					return fields[offset];
+				}
+			}
+
+			return null;
+		}
+
+		return slots.get(index);
+	}
+
+	private boolean containsOwnSlot(Value index) {
+		if (slots != null) {
+			return slots.containsKey(index);
+		}
+
+		if (fields != null) {
+			return layout.getOffset(index) >= 0;
+		}
+
+		if (index.isNumbr()) {
+			int indexValue = index.getInt();
+			return indexValue >= 0 && indexValue < length && values[indexValue] != null;
 		}
 
-		convertValues();
 		return false;
 	}
 
+	public boolean containsSlot(Value index) {
+		if (containsOwnSlot(index)) {
+			return true;
+		}
+
+		if (index.isYarn() && parent instanceof BukkitValue) {
+			return ((BukkitValue)parent).getInheritedSlots().get(index) != null;
+		}
+
+		if (parent != DEFAULT_PARENT) {
+			heap.countHops(1);
+		}
+
+		return parent.containsSlot(index);
+	}
+
+	public void declareSlot(Value index, Value value) {
+		if (slots != null || fields != null || !index.isNumbr() || !setElement(index.getInt(), value)) {
+			put(index, value);
+		}
+	}
+
 	public void setSlot(Value index, Value value) {
 		if (!index.isNumeric()) {
 			if (!containsSlot(index)) {
-				throw new LOLCodeException(LOLCodeException.BAD_SLOT);
+				throw LOLCodeException.get(LOLCodeException.BAD_SLOT);
 			}
 
 			put(index, value);
-		} else if (!setSlot(index.getInt(), value)) {
+		} else {
 			if (index.isNumbar()) {
 				index = index.castToNumbr();
 			}
 
-			put(index, value);
+			if (slots != null || fields != null || !setElement(index.getInt(), value)) {
+				put(index, value);
+			}
 		}
 	}
 
 	public Value getSlot(Value index) {
-		if (values != null) {
+		if (fields != null) {
+			int offset = layout.getOffset(index);
+			if (offset >= 0) {
+				return fields[offset];
+			}
+
+			if (index.isNumbar()) {
+				index = index.castToNumbr();
+			}
+		} else if (slots == null) {
 			if (index.isNumeric()) {
 				int indexValue = index.getInt();
 
-				if (indexValue >= 0 && indexValue < size) {
+				if (indexValue >= 0 && indexValue < length) {
 					Value value = values[indexValue];
 
 					if (value != null) {
@@ -223,51 +500,95 @@ class BukkitValue extends LinkedHashMap<Value, Value> implements InMahBukkit, Bu
 				index = index.castToNumbr();
 			}
 
-			Value value = get(index);
+			Value value = slots.get(index);
 			if (value != null) {
 				return value;
 			}
 		}
 
+		if (index.isYarn() && parent instanceof BukkitValue) {
+			Value value = ((BukkitValue)parent).getInheritedSlots().get(index);
+			if (value == null) {
+				throw LOLCodeException.get(LOLCodeException.BAD_SLOT);
+			}
+
+			return value;
+		}
+
+		if (parent != DEFAULT_PARENT) {
+			heap.countHops(1);
+		}
+
 		return parent.getSlot(index);
 	}
 
-	public int getNumSlots() {
-		if (parent == DEFAULT_PARENT) {
-			if (values != null) {
-				return size;
-			}
+	private InheritedSlots getInheritedSlots() {
+		if (inheritedSlots == null) {
+			inheritedSlots = new InheritedSlots(this, heap);
+		}
 
-			return size();
+		return inheritedSlots;
+	}
+
+	// Own slots are only ever added, and every mode keeps them in insertion
+	// order, so the first n slots stay the same whatever happens later.
+	private int getNumOwnSlots() {
+		if (fields != null) {
+			return layout.getNumFields();
 		}
 
-		return getSlots().getNumSlots();
+		return slots != null ? slots.size() : numElements;
 	}
 
-	public void getSlots(Set<Value> added, BukkitValue slots) {
-		parent.getSlots(added, slots);
+	// The number of own slots added before this one, or -1.
+	private int getOrdinal(Value index) {
+		if (slots != null) {
+			return slots.indexOf(index);
+		}
 
-		if (values != null) {
-			for (int i = 0; i < size; i++) {
-				Value slot = new NumbrValue(i);
-				if (added.add(slot)) {
-					slots.setSlot(added.size() - 1, slot);
+		if (fields != null) {
+			return layout.getOffset(index);
+		}
+
+		if (!containsOwnSlot(index)) {
+			return -1;
+		}
+
+		if (order != null) {
+			int indexValue = index.getInt();
+			for (int i = 0; ; i++) {
+				if (order[i] == indexValue) {
+					return i;
 				}
 			}
-		} else {
-			for (Map.Entry<Value, Value> entry : entrySet()) {
-				Value slot = entry.getKey();
-				if (added.add(slot)) {
-					slots.setSlot(added.size() - 1, slot);
-				}
+		}
+
+		if (numElements == length) {
+			return index.getInt();
+		}
+
+		int ordinal = 0;
+		for (int i = index.getInt() - 1; i >= 0; i--) {
+			if (values[i] != null) {
+				ordinal++;
+			}
+		}
+
+		return ordinal;
+	}
+
+	// The array index of the element that skip more elements follow from
+	// start on.
+	private int findElement(int start, int skip) {
+		for (int i = start; ; i++) {
+			if (values[i] != null && skip-- == 0) {
+				return i;
 			}
 		}
 	}
 
-	public Value getSlots() {
-		BukkitValue slots = new BukkitValue();
-		getSlots(new HashSet<Value>(), slots);
-		return slots;
+	public SlotIterator getSlotIterator() {
+		return new ChainIterator(this);
 	}
 
 	public InMahBukkit getInMahBukkit(InMahBukkitFactory factory) {
@@ -312,17 +633,121 @@ class BukkitValue extends LinkedHashMap<Value, Value> implements InMahBukkit, Bu
 		}
 
 		public Value getSlot(Value index) {
-			throw new LOLCodeException(LOLCodeException.BAD_SLOT);
+			throw LOLCodeException.get(LOLCodeException.BAD_SLOT);
+		}
+	}
+
+	// Walks the slots of the topmost parent first and then down the chain,
+	// skipping slots that a parent already listed.  Each bukkit is listed as
+	// it was when the loop started: slots added by the loop body come after
+	// the first getNumOwnSlots() and are never reached.
+	private static final class ChainIterator extends SlotIterator {
+		private final BukkitValue[] bukkits;
+		private final int[] ends;
+		private int depth;
+		private int ordinal;
+		// The array index of the last element listed, while in array mode
+		// and in index order.
+		private int element = -1;
+		private Value next;
+
+		public ChainIterator(BukkitValue bukkit) {
+			int numBukkits = 0;
+			for (Bukkit parent = bukkit; parent instanceof BukkitValue; parent = parent.getParent()) {
+				numBukkits++;
+			}
+
+			bukkits = new BukkitValue[numBukkits];
+			ends = new int[numBukkits];
+			for (Bukkit parent = bukkit; parent instanceof BukkitValue; parent = parent.getParent()) {
+				BukkitValue holder = (BukkitValue)parent;
+				bukkits[--numBukkits] = holder;
+				ends[numBukkits] = holder.getNumOwnSlots();
+			}
+		}
+
+		public boolean hasNext() {
+			while (next == null && depth < bukkits.length) {
+				BukkitValue bukkit = bukkits[depth];
+				if (ordinal == ends[depth]) {
+					depth++;
+					ordinal = 0;
+					element = -1;
+					continue;
+				}
+
+				Value name;
+				if (bukkit.fields != null) {
+					name = bukkit.layout.getName(ordinal);
+					element = -1;
+				} else if (bukkit.slots != null) {
+					name = bukkit.slots.getKey(ordinal);
+					element = -1;
+				} else if (bukkit.order != null) {
+					name = NumbrValue.valueOf(bukkit.order[ordinal]);
+					element = -1;
+				} else {
+					// After a switch from a table, find the element again.
+					element = element < 0 ? bukkit.findElement(0, ordinal) : bukkit.findElement(element + 1, 0);
+					name = NumbrValue.valueOf(element);
+				}
+
+				ordinal++;
+				if (!isListed(name)) {
+					next = name;
+				}
+			}
+
+			return next != null;
+		}
+
+		private boolean isListed(Value name) {
+			for (int i = 0; i < depth; i++) {
+				BukkitValue bukkit = bukkits[i];
+				if (bukkit.getNumOwnSlots() == ends[i]) {
+					if (bukkit.containsOwnSlot(name)) {
+						return true;
+					}
+				} else {
+					// Slots the parent got during the loop were not listed.
+					int ordinal = bukkit.getOrdinal(name);
+					if (ordinal >= 0 && ordinal < ends[i]) {
+						return true;
+					}
+				}
+			}
+
+			return false;
 		}
 
-		public void getSlots(Set<Value> added, BukkitValue slots) { }
+		public Value next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+
+			Value name = next;
+			next = null;
+			return name;
+		}
 	}
 
 	public final Value call(Value target) {
 		return this;
 	}
 
-	public final Value call(Value target, List<Value> arguments) {
+	public final Value call(Value target, Value argument) {
+		throw new LOLCodeException(LOLCodeException.BAD_CALL_TYPE, getType());
+	}
+
+	public final Value call(Value target, Value argument1, Value argument2) {
+		throw new LOLCodeException(LOLCodeException.BAD_CALL_TYPE, getType());
+	}
+
+	public final Value call(Value target, Value argument1, Value argument2, Value argument3) {
+		throw new LOLCodeException(LOLCodeException.BAD_CALL_TYPE, getType());
+	}
+
+	public final Value call(Value target, Value[] arguments) {
 		throw new LOLCodeException(LOLCodeException.BAD_CALL_TYPE, getType());
 	}
 }
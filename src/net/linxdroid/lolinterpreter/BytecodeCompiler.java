@@ -0,0 +1,1107 @@
+/*
+ * Java LOLCODE - LOLCODE parser and interpreter (http://lolcode.com/)
+ * Copyright (C) 2007-2011  Brett Kail (bkail@iastate.edu)
+ * http://bkail.public.iastate.edu/lolcode/
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.linxdroid.lolinterpreter;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.linxdroid.lolinterpreter.ClassFileWriter.Label;
+import net.linxdroid.lolinterpreter.ClassFileWriter.MethodWriter;
+
+import static net.linxdroid.lolinterpreter.ClassFileWriter.*;
+
+class BytecodeCompiler implements CompiledProgram {
+	private static final String SCRIPT = "net/linxdroid/lolinterpreter/CompiledScript";
+	private static final String CODE = "net/linxdroid/lolinterpreter/CompiledCode";
+	private static final String VALUE = "net/linxdroid/lolinterpreter/Value";
+
+	private static final String V = 'L' + VALUE + ';';
+	private static final String _V = "()" + V;
+	private static final String V_V = '(' + V + ')' + V;
+	private static final String VV_V = '(' + V + V + ')' + V;
+
+	private Program program;
+	private Environment environment;
+	private Cmd cmd;
+
+	private ClassFileWriter writer;
+	private List<Object> constants = new ArrayList<Object>();
+	private Map<Program.Function, Integer> functionIds = new IdentityHashMap<Program.Function, Integer>();
+	private List<Program.Function> functions = new ArrayList<Program.Function>();
+
+	private CompiledCode code;
+	private Interpreter interpreter;
+
+	public BytecodeCompiler(Program program, Environment environment, Cmd cmd) {
+		this.program = program;
+		this.environment = environment;
+		this.cmd = cmd;
+
+		try {
+			code = compile();
+		} catch (IllegalStateException ex) {
+			interpreter = new Interpreter(program, environment, cmd);
+		}
+
+		writer = null;
+		constants = null;
+		functionIds = null;
+		functions = null;
+	}
+
+	public Value execute() {
+		if (interpreter != null) {
+			return interpreter.execute();
+		}
+
+		return code.execute();
+	}
+
+	public int getExitCode() {
+		if (interpreter != null) {
+			return interpreter.getExitCode();
+		}
+
+		return code.getExitCode();
+	}
+
+	boolean isCompiled() {
+		return code != null;
+	}
+
+	private CompiledCode compile() {
+		writer = new ClassFileWriter(ACC_PUBLIC | ACC_FINAL, SCRIPT, CODE);
+
+		MethodWriter init = writer.addMethod(ACC_PUBLIC, "<init>", "()V");
+		init.aload(0);
+		init.invoke(INVOKESPECIAL, CODE, "<init>", "()V");
+		init.op(RETURN);
+
+		new MethodCompiler(null).compile(program.getMainBlock());
+		for (int i = 0; i < functions.size(); i++) {
+			new MethodCompiler(functions.get(i)).compile(functions.get(i));
+		}
+
+		compileInvoke();
+
+		Class<?> klass = new ScriptClassLoader(BytecodeCompiler.class.getClassLoader()).define(SCRIPT.replace('/', '.'), writer.toByteArray());
+
+		CompiledCode code;
+		try {
+			code = (CompiledCode)klass.getDeclaredConstructor().newInstance();
+		} catch (NoSuchMethodException ex) {
+			throw new IllegalStateException(ex);
+		} catch (InstantiationException ex) {
+			throw new IllegalStateException(ex);
+		} catch (IllegalAccessException ex) {
+			throw new IllegalStateException(ex);
+		} catch (InvocationTargetException ex) {
+			throw new IllegalStateException(ex.getCause());
+		}
+
+		code.init(program, environment, cmd, constants.toArray());
+		return code;
+	}
+
+	private void compileInvoke() {
+		MethodWriter mw = writer.addMethod(ACC_PROTECTED, "invoke", "(I" + V + '[' + V + ')' + V);
+
+		if (!functions.isEmpty()) {
+			Label defaultLabel = new Label();
+			Label[] labels = new Label[functions.size()];
+			for (int i = 0; i < labels.length; i++) {
+				labels[i] = new Label();
+			}
+
+			mw.iload(1);
+			mw.tableswitch(defaultLabel, labels);
+
+			for (int i = 0; i < labels.length; i++) {
+				int numArguments = functions.get(i).getNumArguments();
+
+				mw.mark(labels[i]);
+				mw.aload(3);
+				mw.push(numArguments);
+				mw.invoke(INVOKESTATIC, CODE, "checkArgumentCount", "([" + V + "I)V");
+
+				mw.aload(0);
+				mw.aload(2);
+				for (int j = 0; j < numArguments; j++) {
+					mw.aload(3);
+					mw.push(j);
+					mw.op(AALOAD);
+				}
+
+				mw.invoke(INVOKEVIRTUAL, SCRIPT, getMethodName(i), getMethodDescriptor(numArguments));
+				mw.op(ARETURN);
+			}
+
+			mw.mark(defaultLabel);
+		}
+
+		mw.op(ACONST_NULL);
+		mw.op(ARETURN);
+	}
+
+	private int getFunctionId(Program.Function function) {
+		Integer id = functionIds.get(function);
+		if (id == null) {
+			id = functions.size();
+			functionIds.put(function, id);
+			functions.add(function);
+		}
+
+		return id.intValue();
+	}
+
+	private static String getMethodName(int id) {
+		return "function" + id;
+	}
+
+	private static String getMethodDescriptor(int numArguments) {
+		StringBuilder builder = new StringBuilder("(").append(V);
+		for (int i = 0; i < numArguments; i++) {
+			builder.append(V);
+		}
+
+		return builder.append(')').append(V).toString();
+	}
+
+	private static class ScriptClassLoader extends ClassLoader {
+		public ScriptClassLoader(ClassLoader parent) {
+			super(parent);
+		}
+
+		public Class<?> define(String name, byte[] bytes) {
+			return defineClass(name, bytes, 0, bytes.length);
+		}
+	}
+
+	private static class Region {
+		public static final int LOOP = 0;
+		public static final int WTF = 1;
+		public static final int OHAI = 2;
+		public static final int PLZ = 3;
+
+		public int kind;
+		public Label breakLabel;
+		public Label continueLabel;
+		public int savedObject;
+		public List<Program.Statement> awsumThx;
+
+		public List<int[]> catchRanges = new ArrayList<int[]>();
+		public List<int[]> anyRanges = new ArrayList<int[]>();
+		private int catchStart = -1;
+		private int anyStart = -1;
+		private boolean catchSuspended;
+		private boolean anySuspended;
+
+		public Region(int kind) {
+			this.kind = kind;
+		}
+
+		public boolean hasFinally() {
+			return kind == OHAI || kind == PLZ;
+		}
+
+		public void open(int position, boolean withCatch) {
+			if (withCatch) {
+				catchStart = position;
+			}
+			anyStart = position;
+		}
+
+		public void closeCatch(int position) {
+			if (catchStart >= 0) {
+				catchRanges.add(new int[] { catchStart, position });
+				catchStart = -1;
+			}
+		}
+
+		public void closeAny(int position) {
+			if (anyStart >= 0) {
+				anyRanges.add(new int[] { anyStart, position });
+				anyStart = -1;
+			}
+		}
+
+		public void suspend(int position) {
+			catchSuspended = catchStart >= 0;
+			anySuspended = anyStart >= 0;
+			closeCatch(position);
+			closeAny(position);
+		}
+
+		public void resume(int position) {
+			if (catchSuspended) {
+				catchStart = position;
+			}
+			if (anySuspended) {
+				anyStart = position;
+			}
+		}
+	}
+
+	private class MethodCompiler implements Program.StatementVisitor, Program.ExpressionVisitor {
+		private Program.Function function;
+		private MethodWriter mw;
+		private int[] variables;
+		private int object;
+		private int outerObject;
+		private int it;
+		private Label start;
+		private List<Region> regions = new ArrayList<Region>();
+
+		public MethodCompiler(Program.Function function) {
+			this.function = function;
+		}
+
+		public void compile(Program.Block block) {
+			if (function == null) {
+				mw = writer.addMethod(ACC_PROTECTED, "main", _V);
+				object = mw.newLocal();
+				mw.op(ACONST_NULL);
+				mw.astore(object);
+			} else {
+				int numArguments = function.getNumArguments();
+				mw = writer.addMethod(ACC_PUBLIC | ACC_FINAL, getMethodName(functionIds.get(function)), getMethodDescriptor(numArguments));
+				object = 1;
+
+				start = new Label();
+				mw.mark(start);
+
+				variables = new int[block.getNumVariables()];
+				for (int i = 0; i < variables.length; i++) {
+					if (i < numArguments) {
+						variables[i] = 2 + i;
+					} else {
+						variables[i] = mw.newLocal();
+						mw.op(ACONST_NULL);
+						mw.astore(variables[i]);
+					}
+				}
+			}
+
+			outerObject = mw.newLocal();
+			mw.op(ACONST_NULL);
+			mw.astore(outerObject);
+
+			it = mw.newLocal();
+			mw.field(GETSTATIC, CODE, "NOOB", V);
+			mw.astore(it);
+
+			compileStatements(block.getStatements());
+
+			if (mw.isReachable()) {
+				mw.aload(it);
+				mw.op(ARETURN);
+			}
+		}
+
+		private void compileStatements(List<Program.Statement> stmts) {
+			for (Program.Statement stmt : stmts) {
+				if (!mw.isReachable()) {
+					break;
+				}
+
+				stmt.visit(this);
+			}
+		}
+
+		private void compile(Program.Expression expr) {
+			expr.visit(this);
+		}
+
+		private void exitRegions(int depth) {
+			for (int i = regions.size() - 1; i >= depth; i--) {
+				Region region = regions.get(i);
+				region.suspend(mw.getPosition());
+
+				if (region.hasFinally()) {
+					List<Region> saved = regions;
+					regions = new ArrayList<Region>(saved.subList(0, i));
+					compileFinally(region);
+					regions = saved;
+				}
+			}
+		}
+
+		private void resumeRegions(int depth) {
+			for (int i = depth; i < regions.size(); i++) {
+				regions.get(i).resume(mw.getPosition());
+			}
+		}
+
+		private void jump(int depth, Label label) {
+			exitRegions(depth);
+			mw.jump(GOTO, label);
+			resumeRegions(depth);
+		}
+
+		private void exit(int result) {
+			exitRegions(0);
+			if (result >= 0) {
+				mw.aload(result);
+			} else if (function == null) {
+				mw.op(ACONST_NULL);
+			} else {
+				mw.field(GETSTATIC, CODE, "NOOB", V);
+			}
+			mw.op(ARETURN);
+			resumeRegions(0);
+		}
+
+		private void compileFinally(Region region) {
+			if (region.kind == Region.OHAI) {
+				mw.aload(outerObject);
+				mw.astore(object);
+				mw.aload(region.savedObject);
+				mw.astore(outerObject);
+			} else {
+				compileStatements(region.awsumThx);
+			}
+		}
+
+		private void addExceptionHandlers(List<int[]> ranges, Label handler, String type) {
+			for (int[] range : ranges) {
+				mw.addExceptionHandler(range[0], range[1], handler, type);
+			}
+		}
+
+		private void loadVariable(int index) {
+			if (function == null) {
+				loadGlobal(index);
+			} else {
+				mw.aload(variables[index]);
+			}
+		}
+
+		private void loadGlobal(int index) {
+			mw.aload(0);
+			mw.field(GETFIELD, CODE, "globals", '[' + V);
+			mw.push(index);
+			mw.op(AALOAD);
+		}
+
+		private void invokeValue(String name, String descriptor) {
+			mw.invoke(INVOKEINTERFACE, VALUE, name, descriptor);
+		}
+
+		private void invokeCode(String name, String descriptor) {
+			mw.invoke(INVOKEVIRTUAL, CODE, name, descriptor);
+		}
+
+		private void invokeStatic(String name, String descriptor) {
+			mw.invoke(INVOKESTATIC, CODE, name, descriptor);
+		}
+
+		private void compileConstant(Value value) {
+			int constant = constants.size();
+			constants.add(value);
+
+			mw.aload(0);
+			mw.push(constant);
+			invokeCode("constant", "(I)" + V);
+		}
+
+		private void compileBinary(Program.BinaryExpression expr, String name) {
+			compile(expr.getLeftExpression());
+			compile(expr.getRightExpression());
+			invokeStatic(name, VV_V);
+		}
+
+		public void visit(Program.DeclareVariableStatement stmt) {
+			int index = stmt.getVariableIndex();
+
+			if (function == null) {
+				mw.aload(0);
+				mw.field(GETFIELD, CODE, "globals", '[' + V);
+				mw.push(index);
+				compile(stmt.getValue());
+				mw.op(AASTORE);
+			} else {
+				compile(stmt.getValue());
+				mw.astore(variables[index]);
+			}
+		}
+
+		public void visit(Program.DeclareSlotStatement stmt) {
+			compile(stmt.getBukkit());
+			compileConstant(stmt.getNameValue());
+			compile(stmt.getValue());
+			invokeValue("declareSlot", '(' + V + V + ")V");
+		}
+
+		public void visit(Program.AssignItStatement stmt) {
+			if (compileTailCall(stmt.getValue())) {
+				return;
+			}
+
+			compile(stmt.getValue());
+			mw.astore(it);
+		}
+
+		public void visit(Program.AssignVariableStatement stmt) {
+			int index = stmt.getVariableIndex();
+
+			if (function == null) {
+				compileAssignGlobal(index, stmt.getValue());
+			} else {
+				compile(stmt.getValue());
+				mw.aload(variables[index]);
+				mw.op(SWAP);
+				invokeValue("assign", V_V);
+				mw.astore(variables[index]);
+			}
+		}
+
+		private void compileAssignGlobal(int index, Program.Expression value) {
+			mw.aload(0);
+			mw.push(index);
+			compile(value);
+			invokeCode("assignGlobal", "(I" + V + ")V");
+		}
+
+		public void visit(Program.AssignGlobalVariableStatement stmt) {
+			compileAssignGlobal(stmt.getVariableIndex(), stmt.getValue());
+		}
+
+		public void visit(Program.AssignSlotStatement stmt) {
+			compile(stmt.getBukkit());
+			compile(stmt.getIndex());
+			compile(stmt.getValue());
+			invokeValue("setSlot", '(' + V + V + ")V");
+		}
+
+		public void visit(Program.AssignInMahStatement stmt) {
+			stmt.getAssignStatement().visit(this);
+			compile(stmt.getBukkit());
+			compile(stmt.getIndex());
+			compile(stmt.getValue());
+			invokeStatic("assignInMah", '(' + V + V + V + ")V");
+		}
+
+		public void visit(Program.ByesStatement stmt) {
+			Program.Expression message = stmt.getMessage();
+			if (message != null) {
+				mw.aload(0);
+				compile(message);
+				invokeCode("byesMessage", '(' + V + ")V");
+			}
+
+			mw.aload(0);
+			compile(stmt.getExitCode());
+			invokeCode("byes", '(' + V + ")V");
+		}
+
+		public void visit(Program.VisibleStatement stmt) {
+			boolean invisible = stmt.isInvisible();
+
+			for (Program.Expression expr : stmt.getExpressions()) {
+				mw.aload(0);
+				mw.push(invisible);
+				compile(expr);
+				invokeCode("visible", "(Z" + V + ")V");
+			}
+
+			mw.aload(0);
+			mw.push(invisible);
+			mw.push(stmt.isSuppressNewLine());
+			invokeCode("visibleEnd", "(ZZ)V");
+		}
+
+		public void visit(Program.ORlyStatement stmt) {
+			Label noWai = new Label();
+			Label end = new Label();
+
+			compile(stmt.getExpression());
+			invokeValue("getBoolean", "()Z");
+			mw.jump(IFEQ, noWai);
+
+			compileStatements(stmt.getYaRly());
+			if (mw.isReachable()) {
+				mw.jump(GOTO, end);
+			}
+
+			mw.mark(noWai);
+			compileStatements(stmt.getNoWai());
+			mw.mark(end);
+		}
+
+		public void visit(Program.WTFStatement stmt) {
+			List<Program.Statement> stmts = stmt.getStatements();
+			Region region = new Region(Region.WTF);
+			region.breakLabel = new Label();
+
+			int constant = constants.size();
+			constants.add(stmt);
+
+			mw.aload(0);
+			mw.push(constant);
+			compile(stmt.getExpression());
+			invokeCode("getWTFIndex", "(I" + V + ")I");
+
+			if (stmts.isEmpty()) {
+				mw.op(POP);
+				return;
+			}
+
+			Label[] labels = new Label[stmts.size()];
+			for (int i = 0; i < labels.length; i++) {
+				labels[i] = new Label();
+			}
+
+			mw.tableswitch(region.breakLabel, labels);
+
+			regions.add(region);
+			for (int i = 0; i < labels.length; i++) {
+				mw.mark(labels[i]);
+				stmts.get(i).visit(this);
+			}
+			regions.remove(regions.size() - 1);
+
+			mw.mark(region.breakLabel);
+		}
+
+		public void visit(Program.GTFOStatement stmt) {
+			int depth = stmt.getDepth();
+
+			for (int i = regions.size() - 1; i >= 0; i--) {
+				Region region = regions.get(i);
+				if (region.breakLabel != null && depth-- == 0) {
+					jump(i + 1, region.breakLabel);
+					return;
+				}
+			}
+
+			exit(-1);
+		}
+
+		public void visit(Program.ImInYrStatement stmt) {
+			Region region = new Region(Region.LOOP);
+			region.breakLabel = new Label();
+			region.continueLabel = new Label();
+
+			mw.mark(region.continueLabel);
+
+			int exprValue = mw.newLocal();
+			compile(stmt.getExpression());
+			mw.astore(exprValue);
+
+			Program.Expression variable = stmt.getVariable();
+			if (variable == null) {
+				mw.aload(exprValue);
+				invokeValue("getBoolean", "()Z");
+			} else {
+				Label compare = new Label();
+				Label test = new Label();
+
+				mw.aload(exprValue);
+				invokeValue("isTroof", "()Z");
+				mw.jump(IFEQ, compare);
+				mw.aload(exprValue);
+				invokeValue("getBoolean", "()Z");
+				mw.jump(GOTO, test);
+
+				mw.mark(compare);
+				compile(variable);
+				mw.aload(exprValue);
+				mw.invoke(INVOKEVIRTUAL, "java/lang/Object", "equals", "(Ljava/lang/Object;)Z");
+				mw.mark(test);
+			}
+
+			mw.jump(stmt.isTil() ? IFNE : IFEQ, region.breakLabel);
+
+			regions.add(region);
+			compileStatements(stmt.getStatements());
+			regions.remove(regions.size() - 1);
+
+			if (mw.isReachable()) {
+				mw.jump(GOTO, region.continueLabel);
+			}
+
+			mw.mark(region.breakLabel);
+		}
+
+		public void visit(Program.FoundYrStatement stmt) {
+			if (compileTailCall(stmt.getExpression())) {
+				return;
+			}
+
+			int result = mw.newLocal();
+			compile(stmt.getExpression());
+			mw.astore(result);
+			exit(function == null ? -1 : result);
+		}
+
+		// A self call in tail position stores its arguments and jumps back
+		// to the start of the method, which clears the other locals again.
+		private boolean compileTailCall(Program.Expression expr) {
+			if (function == null || !(expr instanceof Program.FunctionCallExpression)) {
+				return false;
+			}
+
+			Program.FunctionCallExpression call = (Program.FunctionCallExpression)expr;
+			if (!call.isTailCall() || call.getFunction() != function) {
+				return false;
+			}
+
+			Program.Expression[] arguments = call.getArguments();
+			int[] values = new int[arguments.length];
+			for (int i = 0; i < arguments.length; i++) {
+				values[i] = mw.newLocal();
+				compile(arguments[i]);
+				mw.astore(values[i]);
+			}
+
+			exitRegions(0);
+			for (int i = 0; i < arguments.length; i++) {
+				mw.aload(values[i]);
+				mw.astore(variables[i]);
+			}
+			mw.op(ACONST_NULL);
+			mw.astore(object);
+			mw.jump(GOTO, start);
+			resumeRegions(0);
+			return true;
+		}
+
+		public void visit(Program.OHaiStatement stmt) {
+			Region region = new Region(Region.OHAI);
+			region.savedObject = mw.newLocal();
+
+			int value = mw.newLocal();
+			compile(stmt.getExpression());
+			mw.astore(value);
+			mw.aload(outerObject);
+			mw.astore(region.savedObject);
+			mw.aload(object);
+			mw.astore(outerObject);
+			mw.aload(value);
+			mw.astore(object);
+
+			Label handler = new Label();
+			Label end = new Label();
+
+			regions.add(region);
+			region.open(mw.getPosition(), false);
+			compileStatements(stmt.getStatements());
+			region.closeAny(mw.getPosition());
+			regions.remove(regions.size() - 1);
+
+			if (mw.isReachable()) {
+				compileFinally(region);
+				mw.jump(GOTO, end);
+			}
+
+			int exception = mw.newLocal();
+			mw.markHandler(handler);
+			mw.astore(exception);
+			compileFinally(region);
+			mw.aload(exception);
+			mw.op(ATHROW);
+
+			addExceptionHandlers(region.anyRanges, handler, null);
+			mw.mark(end);
+		}
+
+		public void visit(Program.PlzStatement stmt) {
+			Region region = new Region(Region.PLZ);
+			region.awsumThx = stmt.getAwsumThx();
+
+			Label catchHandler = new Label();
+			Label anyHandler = new Label();
+			Label awsumThx = new Label();
+			Label end = new Label();
+
+			regions.add(region);
+			region.open(mw.getPosition(), true);
+			compileStatements(stmt.getStatements());
+			region.closeCatch(mw.getPosition());
+			region.closeAny(mw.getPosition());
+
+			if (mw.isReachable()) {
+				mw.jump(GOTO, awsumThx);
+			}
+
+			int exception = mw.newLocal();
+			mw.markHandler(catchHandler);
+			region.open(mw.getPosition(), false);
+			mw.astore(exception);
+			mw.aload(exception);
+			invokeStatic("caught", "(Ljava/lang/RuntimeException;)" + V);
+			mw.astore(it);
+
+			for (Program.PlzStatement.ONoes oNoes : stmt.getONoes()) {
+				Label next = new Label();
+
+				compile(oNoes.getExpression());
+				invokeValue("getBoolean", "()Z");
+				mw.jump(IFEQ, next);
+				compileStatements(oNoes.getStatements());
+				if (mw.isReachable()) {
+					mw.jump(GOTO, awsumThx);
+				}
+				mw.mark(next);
+			}
+
+			mw.aload(exception);
+			mw.op(ATHROW);
+			region.closeAny(mw.getPosition());
+			regions.remove(regions.size() - 1);
+
+			int anyException = mw.newLocal();
+			mw.markHandler(anyHandler);
+			mw.astore(anyException);
+			compileStatements(region.awsumThx);
+			if (mw.isReachable()) {
+				mw.aload(anyException);
+				mw.op(ATHROW);
+			}
+
+			addExceptionHandlers(region.catchRanges, catchHandler, "java/lang/RuntimeException");
+			addExceptionHandlers(region.anyRanges, anyHandler, null);
+
+			mw.mark(awsumThx);
+			compileStatements(region.awsumThx);
+			mw.mark(end);
+		}
+
+		public void visit(Program.RTFMStatement stmt) {
+			mw.type(NEW, "net/linxdroid/lolinterpreter/LOLCodeException");
+			mw.op(DUP);
+			compile(stmt.getExpression());
+			invokeValue("getString", "()Ljava/lang/String;");
+			mw.invoke(INVOKESPECIAL, "net/linxdroid/lolinterpreter/LOLCodeException", "<init>", "(Ljava/lang/String;)V");
+			mw.op(ATHROW);
+		}
+
+		public void visit(Program.WhateverStatement stmt) {
+			for (Program.Statement child : stmt.getUpdateStatements()) {
+				child.visit(this);
+			}
+
+			for (int i = regions.size() - 1; i >= 0; i--) {
+				Region region = regions.get(i);
+				if (region.continueLabel != null) {
+					jump(i + 1, region.continueLabel);
+					return;
+				}
+			}
+
+			throw new IllegalStateException("WHATEVER outside of IM IN YR");
+		}
+
+		public void visit(Program.IncrementVariableStatement stmt) {
+			visit((Program.AssignVariableStatement)stmt);
+		}
+
+		public void visit(Program.VisibleSmooshStatement stmt) {
+			visit((Program.VisibleStatement)stmt);
+		}
+
+		public void visit(Program.CompareORlyStatement stmt) {
+			compileStatements(stmt.getStatements());
+		}
+
+		public void visit(Program.NoobExpression expr) {
+			mw.field(GETSTATIC, CODE, "NOOB", V);
+		}
+
+		public void visit(Program.TroofExpression expr) {
+			mw.push(expr.getValue());
+			invokeStatic("troof", "(Z)" + V);
+		}
+
+		public void visit(Program.NumbrExpression expr) {
+			compileConstant(expr.getConstant());
+		}
+
+		public void visit(Program.NumbarExpression expr) {
+			compileConstant(expr.getConstant());
+		}
+
+		public void visit(Program.YarnExpression expr) {
+			compileConstant(expr.getConstant());
+		}
+
+		public void visit(Program.BukkitExpression expr) {
+			Program.Expression liek = expr.getLiek();
+			mw.aload(0);
+			if (liek == null) {
+				mw.op(ACONST_NULL);
+			} else {
+				compile(liek);
+			}
+
+			invokeCode("bukkit", V_V);
+		}
+
+		public void visit(Program.FunctionExpression expr) {
+			mw.aload(0);
+			mw.push(getFunctionId(expr.getFunction()));
+			invokeCode("function", "(I)" + V);
+		}
+
+		public void visit(Program.ItExpression expr) {
+			mw.aload(it);
+		}
+
+		public void visit(Program.VariableExpression expr) {
+			loadVariable(expr.getIndex());
+		}
+
+		public void visit(Program.GlobalVariableExpression expr) {
+			loadGlobal(expr.getIndex());
+		}
+
+		public void visit(Program.FunctionCallExpression expr) {
+			Program.Expression[] arguments = expr.getArguments();
+			int id = getFunctionId(expr.getFunction());
+
+			mw.aload(0);
+			mw.op(ACONST_NULL);
+			for (Program.Expression argument : arguments) {
+				compile(argument);
+			}
+
+			mw.invoke(INVOKEVIRTUAL, SCRIPT, getMethodName(id), getMethodDescriptor(arguments.length));
+		}
+
+		public void visit(Program.ObjectExpression expr) {
+			mw.aload(expr.isOuter() ? outerObject : object);
+		}
+
+		public void visit(Program.SlotExpression expr) {
+			compile(expr.getBukkit());
+			mw.op(DUP);
+			compile(expr.getIndex());
+			invokeValue("getSlot", V_V);
+			mw.op(SWAP);
+			invokeValue("call", V_V);
+		}
+
+		public void visit(Program.SlotFunctionCallExpression expr) {
+			List<Program.Expression> arguments = expr.getArguments();
+
+			compile(expr.getBukkit());
+			mw.op(DUP);
+			compile(expr.getIndex());
+			invokeValue("getSlot", V_V);
+			mw.op(SWAP);
+
+			int numArguments = arguments.size();
+			if (numArguments <= 3) {
+				StringBuilder descriptor = new StringBuilder().append('(').append(V);
+				for (int i = 0; i < numArguments; i++) {
+					compile(arguments.get(i));
+					descriptor.append(V);
+				}
+
+				invokeValue("call", descriptor.append(')').append(V).toString());
+				return;
+			}
+
+			mw.push(numArguments);
+			mw.type(ANEWARRAY, VALUE);
+			for (int i = 0; i < numArguments; i++) {
+				mw.op(DUP);
+				mw.push(i);
+				compile(arguments.get(i));
+				mw.op(AASTORE);
+			}
+
+			invokeValue("call", '(' + V + '[' + V + ')' + V);
+		}
+
+		public void visit(Program.InMahExpression expr) {
+			compile(expr.getBukkit());
+			compile(expr.getIndex());
+			invokeValue("inMah", V_V);
+		}
+
+		public void visit(Program.GetInMahBukkitExpression expr) {
+			mw.aload(0);
+			compile(expr.getExpression());
+			invokeCode("getInMahBukkit", V_V);
+		}
+
+		public void visit(Program.AssignInMahBukkitInMahExpression expr) {
+			mw.aload(0);
+			compile(expr.getBukkit());
+			compile(expr.getIndex());
+			invokeCode("assignInMahBukkitInMah", VV_V);
+		}
+
+		public void visit(Program.SumExpression expr) {
+			compileBinary(expr, "sum");
+		}
+
+		public void visit(Program.DiffExpression expr) {
+			compileBinary(expr, "diff");
+		}
+
+		public void visit(Program.ProduktExpression expr) {
+			compileBinary(expr, "produkt");
+		}
+
+		public void visit(Program.QuoshuntExpression expr) {
+			compileBinary(expr, "quoshunt");
+		}
+
+		public void visit(Program.ModExpression expr) {
+			compileBinary(expr, "mod");
+		}
+
+		public void visit(Program.BiggrExpression expr) {
+			compileBinary(expr, "biggr");
+		}
+
+		public void visit(Program.SmallrExpression expr) {
+			compileBinary(expr, "smallr");
+		}
+
+		public void visit(Program.WonExpression expr) {
+			compileBinary(expr, "won");
+		}
+
+		public void visit(Program.NotExpression expr) {
+			compile(expr.getExpression());
+			invokeValue("getBoolean", "()Z");
+			mw.op(ICONST_1);
+			mw.op(IXOR);
+			invokeStatic("troof", "(Z)" + V);
+		}
+
+		private void compileBooleans(List<Program.Expression> exprs, boolean all) {
+			mw.push(all);
+			for (Program.Expression expr : exprs) {
+				compile(expr);
+				invokeValue("getBoolean", "()Z");
+				mw.op(all ? IAND : IOR);
+			}
+
+			invokeStatic("troof", "(Z)" + V);
+		}
+
+		public void visit(Program.AllExpression expr) {
+			compileBooleans(expr.getExpressions(), true);
+		}
+
+		public void visit(Program.AnyExpression expr) {
+			compileBooleans(expr.getExpressions(), false);
+		}
+
+		public void visit(Program.BothSaemExpression expr) {
+			compileBinary(expr, "bothSaem");
+		}
+
+		public void visit(Program.DiffrintExpression expr) {
+			compileBinary(expr, "diffrint");
+		}
+
+		public void visit(Program.SmooshExpression expr) {
+			mw.type(NEW, "java/lang/StringBuilder");
+			mw.op(DUP);
+			mw.invoke(INVOKESPECIAL, "java/lang/StringBuilder", "<init>", "()V");
+
+			for (Program.Expression arg : expr.getExpressions()) {
+				compile(arg);
+				invokeValue("getString", "()Ljava/lang/String;");
+				mw.invoke(INVOKEVIRTUAL, "java/lang/StringBuilder", "append", "(Ljava/lang/String;)Ljava/lang/StringBuilder;");
+			}
+
+			mw.invoke(INVOKEVIRTUAL, "java/lang/StringBuilder", "toString", "()Ljava/lang/String;");
+			invokeStatic("yarn", "(Ljava/lang/String;)" + V);
+		}
+
+		public void visit(Program.NoobCastExpression expr) {
+			compile(expr.getExpression());
+			mw.op(POP);
+			mw.field(GETSTATIC, CODE, "NOOB", V);
+		}
+
+		public void visit(Program.TroofCastExpression expr) {
+			compile(expr.getExpression());
+			invokeValue("castToTroof", _V);
+		}
+
+		public void visit(Program.NumbrCastExpression expr) {
+			compile(expr.getExpression());
+			invokeValue("castToNumbr", _V);
+		}
+
+		public void visit(Program.NumbarCastExpression expr) {
+			compile(expr.getExpression());
+			invokeValue("castToNumbar", _V);
+		}
+
+		public void visit(Program.YarnCastExpression expr) {
+			compile(expr.getExpression());
+			invokeValue("castToYarn", _V);
+		}
+
+		public void visit(Program.GimmehExpression expr) {
+			mw.aload(0);
+			mw.push(expr.getWhat());
+			invokeCode("gimmeh", "(I)" + V);
+		}
+
+		public void visit(Program.MathNumbrExpression expr) {
+			compile(expr.getExpression());
+			invokeValue("castToMathNumbr", _V);
+		}
+
+		public void visit(Program.BigrThanExpression expr) {
+			compileBinary(expr, "bigrThan");
+		}
+
+		public void visit(Program.SmalrThanExpression expr) {
+			compileBinary(expr, "smalrThan");
+		}
+
+		public void visit(Program.SlotIteratorExpression expr) {
+			compile(expr.getExpression());
+			invokeStatic("slotIterator", V_V);
+		}
+
+		public void visit(Program.HasNextSlotExpression expr) {
+			compile(expr.getExpression());
+			invokeStatic("hasNextSlot", V_V);
+		}
+
+		public void visit(Program.NextSlotExpression expr) {
+			compile(expr.getExpression());
+			invokeStatic("nextSlot", V_V);
+		}
+
+		public void visit(Program.JavaExpression expr) {
+			compile(expr.getExpression());
+			invokeStatic("java", V_V);
+		}
+
+		public void visit(Program.NamedSlotExpression expr) {
+			visit((Program.SlotExpression)expr);
+		}
+	}
+}
@@ -0,0 +1,613 @@
+/*
+ * Java LOLCODE - LOLCODE parser and interpreter (http://lolcode.com/)
+ * Copyright (C) 2007-2011  Brett Kail (bkail@iastate.edu)
+ * http://bkail.public.iastate.edu/lolcode/
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.linxdroid.lolinterpreter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+class ClassFileWriter {
+	public static final int ACC_PUBLIC = 0x0001;
+	public static final int ACC_PRIVATE = 0x0002;
+	public static final int ACC_PROTECTED = 0x0004;
+	public static final int ACC_FINAL = 0x0010;
+	public static final int ACC_SUPER = 0x0020;
+
+	public static final int ACONST_NULL = 1;
+	public static final int ICONST_0 = 3;
+	public static final int ICONST_1 = 4;
+	public static final int BIPUSH = 16;
+	public static final int SIPUSH = 17;
+	public static final int LDC = 18;
+	public static final int LDC_W = 19;
+	public static final int ILOAD = 21;
+	public static final int ALOAD = 25;
+	public static final int AALOAD = 50;
+	public static final int ISTORE = 54;
+	public static final int ASTORE = 58;
+	public static final int AASTORE = 83;
+	public static final int POP = 87;
+	public static final int DUP = 89;
+	public static final int SWAP = 95;
+	public static final int IAND = 126;
+	public static final int IOR = 128;
+	public static final int IXOR = 130;
+	public static final int IFEQ = 153;
+	public static final int IFNE = 154;
+	public static final int GOTO = 167;
+	public static final int TABLESWITCH = 170;
+	public static final int ARETURN = 176;
+	public static final int RETURN = 177;
+	public static final int GETSTATIC = 178;
+	public static final int GETFIELD = 180;
+	public static final int PUTFIELD = 181;
+	public static final int INVOKEVIRTUAL = 182;
+	public static final int INVOKESPECIAL = 183;
+	public static final int INVOKESTATIC = 184;
+	public static final int INVOKEINTERFACE = 185;
+	public static final int NEW = 187;
+	public static final int ANEWARRAY = 189;
+	public static final int ATHROW = 191;
+	public static final int CHECKCAST = 192;
+	public static final int WIDE = 196;
+
+	private static final int CONSTANT_UTF8 = 1;
+	private static final int CONSTANT_INTEGER = 3;
+	private static final int CONSTANT_FLOAT = 4;
+	private static final int CONSTANT_CLASS = 7;
+	private static final int CONSTANT_STRING = 8;
+	private static final int CONSTANT_FIELDREF = 9;
+	private static final int CONSTANT_METHODREF = 10;
+	private static final int CONSTANT_INTERFACE_METHODREF = 11;
+	private static final int CONSTANT_NAME_AND_TYPE = 12;
+
+	// Version 49 class files are checked by the type-inferencing verifier, so
+	// no StackMapTable needs to be computed.
+	private static final int MAJOR_VERSION = 49;
+	private static final int MAX_CODE_LENGTH = 65535;
+
+	private ByteArrayOutputStream constantPoolBytes = new ByteArrayOutputStream();
+	private DataOutputStream constantPool = new DataOutputStream(constantPoolBytes);
+	private Map<String, Integer> constants = new HashMap<String, Integer>();
+	private int numConstants = 1;
+
+	private int access;
+	private int thisClass;
+	private int superClass;
+	private List<MethodWriter> methods = new ArrayList<MethodWriter>();
+
+	public ClassFileWriter(int access, String name, String superName) {
+		this.access = access | ACC_SUPER;
+		this.thisClass = classConstant(name);
+		this.superClass = classConstant(superName);
+	}
+
+	private int addConstant(String key) {
+		Integer index = constants.get(key);
+		if (index != null) {
+			return -index.intValue();
+		}
+
+		constants.put(key, numConstants);
+		return numConstants++;
+	}
+
+	private int constant(String key, int tag, int a, int b) {
+		int index = addConstant(key);
+		if (index < 0) {
+			return -index;
+		}
+
+		try {
+			constantPool.writeByte(tag);
+			constantPool.writeShort(a);
+			if (b >= 0) {
+				constantPool.writeShort(b);
+			}
+		} catch (IOException ex) {
+			throw new IllegalStateException(ex);
+		}
+
+		return index;
+	}
+
+	public int utf8Constant(String value) {
+		int index = addConstant("U" + value);
+		if (index < 0) {
+			return -index;
+		}
+
+		try {
+			constantPool.writeByte(CONSTANT_UTF8);
+			constantPool.writeUTF(value);
+		} catch (IOException ex) {
+			throw new IllegalStateException(ex);
+		}
+
+		return index;
+	}
+
+	public int intConstant(int value) {
+		int index = addConstant("I" + value);
+		if (index < 0) {
+			return -index;
+		}
+
+		try {
+			constantPool.writeByte(CONSTANT_INTEGER);
+			constantPool.writeInt(value);
+		} catch (IOException ex) {
+			throw new IllegalStateException(ex);
+		}
+
+		return index;
+	}
+
+	public int floatConstant(float value) {
+		int bits = Float.floatToRawIntBits(value);
+		int index = addConstant("F" + bits);
+		if (index < 0) {
+			return -index;
+		}
+
+		try {
+			constantPool.writeByte(CONSTANT_FLOAT);
+			constantPool.writeInt(bits);
+		} catch (IOException ex) {
+			throw new IllegalStateException(ex);
+		}
+
+		return index;
+	}
+
+	public int classConstant(String name) {
+		int utf8 = utf8Constant(name);
+		return constant("C" + name, CONSTANT_CLASS, utf8, -1);
+	}
+
+	public int stringConstant(String value) {
+		int utf8 = utf8Constant(value);
+		return constant("S" + value, CONSTANT_STRING, utf8, -1);
+	}
+
+	private int nameAndTypeConstant(String name, String descriptor) {
+		int nameIndex = utf8Constant(name);
+		int descriptorIndex = utf8Constant(descriptor);
+		return constant("N" + name + ' ' + descriptor, CONSTANT_NAME_AND_TYPE, nameIndex, descriptorIndex);
+	}
+
+	private int memberConstant(int tag, String owner, String name, String descriptor) {
+		int classIndex = classConstant(owner);
+		int nameAndType = nameAndTypeConstant(name, descriptor);
+		return constant(tag + owner + '.' + name + ' ' + descriptor, tag, classIndex, nameAndType);
+	}
+
+	public MethodWriter addMethod(int access, String name, String descriptor) {
+		MethodWriter method = new MethodWriter(access, utf8Constant(name), descriptor);
+		methods.add(method);
+		return method;
+	}
+
+	public byte[] toByteArray() {
+		int code = utf8Constant("Code");
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+
+		try {
+			out.writeInt(0xcafebabe);
+			out.writeShort(0);
+			out.writeShort(MAJOR_VERSION);
+			out.writeShort(numConstants);
+			constantPoolBytes.writeTo(out);
+			out.writeShort(access);
+			out.writeShort(thisClass);
+			out.writeShort(superClass);
+			out.writeShort(0);
+			out.writeShort(0);
+
+			out.writeShort(methods.size());
+			for (MethodWriter method : methods) {
+				method.write(out, code);
+			}
+
+			out.writeShort(0);
+		} catch (IOException ex) {
+			throw new IllegalStateException(ex);
+		}
+
+		return bytes.toByteArray();
+	}
+
+	private static int getArgumentSize(String descriptor) {
+		int size = 0;
+
+		for (int i = 1; descriptor.charAt(i) != ')'; i++) {
+			char ch = descriptor.charAt(i);
+
+			while (ch == '[') {
+				ch = descriptor.charAt(++i);
+			}
+
+			if (ch == 'L') {
+				i = descriptor.indexOf(';', i);
+			}
+
+			size += ch == 'J' || ch == 'D' ? 2 : 1;
+		}
+
+		return size;
+	}
+
+	private static int getReturnSize(String descriptor) {
+		char ch = descriptor.charAt(descriptor.indexOf(')') + 1);
+		return ch == 'V' ? 0 : ch == 'J' || ch == 'D' ? 2 : 1;
+	}
+
+	public static class Label {
+		private int position = -1;
+		private int stack = -1;
+		private List<int[]> fixups = new ArrayList<int[]>();
+
+		public int getPosition() {
+			return position;
+		}
+	}
+
+	public class MethodWriter {
+		private int access;
+		private int name;
+		private int descriptor;
+
+		private byte[] code = new byte[256];
+		private int length;
+		private int stack;
+		private int maxStack;
+		private int maxLocals;
+		private List<int[]> exceptionTable = new ArrayList<int[]>();
+
+		MethodWriter(int access, int name, String descriptor) {
+			this.access = access;
+			this.name = name;
+			this.descriptor = utf8Constant(descriptor);
+			this.maxLocals = getArgumentSize(descriptor) + 1;
+		}
+
+		private void write(DataOutputStream out, int codeAttribute) throws IOException {
+			if (length > MAX_CODE_LENGTH) {
+				throw new IllegalStateException("code too large");
+			}
+
+			out.writeShort(access);
+			out.writeShort(name);
+			out.writeShort(descriptor);
+			out.writeShort(1);
+
+			out.writeShort(codeAttribute);
+			out.writeInt(12 + length + exceptionTable.size() * 8);
+			out.writeShort(maxStack);
+			out.writeShort(maxLocals);
+			out.writeInt(length);
+			out.write(code, 0, length);
+			out.writeShort(exceptionTable.size());
+			for (int[] entry : exceptionTable) {
+				out.writeShort(entry[0]);
+				out.writeShort(entry[1]);
+				out.writeShort(entry[2]);
+				out.writeShort(entry[3]);
+			}
+			out.writeShort(0);
+		}
+
+		private void ensureCapacity(int size) {
+			if (length + size > code.length) {
+				byte[] newCode = new byte[Math.max(code.length * 2, length + size)];
+				System.arraycopy(code, 0, newCode, 0, length);
+				code = newCode;
+			}
+		}
+
+		private void writeByte(int value) {
+			ensureCapacity(1);
+			code[length++] = (byte)value;
+		}
+
+		private void writeShort(int value) {
+			ensureCapacity(2);
+			code[length++] = (byte)(value >> 8);
+			code[length++] = (byte)value;
+		}
+
+		private void writeInt(int value) {
+			writeShort(value >> 16);
+			writeShort(value);
+		}
+
+		private void adjustStack(int delta) {
+			stack += delta;
+			if (stack > maxStack) {
+				maxStack = stack;
+			}
+		}
+
+		public int getPosition() {
+			return length;
+		}
+
+		public boolean isReachable() {
+			return stack >= 0;
+		}
+
+		public int newLocal() {
+			return maxLocals++;
+		}
+
+		public void op(int opcode, int stackDelta) {
+			writeByte(opcode);
+			adjustStack(stackDelta);
+
+			if (opcode == GOTO || opcode == ARETURN || opcode == RETURN || opcode == ATHROW) {
+				stack = -1;
+			}
+		}
+
+		public void op(int opcode) {
+			int delta;
+
+			switch (opcode) {
+				case ACONST_NULL:
+				case ICONST_0:
+				case ICONST_1:
+				case DUP:
+					delta = 1;
+					break;
+
+				case AALOAD:
+				case POP:
+				case IAND:
+				case IOR:
+				case IXOR:
+				case ARETURN:
+				case ATHROW:
+					delta = -1;
+					break;
+
+				case AASTORE:
+					delta = -3;
+					break;
+
+				default:
+					delta = 0;
+					break;
+			}
+
+			op(opcode, delta);
+		}
+
+		private void local(int opcode, int index, int stackDelta) {
+			if (index > 255) {
+				writeByte(WIDE);
+				writeByte(opcode);
+				writeShort(index);
+			} else {
+				writeByte(opcode);
+				writeByte(index);
+			}
+
+			adjustStack(stackDelta);
+		}
+
+		public void aload(int index) {
+			local(ALOAD, index, 1);
+		}
+
+		public void astore(int index) {
+			local(ASTORE, index, -1);
+		}
+
+		public void iload(int index) {
+			local(ILOAD, index, 1);
+		}
+
+		public void push(int value) {
+			if (value >= -1 && value <= 5) {
+				writeByte(ICONST_0 + value);
+			} else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+				writeByte(BIPUSH);
+				writeByte(value);
+			} else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+				writeByte(SIPUSH);
+				writeShort(value);
+			} else {
+				ldc(intConstant(value));
+				return;
+			}
+
+			adjustStack(1);
+		}
+
+		public void push(boolean value) {
+			push(value ? 1 : 0);
+		}
+
+		public void push(float value) {
+			ldc(floatConstant(value));
+		}
+
+		public void push(String value) {
+			ldc(stringConstant(value));
+		}
+
+		private void ldc(int index) {
+			if (index > 255) {
+				writeByte(LDC_W);
+				writeShort(index);
+			} else {
+				writeByte(LDC);
+				writeByte(index);
+			}
+
+			adjustStack(1);
+		}
+
+		public void type(int opcode, String name) {
+			writeByte(opcode);
+			writeShort(classConstant(name));
+			adjustStack(opcode == NEW ? 1 : 0);
+		}
+
+		public void field(int opcode, String owner, String name, String descriptor) {
+			writeByte(opcode);
+			writeShort(memberConstant(CONSTANT_FIELDREF, owner, name, descriptor));
+
+			switch (opcode) {
+				case GETSTATIC:
+					adjustStack(1);
+					break;
+
+				case PUTFIELD:
+					adjustStack(-2);
+					break;
+			}
+		}
+
+		public void invoke(int opcode, String owner, String name, String descriptor) {
+			int argumentSize = getArgumentSize(descriptor);
+
+			writeByte(opcode);
+			if (opcode == INVOKEINTERFACE) {
+				writeShort(memberConstant(CONSTANT_INTERFACE_METHODREF, owner, name, descriptor));
+				writeByte(argumentSize + 1);
+				writeByte(0);
+			} else {
+				writeShort(memberConstant(CONSTANT_METHODREF, owner, name, descriptor));
+			}
+
+			adjustStack(getReturnSize(descriptor) - argumentSize - (opcode == INVOKESTATIC ? 0 : 1));
+		}
+
+		private void reference(Label label, int position, boolean wide) {
+			if (label.position >= 0) {
+				int offset = label.position - position;
+				if (wide) {
+					writeInt(offset);
+				} else {
+					checkOffset(offset);
+					writeShort(offset);
+				}
+			} else {
+				label.fixups.add(new int[] { position, length, wide ? 1 : 0 });
+				if (wide) {
+					writeInt(0);
+				} else {
+					writeShort(0);
+				}
+			}
+		}
+
+		private void checkOffset(int offset) {
+			if (offset < Short.MIN_VALUE || offset > Short.MAX_VALUE) {
+				throw new IllegalStateException("code too large");
+			}
+		}
+
+		private void setLabelStack(Label label, int stack) {
+			if (label.stack < 0) {
+				label.stack = stack;
+			}
+		}
+
+		public void jump(int opcode, Label label) {
+			int position = length;
+			writeByte(opcode);
+			adjustStack(opcode == GOTO ? 0 : -1);
+			setLabelStack(label, stack);
+			reference(label, position, false);
+
+			if (opcode == GOTO) {
+				stack = -1;
+			}
+		}
+
+		public void tableswitch(Label defaultLabel, Label[] labels) {
+			int position = length;
+			writeByte(TABLESWITCH);
+			adjustStack(-1);
+
+			while (length % 4 != 0) {
+				writeByte(0);
+			}
+
+			setLabelStack(defaultLabel, stack);
+			reference(defaultLabel, position, true);
+			writeInt(0);
+			writeInt(labels.length - 1);
+			for (Label label : labels) {
+				setLabelStack(label, stack);
+				reference(label, position, true);
+			}
+
+			stack = -1;
+		}
+
+		public void mark(Label label) {
+			label.position = length;
+
+			if (label.stack >= 0) {
+				stack = label.stack;
+			} else if (stack < 0) {
+				stack = 0;
+			}
+
+			for (int[] fixup : label.fixups) {
+				int offset = length - fixup[0];
+				int at = fixup[1];
+
+				if (fixup[2] != 0) {
+					code[at] = (byte)(offset >> 24);
+					code[at + 1] = (byte)(offset >> 16);
+					code[at + 2] = (byte)(offset >> 8);
+					code[at + 3] = (byte)offset;
+				} else {
+					checkOffset(offset);
+					code[at] = (byte)(offset >> 8);
+					code[at + 1] = (byte)offset;
+				}
+			}
+
+			label.fixups.clear();
+		}
+
+		public void markHandler(Label label) {
+			stack = -1;
+			label.stack = 1;
+			mark(label);
+		}
+
+		public void addExceptionHandler(int start, int end, Label handler, String type) {
+			if (start < end) {
+				exceptionTable.add(new int[] { start, end, handler.position, type == null ? 0 : classConstant(type) });
+			}
+		}
+	}
+}
@@ -0,0 +1,205 @@
+/*
+ * Java LOLCODE - LOLCODE parser and interpreter (http://lolcode.com/)
+ * Copyright (C) 2007-2011  Brett Kail (bkail@iastate.edu)
+ * http://bkail.public.iastate.edu/lolcode/
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.linxdroid.lolinterpreter;
+
+import java.io.PrintWriter;
+
+public abstract class CompiledCode {
+	protected static final Value NOOB = NoobValue.INSTANCE;
+
+	private Environment environment;
+	private Cmd cmd;
+	private InMahBukkitFactory inMahBukkitFactory;
+	private Object[] constants;
+	private BukkitHeap heap = new BukkitHeap();
+	private int exitCode;
+	protected Value[] globals;
+
+	protected CompiledCode() { }
+
+	void init(Program program, Environment environment, Cmd cmd, Object[] constants) {
+		this.environment = environment;
+		this.cmd = cmd;
+		this.inMahBukkitFactory = program.isVersion1_1() ? InMahBukkitFactory.VERSION_1_1_FACTORY : InMahBukkitFactory.VERSION_1_0_FACTORY;
+		this.constants = constants;
+		this.globals = new Value[program.getMainBlock().getNumVariables()];
+	}
+
+	Value execute() {
+		return main();
+	}
+
+	int getExitCode() {
+		return exitCode;
+	}
+
+	protected abstract Value main();
+
+	protected abstract Value invoke(int function, Value target, Value[] arguments);
+
+	protected static Value yarn(String value) {
+		return new YarnValue(value);
+	}
+
+	protected static Value troof(boolean value) {
+		return TroofValue.getInstance(value);
+	}
+
+	protected final Value bukkit(Value liek) {
+		return Operations.bukkit(liek, heap);
+	}
+
+	protected final Value function(int function) {
+		return new FunctionValue(new FunctionImpl(this, function));
+	}
+
+	protected static void checkArgumentCount(Value[] arguments, int numArguments) {
+		AbstractFunction.checkArgumentCount(arguments.length, numArguments);
+	}
+
+	protected final void assignGlobal(int index, Value value) {
+		globals[index] = globals[index].assign(value);
+	}
+
+	protected final Value getInMahBukkit(Value value) {
+		return value.getInMahBukkit(inMahBukkitFactory);
+	}
+
+	protected final Value assignInMahBukkitInMah(Value bukkit, Value index) {
+		return ((InMahBukkit)bukkit).assignInMahBukkitInMah(index, inMahBukkitFactory);
+	}
+
+	protected static void assignInMah(Value bukkit, Value index, Value value) {
+		((InMahBukkit)bukkit).assignInMah(index, value);
+	}
+
+	protected static Value sum(Value left, Value right) {
+		return Operations.sum(left, right);
+	}
+
+	protected static Value diff(Value left, Value right) {
+		return Operations.diff(left, right);
+	}
+
+	protected static Value produkt(Value left, Value right) {
+		return Operations.produkt(left, right);
+	}
+
+	protected static Value quoshunt(Value left, Value right) {
+		return Operations.quoshunt(left, right);
+	}
+
+	protected static Value mod(Value left, Value right) {
+		return Operations.mod(left, right);
+	}
+
+	protected static Value biggr(Value left, Value right) {
+		return Operations.biggr(left, right);
+	}
+
+	protected static Value smallr(Value left, Value right) {
+		return Operations.smallr(left, right);
+	}
+
+	protected static Value won(Value left, Value right) {
+		return Operations.won(left, right);
+	}
+
+	protected static Value bothSaem(Value left, Value right) {
+		return Operations.bothSaem(left, right);
+	}
+
+	protected static Value diffrint(Value left, Value right) {
+		return Operations.diffrint(left, right);
+	}
+
+	protected static Value bigrThan(Value left, Value right) {
+		return Operations.bigrThan(left, right);
+	}
+
+	protected static Value smalrThan(Value left, Value right) {
+		return Operations.smalrThan(left, right);
+	}
+
+	protected static Value slotIterator(Value bukkit) {
+		return Operations.slotIterator(bukkit);
+	}
+
+	protected static Value hasNextSlot(Value iterator) {
+		return Operations.hasNextSlot(iterator);
+	}
+
+	protected static Value nextSlot(Value iterator) {
+		return Operations.nextSlot(iterator);
+	}
+
+	protected static Value java(Value name) {
+		return Operations.java(name);
+	}
+
+	protected static Value caught(RuntimeException ex) {
+		return new YarnValue(Operations.getExceptionType(ex));
+	}
+
+	protected final Value constant(int constant) {
+		return (Value)constants[constant];
+	}
+
+	protected final int getWTFIndex(int constant, Value value) {
+		return Operations.getWTFIndex((Program.WTFStatement)constants[constant], value);
+	}
+
+	protected final Value gimmeh(int what) {
+		return Operations.gimmeh(what, environment, cmd);
+	}
+
+	protected final void visible(boolean invisible, Value value) {
+		Operations.print(environment, cmd, invisible, value.getString());
+	}
+
+	protected final void visibleEnd(boolean invisible, boolean suppressNewLine) {
+		Operations.println(environment, cmd, invisible, suppressNewLine);
+	}
+
+	protected final void byesMessage(Value message) {
+		PrintWriter err = environment.getErr();
+		err.println(message.getString());
+		err.flush();
+	}
+
+	protected final void byes(Value exitCode) {
+		this.exitCode = exitCode.getInt();
+		environment.exit(this.exitCode);
+	}
+
+	private static class FunctionImpl extends AbstractFunction {
+		private CompiledCode code;
+		private int function;
+
+		public FunctionImpl(CompiledCode code, int function) {
+			this.code = code;
+			this.function = function;
+		}
+
+		public Value call(Value target, Value[] arguments) {
+			return code.invoke(function, target, arguments);
+		}
+	}
+}
@@ -0,0 +1,288 @@
+/*
+ * Java LOLCODE - LOLCODE parser and interpreter (http://lolcode.com/)
+ * Copyright (C) 2007-2011  Brett Kail (bkail@iastate.edu)
+ * http://bkail.public.iastate.edu/lolcode/
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.linxdroid.lolinterpreter;
+
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// An IM IN YR loop that steps a local by a constant NUMBR and tests it
+// against a bound that does not change inside the loop, so the count can be
+// kept in an int.  The body is the loop statements without the update.
+final class CountedLoop {
+	private static final int BOTH_SAEM = 0;
+	private static final int DIFFRINT = 1;
+	private static final int BIGR_THAN = 2;
+	private static final int SMALR_THAN = 3;
+
+	private final int variable;
+	private final int step;
+	private final int comparison;
+	private final boolean til;
+	private final Program.Expression bound;
+	private final List<Program.Statement> body;
+	private final boolean readsVariable;
+
+	private CountedLoop(int variable, int step, int comparison, boolean til, Program.Expression bound, List<Program.Statement> body, boolean readsVariable) {
+		this.variable = variable;
+		this.step = step;
+		this.comparison = comparison;
+		this.til = til;
+		this.bound = bound;
+		this.body = body;
+		this.readsVariable = readsVariable;
+	}
+
+	public int getVariableIndex() {
+		return variable;
+	}
+
+	public int getStep() {
+		return step;
+	}
+
+	public Program.Expression getBound() {
+		return bound;
+	}
+
+	public List<Program.Statement> getBody() {
+		return body;
+	}
+
+	// Whether the body needs the boxed variable before every iteration.
+	public boolean readsVariable() {
+		return readsVariable;
+	}
+
+	// Whether the loop runs another iteration with the variable at value.
+	public boolean test(int value, int limit) {
+		boolean result;
+		switch (comparison) {
+		case BOTH_SAEM:
+			result = value == limit;
+			break;
+		case DIFFRINT:
+			result = value != limit;
+			break;
+		case BIGR_THAN:
+			result = value > limit;
+			break;
+		default:
+			result = value < limit;
+			break;
+		}
+
+		return result != til;
+	}
+
+	// Finds the counted loops of a program.  Functions can assign the
+	// variables of the main block, so those globals are left alone.
+	// Matches every loop of the program up front, so one Finder can be
+	// shared by executions on different threads.
+	static final class Finder {
+		private final Program.Block mainBlock;
+		private final Set<Integer> assignedGlobals = new HashSet<Integer>();
+		private final Map<Program.ImInYrStatement, CountedLoop> loops = new IdentityHashMap<Program.ImInYrStatement, CountedLoop>();
+
+		public Finder(Program program) {
+			mainBlock = program.getMainBlock();
+
+			GlobalScanner scanner = new GlobalScanner();
+			scanner.block = mainBlock;
+			scanner.scan(mainBlock.getStatements());
+
+			for (Map.Entry<Program.ImInYrStatement, Program.Block> entry : scanner.blocks.entrySet()) {
+				CountedLoop loop = match(entry.getValue(), entry.getKey());
+				if (loop != null) {
+					loops.put(entry.getKey(), loop);
+				}
+			}
+		}
+
+		public CountedLoop get(Program.ImInYrStatement stmt) {
+			return loops.get(stmt);
+		}
+
+		private class GlobalScanner extends ProgramScanner {
+			private final Set<Program.Function> functions = new HashSet<Program.Function>();
+			private final Map<Program.ImInYrStatement, Program.Block> blocks = new IdentityHashMap<Program.ImInYrStatement, Program.Block>();
+			private Program.Block block;
+
+			protected void scanFunction(Program.Function function) {
+				if (functions.add(function)) {
+					Program.Block outer = block;
+					block = function;
+					scan(function.getStatements());
+					block = outer;
+				}
+			}
+
+			@Override
+			public void visit(Program.AssignGlobalVariableStatement stmt) {
+				super.visit(stmt);
+				assignedGlobals.add(stmt.getVariableIndex());
+			}
+
+			@Override
+			public void visit(Program.ImInYrStatement stmt) {
+				super.visit(stmt);
+				blocks.put(stmt, block);
+			}
+		}
+
+		private boolean isShared(Program.Block block, int index) {
+			return block == mainBlock && assignedGlobals.contains(index);
+		}
+
+		private CountedLoop match(Program.Block block, Program.ImInYrStatement stmt) {
+			List<Program.Statement> stmts = stmt.getStatements();
+			if (stmts.isEmpty() || !(stmt.getVariable() instanceof Program.VariableExpression)) {
+				return null;
+			}
+
+			int index = ((Program.VariableExpression)stmt.getVariable()).getIndex();
+			Program.Statement update = stmts.get(stmts.size() - 1);
+			int step = getStep(update, index);
+			if (step == 0 || isShared(block, index)) {
+				return null;
+			}
+
+			if (!(stmt.getExpression() instanceof Program.BinaryExpression)) {
+				return null;
+			}
+
+			Program.BinaryExpression expr = (Program.BinaryExpression)stmt.getExpression();
+			int comparison;
+			if (expr instanceof Program.BothSaemExpression) {
+				comparison = BOTH_SAEM;
+			} else if (expr instanceof Program.DiffrintExpression) {
+				comparison = DIFFRINT;
+			} else if (expr instanceof Program.BigrThanExpression) {
+				comparison = BIGR_THAN;
+			} else if (expr instanceof Program.SmalrThanExpression) {
+				comparison = SMALR_THAN;
+			} else {
+				return null;
+			}
+
+			Program.Expression bound;
+			if (isVariable(expr.getLeftExpression(), index)) {
+				bound = expr.getRightExpression();
+			} else if (isVariable(expr.getRightExpression(), index)) {
+				bound = expr.getLeftExpression();
+				if (comparison == BIGR_THAN) {
+					comparison = SMALR_THAN;
+				} else if (comparison == SMALR_THAN) {
+					comparison = BIGR_THAN;
+				}
+			} else {
+				return null;
+			}
+
+			List<Program.Statement> body = stmts.subList(0, stmts.size() - 1);
+			Uses uses = new Uses(index, step);
+			uses.scan(body);
+			if (uses.assigned) {
+				return null;
+			}
+
+			if (bound instanceof Program.VariableExpression) {
+				int boundIndex = ((Program.VariableExpression)bound).getIndex();
+				Uses boundUses = new Uses(boundIndex, 0);
+				boundUses.scan(body);
+				if (boundIndex == index || boundUses.assigned || isShared(block, boundIndex)) {
+					return null;
+				}
+			} else if (!(bound instanceof Program.NumbrExpression)) {
+				return null;
+			}
+
+			return new CountedLoop(index, step, comparison, stmt.isTil(), bound, body, uses.read);
+		}
+	}
+
+	private static boolean isVariable(Program.Expression expr, int index) {
+		return expr instanceof Program.VariableExpression && ((Program.VariableExpression)expr).getIndex() == index;
+	}
+
+	// The constant step of an update "i R SUM OF i AN n", or zero.
+	private static int getStep(Program.Statement stmt, int index) {
+		if (!(stmt instanceof Program.AssignVariableStatement)) {
+			return 0;
+		}
+
+		Program.AssignVariableStatement assign = (Program.AssignVariableStatement)stmt;
+		if (assign.getVariableIndex() != index || !(assign.getValue() instanceof Program.SumExpression)) {
+			return 0;
+		}
+
+		Program.SumExpression sum = (Program.SumExpression)assign.getValue();
+		if (!isVariable(sum.getLeftExpression(), index) || !(sum.getRightExpression() instanceof Program.NumbrExpression)) {
+			return 0;
+		}
+
+		return ((Program.NumbrExpression)sum.getRightExpression()).getValue();
+	}
+
+	// Records whether statements read or assign a local.  A WHATEVER that
+	// runs this loop's own update only reads it.
+	private static class Uses extends ProgramScanner {
+		private final int index;
+		private final int step;
+		private boolean read;
+		private boolean assigned;
+
+		public Uses(int index, int step) {
+			this.index = index;
+			this.step = step;
+		}
+
+		protected void scanFunction(Program.Function function) { }
+
+		@Override
+		public void visit(Program.DeclareVariableStatement stmt) {
+			super.visit(stmt);
+			assigned |= stmt.getVariableIndex() == index;
+		}
+
+		@Override
+		public void visit(Program.AssignVariableStatement stmt) {
+			super.visit(stmt);
+			assigned |= stmt.getVariableIndex() == index;
+		}
+
+		@Override
+		public void visit(Program.WhateverStatement stmt) {
+			List<Program.Statement> updates = stmt.getUpdateStatements();
+			if (step != 0 && updates.size() == 1 && getStep(updates.get(0), index) == step) {
+				read = true;
+			} else {
+				super.visit(stmt);
+			}
+		}
+
+		@Override
+		public void visit(Program.VariableExpression expr) {
+			read |= expr.getIndex() == index;
+		}
+	}
+}
@@ -0,0 +1,1817 @@
+/*
+ * Java LOLCODE - LOLCODE parser and interpreter (http://lolcode.com/)
+ * Copyright (C) 2007-2011  Brett Kail (bkail@iastate.edu)
+ * http://bkail.public.iastate.edu/lolcode/
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.linxdroid.lolinterpreter;
+
+import java.io.PrintWriter;
+import java.util.Arrays;
+
+final class ExecutionTree {
+	public static final int EXIT_GTFO = 1;
+	public static final int EXIT_FOUND_YR = 2;
+	public static final int EXIT_WHATEVER = 3;
+	public static final int EXIT_TAIL_CALL = 4;
+
+	private ExecutionTree() { }
+
+	public static class Context {
+		public Environment environment;
+		public Cmd cmd;
+		public InMahBukkitFactory inMahBukkitFactory;
+		public int exitCode;
+		public Fuel fuel = new Fuel();
+		public BukkitHeap heap = new BukkitHeap();
+
+		public Context(Environment environment, Cmd cmd, InMahBukkitFactory inMahBukkitFactory) {
+			this.environment = environment;
+			this.cmd = cmd;
+			this.inMahBukkitFactory = inMahBukkitFactory;
+		}
+	}
+
+	public static final class Frame {
+		public final Context context;
+		public final Frame global;
+		public final Value[] variables;
+		public int[] ints;
+		public float[] floats;
+		public boolean[] troofs;
+		public Value it = NoobValue.INSTANCE;
+		public Value object;
+		public Value outerObject;
+		public Value result;
+		public int exit;
+		public int exitDepth;
+		public Function tailFunction;
+		public Frame tailFrame;
+
+		public Frame(Context context, Frame global, int numVariables, Value object) {
+			this(context, global, new Value[numVariables], object);
+		}
+
+		public Frame(Context context, Frame global, Value[] variables, Value object) {
+			this.context = context;
+			this.global = global == null ? this : global;
+			this.variables = variables;
+			this.object = object;
+		}
+	}
+
+	public static abstract class Statement {
+		public abstract void exec(Frame frame);
+	}
+
+	public static abstract class Expression {
+		public abstract Value execute(Frame frame);
+
+		// Only called on expressions statically known to be NUMBR.
+		public int executeInt(Frame frame) {
+			return Operations.getInt(execute(frame));
+		}
+
+		// Only called on expressions statically known to be NUMBR or NUMBAR.
+		public float executeFloat(Frame frame) {
+			return Operations.getFloat(execute(frame));
+		}
+
+		public boolean executeBoolean(Frame frame) {
+			return Operations.getBoolean(execute(frame));
+		}
+	}
+
+	public static abstract class IntExpression extends Expression {
+		public Value execute(Frame frame) {
+			return NumbrValue.valueOf(executeInt(frame));
+		}
+
+		public abstract int executeInt(Frame frame);
+
+		public float executeFloat(Frame frame) {
+			return executeInt(frame);
+		}
+	}
+
+	public static abstract class FloatExpression extends Expression {
+		public Value execute(Frame frame) {
+			return new NumbarValue(executeFloat(frame));
+		}
+
+		public abstract float executeFloat(Frame frame);
+	}
+
+	public static abstract class TroofExpression extends Expression {
+		public Value execute(Frame frame) {
+			return TroofValue.getInstance(executeBoolean(frame));
+		}
+
+		public abstract boolean executeBoolean(Frame frame);
+	}
+
+	public static abstract class BinaryExpression extends Expression {
+		protected final Expression left;
+		protected final Expression right;
+
+		protected BinaryExpression(Expression left, Expression right) {
+			this.left = left;
+			this.right = right;
+		}
+	}
+
+	public static abstract class UnaryExpression extends Expression {
+		protected final Expression expr;
+
+		protected UnaryExpression(Expression expr) {
+			this.expr = expr;
+		}
+	}
+
+	public static final class Function {
+		private final int numVariables;
+		private final int numArguments;
+		private final int numInts;
+		private final int numFloats;
+		private final int numTroofs;
+		private Statement[] stmts;
+
+		public Function(int numVariables, int numArguments, int numInts, int numFloats, int numTroofs) {
+			this.numVariables = numVariables;
+			this.numArguments = numArguments;
+			this.numInts = numInts;
+			this.numFloats = numFloats;
+			this.numTroofs = numTroofs;
+		}
+
+		public void setStatements(Statement[] stmts) {
+			this.stmts = stmts;
+		}
+
+		public int getNumArguments() {
+			return numArguments;
+		}
+
+		public Frame newFrame(Frame caller, Value object) {
+			Frame frame = new Frame(caller.context, caller.global, numVariables, object);
+			allocate(frame, numInts, numFloats, numTroofs);
+			return frame;
+		}
+
+		public Value call(Frame frame) {
+			Fuel fuel = frame.context.fuel;
+			if (--fuel.ticks < 0) {
+				fuel.refill();
+			}
+
+			Statement[] stmts = this.stmts;
+			for (int i = 0; i < stmts.length; i++) {
+				stmts[i].exec(frame);
+				if (frame.exit != 0) {
+					if (frame.exit == EXIT_FOUND_YR) {
+						return frame.result;
+					}
+					if (frame.exit == EXIT_GTFO) {
+						return NoobValue.INSTANCE;
+					}
+					if (frame.exit == EXIT_TAIL_CALL) {
+						// Continue in the callee without growing the stack.
+						Function function = frame.tailFunction;
+						Frame next = frame.tailFrame;
+						frame.tailFrame = null;
+						frame.tailFunction = null;
+						frame.exit = 0;
+						if (--fuel.ticks < 0) {
+							fuel.refill();
+						}
+
+						if (next == frame) {
+							Value[] variables = frame.variables;
+							Arrays.fill(variables, function.numArguments, variables.length, null);
+							frame.it = NoobValue.INSTANCE;
+							frame.object = null;
+							frame.outerObject = null;
+						}
+
+						stmts = function.stmts;
+						frame = next;
+						i = -1;
+						continue;
+					}
+					break;
+				}
+			}
+
+			return frame.it;
+		}
+
+		public Value call(Frame caller, Value object) {
+			AbstractFunction.checkArgumentCount(0, numArguments);
+			return call(newFrame(caller, object));
+		}
+
+		public Value call(Frame caller, Value object, Value argument) {
+			AbstractFunction.checkArgumentCount(1, numArguments);
+			Frame frame = newFrame(caller, object);
+			frame.variables[0] = argument;
+			return call(frame);
+		}
+
+		public Value call(Frame caller, Value object, Value argument1, Value argument2) {
+			AbstractFunction.checkArgumentCount(2, numArguments);
+			Frame frame = newFrame(caller, object);
+			frame.variables[0] = argument1;
+			frame.variables[1] = argument2;
+			return call(frame);
+		}
+
+		public Value call(Frame caller, Value object, Value argument1, Value argument2, Value argument3) {
+			AbstractFunction.checkArgumentCount(3, numArguments);
+			Frame frame = newFrame(caller, object);
+			frame.variables[0] = argument1;
+			frame.variables[1] = argument2;
+			frame.variables[2] = argument3;
+			return call(frame);
+		}
+
+		public Value call(Frame caller, Value object, Value[] arguments) {
+			AbstractFunction.checkArgumentCount(arguments.length, numArguments);
+			Frame frame = newFrame(caller, object);
+			System.arraycopy(arguments, 0, frame.variables, 0, numArguments);
+			return call(frame);
+		}
+	}
+
+	private static class FunctionImpl implements net.linxdroid.lolinterpreter.Function {
+		private final Function function;
+		private final Frame frame;
+
+		public FunctionImpl(Function function, Frame frame) {
+			this.function = function;
+			this.frame = frame;
+		}
+
+		public Value call(Value target) {
+			return function.call(frame, target);
+		}
+
+		public Value call(Value target, Value argument) {
+			return function.call(frame, target, argument);
+		}
+
+		public Value call(Value target, Value argument1, Value argument2) {
+			return function.call(frame, target, argument1, argument2);
+		}
+
+		public Value call(Value target, Value argument1, Value argument2, Value argument3) {
+			return function.call(frame, target, argument1, argument2, argument3);
+		}
+
+		public Value call(Value target, Value[] arguments) {
+			return function.call(frame, target, arguments);
+		}
+	}
+
+	static void allocate(Frame frame, int numInts, int numFloats, int numTroofs) {
+		if (numInts != 0) {
+			frame.ints = new int[numInts];
+		}
+		if (numFloats != 0) {
+			frame.floats = new float[numFloats];
+		}
+		if (numTroofs != 0) {
+			frame.troofs = new boolean[numTroofs];
+		}
+	}
+
+	static boolean exec(Statement[] stmts, Frame frame) {
+		for (int i = 0; i < stmts.length; i++) {
+			stmts[i].exec(frame);
+			if (frame.exit != 0) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	public static final class DeclareVariable extends Statement {
+		private final int index;
+		private final Expression value;
+
+		public DeclareVariable(int index, Expression value) {
+			this.index = index;
+			this.value = value;
+		}
+
+		public void exec(Frame frame) {
+			frame.variables[index] = value.execute(frame);
+		}
+	}
+
+	public static final class DeclareSlot extends Statement {
+		private final Expression bukkit;
+		private final Value name;
+		private final Expression value;
+
+		public DeclareSlot(Expression bukkit, Value name, Expression value) {
+			this.bukkit = bukkit;
+			this.name = name;
+			this.value = value;
+		}
+
+		public void exec(Frame frame) {
+			bukkit.execute(frame).declareSlot(name, value.execute(frame));
+		}
+	}
+
+	public static final class AssignIt extends Statement {
+		private final Expression value;
+
+		public AssignIt(Expression value) {
+			this.value = value;
+		}
+
+		public void exec(Frame frame) {
+			frame.it = value.execute(frame);
+		}
+	}
+
+	public static final class AssignVariable extends Statement {
+		private final int index;
+		private final Expression value;
+
+		public AssignVariable(int index, Expression value) {
+			this.index = index;
+			this.value = value;
+		}
+
+		public void exec(Frame frame) {
+			Value result = value.execute(frame);
+			Value[] variables = frame.variables;
+			variables[index] = variables[index].assign(result);
+		}
+	}
+
+	public static final class AssignGlobalVariable extends Statement {
+		private final int index;
+		private final Expression value;
+
+		public AssignGlobalVariable(int index, Expression value) {
+			this.index = index;
+			this.value = value;
+		}
+
+		public void exec(Frame frame) {
+			Value result = value.execute(frame);
+			Value[] variables = frame.global.variables;
+			variables[index] = variables[index].assign(result);
+		}
+	}
+
+	public static final class IntStore extends Statement {
+		private final int slot;
+		private final boolean global;
+		private final Expression value;
+
+		public IntStore(int slot, boolean global, Expression value) {
+			this.slot = slot;
+			this.global = global;
+			this.value = value;
+		}
+
+		public void exec(Frame frame) {
+			int result = value.executeInt(frame);
+			(global ? frame.global : frame).ints[slot] = result;
+		}
+	}
+
+	public static final class FloatStore extends Statement {
+		private final int slot;
+		private final boolean global;
+		private final Expression value;
+
+		public FloatStore(int slot, boolean global, Expression value) {
+			this.slot = slot;
+			this.global = global;
+			this.value = value;
+		}
+
+		public void exec(Frame frame) {
+			float result = value.executeFloat(frame);
+			(global ? frame.global : frame).floats[slot] = result;
+		}
+	}
+
+	public static final class TroofStore extends Statement {
+		private final int slot;
+		private final boolean global;
+		private final Expression value;
+
+		public TroofStore(int slot, boolean global, Expression value) {
+			this.slot = slot;
+			this.global = global;
+			this.value = value;
+		}
+
+		public void exec(Frame frame) {
+			boolean result = value.executeBoolean(frame);
+			(global ? frame.global : frame).troofs[slot] = result;
+		}
+	}
+
+	public static final class AssignSlot extends Statement {
+		private final Expression bukkit;
+		private final Expression index;
+		private final Expression value;
+
+		public AssignSlot(Expression bukkit, Expression index, Expression value) {
+			this.bukkit = bukkit;
+			this.index = index;
+			this.value = value;
+		}
+
+		public void exec(Frame frame) {
+			bukkit.execute(frame).setSlot(index.execute(frame), value.execute(frame));
+		}
+	}
+
+	public static final class AssignInMah extends Statement {
+		private final Statement assign;
+		private final Expression bukkit;
+		private final Expression index;
+		private final Expression value;
+
+		public AssignInMah(Statement assign, Expression bukkit, Expression index, Expression value) {
+			this.assign = assign;
+			this.bukkit = bukkit;
+			this.index = index;
+			this.value = value;
+		}
+
+		public void exec(Frame frame) {
+			assign.exec(frame);
+			((InMahBukkit)bukkit.execute(frame)).assignInMah(index.execute(frame), value.execute(frame));
+		}
+	}
+
+	public static final class Byes extends Statement {
+		private final Expression message;
+		private final Expression exitCode;
+
+		public Byes(Expression message, Expression exitCode) {
+			this.message = message;
+			this.exitCode = exitCode;
+		}
+
+		public void exec(Frame frame) {
+			Context context = frame.context;
+
+			if (message != null) {
+				PrintWriter err = context.environment.getErr();
+				err.println(message.execute(frame).getString());
+				err.flush();
+			}
+
+			context.exitCode = exitCode.execute(frame).getInt();
+			context.environment.exit(context.exitCode);
+		}
+	}
+
+	public static final class Visible extends Statement {
+		private final Expression[] exprs;
+		private final boolean invisible;
+		private final boolean suppressNewLine;
+
+		public Visible(Expression[] exprs, boolean invisible, boolean suppressNewLine) {
+			this.exprs = exprs;
+			this.invisible = invisible;
+			this.suppressNewLine = suppressNewLine;
+		}
+
+		public void exec(Frame frame) {
+			Context context = frame.context;
+
+			for (int i = 0; i < exprs.length; i++) {
+				Operations.print(context.environment, context.cmd, invisible, exprs[i].execute(frame).getString());
+			}
+
+			Operations.println(context.environment, context.cmd, invisible, suppressNewLine);
+		}
+	}
+
+	public static final class ORly extends Statement {
+		private final Expression expr;
+		private final Statement[] yaRly;
+		private final Statement[] noWai;
+
+		public ORly(Expression expr, Statement[] yaRly, Statement[] noWai) {
+			this.expr = expr;
+			this.yaRly = yaRly;
+			this.noWai = noWai;
+		}
+
+		public void exec(Frame frame) {
+			ExecutionTree.exec(expr.executeBoolean(frame) ? yaRly : noWai, frame);
+		}
+	}
+
+	public static final class WTF extends Statement {
+		private final Program.WTFStatement stmt;
+		private final Expression expr;
+		private final Statement[] stmts;
+
+		public WTF(Program.WTFStatement stmt, Expression expr, Statement[] stmts) {
+			this.stmt = stmt;
+			this.expr = expr;
+			this.stmts = stmts;
+		}
+
+		public void exec(Frame frame) {
+			for (int i = Operations.getWTFIndex(stmt, expr.execute(frame)); i < stmts.length; i++) {
+				stmts[i].exec(frame);
+				if (frame.exit != 0) {
+					if (frame.exit == EXIT_GTFO && frame.exitDepth-- == 0) {
+						frame.exit = 0;
+					}
+					return;
+				}
+			}
+		}
+	}
+
+	public static final class GTFO extends Statement {
+		private final int depth;
+
+		public GTFO(int depth) {
+			this.depth = depth;
+		}
+
+		public void exec(Frame frame) {
+			frame.exit = EXIT_GTFO;
+			frame.exitDepth = depth;
+		}
+	}
+
+	public static final class ImInYr extends Statement {
+		private final Expression expr;
+		private final Expression variable;
+		private final boolean til;
+		private final boolean troof;
+		private final Statement[] stmts;
+
+		public ImInYr(Expression expr, Expression variable, boolean til, boolean troof, Statement[] stmts) {
+			this.expr = expr;
+			this.variable = variable;
+			this.til = til;
+			this.troof = troof;
+			this.stmts = stmts;
+		}
+
+		private boolean test(Frame frame) {
+			if (troof) {
+				return expr.executeBoolean(frame) != til;
+			}
+
+			Value value = expr.execute(frame);
+			boolean result;
+
+			if (variable == null || value.isTroof()) {
+				result = Operations.getBoolean(value);
+			} else {
+				result = Operations.equal(variable.execute(frame), value);
+			}
+
+			return result != til;
+		}
+
+		public void exec(Frame frame) {
+			Statement[] stmts = this.stmts;
+			Fuel fuel = frame.context.fuel;
+
+			while (test(frame)) {
+				for (int i = 0; i < stmts.length; i++) {
+					stmts[i].exec(frame);
+					if (frame.exit != 0) {
+						if (frame.exit == EXIT_WHATEVER) {
+							frame.exit = 0;
+							break;
+						}
+
+						if (frame.exit == EXIT_GTFO && frame.exitDepth-- == 0) {
+							frame.exit = 0;
+						}
+						return;
+					}
+				}
+
+				if (--fuel.ticks < 0) {
+					fuel.refill();
+				}
+			}
+		}
+	}
+
+	// A counted loop over a boxed local; loops that do not start with NUMBRs
+	// run as the general loop instead.
+	public static final class CountedLoop extends Statement {
+		private final net.linxdroid.lolinterpreter.CountedLoop loop;
+		private final int index;
+		private final Expression bound;
+		private final Statement[] stmts;
+		private final ImInYr general;
+
+		public CountedLoop(net.linxdroid.lolinterpreter.CountedLoop loop, Expression bound, Statement[] stmts, ImInYr general) {
+			this.loop = loop;
+			this.index = loop.getVariableIndex();
+			this.bound = bound;
+			this.stmts = stmts;
+			this.general = general;
+		}
+
+		public void exec(Frame frame) {
+			Value[] variables = frame.variables;
+			Value start = variables[index];
+			Value limitValue = bound.execute(frame);
+			if (ValueTag.of(start) != ValueTag.NUMBR || ValueTag.of(limitValue) != ValueTag.NUMBR) {
+				general.exec(frame);
+				return;
+			}
+
+			net.linxdroid.lolinterpreter.CountedLoop loop = this.loop;
+			Statement[] stmts = this.stmts;
+			boolean readsVariable = loop.readsVariable();
+			int step = loop.getStep();
+			int limit = limitValue.getInt();
+			int value = start.getInt();
+			Fuel fuel = frame.context.fuel;
+
+			try {
+				counting:
+				while (loop.test(value, limit)) {
+					if (readsVariable) {
+						variables[index] = NumbrValue.valueOf(value);
+					}
+
+					for (int i = 0; i < stmts.length; i++) {
+						stmts[i].exec(frame);
+						if (frame.exit != 0) {
+							if (frame.exit == EXIT_WHATEVER) {
+								frame.exit = 0;
+								break;
+							}
+
+							if (frame.exit == EXIT_GTFO && frame.exitDepth-- == 0) {
+								frame.exit = 0;
+							}
+							break counting;
+						}
+					}
+
+					value += step;
+					if (--fuel.ticks < 0) {
+						fuel.refill();
+					}
+				}
+			} finally {
+				variables[index] = NumbrValue.valueOf(value);
+			}
+		}
+	}
+
+	public static final class FoundYr extends Statement {
+		private final Expression expr;
+
+		public FoundYr(Expression expr) {
+			this.expr = expr;
+		}
+
+		public void exec(Frame frame) {
+			frame.result = expr.execute(frame);
+			frame.exit = EXIT_FOUND_YR;
+		}
+	}
+
+	public static final class TailCall extends Statement {
+		private final Function function;
+		private final Expression[] arguments;
+		private final boolean self;
+
+		public TailCall(Function function, Expression[] arguments, boolean self) {
+			this.function = function;
+			this.arguments = arguments;
+			this.self = self;
+		}
+
+		public void exec(Frame frame) {
+			Frame newFrame;
+			if (self) {
+				// Every argument is evaluated before the frame is reused.
+				Value[] variables = frame.variables;
+				switch (arguments.length) {
+				case 0:
+					break;
+				case 1:
+					variables[0] = arguments[0].execute(frame);
+					break;
+				case 2: {
+					Value argument1 = arguments[0].execute(frame);
+					variables[1] = arguments[1].execute(frame);
+					variables[0] = argument1;
+					break;
+				}
+				default: {
+					Value[] values = new Value[arguments.length];
+					for (int i = 0; i < values.length; i++) {
+						values[i] = arguments[i].execute(frame);
+					}
+					System.arraycopy(values, 0, variables, 0, values.length);
+					break;
+				}
+				}
+
+				newFrame = frame;
+			} else {
+				newFrame = function.newFrame(frame, null);
+				Value[] variables = newFrame.variables;
+				for (int i = 0; i < arguments.length; i++) {
+					variables[i] = arguments[i].execute(frame);
+				}
+			}
+
+			frame.tailFunction = function;
+			frame.tailFrame = newFrame;
+			frame.exit = EXIT_TAIL_CALL;
+		}
+	}
+
+	public static final class OHai extends Statement {
+		private final Expression expr;
+		private final Statement[] stmts;
+
+		public OHai(Expression expr, Statement[] stmts) {
+			this.expr = expr;
+			this.stmts = stmts;
+		}
+
+		public void exec(Frame frame) {
+			Value value = expr.execute(frame);
+			Value save = frame.outerObject;
+			frame.outerObject = frame.object;
+			frame.object = value;
+
+			try {
+				ExecutionTree.exec(stmts, frame);
+			} finally {
+				frame.object = frame.outerObject;
+				frame.outerObject = save;
+			}
+		}
+	}
+
+	public static final class Plz extends Statement {
+		private final Statement[] stmts;
+		private final Expression[] oNoesExprs;
+		private final Statement[][] oNoesStmts;
+		private final Statement[] awsumThx;
+
+		public Plz(Statement[] stmts, Expression[] oNoesExprs, Statement[][] oNoesStmts, Statement[] awsumThx) {
+			this.stmts = stmts;
+			this.oNoesExprs = oNoesExprs;
+			this.oNoesStmts = oNoesStmts;
+			this.awsumThx = awsumThx;
+		}
+
+		public void exec(Frame frame) {
+			// As in the interpreter, running out of fuel skips AWSUM THX.
+			boolean exhausted = false;
+			try {
+				try {
+					ExecutionTree.exec(stmts, frame);
+				} catch (RuntimeException ex) {
+					frame.it = new YarnValue(Operations.getExceptionType(ex));
+
+					for (int i = 0; i < oNoesExprs.length; i++) {
+						if (Operations.getBoolean(oNoesExprs[i].execute(frame))) {
+							ExecutionTree.exec(oNoesStmts[i], frame);
+							return;
+						}
+					}
+
+					throw ex;
+				}
+			} catch (FuelExhaustedError error) {
+				exhausted = true;
+				throw error;
+			} finally {
+				if (!exhausted) {
+					Value result = frame.result;
+					int exit = frame.exit;
+					int exitDepth = frame.exitDepth;
+					frame.exit = 0;
+
+					if (!ExecutionTree.exec(awsumThx, frame)) {
+						return;
+					}
+
+					frame.result = result;
+					frame.exit = exit;
+					frame.exitDepth = exitDepth;
+				}
+			}
+		}
+	}
+
+	public static final class RTFM extends Statement {
+		private final Expression expr;
+
+		public RTFM(Expression expr) {
+			this.expr = expr;
+		}
+
+		public void exec(Frame frame) {
+			throw new LOLCodeException(expr.execute(frame).getString());
+		}
+	}
+
+	public static final class Whatever extends Statement {
+		private final Statement[] updates;
+
+		public Whatever(Statement[] updates) {
+			this.updates = updates;
+		}
+
+		public void exec(Frame frame) {
+			for (int i = 0; i < updates.length; i++) {
+				updates[i].exec(frame);
+			}
+
+			frame.exit = EXIT_WHATEVER;
+		}
+	}
+
+	public static final class Constant extends Expression {
+		private final Value value;
+
+		public Constant(Value value) {
+			this.value = value;
+		}
+
+		public Value getValue() {
+			return value;
+		}
+
+		public Value execute(Frame frame) {
+			return value;
+		}
+
+		public int executeInt(Frame frame) {
+			return value.getInt();
+		}
+
+		public float executeFloat(Frame frame) {
+			return value.getFloat();
+		}
+
+		public boolean executeBoolean(Frame frame) {
+			return Operations.getBoolean(value);
+		}
+	}
+
+	public static final class Bukkit extends Expression {
+		private final Expression liek;
+
+		public Bukkit(Expression liek) {
+			this.liek = liek;
+		}
+
+		public Value execute(Frame frame) {
+			return Operations.bukkit(liek == null ? null : liek.execute(frame), frame.context.heap);
+		}
+	}
+
+	public static final class FunctionLiteral extends Expression {
+		private final Function function;
+
+		public FunctionLiteral(Function function) {
+			this.function = function;
+		}
+
+		public Value execute(Frame frame) {
+			return new FunctionValue(new FunctionImpl(function, frame));
+		}
+	}
+
+	public static final class It extends Expression {
+		public Value execute(Frame frame) {
+			return frame.it;
+		}
+	}
+
+	// An O RLY? condition that also sets IT.
+	public static final class SetIt extends Expression {
+		private final Expression value;
+
+		public SetIt(Expression value) {
+			this.value = value;
+		}
+
+		public Value execute(Frame frame) {
+			return frame.it = value.execute(frame);
+		}
+	}
+
+	public static final class Variable extends Expression {
+		private final int index;
+
+		public Variable(int index) {
+			this.index = index;
+		}
+
+		public Value execute(Frame frame) {
+			return frame.variables[index];
+		}
+	}
+
+	public static final class GlobalVariable extends Expression {
+		private final int index;
+
+		public GlobalVariable(int index) {
+			this.index = index;
+		}
+
+		public Value execute(Frame frame) {
+			return frame.global.variables[index];
+		}
+	}
+
+	public static final class IntVariable extends IntExpression {
+		private final int slot;
+		private final boolean global;
+
+		public IntVariable(int slot, boolean global) {
+			this.slot = slot;
+			this.global = global;
+		}
+
+		public int executeInt(Frame frame) {
+			return (global ? frame.global : frame).ints[slot];
+		}
+	}
+
+	public static final class FloatVariable extends FloatExpression {
+		private final int slot;
+		private final boolean global;
+
+		public FloatVariable(int slot, boolean global) {
+			this.slot = slot;
+			this.global = global;
+		}
+
+		public float executeFloat(Frame frame) {
+			return (global ? frame.global : frame).floats[slot];
+		}
+	}
+
+	public static final class TroofVariable extends TroofExpression {
+		private final int slot;
+		private final boolean global;
+
+		public TroofVariable(int slot, boolean global) {
+			this.slot = slot;
+			this.global = global;
+		}
+
+		public boolean executeBoolean(Frame frame) {
+			return (global ? frame.global : frame).troofs[slot];
+		}
+	}
+
+	public static final class FunctionCall extends Expression {
+		private final Function function;
+		private final Expression[] arguments;
+
+		public FunctionCall(Function function, Expression[] arguments) {
+			this.function = function;
+			this.arguments = arguments;
+		}
+
+		public Value execute(Frame frame) {
+			Frame newFrame = function.newFrame(frame, null);
+			Value[] variables = newFrame.variables;
+			for (int i = 0; i < arguments.length; i++) {
+				variables[i] = arguments[i].execute(frame);
+			}
+
+			return function.call(newFrame);
+		}
+	}
+
+	public static final class ObjectReference extends Expression {
+		private final boolean outer;
+
+		public ObjectReference(boolean outer) {
+			this.outer = outer;
+		}
+
+		public Value execute(Frame frame) {
+			return outer ? frame.outerObject : frame.object;
+		}
+	}
+
+	public static final class Slot extends BinaryExpression {
+		private final SlotCache cache = new SlotCache();
+
+		public Slot(Expression bukkit, Expression index) {
+			super(bukkit, index);
+		}
+
+		public Value execute(Frame frame) {
+			Value bukkit = left.execute(frame);
+			return cache.getSlot(bukkit, right.execute(frame)).call(bukkit);
+		}
+	}
+
+	public static final class SlotFunctionCall extends BinaryExpression {
+		private final Expression[] arguments;
+		private final SlotCache cache = new SlotCache();
+
+		public SlotFunctionCall(Expression bukkit, Expression index, Expression[] arguments) {
+			super(bukkit, index);
+			this.arguments = arguments;
+		}
+
+		public Value execute(Frame frame) {
+			Value bukkit = left.execute(frame);
+			Value slot = cache.getSlot(bukkit, right.execute(frame));
+
+			Expression[] arguments = this.arguments;
+			switch (arguments.length) {
+				case 0:
+					return slot.call(bukkit);
+				case 1:
+					return slot.call(bukkit, arguments[0].execute(frame));
+				case 2: {
+					Value argument1 = arguments[0].execute(frame);
+					return slot.call(bukkit, argument1, arguments[1].execute(frame));
+				}
+				case 3: {
+					Value argument1 = arguments[0].execute(frame);
+					Value argument2 = arguments[1].execute(frame);
+					return slot.call(bukkit, argument1, argument2, arguments[2].execute(frame));
+				}
+				default: {
+					Value[] values = new Value[arguments.length];
+					for (int i = 0; i < values.length; i++) {
+						values[i] = arguments[i].execute(frame);
+					}
+
+					return slot.call(bukkit, values);
+				}
+			}
+		}
+	}
+
+	public static final class InMah extends BinaryExpression {
+		public InMah(Expression bukkit, Expression index) {
+			super(bukkit, index);
+		}
+
+		public Value execute(Frame frame) {
+			return left.execute(frame).inMah(right.execute(frame));
+		}
+	}
+
+	public static final class GetInMahBukkit extends UnaryExpression {
+		public GetInMahBukkit(Expression expr) {
+			super(expr);
+		}
+
+		public Value execute(Frame frame) {
+			return expr.execute(frame).getInMahBukkit(frame.context.inMahBukkitFactory);
+		}
+	}
+
+	public static final class AssignInMahBukkitInMah extends BinaryExpression {
+		public AssignInMahBukkitInMah(Expression bukkit, Expression index) {
+			super(bukkit, index);
+		}
+
+		public Value execute(Frame frame) {
+			return ((InMahBukkit)left.execute(frame)).assignInMahBukkitInMah(right.execute(frame), frame.context.inMahBukkitFactory);
+		}
+	}
+
+	// A binary operator that rewrites its state on the operand types it sees.
+	// A NUMBR pair or a NUMBAR pair seen first gets the int or float path, and
+	// arithmetic also takes the int path for YARNs that hold NUMBRs.  A pair
+	// that fails the guard widens the state until the node only calls the
+	// generic operation.
+	public static abstract class SpecializingExpression extends BinaryExpression {
+		private static final int UNINITIALIZED = 0;
+		private static final int NUMBR = 1;
+		private static final int NUMBAR = 2;
+		private static final int YARN_NUMBR = 3;
+		private static final int GENERIC = 4;
+
+		private final boolean arithmetic;
+		private int state = UNINITIALIZED;
+
+		protected SpecializingExpression(Expression left, Expression right, boolean arithmetic) {
+			super(left, right);
+			this.arithmetic = arithmetic;
+		}
+
+		private static boolean isIntegral(Value value) {
+			return value instanceof NumbrValue || (value instanceof YarnValue && !value.isMathNumbar());
+		}
+
+		public final Value execute(Frame frame) {
+			Value leftValue = left.execute(frame);
+			Value rightValue = right.execute(frame);
+
+			if (state == NUMBR && leftValue instanceof NumbrValue && rightValue instanceof NumbrValue) {
+				return executeInt(((NumbrValue)leftValue).getInt(), ((NumbrValue)rightValue).getInt());
+			}
+
+			return executeSlow(leftValue, rightValue);
+		}
+
+		private Value executeSlow(Value leftValue, Value rightValue) {
+			if (state == NUMBAR) {
+				// A NUMBAR compared with itself is equal even when it is NaN,
+				// which only the generic comparison knows.
+				if (leftValue instanceof NumbarValue && rightValue instanceof NumbarValue && (arithmetic || leftValue != rightValue)) {
+					return executeFloat(((NumbarValue)leftValue).getFloat(), ((NumbarValue)rightValue).getFloat());
+				}
+			} else if (state == YARN_NUMBR) {
+				if (isIntegral(leftValue) && isIntegral(rightValue)) {
+					return executeInt(leftValue.getInt(), rightValue.getInt());
+				}
+			} else if (state == GENERIC) {
+				return executeGeneric(leftValue, rightValue);
+			}
+
+			specialize(leftValue, rightValue);
+			return executeGeneric(leftValue, rightValue);
+		}
+
+		private void specialize(Value leftValue, Value rightValue) {
+			if (state == UNINITIALIZED && leftValue instanceof NumbrValue && rightValue instanceof NumbrValue) {
+				state = NUMBR;
+			} else if (state == UNINITIALIZED && leftValue instanceof NumbarValue && rightValue instanceof NumbarValue) {
+				state = NUMBAR;
+			} else if (arithmetic && (state == UNINITIALIZED || state == NUMBR) && isIntegral(leftValue) && isIntegral(rightValue)) {
+				state = YARN_NUMBR;
+			} else {
+				state = GENERIC;
+			}
+		}
+
+		protected abstract Value executeInt(int left, int right);
+
+		protected abstract Value executeFloat(float left, float right);
+
+		protected abstract Value executeGeneric(Value left, Value right);
+	}
+
+	public static final class Sum extends SpecializingExpression {
+		public Sum(Expression left, Expression right) {
+			super(left, right, true);
+		}
+
+		protected Value executeInt(int left, int right) {
+			return NumbrValue.valueOf(left + right);
+		}
+
+		protected Value executeFloat(float left, float right) {
+			return new NumbarValue(left + right);
+		}
+
+		protected Value executeGeneric(Value left, Value right) {
+			return Operations.sum(left, right);
+		}
+	}
+
+	public static final class Diff extends SpecializingExpression {
+		public Diff(Expression left, Expression right) {
+			super(left, right, true);
+		}
+
+		protected Value executeInt(int left, int right) {
+			return NumbrValue.valueOf(left - right);
+		}
+
+		protected Value executeFloat(float left, float right) {
+			return new NumbarValue(left - right);
+		}
+
+		protected Value executeGeneric(Value left, Value right) {
+			return Operations.diff(left, right);
+		}
+	}
+
+	public static final class Produkt extends SpecializingExpression {
+		public Produkt(Expression left, Expression right) {
+			super(left, right, true);
+		}
+
+		protected Value executeInt(int left, int right) {
+			return NumbrValue.valueOf(left * right);
+		}
+
+		protected Value executeFloat(float left, float right) {
+			return new NumbarValue(left * right);
+		}
+
+		protected Value executeGeneric(Value left, Value right) {
+			return Operations.produkt(left, right);
+		}
+	}
+
+	public static final class Quoshunt extends SpecializingExpression {
+		public Quoshunt(Expression left, Expression right) {
+			super(left, right, true);
+		}
+
+		protected Value executeInt(int left, int right) {
+			return NumbrValue.valueOf(compute(left, right));
+		}
+
+		protected Value executeFloat(float left, float right) {
+			return new NumbarValue(left / right);
+		}
+
+		protected Value executeGeneric(Value left, Value right) {
+			return Operations.quoshunt(left, right);
+		}
+
+		static int compute(int left, int right) {
+			if (right == 0) {
+				throw LOLCodeException.get(LOLCodeException.BAD_QUOSHUNT);
+			}
+
+			return left / right;
+		}
+	}
+
+	public static final class Mod extends SpecializingExpression {
+		public Mod(Expression left, Expression right) {
+			super(left, right, true);
+		}
+
+		protected Value executeInt(int left, int right) {
+			return NumbrValue.valueOf(compute(left, right));
+		}
+
+		protected Value executeFloat(float left, float right) {
+			return new NumbarValue(left % right);
+		}
+
+		protected Value executeGeneric(Value left, Value right) {
+			return Operations.mod(left, right);
+		}
+
+		static int compute(int left, int right) {
+			if (right == 0) {
+				throw LOLCodeException.get(LOLCodeException.BAD_MOD);
+			}
+
+			return left % right;
+		}
+	}
+
+	public static final class Biggr extends SpecializingExpression {
+		public Biggr(Expression left, Expression right) {
+			super(left, right, true);
+		}
+
+		protected Value executeInt(int left, int right) {
+			return NumbrValue.valueOf(Math.max(left, right));
+		}
+
+		protected Value executeFloat(float left, float right) {
+			return new NumbarValue(Math.max(left, right));
+		}
+
+		protected Value executeGeneric(Value left, Value right) {
+			return Operations.biggr(left, right);
+		}
+	}
+
+	public static final class Smallr extends SpecializingExpression {
+		public Smallr(Expression left, Expression right) {
+			super(left, right, true);
+		}
+
+		protected Value executeInt(int left, int right) {
+			return NumbrValue.valueOf(Math.min(left, right));
+		}
+
+		protected Value executeFloat(float left, float right) {
+			return new NumbarValue(Math.min(left, right));
+		}
+
+		protected Value executeGeneric(Value left, Value right) {
+			return Operations.smallr(left, right);
+		}
+	}
+
+	public static abstract class IntBinaryExpression extends IntExpression {
+		protected final Expression left;
+		protected final Expression right;
+
+		protected IntBinaryExpression(Expression left, Expression right) {
+			this.left = left;
+			this.right = right;
+		}
+	}
+
+	public static final class IntSum extends IntBinaryExpression {
+		public IntSum(Expression left, Expression right) {
+			super(left, right);
+		}
+
+		public int executeInt(Frame frame) {
+			return left.executeInt(frame) + right.executeInt(frame);
+		}
+	}
+
+	public static final class IntDiff extends IntBinaryExpression {
+		public IntDiff(Expression left, Expression right) {
+			super(left, right);
+		}
+
+		public int executeInt(Frame frame) {
+			return left.executeInt(frame) - right.executeInt(frame);
+		}
+	}
+
+	public static final class IntProdukt extends IntBinaryExpression {
+		public IntProdukt(Expression left, Expression right) {
+			super(left, right);
+		}
+
+		public int executeInt(Frame frame) {
+			return left.executeInt(frame) * right.executeInt(frame);
+		}
+	}
+
+	public static final class IntQuoshunt extends IntBinaryExpression {
+		public IntQuoshunt(Expression left, Expression right) {
+			super(left, right);
+		}
+
+		public int executeInt(Frame frame) {
+			int leftValue = left.executeInt(frame);
+			return Quoshunt.compute(leftValue, right.executeInt(frame));
+		}
+	}
+
+	public static final class IntMod extends IntBinaryExpression {
+		public IntMod(Expression left, Expression right) {
+			super(left, right);
+		}
+
+		public int executeInt(Frame frame) {
+			int leftValue = left.executeInt(frame);
+			return Mod.compute(leftValue, right.executeInt(frame));
+		}
+	}
+
+	public static final class IntBiggr extends IntBinaryExpression {
+		public IntBiggr(Expression left, Expression right) {
+			super(left, right);
+		}
+
+		public int executeInt(Frame frame) {
+			int leftValue = left.executeInt(frame);
+			return Math.max(leftValue, right.executeInt(frame));
+		}
+	}
+
+	public static final class IntSmallr extends IntBinaryExpression {
+		public IntSmallr(Expression left, Expression right) {
+			super(left, right);
+		}
+
+		public int executeInt(Frame frame) {
+			int leftValue = left.executeInt(frame);
+			return Math.min(leftValue, right.executeInt(frame));
+		}
+	}
+
+	public static abstract class FloatBinaryExpression extends FloatExpression {
+		protected final Expression left;
+		protected final Expression right;
+
+		protected FloatBinaryExpression(Expression left, Expression right) {
+			this.left = left;
+			this.right = right;
+		}
+	}
+
+	public static final class FloatSum extends FloatBinaryExpression {
+		public FloatSum(Expression left, Expression right) {
+			super(left, right);
+		}
+
+		public float executeFloat(Frame frame) {
+			return left.executeFloat(frame) + right.executeFloat(frame);
+		}
+	}
+
+	public static final class FloatDiff extends FloatBinaryExpression {
+		public FloatDiff(Expression left, Expression right) {
+			super(left, right);
+		}
+
+		public float executeFloat(Frame frame) {
+			return left.executeFloat(frame) - right.executeFloat(frame);
+		}
+	}
+
+	public static final class FloatProdukt extends FloatBinaryExpression {
+		public FloatProdukt(Expression left, Expression right) {
+			super(left, right);
+		}
+
+		public float executeFloat(Frame frame) {
+			return left.executeFloat(frame) * right.executeFloat(frame);
+		}
+	}
+
+	public static final class FloatQuoshunt extends FloatBinaryExpression {
+		public FloatQuoshunt(Expression left, Expression right) {
+			super(left, right);
+		}
+
+		public float executeFloat(Frame frame) {
+			return left.executeFloat(frame) / right.executeFloat(frame);
+		}
+	}
+
+	public static final class FloatMod extends FloatBinaryExpression {
+		public FloatMod(Expression left, Expression right) {
+			super(left, right);
+		}
+
+		public float executeFloat(Frame frame) {
+			return left.executeFloat(frame) % right.executeFloat(frame);
+		}
+	}
+
+	public static final class FloatBiggr extends FloatBinaryExpression {
+		public FloatBiggr(Expression left, Expression right) {
+			super(left, right);
+		}
+
+		public float executeFloat(Frame frame) {
+			float leftValue = left.executeFloat(frame);
+			return Math.max(leftValue, right.executeFloat(frame));
+		}
+	}
+
+	public static final class FloatSmallr extends FloatBinaryExpression {
+		public FloatSmallr(Expression left, Expression right) {
+			super(left, right);
+		}
+
+		public float executeFloat(Frame frame) {
+			float leftValue = left.executeFloat(frame);
+			return Math.min(leftValue, right.executeFloat(frame));
+		}
+	}
+
+	public static abstract class TroofBinaryExpression extends TroofExpression {
+		protected final Expression left;
+		protected final Expression right;
+
+		protected TroofBinaryExpression(Expression left, Expression right) {
+			this.left = left;
+			this.right = right;
+		}
+	}
+
+	public static final class IntBothSaem extends TroofBinaryExpression {
+		public IntBothSaem(Expression left, Expression right) {
+			super(left, right);
+		}
+
+		public boolean executeBoolean(Frame frame) {
+			return left.executeInt(frame) == right.executeInt(frame);
+		}
+	}
+
+	public static final class IntDiffrint extends TroofBinaryExpression {
+		public IntDiffrint(Expression left, Expression right) {
+			super(left, right);
+		}
+
+		public boolean executeBoolean(Frame frame) {
+			return left.executeInt(frame) != right.executeInt(frame);
+		}
+	}
+
+	public static final class IntBigrThan extends TroofBinaryExpression {
+		public IntBigrThan(Expression left, Expression right) {
+			super(left, right);
+		}
+
+		public boolean executeBoolean(Frame frame) {
+			return left.executeInt(frame) > right.executeInt(frame);
+		}
+	}
+
+	public static final class IntSmalrThan extends TroofBinaryExpression {
+		public IntSmalrThan(Expression left, Expression right) {
+			super(left, right);
+		}
+
+		public boolean executeBoolean(Frame frame) {
+			return left.executeInt(frame) < right.executeInt(frame);
+		}
+	}
+
+	public static final class TroofBothSaem extends TroofBinaryExpression {
+		public TroofBothSaem(Expression left, Expression right) {
+			super(left, right);
+		}
+
+		public boolean executeBoolean(Frame frame) {
+			return left.executeBoolean(frame) == right.executeBoolean(frame);
+		}
+	}
+
+	public static final class TroofDiffrint extends TroofBinaryExpression {
+		public TroofDiffrint(Expression left, Expression right) {
+			super(left, right);
+		}
+
+		public boolean executeBoolean(Frame frame) {
+			return left.executeBoolean(frame) != right.executeBoolean(frame);
+		}
+	}
+
+	public static final class Won extends TroofExpression {
+		private final Expression left;
+		private final Expression right;
+
+		public Won(Expression left, Expression right) {
+			this.left = left;
+			this.right = right;
+		}
+
+		public boolean executeBoolean(Frame frame) {
+			return left.executeBoolean(frame) ^ right.executeBoolean(frame);
+		}
+	}
+
+	public static final class BothSaem extends SpecializingExpression {
+		public BothSaem(Expression left, Expression right) {
+			super(left, right, false);
+		}
+
+		protected Value executeInt(int left, int right) {
+			return TroofValue.getInstance(left == right);
+		}
+
+		protected Value executeFloat(float left, float right) {
+			return TroofValue.getInstance(left == right);
+		}
+
+		protected Value executeGeneric(Value left, Value right) {
+			return Operations.bothSaem(left, right);
+		}
+	}
+
+	public static final class Diffrint extends SpecializingExpression {
+		public Diffrint(Expression left, Expression right) {
+			super(left, right, false);
+		}
+
+		protected Value executeInt(int left, int right) {
+			return TroofValue.getInstance(left != right);
+		}
+
+		protected Value executeFloat(float left, float right) {
+			return TroofValue.getInstance(left != right);
+		}
+
+		protected Value executeGeneric(Value left, Value right) {
+			return Operations.diffrint(left, right);
+		}
+	}
+
+	public static final class BigrThan extends BinaryExpression {
+		public BigrThan(Expression left, Expression right) {
+			super(left, right);
+		}
+
+		public Value execute(Frame frame) {
+			return Operations.bigrThan(left.execute(frame), right.execute(frame));
+		}
+	}
+
+	public static final class SmalrThan extends BinaryExpression {
+		public SmalrThan(Expression left, Expression right) {
+			super(left, right);
+		}
+
+		public Value execute(Frame frame) {
+			return Operations.smalrThan(left.execute(frame), right.execute(frame));
+		}
+	}
+
+	public static final class Not extends TroofExpression {
+		private final Expression expr;
+
+		public Not(Expression expr) {
+			this.expr = expr;
+		}
+
+		public boolean executeBoolean(Frame frame) {
+			return !expr.executeBoolean(frame);
+		}
+	}
+
+	public static final class All extends TroofExpression {
+		private final Expression[] exprs;
+
+		public All(Expression[] exprs) {
+			this.exprs = exprs;
+		}
+
+		public boolean executeBoolean(Frame frame) {
+			boolean result = true;
+			for (int i = 0; i < exprs.length; i++) {
+				result &= exprs[i].executeBoolean(frame);
+			}
+
+			return result;
+		}
+	}
+
+	public static final class Any extends TroofExpression {
+		private final Expression[] exprs;
+
+		public Any(Expression[] exprs) {
+			this.exprs = exprs;
+		}
+
+		public boolean executeBoolean(Frame frame) {
+			boolean result = false;
+			for (int i = 0; i < exprs.length; i++) {
+				result |= exprs[i].executeBoolean(frame);
+			}
+
+			return result;
+		}
+	}
+
+	public static final class Smoosh extends Expression {
+		private final Expression[] exprs;
+
+		public Smoosh(Expression[] exprs) {
+			this.exprs = exprs;
+		}
+
+		public Value execute(Frame frame) {
+			StringBuilder builder = new StringBuilder();
+			for (int i = 0; i < exprs.length; i++) {
+				builder.append(exprs[i].execute(frame).getString());
+			}
+
+			return new YarnValue(builder.toString());
+		}
+	}
+
+	public static final class NoobCast extends UnaryExpression {
+		public NoobCast(Expression expr) {
+			super(expr);
+		}
+
+		public Value execute(Frame frame) {
+			expr.execute(frame);
+			return NoobValue.INSTANCE;
+		}
+	}
+
+	public static final class TroofCast extends UnaryExpression {
+		public TroofCast(Expression expr) {
+			super(expr);
+		}
+
+		public Value execute(Frame frame) {
+			return Operations.castToTroof(expr.execute(frame));
+		}
+	}
+
+	public static final class NumbrCast extends UnaryExpression {
+		public NumbrCast(Expression expr) {
+			super(expr);
+		}
+
+		public Value execute(Frame frame) {
+			return Operations.castToNumbr(expr.execute(frame));
+		}
+	}
+
+	public static final class NumbarCast extends UnaryExpression {
+		public NumbarCast(Expression expr) {
+			super(expr);
+		}
+
+		public Value execute(Frame frame) {
+			return Operations.castToNumbar(expr.execute(frame));
+		}
+	}
+
+	public static final class YarnCast extends UnaryExpression {
+		public YarnCast(Expression expr) {
+			super(expr);
+		}
+
+		public Value execute(Frame frame) {
+			return Operations.castToYarn(expr.execute(frame));
+		}
+	}
+
+	public static final class MathNumbr extends UnaryExpression {
+		public MathNumbr(Expression expr) {
+			super(expr);
+		}
+
+		public Value execute(Frame frame) {
+			return Operations.castToMathNumbr(expr.execute(frame));
+		}
+	}
+
+	public static final class NewSlotIterator extends UnaryExpression {
+		public NewSlotIterator(Expression expr) {
+			super(expr);
+		}
+
+		public Value execute(Frame frame) {
+			return expr.execute(frame).getSlotIterator();
+		}
+	}
+
+	public static final class HasNextSlot extends TroofExpression {
+		private final Expression expr;
+
+		public HasNextSlot(Expression expr) {
+			this.expr = expr;
+		}
+
+		public boolean executeBoolean(Frame frame) {
+			return ((SlotIterator)expr.execute(frame)).hasNext();
+		}
+	}
+
+	public static final class NextSlot extends UnaryExpression {
+		public NextSlot(Expression expr) {
+			super(expr);
+		}
+
+		public Value execute(Frame frame) {
+			return ((SlotIterator)expr.execute(frame)).next();
+		}
+	}
+
+	public static final class Java extends UnaryExpression {
+		public Java(Expression expr) {
+			super(expr);
+		}
+
+		public Value execute(Frame frame) {
+			return Operations.java(expr.execute(frame));
+		}
+	}
+
+	public static final class Gimmeh extends Expression {
+		private final int what;
+
+		public Gimmeh(int what) {
+			this.what = what;
+		}
+
+		public Value execute(Frame frame) {
+			Context context = frame.context;
+			return Operations.gimmeh(what, context.environment, context.cmd);
+		}
+	}
+}
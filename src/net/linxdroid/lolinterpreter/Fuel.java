@@ -0,0 +1,78 @@
+/*
+ * Java LOLCODE - LOLCODE parser and interpreter (http://lolcode.com/)
+ * Copyright (C) 2007-2011  Brett Kail (bkail@iastate.edu)
+ * http://bkail.public.iastate.edu/lolcode/
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.linxdroid.lolinterpreter;
+
+// An execution budget counted in loop iterations and function calls.  The
+// engines decrement ticks at each check point and call refill once it goes
+// negative, so the common path is a decrement and a branch.  Ticks are handed
+// out GRANT at a time, which also bounds how long a script runs between looks
+// at its time slice.
+public class Fuel {
+	public static final long UNLIMITED = Long.MAX_VALUE;
+
+	static final int GRANT = 4096;
+
+	int ticks;
+	Scheduler.Task task;
+	private final long limit;
+	private long granted;
+
+	public Fuel() {
+		this(UNLIMITED);
+	}
+
+	public Fuel(long limit) {
+		if (limit < 0) {
+			throw new IllegalArgumentException("limit: " + limit);
+		}
+
+		this.limit = limit;
+	}
+
+	public long getLimit() {
+		return limit;
+	}
+
+	public long getConsumed() {
+		return granted - ticks;
+	}
+
+	public long getRemaining() {
+		return limit - getConsumed();
+	}
+
+	void refill() {
+		long remaining = limit - granted;
+		if (remaining <= 0) {
+			// Leave consumed at the limit; later checks fail the same way.
+			ticks = 0;
+			throw new FuelExhaustedError(limit);
+		}
+
+		// The check that got us here takes the first tick of the grant.
+		int grant = (int)Math.min(remaining, GRANT);
+		granted += grant;
+		ticks = grant - 1;
+
+		if (task != null) {
+			task.checkSlice();
+		}
+	}
+}
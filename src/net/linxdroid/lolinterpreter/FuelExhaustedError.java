@@ -0,0 +1,37 @@
+/*
+ * Java LOLCODE - LOLCODE parser and interpreter (http://lolcode.com/)
+ * Copyright (C) 2007-2011  Brett Kail (bkail@iastate.edu)
+ * http://bkail.public.iastate.edu/lolcode/
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.linxdroid.lolinterpreter;
+
+// Thrown when a script uses up its Fuel.  This is an Error so that PLZ blocks,
+// which catch runtime exceptions, cannot keep a runaway script going.
+public class FuelExhaustedError extends Error {
+	private static final long serialVersionUID = 0;
+
+	private final long limit;
+
+	public FuelExhaustedError(long limit) {
+		super("fuel exhausted after " + limit);
+		this.limit = limit;
+	}
+
+	public long getLimit() {
+		return limit;
+	}
+}
@@ -19,8 +19,10 @@
 
 package net.linxdroid.lolinterpreter;
 
-import java.util.List;
-
 public interface Function {
-	Value call(Value target, List<Value> arguments);
+	Value call(Value target);
+	Value call(Value target, Value argument);
+	Value call(Value target, Value argument1, Value argument2);
+	Value call(Value target, Value argument1, Value argument2, Value argument3);
+	Value call(Value target, Value[] arguments);
 }
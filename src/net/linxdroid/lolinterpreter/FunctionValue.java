@@ -19,16 +19,18 @@
 
 package net.linxdroid.lolinterpreter;
 
-import java.util.Collections;
-import java.util.List;
-
 class FunctionValue extends AbstractTypedScalarValue {
 	private Function function;
 
 	public FunctionValue(Function function) {
+		super(ValueTag.FUNCTION);
 		this.function = function;
 	}
 
+	Function getFunction() {
+		return function;
+	}
+
 	public String getType() {
 		return "FUNCTION";
 	}
@@ -50,10 +52,22 @@ class FunctionValue extends AbstractTypedScalarValue {
 	}
 
 	public Value call(Value target) {
-		return function.call(target, Collections.<Value>emptyList());
+		return function.call(target);
+	}
+
+	public Value call(Value target, Value argument) {
+		return function.call(target, argument);
+	}
+
+	public Value call(Value target, Value argument1, Value argument2) {
+		return function.call(target, argument1, argument2);
+	}
+
+	public Value call(Value target, Value argument1, Value argument2, Value argument3) {
+		return function.call(target, argument1, argument2, argument3);
 	}
 
-	public Value call(Value target, List<Value> arguments) {
+	public Value call(Value target, Value[] arguments) {
 		return function.call(target, arguments);
 	}
 }
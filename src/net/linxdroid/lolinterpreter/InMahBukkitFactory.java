@@ -38,7 +38,7 @@ abstract class InMahBukkitFactory {
 
 		public InMahBukkit create(Value value) {
 			InMahBukkit bukkit = new BukkitValue();
-			bukkit.assignInMah(new NumbrValue(0), value);
+			bukkit.assignInMah(NumbrValue.valueOf(0), value);
 			return bukkit;
 		}
 	}
@@ -20,7 +20,7 @@
 package net.linxdroid.lolinterpreter;
 
 import java.util.ArrayList;
-import java.util.List;
+import java.util.NoSuchElementException;
 
 class InMahBukkitValue extends ArrayList<Value> implements InMahBukkit {
 	private static final long serialVersionUID = 0;
@@ -136,17 +136,8 @@ class InMahBukkitValue extends ArrayList<Value> implements InMahBukkit {
 		return NoobValue.INSTANCE;
 	}
 
-	public int getNumSlots() {
-		return size();
-	}
-
-	public Value getSlots() {
-		InMahBukkitValue slots = new InMahBukkitValue(new NumbrValue(0));
-		for (int i = size(); i > 1; i--) {
-			slots.add(new NumbrValue(1));
-		}
-
-		return slots;
+	public SlotIterator getSlotIterator() {
+		return new IndexIterator();
 	}
 
 	public InMahBukkit getInMahBukkit(InMahBukkitFactory factory) {
@@ -206,11 +197,44 @@ class InMahBukkitValue extends ArrayList<Value> implements InMahBukkit {
 		return bukkit;
 	}
 
+	// Elements are only ever added, so the loop stops at the size it started
+	// with.
+	private class IndexIterator extends SlotIterator {
+		private final int end = size();
+		private int index;
+
+		public IndexIterator() { }
+
+		public boolean hasNext() {
+			return index < end;
+		}
+
+		public Value next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+
+			return NumbrValue.valueOf(index++);
+		}
+	}
+
 	public final Value call(Value target) {
 		return this;
 	}
 
-	public final Value call(Value target, List<Value> arguments) {
+	public final Value call(Value target, Value argument) {
+		throw new LOLCodeException(LOLCodeException.BAD_CALL_TYPE, getType());
+	}
+
+	public final Value call(Value target, Value argument1, Value argument2) {
+		throw new LOLCodeException(LOLCodeException.BAD_CALL_TYPE, getType());
+	}
+
+	public final Value call(Value target, Value argument1, Value argument2, Value argument3) {
+		throw new LOLCodeException(LOLCodeException.BAD_CALL_TYPE, getType());
+	}
+
+	public final Value call(Value target, Value[] arguments) {
 		throw new LOLCodeException(LOLCodeException.BAD_CALL_TYPE, getType());
 	}
 }
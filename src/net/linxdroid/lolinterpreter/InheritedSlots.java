@@ -0,0 +1,94 @@
+/*
+ * Java LOLCODE - LOLCODE parser and interpreter (http://lolcode.com/)
+ * Copyright (C) 2007-2011  Brett Kail (bkail@iastate.edu)
+ * http://bkail.public.iastate.edu/lolcode/
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.linxdroid.lolinterpreter;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// The named slots a parent's children find on it or above it, so a lookup
+// from a deep LIEK hierarchy costs one map lookup instead of one per level.
+// An entry remembers the bukkit that owns the slot; it is dropped when any
+// parent in the same BukkitHeap declares a slot of that name, which replaces
+// the name's cell.  Writes to an existing slot change its owner's layout, and
+// then only the value is read again.
+final class InheritedSlots {
+	private final BukkitValue start;
+	private final BukkitHeap heap;
+	private final Map<Value, Entry> entries = new HashMap<Value, Entry>();
+
+	public InheritedSlots(BukkitValue start, BukkitHeap heap) {
+		this.start = start;
+		this.heap = heap;
+	}
+
+	// Returns null when no bukkit on the chain has the slot.
+	public Value get(Value name) {
+		Entry entry = entries.get(name);
+		if (entry != null && entry.cell.valid) {
+			BukkitValue owner = entry.owner;
+			if (owner == null || owner.getLayout() == entry.layout) {
+				return entry.value;
+			}
+
+			entry.layout = owner.getLayout();
+			return entry.value = owner.getOwnSlot(name);
+		}
+
+		return miss(name);
+	}
+
+	private Value miss(Value name) {
+		BukkitHeap.Cell cell = heap.getCell(name);
+		int hops = 0;
+
+		for (Bukkit bukkit = start; bukkit instanceof BukkitValue; bukkit = bukkit.getParent()) {
+			BukkitValue holder = (BukkitValue)bukkit;
+			hops++;
+
+			Value value = holder.getOwnSlot(name);
+			if (value != null) {
+				heap.countHops(hops);
+				entries.put(name, new Entry(cell, holder, value));
+				return value;
+			}
+		}
+
+		heap.countHops(hops);
+		entries.put(name, new Entry(cell, null, null));
+		return null;
+	}
+
+	private static final class Entry {
+		private final BukkitHeap.Cell cell;
+		private final BukkitValue owner;
+		private BukkitLayout layout;
+		private Value value;
+
+		public Entry(BukkitHeap.Cell cell, BukkitValue owner, Value value) {
+			this.cell = cell;
+			this.owner = owner;
+			this.value = value;
+
+			if (owner != null) {
+				layout = owner.getLayout();
+			}
+		}
+	}
+}
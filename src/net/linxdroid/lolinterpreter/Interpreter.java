@@ -19,12 +19,11 @@
 
 package net.linxdroid.lolinterpreter;
 
-import java.io.IOException;
-import java.io.BufferedReader;
 import java.io.PrintWriter;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.HashMap;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
 import java.util.Map;
 import java.util.Stack;
 
@@ -33,30 +32,96 @@ class Interpreter implements CompiledProgram, Program.StatementVisitor, Program.
 	private static int EXIT_GTFO = 1;
 	private static int EXIT_FOUND_YR = 2;
 	private static int EXIT_WHATEVER = 3;
+	private static int EXIT_TAIL_CALL = 4;
 
+	private Script script;
 	private Program program;
 	private Environment environment;
 	private InMahBukkitFactory inMahBukkitFactory;
+	private Tiering tiering;
+	private ExecutionTree.Context context;
+	private TreeCompiler treeCompiler;
+	private ExecutionTree.Frame globalFrame;
+	private Map<Program.Function, FunctionProfile> functionProfiles = new IdentityHashMap<Program.Function, FunctionProfile>();
+	private Map<Program.ImInYrStatement, LoopProfile> loopProfiles = new IdentityHashMap<Program.ImInYrStatement, LoopProfile>();
+	private SlotCache[] slotCaches;
+	private MemoTable memoTable;
+	private Purity purity;
+	private Fuel fuel;
 
 	private Value value;
 	private Scope globalScope;
 	private Scope scope;
+
+	// Function locals live in one stack shared by all calls.  Scopes are
+	// pooled by call depth and refer to their region of the stack.
+	private Value[] stack = new Value[64];
+	private int top;
+	private Scope[] scopes = new Scope[16];
+	private int depth;
 	private int exit;
 	private int exitDepth;
-	private int exitCode;
+	private Program.Function tailFunction;
+	private Value[] tailArguments;
 	Cmd cmd;
 
 	public Interpreter(Program program, Environment environment, Cmd cmdarg) {
+		this(new Script(program), environment, cmdarg, new Tiering());
+	}
+
+	public Interpreter(Program program, Environment environment, Cmd cmdarg, Tiering tiering) {
+		this(new Script(program), environment, cmdarg, tiering);
+	}
+
+	Interpreter(Script script, Environment environment, Cmd cmdarg, Tiering tiering) {
 		cmd = cmdarg;
-		this.program = program;
+		this.script = script;
+		this.program = script.getProgram();
 		this.environment = environment;
 		this.inMahBukkitFactory = program.isVersion1_1() ? InMahBukkitFactory.VERSION_1_1_FACTORY : InMahBukkitFactory.VERSION_1_0_FACTORY;
+		this.tiering = tiering;
+		this.context = new ExecutionTree.Context(environment, cmd, inMahBukkitFactory);
+		this.slotCaches = new SlotCache[program.getNumSlotCaches()];
+		this.fuel = context.fuel;
+	}
+
+	public Fuel getFuel() {
+		return fuel;
+	}
+
+	// Fuel is checked at loop back-edges and function entry, here and in
+	// tree-compiled code.
+	public void setFuel(Fuel fuel) {
+		this.fuel = fuel;
+		context.fuel = fuel;
+	}
+
+	// Parents visited one level at a time by slot lookups on the bukkits
+	// this execution created.
+	public long getNumParentHops() {
+		return context.heap.getNumHops();
+	}
+
+	public MemoTable getMemoTable() {
+		return memoTable;
+	}
+
+	// Caches the results of pure functions called with scalar arguments.
+	// Off unless a table is set.
+	public void setMemoTable(MemoTable memoTable) {
+		this.memoTable = memoTable;
+		if (memoTable != null && purity == null) {
+			purity = script.getPurity();
+		}
 	}
 
 	public Value execute() {
 		Program.Block block = program.getMainBlock();
 
-		globalScope = scope = new Scope(null, block);
+		globalScope = scope = new Scope(block);
+		globalFrame = null;
+		top = 0;
+		depth = 0;
 		for (Program.Statement stmt : block.getStatements()) {
 			stmt.visit(this);
 			if (exit != 0) {
@@ -65,13 +130,13 @@ class Interpreter implements CompiledProgram, Program.StatementVisitor, Program.
 		}
 
 		Value result = scope.getIt();
-		scope = scope.getOuterScope();
+		scope = null;
 
 		return result;
 	}
 
 	public int getExitCode() {
-		return exitCode;
+		return context.exitCode;
 	}
 
 	private Value evaluate(Program.Expression expr) {
@@ -84,11 +149,14 @@ class Interpreter implements CompiledProgram, Program.StatementVisitor, Program.
 	}
 
 	public void visit(Program.DeclareSlotStatement stmt) {
-		evaluate(stmt.getBukkit()).declareSlot(new YarnValue(stmt.getName()), evaluate(stmt.getValue()));
+		evaluate(stmt.getBukkit()).declareSlot(stmt.getNameValue(), evaluate(stmt.getValue()));
 	}
 
 	public void visit(Program.AssignItStatement stmt) {
-		scope.setIt(evaluate(stmt.getValue()));
+		Program.Expression expr = stmt.getValue();
+		if (!tailCall(expr)) {
+			scope.setIt(evaluate(expr));
+		}
 	}
 
 	public void visit(Program.AssignVariableStatement stmt) {
@@ -116,26 +184,23 @@ class Interpreter implements CompiledProgram, Program.StatementVisitor, Program.
 			err.flush();
 		}
 
-		exitCode = evaluate(stmt.getExitCode()).getInt();
-		environment.exit(exitCode);
+		context.exitCode = evaluate(stmt.getExitCode()).getInt();
+		environment.exit(context.exitCode);
 		exit = EXIT_BYES;
 	}
 
 	public void visit(Program.VisibleStatement stmt) {
-		PrintWriter out = stmt.isInvisible() ? environment.getErr() : environment.getOut();
+		boolean invisible = stmt.isInvisible();
 
 		for (Program.Expression expr : stmt.getExpressions()) {
-			cmd.stdOut.print(evaluate(expr).getString());
+			Operations.print(environment, cmd, invisible, evaluate(expr).getString());
 		}
 
-		if (!stmt.isSuppressNewLine()) {
-			cmd.stdOut.println();
-		}
-		out.flush();
+		Operations.println(environment, cmd, invisible, stmt.isSuppressNewLine());
 	}
 
 	public void visit(Program.ORlyStatement stmt) {
-		for (Program.Statement child : evaluate(stmt.getExpression()).getBoolean() ? stmt.getYaRly() : stmt.getNoWai()) {
+		for (Program.Statement child : Operations.getBoolean(evaluate(stmt.getExpression())) ? stmt.getYaRly() : stmt.getNoWai()) {
 			child.visit(this);
 			if (exit != 0) {
 				return;
@@ -144,14 +209,7 @@ class Interpreter implements CompiledProgram, Program.StatementVisitor, Program.
 	}
 
 	public void visit(Program.WTFStatement stmt) {
-		int index;
-
-		Integer indexValue = stmt.getLabels().get(evaluate(stmt.getExpression()));
-		if (indexValue != null) {
-			index = indexValue.intValue();
-		} else {
-			index = stmt.getOMGWTFIndex() & 0x7fffffff;
-		}
+		int index = Operations.getWTFIndex(stmt, evaluate(stmt.getExpression()));
 
 		List<Program.Statement> stmts = stmt.getStatements();
 		for (int size = stmts.size(); index < size; index++) {
@@ -176,10 +234,10 @@ class Interpreter implements CompiledProgram, Program.StatementVisitor, Program.
 
 		Program.Expression variable = stmt.getVariable();
 		if (variable == null) {
-			result = exprValue.getBoolean();
+			result = Operations.getBoolean(exprValue);
 		} else {
 			if (exprValue.isTroof()) {
-				result = exprValue.getBoolean();
+				result = Operations.getBoolean(exprValue);
 			} else {
 				result = evaluate(variable).equals(exprValue);
 			}
@@ -189,7 +247,25 @@ class Interpreter implements CompiledProgram, Program.StatementVisitor, Program.
 	}
 
 	public void visit(Program.ImInYrStatement stmt) {
+		LoopProfile profile = loopProfiles.get(stmt);
+		if (profile == null) {
+			profile = new LoopProfile(script.getCountedLoops().get(stmt));
+			loopProfiles.put(stmt, profile);
+		}
+
+		int backEdgeThreshold = tiering.getBackEdgeThreshold();
+		if (profile.numBackEdges > backEdgeThreshold) {
+			executeCompiledLoop(stmt, profile);
+			return;
+		}
+
+		CountedLoop counted = profile.counted;
+		if (counted != null && executeCountedLoop(stmt, profile, counted)) {
+			return;
+		}
+
 		List<Program.Statement> stmts = stmt.getStatements();
+		Fuel fuel = this.fuel;
 
 		while (evaluateImInYrCondition(stmt)) {
 			for (Program.Statement child : stmts) {
@@ -206,12 +282,191 @@ class Interpreter implements CompiledProgram, Program.StatementVisitor, Program.
 					}
 				}
 			}
-		} 
+
+			if (--fuel.ticks < 0) {
+				fuel.refill();
+			}
+			if (profile.countBackEdge() > backEdgeThreshold) {
+				// Continue at the loop test in the compiled form.
+				executeCompiledLoop(stmt, profile);
+				return;
+			}
+		}
+	}
+
+	// Runs the loop with an int counter when the variable and the bound are
+	// NUMBRs on entry.  The variable is boxed again only for bodies that read
+	// it and when the loop is left.
+	private boolean executeCountedLoop(Program.ImInYrStatement stmt, LoopProfile profile, CountedLoop counted) {
+		int index = counted.getVariableIndex();
+		Value start = scope.getVariable(index);
+		Value bound = evaluate(counted.getBound());
+		if (ValueTag.of(start) != ValueTag.NUMBR || ValueTag.of(bound) != ValueTag.NUMBR) {
+			return false;
+		}
+
+		int backEdgeThreshold = tiering.getBackEdgeThreshold();
+		List<Program.Statement> stmts = counted.getBody();
+		boolean readsVariable = counted.readsVariable();
+		int step = counted.getStep();
+		int limit = bound.getInt();
+		int value = start.getInt();
+		boolean compile = false;
+		Fuel fuel = this.fuel;
+
+		try {
+			counting:
+			while (counted.test(value, limit)) {
+				if (readsVariable) {
+					scope.declareVariable(index, NumbrValue.valueOf(value));
+				}
+
+				for (Program.Statement child : stmts) {
+					child.visit(this);
+					if (exit != 0) {
+						if (exit == EXIT_WHATEVER) {
+							exit = 0;
+							break;
+						} else {
+							if (exit == EXIT_GTFO && exitDepth-- == 0) {
+								exit = 0;
+							}
+							break counting;
+						}
+					}
+				}
+
+				value += step;
+				if (--fuel.ticks < 0) {
+					fuel.refill();
+				}
+				if (profile.countBackEdge() > backEdgeThreshold) {
+					compile = true;
+					break;
+				}
+			}
+		} finally {
+			scope.declareVariable(index, NumbrValue.valueOf(value));
+		}
+
+		if (compile) {
+			executeCompiledLoop(stmt, profile);
+		}
+
+		return true;
+	}
+
+	private void executeCompiledLoop(Program.ImInYrStatement stmt, LoopProfile profile) {
+		ExecutionTree.Statement compiled = profile.compiled;
+		if (compiled == null) {
+			compiled = profile.compiled = getTreeCompiler().compileStatement(scope.block, stmt);
+
+			Tiering.Listener listener = tiering.getListener();
+			if (listener != null) {
+				listener.loopCompiled(stmt, profile.numBackEdges);
+			}
+		}
+
+		ExecutionTree.Frame frame = new ExecutionTree.Frame(context, getGlobalFrame(), captureVariables(), scope.getObject());
+		frame.outerObject = scope.getOuterObject();
+		frame.it = scope.getIt();
+
+		try {
+			compiled.exec(frame);
+		} finally {
+			scope.setIt(frame.it);
+		}
+
+		exit = frame.exit;
+		exitDepth = frame.exitDepth;
+		if (exit == EXIT_FOUND_YR) {
+			value = frame.result;
+		}
+	}
+
+	// The tree shares the variables array with the scope, so a scope with
+	// its locals on the stack moves them to an array of their own for the
+	// rest of the call.
+	private Value[] captureVariables() {
+		if (scope.variables == stack) {
+			int base = scope.base;
+			scope.variables = Arrays.copyOfRange(stack, base, base + scope.block.getNumVariables());
+			scope.base = 0;
+		}
+
+		return scope.variables;
+	}
+
+	private TreeCompiler getTreeCompiler() {
+		if (treeCompiler == null) {
+			treeCompiler = new TreeCompiler(context, script);
+		}
+
+		return treeCompiler;
+	}
+
+	private ExecutionTree.Frame getGlobalFrame() {
+		if (globalFrame == null) {
+			globalFrame = new ExecutionTree.Frame(context, null, globalScope.variables, null);
+		}
+
+		return globalFrame;
+	}
+
+	private ExecutionTree.Function getCompiledFunction(Program.Function function) {
+		FunctionProfile profile = functionProfiles.get(function);
+		if (profile == null) {
+			profile = new FunctionProfile();
+			functionProfiles.put(function, profile);
+		}
+
+		if (profile.countCall() <= tiering.getCallThreshold()) {
+			return null;
+		}
+
+		ExecutionTree.Function compiled = profile.compiled;
+		if (compiled == null) {
+			compiled = profile.compiled = getTreeCompiler().getFunction(function);
+
+			Tiering.Listener listener = tiering.getListener();
+			if (listener != null) {
+				listener.functionCompiled(function, profile.numCalls);
+			}
+		}
+
+		return compiled;
 	}
 
 	public void visit(Program.FoundYrStatement stmt) {
-		value = evaluate(stmt.getExpression());
-		exit = EXIT_FOUND_YR;
+		Program.Expression expr = stmt.getExpression();
+		if (!tailCall(expr)) {
+			value = evaluate(expr);
+			exit = EXIT_FOUND_YR;
+		}
+	}
+
+	// Evaluates the arguments of a call in tail position and leaves the call
+	// itself to the enclosing callFunction, which runs it in the same loop.
+	private boolean tailCall(Program.Expression expr) {
+		if (!(expr instanceof Program.FunctionCallExpression)) {
+			return false;
+		}
+
+		Program.FunctionCallExpression call = (Program.FunctionCallExpression)expr;
+		if (!call.isTailCall()) {
+			return false;
+		}
+
+		Program.Expression[] arguments = call.getArguments();
+		Value[] values = new Value[arguments.length];
+		for (int i = 0; i < arguments.length; i++) {
+			values[i] = evaluate(arguments[i]);
+		}
+
+		tailFunction = call.getFunction();
+		tailArguments = values;
+		exit = EXIT_TAIL_CALL;
+		return true;
 	}
 
 	public void visit(Program.OHaiStatement stmt) {
@@ -229,47 +484,60 @@ class Interpreter implements CompiledProgram, Program.StatementVisitor, Program.
 	}
 
 	public void visit(Program.PlzStatement stmt) {
+		// Running out of fuel skips AWSUM THX, which could otherwise GTFO and
+		// drop the error.
+		boolean exhausted = false;
 		try {
-			for (Program.Statement child : stmt.getStatements()) {
-				child.visit(this);
-				if (exit != 0) {
-					return;
+			try {
+				for (Program.Statement child : stmt.getStatements()) {
+					child.visit(this);
+					if (exit != 0) {
+						return;
+					}
 				}
-			}
-		} catch (RuntimeException ex) {
-			String type;
-			if (ex instanceof LOLCodeException) {
-				type = ((LOLCodeException)ex).getType();
-			} else {
-				type = ex.getClass().getName();
-			}
-
-			scope.setIt(new YarnValue(type));
-
-			for (Program.PlzStatement.ONoes oNoes : stmt.getONoes()) {
-				if (evaluate(oNoes.getExpression()).getBoolean()) {
-					for (Program.Statement child : oNoes.getStatements()) {
-						child.visit(this);
-						if (exit != 0) {
-							return;
+			} catch (RuntimeException ex) {
+				scope.setIt(new YarnValue(Operations.getExceptionType(ex)));
+
+				for (Program.PlzStatement.ONoes oNoes : stmt.getONoes()) {
+					if (Operations.getBoolean(evaluate(oNoes.getExpression()))) {
+						for (Program.Statement child : oNoes.getStatements()) {
+							child.visit(this);
+							if (exit != 0) {
+								return;
+							}
 						}
-					}
 
-					return;
+						return;
+					}
 				}
-			}
 
-			throw ex;
+				throw ex;
+			}
+		} catch (FuelExhaustedError error) {
+			exhausted = true;
+			throw error;
 		} finally {
-			for (Program.Statement child : stmt.getAwsumThx()) {
-				child.visit(this);
-				if (exit != 0) {
-					return;
+			if (!exhausted) {
+				Value result = value;
+				int pendingExit = exit;
+				int pendingExitDepth = exitDepth;
+				exit = 0;
+
+				for (Program.Statement child : stmt.getAwsumThx()) {
+					child.visit(this);
+					if (exit != 0) {
+						return;
+					}
 				}
+
+				value = result;
+				exit = pendingExit;
+				exitDepth = pendingExitDepth;
 			}
 		}
 	}
 
+
 	public void visit(Program.RTFMStatement stmt) {
 		throw new LOLCodeException(evaluate(stmt.getExpression()).getString());
 	}
@@ -282,6 +550,46 @@ class Interpreter implements CompiledProgram, Program.StatementVisitor, Program.
 		exit = EXIT_WHATEVER;
 	}
 
+	public void visit(Program.IncrementVariableStatement stmt) {
+		int index = stmt.getVariableIndex();
+		Value value = scope.getVariable(index);
+
+		if (ValueTag.of(value) == ValueTag.NUMBR) {
+			scope.setVariable(index, NumbrValue.valueOf(((NumbrValue)value).getInt() + stmt.getDelta()));
+		} else {
+			scope.setVariable(index, Operations.sum(value, stmt.getConstant()));
+		}
+	}
+
+	public void visit(Program.VisibleSmooshStatement stmt) {
+		boolean invisible = stmt.isInvisible();
+		StringBuilder builder = new StringBuilder();
+
+		for (Program.Expression expr : stmt.getParts()) {
+			builder.append(evaluate(expr).getString());
+		}
+
+		Operations.print(environment, cmd, invisible, builder.toString());
+		Operations.println(environment, cmd, invisible, stmt.isSuppressNewLine());
+	}
+
+	public void visit(Program.CompareORlyStatement stmt) {
+		int index = stmt.getVariableIndex();
+		Value value = stmt.isGlobal() ? globalScope.getVariable(index) : scope.getVariable(index);
+		boolean result = Operations.equal(value, stmt.getConstant());
+
+		if (stmt.isAssignIt()) {
+			scope.setIt(TroofValue.getInstance(result));
+		}
+
+		for (Program.Statement child : result ? stmt.getYaRly() : stmt.getNoWai()) {
+			child.visit(this);
+			if (exit != 0) {
+				return;
+			}
+		}
+	}
+
 	public void visit(Program.NoobExpression expr) {
 		value = NoobValue.INSTANCE;
 	}
@@ -291,31 +599,20 @@ class Interpreter implements CompiledProgram, Program.StatementVisitor, Program.
 	}
 
 	public void visit(Program.NumbrExpression expr) {
-		value = new NumbrValue(expr.getValue());
+		value = expr.getConstant();
 	}
 
 	public void visit(Program.NumbarExpression expr) {
-		value = new NumbarValue(expr.getValue());
+		value = expr.getConstant();
 	}
 
 	public void visit(Program.YarnExpression expr) {
-		value = new YarnValue(expr.getValue());
+		value = expr.getConstant();
 	}
 
 	public void visit(Program.BukkitExpression expr) {
 		Program.Expression liekExpr = expr.getLiek();
-
-		if (liekExpr == null) {
-			value = new BukkitValue();
-		} else {
-			Value liek = evaluate(liekExpr);
-
-			if (!(liek instanceof BukkitValue)) {
-				throw new LOLCodeException(LOLCodeException.BAD_LIEK_TYPE, liek.getType());
-			}
-
-			value = new BukkitValue((BukkitValue)liek);
-		}
+		value = Operations.bukkit(liekExpr == null ? null : evaluate(liekExpr), context.heap);
 	}
 
 	public void visit(Program.FunctionExpression expr) {
@@ -334,56 +631,180 @@ class Interpreter implements CompiledProgram, Program.StatementVisitor, Program.
 		value = globalScope.getVariable(expr.getIndex());
 	}
 
-	private void callFunction(Program.Function function, Scope newScope) {
-		scope = newScope;
+	// Reserves stack space for the locals of a call and returns its base.
+	private int pushFrame(Program.Block block) {
+		int base = top;
+		top = base + block.getNumVariables();
+		if (top > stack.length) {
+			growStack(top);
+		}
+
+		return base;
+	}
+
+	private void popFrame(int base) {
+		Arrays.fill(stack, base, top, null);
+		top = base;
+	}
+
+	private void growStack(int size) {
+		Value[] newStack = Arrays.copyOf(stack, Math.max(size, stack.length * 2));
+		for (int i = 1; i <= depth; i++) {
+			if (scopes[i].variables == stack) {
+				scopes[i].variables = newStack;
+			}
+		}
+
+		stack = newStack;
+	}
+
+	private void callFunction(Program.Function function, int base, Value target) {
+		Scope outer = scope;
+
+		if (++depth == scopes.length) {
+			scopes = Arrays.copyOf(scopes, depth * 2);
+		}
+		scope = scopes[depth];
+		if (scope == null) {
+			scope = scopes[depth] = new Scope();
+		}
+		scope.enter(function, stack, base, target);
 
 		try {
-			for (Program.Statement stmt : function.getStatements()) {
-				stmt.visit(this);
-				if (exit != 0) {
-					if (exit == EXIT_FOUND_YR) {
-						exit = 0;
-					} else if (exit == EXIT_GTFO) {
-						value = NoobValue.INSTANCE;
-						exit = 0;
-					}
+			Fuel fuel = this.fuel;
+			if (--fuel.ticks < 0) {
+				fuel.refill();
+			}
+
+			while (execFunction(function)) {
+				if (--fuel.ticks < 0) {
+					fuel.refill();
+				}
+
+				Program.Function callee = tailFunction;
+				Value[] arguments = tailArguments;
+				tailFunction = null;
+				tailArguments = null;
+				exit = 0;
+
+				ExecutionTree.Function compiled = getCompiledFunction(callee);
+				if (compiled != null) {
+					value = compiled.call(getGlobalFrame(), null, arguments);
 					return;
 				}
-			}
 
-			value = newScope.getIt();
+				// A self call starts over in the same scope.
+				if (callee == function) {
+					scope.reset(arguments);
+				} else {
+					popFrame(base);
+					pushFrame(callee);
+					System.arraycopy(arguments, 0, stack, base, arguments.length);
+					scope.enter(callee, stack, base, null);
+					function = callee;
+				}
+			}
 		} finally {
-			scope = scope.getOuterScope();
+			scope.exit();
+			scope = outer;
+			depth--;
 		}
 	}
 
-	Value callFunction(Program.Function function, Value target, List<Value> arguments) {
-		int numArguments = function.getNumArguments();
-		if (numArguments != arguments.size()) {
-			throw new LOLCodeException(LOLCodeException.BAD_ARGUMENT_COUNT, "Received: " + arguments.size() + ", Expected: " + numArguments);
+	private boolean execFunction(Program.Function function) {
+		for (Program.Statement stmt : function.getStatements()) {
+			stmt.visit(this);
+			if (exit != 0) {
+				if (exit == EXIT_FOUND_YR) {
+					exit = 0;
+				} else if (exit == EXIT_GTFO) {
+					value = NoobValue.INSTANCE;
+					exit = 0;
+				} else if (exit == EXIT_TAIL_CALL) {
+					return true;
+				}
+				return false;
+			}
 		}
 
-		Scope newScope = new Scope(scope, function);
-		newScope.pushObject(target);
+		value = scope.getIt();
+		return false;
+	}
 
-		for (int i = 0; i < numArguments; i++) {
-			newScope.declareVariable(0, arguments.get(i));
+	Value callFunction(Program.Function function, Value target, Value[] arguments) {
+		int numArguments = function.getNumArguments();
+		AbstractFunction.checkArgumentCount(arguments.length, numArguments);
+
+		ExecutionTree.Function compiled = getCompiledFunction(function);
+		if (compiled != null) {
+			value = compiled.call(getGlobalFrame(), target, arguments);
+			return value;
+		}
+
+		int base = pushFrame(function);
+		try {
+			System.arraycopy(arguments, 0, stack, base, numArguments);
+			callFunction(function, base, target);
+		} finally {
+			popFrame(base);
 		}
 
-		callFunction(function, newScope);
 		return value;
 	}
 
+	private Value callMemoized(Program.Function function, Value[] arguments) {
+		if (!MemoTable.isMemoizable(arguments)) {
+			return callFunction(function, null, arguments);
+		}
+
+		MemoTable.Key key = new MemoTable.Key(function, arguments);
+		Value result = memoTable.get(key);
+		if (result == null) {
+			result = callFunction(function, null, arguments);
+			memoTable.put(key, result);
+		}
+
+		value = result;
+		return result;
+	}
+
 	public void visit(Program.FunctionCallExpression expr) {
 		Program.Function function = expr.getFunction();
-		Scope newScope = new Scope(scope, function);
-
 		Program.Expression[] arguments = expr.getArguments();
-		for (int i = 0; i < arguments.length; i++) {
-			newScope.declareVariable(i, evaluate(arguments[i]));
+
+		if (memoTable != null && purity.isPure(function)) {
+			Value[] values = new Value[arguments.length];
+			for (int i = 0; i < values.length; i++) {
+				values[i] = evaluate(arguments[i]);
+			}
+
+			callMemoized(function, values);
+			return;
+		}
+
+		ExecutionTree.Function compiled = getCompiledFunction(function);
+		if (compiled != null) {
+			ExecutionTree.Frame frame = compiled.newFrame(getGlobalFrame(), null);
+			for (int i = 0; i < arguments.length; i++) {
+				frame.variables[i] = evaluate(arguments[i]);
+			}
+
+			value = compiled.call(frame);
+			return;
 		}
 
-		callFunction(function, newScope);
+		int base = pushFrame(function);
+		try {
+			for (int i = 0; i < arguments.length; i++) {
+				// Calls made by the argument may grow the stack.
+				Value argument = evaluate(arguments[i]);
+				stack[base + i] = argument;
+			}
+
+			callFunction(function, base, null);
+		} finally {
+			popFrame(base);
+		}
 	}
 
 	public void visit(Program.ObjectExpression expr) {
@@ -404,14 +825,33 @@ class Interpreter implements CompiledProgram, Program.StatementVisitor, Program.
 		Value slot = bukkit.getSlot(evaluate(expr.getIndex()));
 
 		List<Program.Expression> argumentExprs = expr.getArguments();
-		int numArguments = argumentExprs.size();
-		List<Value> arguments = new ArrayList<Value>(numArguments);
+		switch (argumentExprs.size()) {
+			case 0:
+				value = slot.call(bukkit);
+				break;
+			case 1:
+				value = slot.call(bukkit, evaluate(argumentExprs.get(0)));
+				break;
+			case 2: {
+				Value argument1 = evaluate(argumentExprs.get(0));
+				value = slot.call(bukkit, argument1, evaluate(argumentExprs.get(1)));
+				break;
+			}
+			case 3: {
+				Value argument1 = evaluate(argumentExprs.get(0));
+				Value argument2 = evaluate(argumentExprs.get(1));
+				value = slot.call(bukkit, argument1, argument2, evaluate(argumentExprs.get(2)));
+				break;
+			}
+			default: {
+				Value[] arguments = new Value[argumentExprs.size()];
+				for (int i = 0; i < arguments.length; i++) {
+					arguments[i] = evaluate(argumentExprs.get(i));
+				}
 
-		for (int i = 0; i < numArguments; i++) {
-			arguments.add(evaluate(argumentExprs.get(i)));
+				value = slot.call(bukkit, arguments);
+			}
 		}
-
-		value = slot.call(bukkit, arguments);
 	}
 
 	public void visit(Program.InMahExpression expr) {
@@ -429,105 +869,60 @@ class Interpreter implements CompiledProgram, Program.StatementVisitor, Program.
 	public void visit(Program.SumExpression expr) {
 		Value left = evaluate(expr.getLeftExpression());
 		Value right = evaluate(expr.getRightExpression());
-
-		if (left.isMathNumbar() | right.isMathNumbar()) {
-			value = new NumbarValue(left.getFloat() + right.getFloat());
-		} else {
-			value = new NumbrValue(left.getInt() + right.getInt());
-		}
+		value = Operations.sum(left, right);
 	}
 
 	public void visit(Program.DiffExpression expr) {
 		Value left = evaluate(expr.getLeftExpression());
 		Value right = evaluate(expr.getRightExpression());
-
-		if (left.isMathNumbar() | right.isMathNumbar()) {
-			value = new NumbarValue(left.getFloat() - right.getFloat());
-		} else {
-			value = new NumbrValue(left.getInt() - right.getInt());
-		}
+		value = Operations.diff(left, right);
 	}
 
 	public void visit(Program.ProduktExpression expr) {
 		Value left = evaluate(expr.getLeftExpression());
 		Value right = evaluate(expr.getRightExpression());
-
-
-		if (left.isMathNumbar() | right.isMathNumbar()) {
-			value = new NumbarValue(left.getFloat() * right.getFloat());
-		} else {
-			value = new NumbrValue(left.getInt() * right.getInt());
-		}
+		value = Operations.produkt(left, right);
 	}
 
 	public void visit(Program.QuoshuntExpression expr) {
 		Value left = evaluate(expr.getLeftExpression());
 		Value right = evaluate(expr.getRightExpression());
-
-		if (left.isMathNumbar() | right.isMathNumbar()) {
-			value = new NumbarValue(left.getFloat() / right.getFloat());
-		} else {
-			try {
-				value = new NumbrValue(left.getInt() / right.getInt());
-			} catch (ArithmeticException ex) {
-				throw new LOLCodeException(LOLCodeException.BAD_QUOSHUNT, ex);
-			}
-		}
+		value = Operations.quoshunt(left, right);
 	}
 
 	public void visit(Program.ModExpression expr) {
 		Value left = evaluate(expr.getLeftExpression());
 		Value right = evaluate(expr.getRightExpression());
-
-		if (left.isMathNumbar() | right.isMathNumbar()) {
-			value = new NumbarValue(left.getFloat() % right.getFloat());
-		} else {
-			try {
-				value = new NumbrValue(left.getInt() % right.getInt());
-			} catch (ArithmeticException ex) {
-				throw new LOLCodeException(LOLCodeException.BAD_MOD, ex);
-			}
-		}
+		value = Operations.mod(left, right);
 	}
 
 	public void visit(Program.BiggrExpression expr) {
 		Value left = evaluate(expr.getLeftExpression());
 		Value right = evaluate(expr.getRightExpression());
-
-		if (left.isMathNumbar() | right.isMathNumbar()) {
-			value = new NumbarValue(Math.max(left.getFloat(), right.getFloat()));
-		} else {
-			value = new NumbrValue(Math.max(left.getInt(), right.getInt()));
-		}
+		value = Operations.biggr(left, right);
 	}
 
 	public void visit(Program.SmallrExpression expr) {
 		Value left = evaluate(expr.getLeftExpression());
 		Value right = evaluate(expr.getRightExpression());
-
-		if (left.isMathNumbar() | right.isMathNumbar()) {
-			value = new NumbarValue(Math.min(left.getFloat(), right.getFloat()));
-		} else {
-			value = new NumbrValue(Math.min(left.getInt(), right.getInt()));
-		}
+		value = Operations.smallr(left, right);
 	}
 
 	public void visit(Program.WonExpression expr) {
 		Value left = evaluate(expr.getLeftExpression());
 		Value right = evaluate(expr.getRightExpression());
-
-		value = TroofValue.getInstance(left.getBoolean() ^ right.getBoolean());
+		value = Operations.won(left, right);
 	}
 
 	public void visit(Program.NotExpression expr) {
-		value = TroofValue.getInstance(!evaluate(expr.getExpression()).getBoolean());
+		value = TroofValue.getInstance(!Operations.getBoolean(evaluate(expr.getExpression())));
 	}
 
 	public void visit(Program.AllExpression expr) {
 		boolean result = true;
 
 		for (Program.Expression arg : expr.getExpressions()) {
-			result &= evaluate(arg).getBoolean();
+			result &= Operations.getBoolean(evaluate(arg));
 		}
 
 		value = TroofValue.getInstance(result);
@@ -537,7 +932,7 @@ class Interpreter implements CompiledProgram, Program.StatementVisitor, Program.
 		boolean result = false;
 
 		for (Program.Expression arg : expr.getExpressions()) {
-			result |= evaluate(arg).getBoolean();
+			result |= Operations.getBoolean(evaluate(arg));
 		}
 
 		value = TroofValue.getInstance(result);
@@ -546,15 +941,13 @@ class Interpreter implements CompiledProgram, Program.StatementVisitor, Program.
 	public void visit(Program.BothSaemExpression expr) {
 		Value left = evaluate(expr.getLeftExpression());
 		Value right = evaluate(expr.getRightExpression());
-
-		value = TroofValue.getInstance(left.equals(right));
+		value = Operations.bothSaem(left, right);
 	}
 
 	public void visit(Program.DiffrintExpression expr) {
 		Value left = evaluate(expr.getLeftExpression());
 		Value right = evaluate(expr.getRightExpression());
-
-		value = TroofValue.getInstance(!left.equals(right));
+		value = Operations.diffrint(left, right);
 	}
 
 	public void visit(Program.SmooshExpression expr) {
@@ -573,141 +966,140 @@ class Interpreter implements CompiledProgram, Program.StatementVisitor, Program.
 	}
 
 	public void visit(Program.TroofCastExpression expr) {
-		value = evaluate(expr.getExpression()).castToTroof();
+		value = Operations.castToTroof(evaluate(expr.getExpression()));
 	}
 
 	public void visit(Program.NumbrCastExpression expr) {
-		value = evaluate(expr.getExpression()).castToNumbr();
+		value = Operations.castToNumbr(evaluate(expr.getExpression()));
 	}
 
 	public void visit(Program.NumbarCastExpression expr) {
-		value = evaluate(expr.getExpression()).castToNumbar();
+		value = Operations.castToNumbar(evaluate(expr.getExpression()));
 	}
 
 	public void visit(Program.YarnCastExpression expr) {
-		value = evaluate(expr.getExpression()).castToYarn();
+		value = Operations.castToYarn(evaluate(expr.getExpression()));
 	}
 
 	public void visit(Program.GimmehExpression expr) {
-		try {
-			what: switch (expr.getWhat()) {
-				case Program.GimmehExpression.LINE: {
-					String string = cmd.readln();
-					if (string == null) {
-						value = NoobValue.INSTANCE;
-					} else {
-						value = new YarnValue(string);
-					}
-					break;
-				}
-
-				case Program.GimmehExpression.WORD: {
-					BufferedReader reader = environment.getIn();
-					StringBuilder builder = new StringBuilder();
-
-					int ch;
-					for (;;) {
-						if ((ch = reader.read()) == -1) {
-							value = NoobValue.INSTANCE;
-							break what;
-						}
-
-						if (!Character.isWhitespace(ch)) {
-							builder.append((char)ch);
-							break;
-						}
-					}
-
-					for (;;) {
-						reader.mark(1);
-
-						if ((ch = reader.read()) == -1) {
-							break;
-						}
-
-						if (Character.isWhitespace(ch)) {
-							reader.reset();
-							break;
-						}
-
-						builder.append((char)ch);
-					}
-
-					value = new YarnValue(builder.toString());
-					break;
-				}
-
-				case Program.GimmehExpression.LETTAR: {
-					int ch = Integer.parseInt(cmd.readln());
-					if (ch == -1) {
-						value = NoobValue.INSTANCE;
-					} else {
-						value = new YarnValue(String.valueOf((char)ch));
-					}
-					break;
-				}
-
-				default:
-					throw new IllegalStateException();
-			}
-		} catch (IOException ex) {
-			throw new LOLCodeException(LOLCodeException.BAD_IO, ex);
-		}
+		value = Operations.gimmeh(expr.getWhat(), environment, cmd);
 	}
 
 	public void visit(Program.MathNumbrExpression expr) {
-		value = evaluate(expr.getExpression()).castToMathNumbr();
+		value = Operations.castToMathNumbr(evaluate(expr.getExpression()));
 	}
 
 	public void visit(Program.BigrThanExpression expr) {
 		Value left = evaluate(expr.getLeftExpression());
 		Value right = evaluate(expr.getRightExpression());
-		value = TroofValue.getInstance(left.castToMathNumbr().getInt() > right.castToMathNumbr().getInt());
+		value = Operations.bigrThan(left, right);
 	}
 
 	public void visit(Program.SmalrThanExpression expr) {
 		Value left = evaluate(expr.getLeftExpression());
 		Value right = evaluate(expr.getRightExpression());
-		value = TroofValue.getInstance(left.castToMathNumbr().getInt() < right.castToMathNumbr().getInt());
+		value = Operations.smalrThan(left, right);
+	}
+
+	public void visit(Program.SlotIteratorExpression expr) {
+		value = evaluate(expr.getExpression()).getSlotIterator();
 	}
 
-	public void visit(Program.BukkitSlotsExpression expr) {
-		value = evaluate(expr.getExpression()).getSlots();
+	public void visit(Program.HasNextSlotExpression expr) {
+		value = Operations.hasNextSlot(evaluate(expr.getExpression()));
 	}
 
-	public void visit(Program.HowBigIzExpression expr) {
-		value = new NumbrValue(evaluate(expr.getExpression()).getNumSlots());
+	public void visit(Program.NextSlotExpression expr) {
+		value = Operations.nextSlot(evaluate(expr.getExpression()));
 	}
 
 	public void visit(Program.JavaExpression expr) {
-		String name = evaluate(expr.getExpression()).getString();
-		Class klass;
+		value = Operations.java(evaluate(expr.getExpression()));
+	}
 
-		try {
-			klass = Class.forName(name);
-		} catch (ClassNotFoundException ex) {
-			throw new LOLCodeException(LOLCodeException.BAD_JAVA_CLASS, ex);
+	public void visit(Program.NamedSlotExpression expr) {
+		Value bukkit = evaluate(expr.getBukkit());
+		SlotCache cache = slotCaches[expr.getCacheIndex()];
+		if (cache == null) {
+			cache = slotCaches[expr.getCacheIndex()] = new SlotCache();
+		}
+
+		value = cache.getSlot(bukkit, expr.getName()).call(bukkit);
+	}
+
+	// Tiering counts and compiled code of this execution; the Program itself
+	// is shared.
+	private static final class FunctionProfile {
+		int numCalls;
+		ExecutionTree.Function compiled;
+
+		int countCall() {
+			if (numCalls != Integer.MAX_VALUE) {
+				numCalls++;
+			}
+
+			return numCalls;
 		}
+	}
+
+	private static final class LoopProfile {
+		final CountedLoop counted;
+		int numBackEdges;
+		ExecutionTree.Statement compiled;
 
-		value = JavaValue.create(klass);
+		LoopProfile(CountedLoop counted) {
+			this.counted = counted;
+		}
+
+		int countBackEdge() {
+			if (numBackEdges != Integer.MAX_VALUE) {
+				numBackEdges++;
+			}
+
+			return numBackEdges;
+		}
 	}
 
 	private static class Scope {
-		private Scope outer;
+		private Program.Block block;
 		private Value it = NoobValue.INSTANCE;
 		private Value object;
 		private Value outerObject;
 		private Value[] variables;
+		private int base;
 
-		public Scope(Scope outer, Program.Block block) {
-			this.outer = outer;
+		// The main block has its own array since the global frame of the
+		// tree compiler shares it.
+		public Scope(Program.Block block) {
+			this.block = block;
+			this.variables = new Value[block.getNumVariables()];
+		}
 
-			int numVariables = block.getNumVariables();
-			this.variables = new Value[numVariables];
+		public Scope() { }
+
+		public void enter(Program.Block block, Value[] stack, int base, Value object) {
+			this.block = block;
+			this.variables = stack;
+			this.base = base;
+			this.it = NoobValue.INSTANCE;
+			this.object = object;
+			this.outerObject = null;
+		}
+
+		public void exit() {
+			block = null;
+			variables = null;
+			it = null;
+			object = null;
+			outerObject = null;
 		}
 
-		public Scope getOuterScope() {
-			return outer;
+		public void reset(Value[] arguments) {
+			System.arraycopy(arguments, 0, variables, base, arguments.length);
+			Arrays.fill(variables, base + arguments.length, base + block.getNumVariables(), null);
+			it = NoobValue.INSTANCE;
+			object = null;
+			outerObject = null;
 		}
 
 		public void setIt(Value value) {
@@ -739,33 +1131,102 @@ class Interpreter implements CompiledProgram, Program.StatementVisitor, Program.
 		}
 
 		public void declareVariable(int index, Value value) {
-			variables[index] = variables[index] = value;
+			variables[base + index] = value;
 		}
 
 		public void setVariable(int index, Value value) {
-			variables[index] = variables[index].assign(value);
+			int i = base + index;
+			variables[i] = variables[i].assign(value);
 		}
 
 		public InMahBukkit getInMahBukkitVariable(int index, InMahBukkitFactory factory) {
-			InMahBukkit bukkit = variables[index].getInMahBukkit(factory);
-			variables[index] = bukkit;
+			InMahBukkit bukkit = variables[base + index].getInMahBukkit(factory);
+			variables[base + index] = bukkit;
 			return bukkit;
 		}
 
 		public Value getVariable(int index) {
-			return variables[index];
+			return variables[base + index];
 		}
 	}
 
-	private class FunctionImpl implements Function {
+	private class FunctionImpl extends AbstractFunction {
 		private Program.Function function;
 
 		public FunctionImpl(Program.Function function) {
 			this.function = function;
 		}
 
-		public Value call(Value target, List<Value> arguments) {
+		public Value call(Value target) {
+			int base = pushArguments(0);
+			if (base < 0) {
+				return super.call(target);
+			}
+
+			return run(base, target);
+		}
+
+		public Value call(Value target, Value argument) {
+			int base = pushArguments(1);
+			if (base < 0) {
+				return super.call(target, argument);
+			}
+
+			stack[base] = argument;
+			return run(base, target);
+		}
+
+		public Value call(Value target, Value argument1, Value argument2) {
+			int base = pushArguments(2);
+			if (base < 0) {
+				return super.call(target, argument1, argument2);
+			}
+
+			stack[base] = argument1;
+			stack[base + 1] = argument2;
+			return run(base, target);
+		}
+
+		public Value call(Value target, Value argument1, Value argument2, Value argument3) {
+			int base = pushArguments(3);
+			if (base < 0) {
+				return super.call(target, argument1, argument2, argument3);
+			}
+
+			stack[base] = argument1;
+			stack[base + 1] = argument2;
+			stack[base + 2] = argument3;
+			return run(base, target);
+		}
+
+		public Value call(Value target, Value[] arguments) {
+			if (memoTable != null && purity.isPure(function)) {
+				return callMemoized(function, arguments);
+			}
+
 			return callFunction(function, target, arguments);
 		}
+
+		// Reserves the frame of an interpreted call, whose arguments then go
+		// straight onto the stack, or returns -1 for memoized and compiled
+		// functions, which take them as an array.
+		private int pushArguments(int numArguments) {
+			if ((memoTable != null && purity.isPure(function)) || getCompiledFunction(function) != null) {
+				return -1;
+			}
+
+			AbstractFunction.checkArgumentCount(numArguments, function.getNumArguments());
+			return pushFrame(function);
+		}
+
+		private Value run(int base, Value target) {
+			try {
+				callFunction(function, base, target);
+			} finally {
+				popFrame(base);
+			}
+
+			return value;
+		}
 	}
 }
@@ -29,38 +29,47 @@ import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.util.Arrays;
-import java.util.Collections;
 import java.util.Comparator;
-import java.util.List;
-import java.util.Map;
 import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 class JavaValue extends AbstractTypedScalarValue {
 	private static final String TYPE = "JAVA";
 	private static final ReferenceQueue<JavaClass> javaClassReferenceQueue = new ReferenceQueue<JavaClass>();
-	private static final Map<Class, JavaClassReference> javaClassReferences = new HashMap<Class, JavaClassReference>();
+	private static final ConcurrentMap<Class, JavaClassReference> javaClassReferences = new ConcurrentHashMap<Class, JavaClassReference>();
 
 	protected Object object;
 	protected JavaClass javaClass;
 
-	private synchronized static JavaClass createJavaClass(Class klass) {
+	// Lock-free on a hit.  Two threads missing on the same class may both
+	// build it; the first one stored wins.
+	private static JavaClass createJavaClass(Class klass) {
 		Reference ref;
 		while ((ref = javaClassReferenceQueue.poll()) != null) {
-			javaClassReferences.remove(((JavaClassReference)ref).getKey());
+			javaClassReferences.remove(((JavaClassReference)ref).getKey(), ref);
 		}
 
 		JavaClassReference javaClassRef = javaClassReferences.get(klass);
+		JavaClass javaClass = javaClassRef == null ? null : javaClassRef.get();
 
-		JavaClass javaClass;
-		if (javaClassRef == null) {
-			javaClass = null;
-		} else {
-			javaClass = javaClassRef.get();
-		}
+		while (javaClass == null) {
+			JavaClass newJavaClass = new JavaClass(klass);
+			JavaClassReference newRef = new JavaClassReference(newJavaClass, klass);
 
-		if (javaClass == null) {
-			javaClass = new JavaClass(klass);
-			javaClassReferences.put(klass, new JavaClassReference(javaClass, klass));
+			if (javaClassRef == null) {
+				javaClassRef = javaClassReferences.putIfAbsent(klass, newRef);
+			} else if (javaClassReferences.replace(klass, javaClassRef, newRef)) {
+				javaClassRef = null;
+			} else {
+				javaClassRef = javaClassReferences.get(klass);
+			}
+
+			if (javaClassRef == null) {
+				javaClass = newJavaClass;
+			} else {
+				javaClass = javaClassRef.get();
+			}
 		}
 
 		return javaClass;
@@ -71,6 +80,7 @@ class JavaValue extends AbstractTypedScalarValue {
 	}
 
 	private JavaValue(Object object, JavaClass javaClass) {
+		super(ValueTag.JAVA);
 		this.object = object;
 		this.javaClass = javaClass;
 	}
@@ -85,15 +95,15 @@ class JavaValue extends AbstractTypedScalarValue {
 	}
 
 	public boolean getBoolean() {
-		throw new LOLCodeException(LOLCodeException.BAD_JAVA_USE);
+		throw LOLCodeException.get(LOLCodeException.BAD_JAVA_USE);
 	}
 
 	public int getInt() {
-		throw new LOLCodeException(LOLCodeException.BAD_JAVA_USE);
+		throw LOLCodeException.get(LOLCodeException.BAD_JAVA_USE);
 	}
 
 	public float getFloat() {
-		throw new LOLCodeException(LOLCodeException.BAD_JAVA_USE);
+		throw LOLCodeException.get(LOLCodeException.BAD_JAVA_USE);
 	}
 
 	public String getString() {
@@ -103,7 +113,7 @@ class JavaValue extends AbstractTypedScalarValue {
 	@Override
 	public void setSlot(Value index, Value value) {
 		if (!index.isYarn()) {
-			throw new LOLCodeException(LOLCodeException.BAD_SLOT);
+			throw LOLCodeException.get(LOLCodeException.BAD_SLOT);
 		}
 
 		javaClass.get(index.getString()).set(object, value);
@@ -112,7 +122,7 @@ class JavaValue extends AbstractTypedScalarValue {
 	@Override
 	public Value getSlot(Value index) {
 		if (!index.isYarn()) {
-			throw new LOLCodeException(LOLCodeException.BAD_SLOT);
+			throw LOLCodeException.get(LOLCodeException.BAD_SLOT);
 		}
 
 		return javaClass.get(index.getString()).get(object);
@@ -141,7 +151,7 @@ class JavaValue extends AbstractTypedScalarValue {
 		}
 
 		if (o instanceof Number) {
-			return new NumbrValue(((Number)o).intValue());
+			return NumbrValue.valueOf(((Number)o).intValue());
 		}
 
 		Class klass;
@@ -343,7 +353,7 @@ class JavaValue extends AbstractTypedScalarValue {
 
 		public void set(Object o, Value value) {
 			if (!isStatic() && o instanceof Class && o != Class.class) {
-				throw new LOLCodeException(LOLCodeException.BAD_SLOT);
+				throw LOLCodeException.get(LOLCodeException.BAD_SLOT);
 			}
 
 			try {
@@ -355,7 +365,7 @@ class JavaValue extends AbstractTypedScalarValue {
 
 		public Value get(Object o) {
 			if (!isStatic() && o instanceof Class && o != Class.class) {
-				throw new LOLCodeException(LOLCodeException.BAD_SLOT);
+				throw LOLCodeException.get(LOLCodeException.BAD_SLOT);
 			}
 
 			try {
@@ -367,6 +377,10 @@ class JavaValue extends AbstractTypedScalarValue {
 	}
 
 	private static abstract class AbstractCallableSlot extends AbstractTypedScalarValue implements Slot {
+		protected AbstractCallableSlot() {
+			super(ValueTag.JAVA);
+		}
+
 		public String getType() {
 			throw new UnsupportedOperationException();
 		}
@@ -410,14 +424,14 @@ class JavaValue extends AbstractTypedScalarValue {
 		}
 
 		public Value call(Value target) {
-			return call(target, Collections.<Value>emptyList(), EMPTY_ARRAY);
+			return call(target, AbstractFunction.NO_ARGUMENTS, EMPTY_ARRAY);
 		}
 
-		public Value call(Value target, List<Value> arguments) {
-			return call(target, arguments, new Object[arguments.size()]);
+		public Value call(Value target, Value[] arguments) {
+			return call(target, arguments, new Object[arguments.length]);
 		}
 
-		public Value call(Value target, List<Value> arguments, Object[] objects) {
+		public Value call(Value target, Value[] arguments, Object[] objects) {
 			JavaValue javaValue = (JavaValue)target;
 			Object o = javaValue.object;
 			boolean isClass = o instanceof Class && o != Class.class;
@@ -434,7 +448,7 @@ class JavaValue extends AbstractTypedScalarValue {
 					if (paramTypes.length == objects.length) {
 						try {
 							for (int j = 0; j < paramTypes.length; j++) {
-								objects[j] = fromValue(arguments.get(j), paramTypes[j]);
+								objects[j] = fromValue(arguments[j], paramTypes[j]);
 							}
 						} catch (LOLCodeException ex) {
 							if (typeError == null) {
@@ -443,6 +457,12 @@ class JavaValue extends AbstractTypedScalarValue {
 							continue;
 						}
 
+						// Other scripts get the worker while Java code runs.
+						Scheduler.Task task = Scheduler.getCurrentTask();
+						if (task != null) {
+							task.beginBlocking();
+						}
+
 						try {
 							return callable.call(javaValue.javaClass, o, objects);
 						} catch (IllegalAccessException ex) {
@@ -451,6 +471,10 @@ class JavaValue extends AbstractTypedScalarValue {
 							throw new IllegalStateException(ex);
 						} catch (InvocationTargetException ex) {
 							throw new LOLCodeException(ex.getCause().getClass().getName(), ex);
+						} finally {
+							if (task != null) {
+								task.endBlocking();
+							}
 						}
 					}
 				}
@@ -539,19 +563,23 @@ class JavaValue extends AbstractTypedScalarValue {
 		private NewArraySlot() { }
 
 		public Value call(Value target) {
-			throw new LOLCodeException(LOLCodeException.BAD_ARGUMENT_COUNT);
+			throw LOLCodeException.get(LOLCodeException.BAD_ARGUMENT_COUNT);
 		}
 
-		public Value call(Value target, List<Value> arguments) {
-			if (arguments.size() != 1) {
-				throw new LOLCodeException(LOLCodeException.BAD_ARGUMENT_COUNT);
+		public Value call(Value target, Value[] arguments) {
+			if (arguments.length != 1) {
+				throw LOLCodeException.get(LOLCodeException.BAD_ARGUMENT_COUNT);
 			}
 
+			return call(target, arguments[0]);
+		}
+
+		public Value call(Value target, Value argument) {
 			int size;
 			try {
-				size = arguments.get(0).getInt();
+				size = argument.getInt();
 			} catch (LOLCodeException ex) {
-				throw new LOLCodeException(LOLCodeException.BAD_JAVA_TYPE);
+				throw LOLCodeException.get(LOLCodeException.BAD_JAVA_TYPE);
 			}
 
 			JavaClass javaClass = ((JavaValue)target).javaClass;
@@ -567,15 +595,15 @@ class JavaValue extends AbstractTypedScalarValue {
 		private LengthSlot() { }
 
 		public void set(Object o, Value v) {
-			throw new LOLCodeException(LOLCodeException.BAD_SLOT);
+			throw LOLCodeException.get(LOLCodeException.BAD_SLOT);
 		}
 
 		public Value get(Object o) {
 			if (o instanceof Class) {
-				throw new LOLCodeException(LOLCodeException.BAD_SLOT);
+				throw LOLCodeException.get(LOLCodeException.BAD_SLOT);
 			}
 
-			return new NumbrValue(Array.getLength(o));
+			return NumbrValue.valueOf(Array.getLength(o));
 		}
 	}
 
@@ -19,6 +19,9 @@
 
 package net.linxdroid.lolinterpreter;
 
+import java.util.HashMap;
+import java.util.Map;
+
 public class LOLCodeException extends RuntimeException {
 	private static final long serialVersionUID = 0;
 
@@ -41,6 +44,18 @@ public class LOLCodeException extends RuntimeException {
 	static final String BAD_QUOSHUNT = "BadQUOSHUNT";
 	static final String BAD_SLOT = "BadSlot";
 
+	private static final String[] FIXED_TYPES = {
+		BAD_ARGUMENT_COUNT, BAD_BUKKIT_USE, BAD_JAVA_TYPE, BAD_JAVA_USE, BAD_MOD, BAD_NOOB_USE, BAD_QUOSHUNT, BAD_SLOT
+	};
+	private static final Map<String, LOLCodeException> shared = new HashMap<String, LOLCodeException>();
+	private static volatile boolean stackTraces;
+
+	static {
+		for (String type : FIXED_TYPES) {
+			shared.put(type, new LOLCodeException(type));
+		}
+	}
+
 	private String type;
 
 	public LOLCodeException() { }
@@ -68,4 +83,26 @@ public class LOLCodeException extends RuntimeException {
 	public String getType() {
 		return type;
 	}
+
+	// Scripts catch errors with PLZ as ordinary control flow, so exceptions
+	// only record a Java stack trace when debugging asks for it.
+	public static void setStackTraces(boolean enabled) {
+		stackTraces = enabled;
+	}
+
+	public static boolean hasStackTraces() {
+		return stackTraces;
+	}
+
+	@Override
+	public Throwable fillInStackTrace() {
+		return stackTraces ? super.fillInStackTrace() : this;
+	}
+
+	// Errors that carry nothing but their type share one instance unless
+	// stack traces are on.
+	static LOLCodeException get(String type) {
+		LOLCodeException ex = stackTraces ? null : shared.get(type);
+		return ex != null ? ex : new LOLCodeException(type);
+	}
 }
@@ -37,31 +37,35 @@ public class Main implements Environment {
 	private PrintWriter out = new PrintWriter(new OutputStreamWriter(System.out));
 	private PrintWriter err = new PrintWriter(new OutputStreamWriter(System.err));
 	private BufferedReader in = new BufferedReader(new InputStreamReader(System.in));
-	static Cmd cmd;
 
 	public static void main(HashMap<Integer, Object> args) 
 	{
-		cmd = new Cmd(args);
+		Cmd cmd = new Cmd(args);
 		
 		if(cmd.argv[1].toString() != null){
-			main(cmd.argv[1].toString());
+			main(cmd.argv[1].toString(), cmd);
 		}else{
 			
 		}
 	}
 	
 	public static void main(String args) {
+		main(args, null);
+	}
+
+	private static void main(String args, Cmd cmd) {
 		boolean debugExceptions = false;
 		Parser.Version version = Parser.Version.DEFAULT;
 
 		String path = args;
+		LOLCodeException.setStackTraces(debugExceptions);
 
 		try {
 			File file = new File(path);
 			InputStream input = new FileInputStream(file);
 			Reader reader = new InputStreamReader(input, "UTF-8");
 			Parser parser = new Parser(path, file, new BufferedReader(reader), version, cmd);
-			Program program = parser.parse();
+			Program program = new Optimizer().optimize(parser.parse());
 			Interpreter interpreter = new Interpreter(program, new Main(), cmd);
 			interpreter.execute();
 		} catch (FileNotFoundException ex) {
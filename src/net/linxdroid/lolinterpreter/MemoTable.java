@@ -0,0 +1,191 @@
+/*
+ * Java LOLCODE - LOLCODE parser and interpreter (http://lolcode.com/)
+ * Copyright (C) 2007-2011  Brett Kail (bkail@iastate.edu)
+ * http://bkail.public.iastate.edu/lolcode/
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.linxdroid.lolinterpreter;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// A bounded LRU cache of pure function results, keyed by the function and
+// its NUMBR, NUMBAR, YARN and TROOF arguments.
+public class MemoTable {
+	public static final int DEFAULT_CAPACITY = 1024;
+
+	private final int capacity;
+	private final Map<Key, Value> entries;
+	private long hits;
+	private long misses;
+	private long evictions;
+
+	public MemoTable() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	public MemoTable(int capacity) {
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("capacity: " + capacity);
+		}
+
+		this.capacity = capacity;
+		this.entries = new LinkedHashMap<Key, Value>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Key, Value> eldest) {
+				if (size() > MemoTable.this.capacity) {
+					evictions++;
+					return true;
+				}
+
+				return false;
+			}
+		};
+	}
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+	public int size() {
+		return entries.size();
+	}
+
+	public long getHits() {
+		return hits;
+	}
+
+	public long getMisses() {
+		return misses;
+	}
+
+	public long getEvictions() {
+		return evictions;
+	}
+
+	public void clear() {
+		entries.clear();
+	}
+
+	static boolean isMemoizable(Value[] arguments) {
+		for (Value argument : arguments) {
+			switch (ValueTag.of(argument)) {
+				case ValueTag.TROOF:
+				case ValueTag.NUMBR:
+				case ValueTag.NUMBAR:
+				case ValueTag.YARN:
+					break;
+				default:
+					return false;
+			}
+		}
+
+		return true;
+	}
+
+	// Returns null and counts a miss when there is no entry.
+	Value get(Key key) {
+		Value value = entries.get(key);
+		if (value == null) {
+			misses++;
+		} else {
+			hits++;
+		}
+
+		return value;
+	}
+
+	void put(Key key, Value value) {
+		entries.put(key, value);
+	}
+
+	static final class Key {
+		private final Program.Function function;
+		private final Value[] arguments;
+		private final int hash;
+
+		public Key(Program.Function function, Value[] arguments) {
+			this.function = function;
+			this.arguments = arguments;
+
+			int hash = System.identityHashCode(function);
+			for (Value argument : arguments) {
+				hash = hash * 31 + hash(argument);
+			}
+			this.hash = hash;
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			if (!(other instanceof Key)) {
+				return false;
+			}
+
+			Key key = (Key)other;
+			if (key.function != function || key.hash != hash || key.arguments.length != arguments.length) {
+				return false;
+			}
+
+			for (int i = 0; i < arguments.length; i++) {
+				if (!same(arguments[i], key.arguments[i])) {
+					return false;
+				}
+			}
+
+			return true;
+		}
+
+		private static int hash(Value value) {
+			switch (ValueTag.of(value)) {
+				case ValueTag.TROOF:
+					return value.getBoolean() ? 1231 : 1237;
+				case ValueTag.NUMBR:
+					return ((NumbrValue)value).getInt();
+				case ValueTag.NUMBAR:
+					return Float.floatToIntBits(value.getFloat());
+				default:
+					return value.getString().hashCode();
+			}
+		}
+
+		// Arguments must match in type as well as value: 1 and 1.0 can give
+		// different results.
+		private static boolean same(Value left, Value right) {
+			int tag = ValueTag.of(left);
+			if (tag != ValueTag.of(right)) {
+				return false;
+			}
+
+			switch (tag) {
+				case ValueTag.TROOF:
+					return left.getBoolean() == right.getBoolean();
+				case ValueTag.NUMBR:
+					return ((NumbrValue)left).getInt() == ((NumbrValue)right).getInt();
+				case ValueTag.NUMBAR:
+					return Float.floatToIntBits(left.getFloat()) == Float.floatToIntBits(right.getFloat());
+				default:
+					return left.getString().equals(right.getString());
+			}
+		}
+	}
+}
@@ -26,16 +26,14 @@ class NoobValue extends AbstractScalarValue {
 	private Value numbar = new NumbarValue(0);
 	private Value yarn = new YarnValue("");
 
-	private NoobValue() { }
+	private NoobValue() {
+		super(ValueTag.NOOB);
+	}
 
 	public String getType() {
 		return "NOOB";
 	}
 
-	public boolean isTroof() {
-		return false;
-	}
-
 	public boolean getBoolean() {
 		return false;
 	}
@@ -44,44 +42,24 @@ class NoobValue extends AbstractScalarValue {
 		return TroofValue.FAIL;
 	}
 
-	public boolean isNumeric() {
-		return false;
-	}
-
-	public boolean isNumbr() {
-		return false;
-	}
-
 	public int getInt() {
-		throw new LOLCodeException(LOLCodeException.BAD_NOOB_USE);
+		throw LOLCodeException.get(LOLCodeException.BAD_NOOB_USE);
 	}
 
 	public Value castToNumbr() {
 		return numbr;
 	}
 
-	public boolean isNumbar() {
-		return false;
-	}
-
-	public boolean isMathNumbar() {
-		return false;
-	}
-
 	public float getFloat() {
-		throw new LOLCodeException(LOLCodeException.BAD_NOOB_USE);
+		throw LOLCodeException.get(LOLCodeException.BAD_NOOB_USE);
 	}
 
 	public Value castToNumbar() {
 		return numbar;
 	}
 
-	public boolean isYarn() {
-		return false;
-	}
-
 	public String getString() {
-		throw new LOLCodeException(LOLCodeException.BAD_NOOB_USE);
+		throw LOLCodeException.get(LOLCodeException.BAD_NOOB_USE);
 	}
 
 	public Value castToYarn() {
@@ -23,9 +23,10 @@ import java.util.Formatter;
 import java.util.Locale;
 
 class NumbarValue extends AbstractTypedScalarValue {
-	private float value;
+	private final float value;
 
 	public NumbarValue(float value) {
+		super(ValueTag.NUMBAR);
 		this.value = value;
 	}
 
@@ -57,25 +58,10 @@ class NumbarValue extends AbstractTypedScalarValue {
 		return value != 0;
 	}
 
-	@Override
-	public boolean isNumeric() {
-		return true;
-	}
-
 	public int getInt() {
 		return (int)value;
 	}
 
-	@Override
-	public boolean isNumbar() {
-		return true;
-	}
-
-	@Override
-	public boolean isMathNumbar() {
-		return true;
-	}
-
 	public float getFloat() {
 		return value;
 	}
@@ -20,12 +20,32 @@
 package net.linxdroid.lolinterpreter;
 
 class NumbrValue extends AbstractTypedScalarValue {
-	private int value;
+	private static final int CACHE_LOW = -128;
+	private static final int CACHE_HIGH = 1023;
+	private static final NumbrValue[] cache = new NumbrValue[CACHE_HIGH - CACHE_LOW + 1];
+
+	static {
+		for (int i = 0; i < cache.length; i++) {
+			cache[i] = new NumbrValue(i + CACHE_LOW);
+		}
+	}
+
+	private final int value;
 
 	public NumbrValue(int value) {
+		super(ValueTag.NUMBR);
 		this.value = value;
 	}
 
+	// Values are immutable, so common results are shared.
+	public static NumbrValue valueOf(int value) {
+		if (value >= CACHE_LOW && value <= CACHE_HIGH) {
+			return cache[value - CACHE_LOW];
+		}
+
+		return new NumbrValue(value);
+	}
+
 	@Override
 	public String toString() {
 		return super.toString() + '[' + value + ']';
@@ -63,16 +83,6 @@ class NumbrValue extends AbstractTypedScalarValue {
 		return value != 0;
 	}
 
-	@Override
-	public boolean isNumeric() {
-		return true;
-	}
-
-	@Override
-	public boolean isNumbr() {
-		return true;
-	}
-
 	public int getInt() {
 		return value;
 	}
@@ -0,0 +1,504 @@
+/*
+ * Java LOLCODE - LOLCODE parser and interpreter (http://lolcode.com/)
+ * Copyright (C) 2007-2011  Brett Kail (bkail@iastate.edu)
+ * http://bkail.public.iastate.edu/lolcode/
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.linxdroid.lolinterpreter;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+
+final class Operations {
+	private Operations() { }
+
+	public static boolean getBoolean(Value value) {
+		switch (ValueTag.of(value)) {
+			case ValueTag.NOOB:
+				return false;
+			case ValueTag.TROOF:
+				return value == TroofValue.WIN;
+			case ValueTag.NUMBR:
+				return ((NumbrValue)value).getBoolean();
+			case ValueTag.NUMBAR:
+				return ((NumbarValue)value).getBoolean();
+			case ValueTag.YARN:
+				return ((YarnValue)value).getBoolean();
+			default:
+				return value.getBoolean();
+		}
+	}
+
+	public static int getInt(Value value) {
+		switch (ValueTag.of(value)) {
+			case ValueTag.NUMBR:
+				return ((NumbrValue)value).getInt();
+			case ValueTag.NUMBAR:
+				return ((NumbarValue)value).getInt();
+			case ValueTag.YARN:
+				return ((YarnValue)value).getInt();
+			default:
+				return value.getInt();
+		}
+	}
+
+	public static float getFloat(Value value) {
+		switch (ValueTag.of(value)) {
+			case ValueTag.NUMBR:
+				return ((NumbrValue)value).getFloat();
+			case ValueTag.NUMBAR:
+				return ((NumbarValue)value).getFloat();
+			case ValueTag.YARN:
+				return ((YarnValue)value).getFloat();
+			default:
+				return value.getFloat();
+		}
+	}
+
+	private static boolean isMathNumbar(Value value) {
+		switch (ValueTag.of(value)) {
+			case ValueTag.NUMBAR:
+				return true;
+			case ValueTag.YARN:
+				return ((YarnValue)value).isMathNumbar();
+			case ValueTag.OTHER:
+				return value.isMathNumbar();
+			default:
+				return false;
+		}
+	}
+
+	private static int getMathInt(Value value) {
+		if (ValueTag.of(value) == ValueTag.NUMBR) {
+			return ((NumbrValue)value).getInt();
+		}
+
+		return value.castToMathNumbr().getInt();
+	}
+
+	public static Value sum(Value left, Value right) {
+		if (ValueTag.of(left) == ValueTag.NUMBR && ValueTag.of(right) == ValueTag.NUMBR) {
+			return NumbrValue.valueOf(((NumbrValue)left).getInt() + ((NumbrValue)right).getInt());
+		}
+
+		return sumSlow(left, right);
+	}
+
+	private static Value sumSlow(Value left, Value right) {
+		if (isMathNumbar(left) | isMathNumbar(right)) {
+			return new NumbarValue(getFloat(left) + getFloat(right));
+		}
+
+		return NumbrValue.valueOf(getInt(left) + getInt(right));
+	}
+
+	public static Value diff(Value left, Value right) {
+		if (ValueTag.of(left) == ValueTag.NUMBR && ValueTag.of(right) == ValueTag.NUMBR) {
+			return NumbrValue.valueOf(((NumbrValue)left).getInt() - ((NumbrValue)right).getInt());
+		}
+
+		return diffSlow(left, right);
+	}
+
+	private static Value diffSlow(Value left, Value right) {
+		if (isMathNumbar(left) | isMathNumbar(right)) {
+			return new NumbarValue(getFloat(left) - getFloat(right));
+		}
+
+		return NumbrValue.valueOf(getInt(left) - getInt(right));
+	}
+
+	public static Value produkt(Value left, Value right) {
+		if (ValueTag.of(left) == ValueTag.NUMBR && ValueTag.of(right) == ValueTag.NUMBR) {
+			return NumbrValue.valueOf(((NumbrValue)left).getInt() * ((NumbrValue)right).getInt());
+		}
+
+		return produktSlow(left, right);
+	}
+
+	private static Value produktSlow(Value left, Value right) {
+		if (isMathNumbar(left) | isMathNumbar(right)) {
+			return new NumbarValue(getFloat(left) * getFloat(right));
+		}
+
+		return NumbrValue.valueOf(getInt(left) * getInt(right));
+	}
+
+	public static Value quoshunt(Value left, Value right) {
+		if (ValueTag.of(left) == ValueTag.NUMBR && ValueTag.of(right) == ValueTag.NUMBR) {
+			int rightValue = ((NumbrValue)right).getInt();
+			if (rightValue != 0) {
+				return NumbrValue.valueOf(((NumbrValue)left).getInt() / rightValue);
+			}
+		}
+
+		return quoshuntSlow(left, right);
+	}
+
+	private static Value quoshuntSlow(Value left, Value right) {
+		if (isMathNumbar(left) | isMathNumbar(right)) {
+			return new NumbarValue(getFloat(left) / getFloat(right));
+		}
+
+		int leftValue = getInt(left);
+		int rightValue = getInt(right);
+		if (rightValue == 0) {
+			throw LOLCodeException.get(LOLCodeException.BAD_QUOSHUNT);
+		}
+
+		return NumbrValue.valueOf(leftValue / rightValue);
+	}
+
+	public static Value mod(Value left, Value right) {
+		if (ValueTag.of(left) == ValueTag.NUMBR && ValueTag.of(right) == ValueTag.NUMBR) {
+			int rightValue = ((NumbrValue)right).getInt();
+			if (rightValue != 0) {
+				return NumbrValue.valueOf(((NumbrValue)left).getInt() % rightValue);
+			}
+		}
+
+		return modSlow(left, right);
+	}
+
+	private static Value modSlow(Value left, Value right) {
+		if (isMathNumbar(left) | isMathNumbar(right)) {
+			return new NumbarValue(getFloat(left) % getFloat(right));
+		}
+
+		int leftValue = getInt(left);
+		int rightValue = getInt(right);
+		if (rightValue == 0) {
+			throw LOLCodeException.get(LOLCodeException.BAD_MOD);
+		}
+
+		return NumbrValue.valueOf(leftValue % rightValue);
+	}
+
+	public static Value biggr(Value left, Value right) {
+		if (ValueTag.of(left) == ValueTag.NUMBR && ValueTag.of(right) == ValueTag.NUMBR) {
+			return NumbrValue.valueOf(Math.max(((NumbrValue)left).getInt(), ((NumbrValue)right).getInt()));
+		}
+
+		return biggrSlow(left, right);
+	}
+
+	private static Value biggrSlow(Value left, Value right) {
+		if (isMathNumbar(left) | isMathNumbar(right)) {
+			return new NumbarValue(Math.max(getFloat(left), getFloat(right)));
+		}
+
+		return NumbrValue.valueOf(Math.max(getInt(left), getInt(right)));
+	}
+
+	public static Value smallr(Value left, Value right) {
+		if (ValueTag.of(left) == ValueTag.NUMBR && ValueTag.of(right) == ValueTag.NUMBR) {
+			return NumbrValue.valueOf(Math.min(((NumbrValue)left).getInt(), ((NumbrValue)right).getInt()));
+		}
+
+		return smallrSlow(left, right);
+	}
+
+	private static Value smallrSlow(Value left, Value right) {
+		if (isMathNumbar(left) | isMathNumbar(right)) {
+			return new NumbarValue(Math.min(getFloat(left), getFloat(right)));
+		}
+
+		return NumbrValue.valueOf(Math.min(getInt(left), getInt(right)));
+	}
+
+	public static Value won(Value left, Value right) {
+		return TroofValue.getInstance(getBoolean(left) ^ getBoolean(right));
+	}
+
+	// Same as left.equals(right) for every pair of values.
+	public static boolean equal(Value left, Value right) {
+		if (ValueTag.of(left) == ValueTag.NUMBR && ValueTag.of(right) == ValueTag.NUMBR) {
+			return ((NumbrValue)left).getInt() == ((NumbrValue)right).getInt();
+		}
+
+		return equalSlow(left, right);
+	}
+
+	private static boolean equalSlow(Value left, Value right) {
+		int leftTag = ValueTag.of(left);
+		int rightTag = ValueTag.of(right);
+		if (leftTag == ValueTag.OTHER || rightTag == ValueTag.OTHER) {
+			return left.equals(right);
+		}
+
+		if (left == right) {
+			return true;
+		}
+
+		switch (leftTag) {
+			case ValueTag.NUMBR:
+			case ValueTag.NUMBAR:
+				if (rightTag == ValueTag.NUMBR || rightTag == ValueTag.NUMBAR) {
+					return getFloat(left) == getFloat(right);
+				}
+				break;
+
+			case ValueTag.YARN:
+				if (rightTag == ValueTag.YARN) {
+					return ((YarnValue)left).getString().equals(((YarnValue)right).getString());
+				}
+				break;
+		}
+
+		return false;
+	}
+
+	public static Value bothSaem(Value left, Value right) {
+		return TroofValue.getInstance(equal(left, right));
+	}
+
+	public static Value diffrint(Value left, Value right) {
+		return TroofValue.getInstance(!equal(left, right));
+	}
+
+	public static Value bigrThan(Value left, Value right) {
+		return TroofValue.getInstance(getMathInt(left) > getMathInt(right));
+	}
+
+	public static Value smalrThan(Value left, Value right) {
+		return TroofValue.getInstance(getMathInt(left) < getMathInt(right));
+	}
+
+	public static Value castToTroof(Value value) {
+		switch (ValueTag.of(value)) {
+			case ValueTag.NOOB:
+				return TroofValue.FAIL;
+			case ValueTag.TROOF:
+				return value;
+			case ValueTag.NUMBR:
+				return TroofValue.getInstance(((NumbrValue)value).getBoolean());
+			case ValueTag.NUMBAR:
+				return TroofValue.getInstance(((NumbarValue)value).getBoolean());
+			case ValueTag.YARN:
+				return TroofValue.getInstance(((YarnValue)value).getBoolean());
+			default:
+				return value.castToTroof();
+		}
+	}
+
+	public static Value castToNumbr(Value value) {
+		switch (ValueTag.of(value)) {
+			case ValueTag.NUMBR:
+				return value;
+			case ValueTag.NUMBAR:
+				return NumbrValue.valueOf(((NumbarValue)value).getInt());
+			case ValueTag.YARN:
+				return NumbrValue.valueOf(((YarnValue)value).getInt());
+			default:
+				return value.castToNumbr();
+		}
+	}
+
+	public static Value castToNumbar(Value value) {
+		switch (ValueTag.of(value)) {
+			case ValueTag.NUMBR:
+				return new NumbarValue(((NumbrValue)value).getFloat());
+			case ValueTag.NUMBAR:
+				return value;
+			case ValueTag.YARN:
+				return new NumbarValue(((YarnValue)value).getFloat());
+			default:
+				return value.castToNumbar();
+		}
+	}
+
+	public static Value castToYarn(Value value) {
+		switch (ValueTag.of(value)) {
+			case ValueTag.NUMBR:
+				return new YarnValue(((NumbrValue)value).getString());
+			case ValueTag.NUMBAR:
+				return new YarnValue(((NumbarValue)value).getString());
+			case ValueTag.YARN:
+				return value;
+			default:
+				return value.castToYarn();
+		}
+	}
+
+	public static Value castToMathNumbr(Value value) {
+		switch (ValueTag.of(value)) {
+			case ValueTag.NUMBR:
+				return value;
+			case ValueTag.YARN:
+				return ((YarnValue)value).castToNumbr();
+			default:
+				return value.castToMathNumbr();
+		}
+	}
+
+	public static Value slotIterator(Value bukkit) {
+		return bukkit.getSlotIterator();
+	}
+
+	public static Value hasNextSlot(Value iterator) {
+		return TroofValue.getInstance(((SlotIterator)iterator).hasNext());
+	}
+
+	public static Value nextSlot(Value iterator) {
+		return ((SlotIterator)iterator).next();
+	}
+
+	public static Value bukkit(Value liek, BukkitHeap heap) {
+		if (liek == null) {
+			return new BukkitValue(heap);
+		}
+
+		if (!(liek instanceof BukkitValue)) {
+			throw new LOLCodeException(LOLCodeException.BAD_LIEK_TYPE, liek.getType());
+		}
+
+		return new BukkitValue((BukkitValue)liek);
+	}
+
+	public static Value java(Value name) {
+		Class klass;
+
+		try {
+			klass = Class.forName(name.getString());
+		} catch (ClassNotFoundException ex) {
+			throw new LOLCodeException(LOLCodeException.BAD_JAVA_CLASS, ex);
+		}
+
+		return JavaValue.create(klass);
+	}
+
+	public static int getWTFIndex(Program.WTFStatement stmt, Value value) {
+		return stmt.getTable().getIndex(value);
+	}
+
+	public static String getExceptionType(RuntimeException ex) {
+		if (ex instanceof LOLCodeException) {
+			return ((LOLCodeException)ex).getType();
+		}
+
+		return ex.getClass().getName();
+	}
+
+	public static void print(Environment environment, Cmd cmd, boolean invisible, String string) {
+		if (cmd != null) {
+			cmd.stdOut.print(string);
+		} else {
+			(invisible ? environment.getErr() : environment.getOut()).print(string);
+		}
+	}
+
+	public static void println(Environment environment, Cmd cmd, boolean invisible, boolean suppressNewLine) {
+		PrintWriter out = invisible ? environment.getErr() : environment.getOut();
+
+		if (!suppressNewLine) {
+			if (cmd != null) {
+				cmd.stdOut.println();
+			} else {
+				out.println();
+			}
+		}
+
+		out.flush();
+	}
+
+	private static String readLine(Environment environment, Cmd cmd) throws IOException {
+		if (cmd != null) {
+			return cmd.readln();
+		}
+
+		return environment.getIn().readLine();
+	}
+
+	public static Value gimmeh(int what, Environment environment, Cmd cmd) {
+		// Other scripts get the worker while this one waits for input.
+		Scheduler.Task task = Scheduler.getCurrentTask();
+		if (task != null) {
+			task.beginBlocking();
+		}
+
+		try {
+			return read(what, environment, cmd);
+		} finally {
+			if (task != null) {
+				task.endBlocking();
+			}
+		}
+	}
+
+	private static Value read(int what, Environment environment, Cmd cmd) {
+		try {
+			switch (what) {
+				case Program.GimmehExpression.LINE: {
+					String string = readLine(environment, cmd);
+					if (string == null) {
+						return NoobValue.INSTANCE;
+					}
+
+					return new YarnValue(string);
+				}
+
+				case Program.GimmehExpression.WORD: {
+					BufferedReader reader = environment.getIn();
+					StringBuilder builder = new StringBuilder();
+
+					int ch;
+					for (;;) {
+						if ((ch = reader.read()) == -1) {
+							return NoobValue.INSTANCE;
+						}
+
+						if (!Character.isWhitespace(ch)) {
+							builder.append((char)ch);
+							break;
+						}
+					}
+
+					for (;;) {
+						reader.mark(1);
+
+						if ((ch = reader.read()) == -1) {
+							break;
+						}
+
+						if (Character.isWhitespace(ch)) {
+							reader.reset();
+							break;
+						}
+
+						builder.append((char)ch);
+					}
+
+					return new YarnValue(builder.toString());
+				}
+
+				case Program.GimmehExpression.LETTAR: {
+					int ch = Integer.parseInt(readLine(environment, cmd));
+					if (ch == -1) {
+						return NoobValue.INSTANCE;
+					}
+
+					return new YarnValue(String.valueOf((char)ch));
+				}
+
+				default:
+					throw new IllegalStateException();
+			}
+		} catch (IOException ex) {
+			throw new LOLCodeException(LOLCodeException.BAD_IO, ex);
+		}
+	}
+}
@@ -0,0 +1,900 @@
+/*
+ * Java LOLCODE - LOLCODE parser and interpreter (http://lolcode.com/)
+ * Copyright (C) 2007-2011  Brett Kail (bkail@iastate.edu)
+ * http://bkail.public.iastate.edu/lolcode/
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.linxdroid.lolinterpreter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+class Optimizer {
+	public interface Listener {
+		void passFinished(Pass pass, int numChanges);
+	}
+
+	private List<Pass> passes = new ArrayList<Pass>();
+	private Listener listener;
+
+	public Optimizer() {
+		passes.add(new ConstantFolding());
+		passes.add(new CastRemoval());
+		passes.add(new BranchPruning());
+		passes.add(new DeadCodeRemoval());
+		passes.add(new Fusion());
+	}
+
+	public List<Pass> getPasses() {
+		return passes;
+	}
+
+	public void setListener(Listener listener) {
+		this.listener = listener;
+	}
+
+	public Program optimize(Program program) {
+		for (Pass pass : passes) {
+			int numChanges = pass.run(program);
+			if (listener != null) {
+				listener.passFinished(pass, numChanges);
+			}
+		}
+
+		return program;
+	}
+
+	static Value getConstant(Program.Expression expr) {
+		if (expr == Program.NoobExpression.INSTANCE) {
+			return NoobValue.INSTANCE;
+		}
+		if (expr instanceof Program.TroofExpression) {
+			return TroofValue.getInstance(((Program.TroofExpression)expr).getValue());
+		}
+		if (expr instanceof Program.NumbrExpression) {
+			return ((Program.NumbrExpression)expr).getConstant();
+		}
+		if (expr instanceof Program.NumbarExpression) {
+			return ((Program.NumbarExpression)expr).getConstant();
+		}
+		if (expr instanceof Program.YarnExpression) {
+			return ((Program.YarnExpression)expr).getConstant();
+		}
+
+		return null;
+	}
+
+	static Program.Expression getExpression(Value value) {
+		if (value == NoobValue.INSTANCE) {
+			return Program.NoobExpression.INSTANCE;
+		}
+		if (value instanceof TroofValue) {
+			return value.getBoolean() ? Program.TroofExpression.WIN : Program.TroofExpression.FAIL;
+		}
+		if (value instanceof NumbrValue) {
+			return new Program.NumbrExpression(value.getInt());
+		}
+		if (value instanceof NumbarValue) {
+			return new Program.NumbarExpression(value.getFloat());
+		}
+		if (value instanceof YarnValue) {
+			return new Program.YarnExpression(value.getString());
+		}
+
+		return null;
+	}
+
+	public static abstract class Pass implements Program.StatementVisitor, Program.ExpressionVisitor {
+		private Map<Program.Function, Program.Function> functions;
+		private List<Program.Statement> statements;
+		private boolean fixedLength;
+		private Program.Expression expression;
+		private int numChanges;
+
+		public abstract String getName();
+
+		public int run(Program program) {
+			functions = new IdentityHashMap<Program.Function, Program.Function>();
+			numChanges = 0;
+
+			Program.Block block = program.getMainBlock();
+			block.setStatements(block.getNumVariables(), rewrite(block.getStatements()));
+
+			functions = null;
+			return numChanges;
+		}
+
+		protected void changed() {
+			numChanges++;
+		}
+
+		protected void changed(int count) {
+			numChanges += count;
+		}
+
+		// WTF statements jump to label indexes, so statements inside them must
+		// be rewritten one for one.
+		protected boolean isFixedLength() {
+			return fixedLength;
+		}
+
+		protected void add(Program.Statement stmt) {
+			statements.add(stmt);
+		}
+
+		protected List<Program.Statement> rewrite(List<Program.Statement> stmts) {
+			List<Program.Statement> saveStatements = statements;
+			boolean saveFixedLength = fixedLength;
+			statements = new ArrayList<Program.Statement>(stmts.size());
+			fixedLength = false;
+
+			for (Program.Statement stmt : stmts) {
+				rewriteStatement(stmt);
+			}
+
+			List<Program.Statement> result = statements;
+			statements = saveStatements;
+			fixedLength = saveFixedLength;
+			return result;
+		}
+
+		protected void rewriteStatement(Program.Statement stmt) {
+			stmt.visit(this);
+		}
+
+		private Program.Statement rewriteFixedLength(Program.Statement stmt) {
+			List<Program.Statement> saveStatements = statements;
+			boolean saveFixedLength = fixedLength;
+			statements = new ArrayList<Program.Statement>(1);
+			fixedLength = true;
+
+			rewriteStatement(stmt);
+
+			Program.Statement result = statements.get(0);
+			statements = saveStatements;
+			fixedLength = saveFixedLength;
+			return result;
+		}
+
+		protected Program.Expression rewrite(Program.Expression expr) {
+			if (expr == null) {
+				return null;
+			}
+
+			expr.visit(this);
+			return expression;
+		}
+
+		private Program.Expression[] rewrite(Program.Expression[] exprs) {
+			Program.Expression[] result = new Program.Expression[exprs.length];
+			for (int i = 0; i < exprs.length; i++) {
+				result[i] = rewrite(exprs[i]);
+			}
+
+			return result;
+		}
+
+		private List<Program.Expression> rewriteExpressions(List<Program.Expression> exprs) {
+			return Arrays.asList(rewrite(exprs.toArray(new Program.Expression[exprs.size()])));
+		}
+
+		private void rewrite(Program.Function function) {
+			if (!functions.containsKey(function)) {
+				functions.put(function, function);
+				function.setStatements(function.getNumVariables(), rewrite(function.getStatements()));
+			}
+		}
+
+		public void visit(Program.DeclareVariableStatement stmt) {
+			add(new Program.DeclareVariableStatement(stmt.getVariableIndex(), rewrite(stmt.getValue())));
+		}
+
+		public void visit(Program.DeclareSlotStatement stmt) {
+			add(new Program.DeclareSlotStatement(rewrite(stmt.getBukkit()), stmt.getName(), rewrite(stmt.getValue())));
+		}
+
+		public void visit(Program.AssignItStatement stmt) {
+			add(new Program.AssignItStatement(rewrite(stmt.getValue())));
+		}
+
+		public void visit(Program.AssignVariableStatement stmt) {
+			add(new Program.AssignVariableStatement(stmt.getVariableIndex(), rewrite(stmt.getValue())));
+		}
+
+		public void visit(Program.AssignGlobalVariableStatement stmt) {
+			add(new Program.AssignGlobalVariableStatement(stmt.getVariableIndex(), rewrite(stmt.getValue())));
+		}
+
+		public void visit(Program.AssignSlotStatement stmt) {
+			add(new Program.AssignSlotStatement(rewrite(stmt.getBukkit()), rewrite(stmt.getIndex()), rewrite(stmt.getValue())));
+		}
+
+		public void visit(Program.AssignInMahStatement stmt) {
+			Program.Statement assign = rewriteFixedLength(stmt.getAssignStatement());
+			add(new Program.AssignInMahStatement(assign, rewrite(stmt.getBukkit()), rewrite(stmt.getIndex()), rewrite(stmt.getValue())));
+		}
+
+		public void visit(Program.ByesStatement stmt) {
+			add(new Program.ByesStatement(rewrite(stmt.getExitCode()), rewrite(stmt.getMessage())));
+		}
+
+		public void visit(Program.VisibleStatement stmt) {
+			add(new Program.VisibleStatement(stmt.isInvisible(), rewriteExpressions(stmt.getExpressions()), stmt.isSuppressNewLine()));
+		}
+
+		public void visit(Program.ORlyStatement stmt) {
+			add(new Program.ORlyStatement(rewrite(stmt.getExpression()), rewrite(stmt.getYaRly()), rewrite(stmt.getNoWai())));
+		}
+
+		public void visit(Program.WTFStatement stmt) {
+			Program.Expression expr = rewrite(stmt.getExpression());
+
+			List<Program.Statement> stmts = new ArrayList<Program.Statement>();
+			for (Program.Statement child : stmt.getStatements()) {
+				stmts.add(rewriteFixedLength(child));
+			}
+
+			add(new Program.WTFStatement(stmts, stmt.getLabels(), stmt.getOMGWTFIndex(), expr));
+		}
+
+		public void visit(Program.GTFOStatement stmt) {
+			add(stmt);
+		}
+
+		public void visit(Program.ImInYrStatement stmt) {
+			List<Program.Statement> stmts = rewrite(stmt.getStatements());
+			add(new Program.ImInYrStatement(stmts, rewrite(stmt.getVariable()), stmt.isTil(), rewrite(stmt.getExpression())));
+		}
+
+		public void visit(Program.FoundYrStatement stmt) {
+			add(new Program.FoundYrStatement(rewrite(stmt.getExpression())));
+		}
+
+		public void visit(Program.OHaiStatement stmt) {
+			Program.Expression expr = rewrite(stmt.getExpression());
+			add(new Program.OHaiStatement(expr, rewrite(stmt.getStatements())));
+		}
+
+		public void visit(Program.PlzStatement stmt) {
+			List<Program.Statement> stmts = rewrite(stmt.getStatements());
+
+			List<Program.PlzStatement.ONoes> oNoes = new ArrayList<Program.PlzStatement.ONoes>();
+			for (Program.PlzStatement.ONoes child : stmt.getONoes()) {
+				Program.Expression expr = rewrite(child.getExpression());
+				oNoes.add(new Program.PlzStatement.ONoes(expr, rewrite(child.getStatements())));
+			}
+
+			add(new Program.PlzStatement(stmts, oNoes, rewrite(stmt.getAwsumThx())));
+		}
+
+		public void visit(Program.RTFMStatement stmt) {
+			add(new Program.RTFMStatement(rewrite(stmt.getExpression())));
+		}
+
+		public void visit(Program.WhateverStatement stmt) {
+			add(new Program.WhateverStatement(rewrite(stmt.getUpdateStatements())));
+		}
+
+		// Fused statements are rewritten unfused.  Fusion runs last and fuses
+		// them again.
+		public void visit(Program.IncrementVariableStatement stmt) {
+			visit((Program.AssignVariableStatement)stmt);
+		}
+
+		public void visit(Program.VisibleSmooshStatement stmt) {
+			visit((Program.VisibleStatement)stmt);
+		}
+
+		public void visit(Program.CompareORlyStatement stmt) {
+			for (Program.Statement child : stmt.getStatements()) {
+				rewriteStatement(child);
+			}
+		}
+
+		public void visit(Program.NoobExpression expr) {
+			expression = expr;
+		}
+
+		public void visit(Program.TroofExpression expr) {
+			expression = expr;
+		}
+
+		public void visit(Program.NumbrExpression expr) {
+			expression = expr;
+		}
+
+		public void visit(Program.NumbarExpression expr) {
+			expression = expr;
+		}
+
+		public void visit(Program.YarnExpression expr) {
+			expression = expr;
+		}
+
+		public void visit(Program.BukkitExpression expr) {
+			Program.Expression liek = expr.getLiek();
+			expression = liek == null ? expr : new Program.BukkitExpression(rewrite(liek));
+		}
+
+		public void visit(Program.FunctionExpression expr) {
+			rewrite(expr.getFunction());
+			expression = expr;
+		}
+
+		public void visit(Program.ItExpression expr) {
+			expression = expr;
+		}
+
+		public void visit(Program.VariableExpression expr) {
+			expression = expr;
+		}
+
+		public void visit(Program.GlobalVariableExpression expr) {
+			expression = expr;
+		}
+
+		public void visit(Program.FunctionCallExpression expr) {
+			Program.Expression[] arguments = rewrite(expr.getArguments());
+			rewrite(expr.getFunction());
+			expression = new Program.FunctionCallExpression(expr.getFunction(), arguments);
+		}
+
+		public void visit(Program.ObjectExpression expr) {
+			expression = expr;
+		}
+
+		public void visit(Program.SlotExpression expr) {
+			Program.Expression bukkit = rewrite(expr.getBukkit());
+			expression = new Program.SlotExpression(bukkit, rewrite(expr.getIndex()));
+		}
+
+		public void visit(Program.SlotFunctionCallExpression expr) {
+			Program.Expression bukkit = rewrite(expr.getBukkit());
+			Program.Expression index = rewrite(expr.getIndex());
+			expression = new Program.SlotFunctionCallExpression(bukkit, index, rewriteExpressions(expr.getArguments()));
+		}
+
+		public void visit(Program.InMahExpression expr) {
+			Program.Expression bukkit = rewrite(expr.getBukkit());
+			expression = new Program.InMahExpression(bukkit, rewrite(expr.getIndex()));
+		}
+
+		public void visit(Program.GetInMahBukkitExpression expr) {
+			expression = new Program.GetInMahBukkitExpression(rewrite(expr.getExpression()));
+		}
+
+		public void visit(Program.AssignInMahBukkitInMahExpression expr) {
+			Program.Expression bukkit = rewrite(expr.getBukkit());
+			expression = new Program.AssignInMahBukkitInMahExpression(bukkit, rewrite(expr.getIndex()));
+		}
+
+		public void visit(Program.SumExpression expr) {
+			Program.Expression left = rewrite(expr.getLeftExpression());
+			expression = new Program.SumExpression(left, rewrite(expr.getRightExpression()));
+		}
+
+		public void visit(Program.DiffExpression expr) {
+			Program.Expression left = rewrite(expr.getLeftExpression());
+			expression = new Program.DiffExpression(left, rewrite(expr.getRightExpression()));
+		}
+
+		public void visit(Program.ProduktExpression expr) {
+			Program.Expression left = rewrite(expr.getLeftExpression());
+			expression = new Program.ProduktExpression(left, rewrite(expr.getRightExpression()));
+		}
+
+		public void visit(Program.QuoshuntExpression expr) {
+			Program.Expression left = rewrite(expr.getLeftExpression());
+			expression = new Program.QuoshuntExpression(left, rewrite(expr.getRightExpression()));
+		}
+
+		public void visit(Program.ModExpression expr) {
+			Program.Expression left = rewrite(expr.getLeftExpression());
+			expression = new Program.ModExpression(left, rewrite(expr.getRightExpression()));
+		}
+
+		public void visit(Program.BiggrExpression expr) {
+			Program.Expression left = rewrite(expr.getLeftExpression());
+			expression = new Program.BiggrExpression(left, rewrite(expr.getRightExpression()));
+		}
+
+		public void visit(Program.SmallrExpression expr) {
+			Program.Expression left = rewrite(expr.getLeftExpression());
+			expression = new Program.SmallrExpression(left, rewrite(expr.getRightExpression()));
+		}
+
+		public void visit(Program.WonExpression expr) {
+			Program.Expression left = rewrite(expr.getLeftExpression());
+			expression = new Program.WonExpression(left, rewrite(expr.getRightExpression()));
+		}
+
+		public void visit(Program.NotExpression expr) {
+			expression = new Program.NotExpression(rewrite(expr.getExpression()));
+		}
+
+		public void visit(Program.AllExpression expr) {
+			expression = new Program.AllExpression(rewriteExpressions(expr.getExpressions()));
+		}
+
+		public void visit(Program.AnyExpression expr) {
+			expression = new Program.AnyExpression(rewriteExpressions(expr.getExpressions()));
+		}
+
+		public void visit(Program.BothSaemExpression expr) {
+			Program.Expression left = rewrite(expr.getLeftExpression());
+			expression = new Program.BothSaemExpression(left, rewrite(expr.getRightExpression()));
+		}
+
+		public void visit(Program.DiffrintExpression expr) {
+			Program.Expression left = rewrite(expr.getLeftExpression());
+			expression = new Program.DiffrintExpression(left, rewrite(expr.getRightExpression()));
+		}
+
+		public void visit(Program.SmooshExpression expr) {
+			expression = new Program.SmooshExpression(rewriteExpressions(expr.getExpressions()));
+		}
+
+		public void visit(Program.NoobCastExpression expr) {
+			expression = new Program.NoobCastExpression(rewrite(expr.getExpression()));
+		}
+
+		public void visit(Program.TroofCastExpression expr) {
+			expression = new Program.TroofCastExpression(rewrite(expr.getExpression()));
+		}
+
+		public void visit(Program.NumbrCastExpression expr) {
+			expression = new Program.NumbrCastExpression(rewrite(expr.getExpression()));
+		}
+
+		public void visit(Program.NumbarCastExpression expr) {
+			expression = new Program.NumbarCastExpression(rewrite(expr.getExpression()));
+		}
+
+		public void visit(Program.YarnCastExpression expr) {
+			expression = new Program.YarnCastExpression(rewrite(expr.getExpression()));
+		}
+
+		public void visit(Program.GimmehExpression expr) {
+			expression = expr;
+		}
+
+		public void visit(Program.MathNumbrExpression expr) {
+			expression = new Program.MathNumbrExpression(rewrite(expr.getExpression()));
+		}
+
+		public void visit(Program.BigrThanExpression expr) {
+			Program.Expression left = rewrite(expr.getLeftExpression());
+			expression = new Program.BigrThanExpression(left, rewrite(expr.getRightExpression()));
+		}
+
+		public void visit(Program.SmalrThanExpression expr) {
+			Program.Expression left = rewrite(expr.getLeftExpression());
+			expression = new Program.SmalrThanExpression(left, rewrite(expr.getRightExpression()));
+		}
+
+		public void visit(Program.SlotIteratorExpression expr) {
+			expression = new Program.SlotIteratorExpression(rewrite(expr.getExpression()));
+		}
+
+		public void visit(Program.HasNextSlotExpression expr) {
+			expression = new Program.HasNextSlotExpression(rewrite(expr.getExpression()));
+		}
+
+		public void visit(Program.NextSlotExpression expr) {
+			expression = new Program.NextSlotExpression(rewrite(expr.getExpression()));
+		}
+
+		public void visit(Program.JavaExpression expr) {
+			expression = new Program.JavaExpression(rewrite(expr.getExpression()));
+		}
+
+		public void visit(Program.NamedSlotExpression expr) {
+			visit((Program.SlotExpression)expr);
+		}
+	}
+
+	public static class ConstantFolding extends Pass {
+		public String getName() {
+			return "constant folding";
+		}
+
+		@Override
+		protected Program.Expression rewrite(Program.Expression expr) {
+			Program.Expression result = super.rewrite(expr);
+
+			Value value;
+			try {
+				value = evaluate(result);
+			} catch (RuntimeException ex) {
+				// Leave it to fail at run time.
+				return result;
+			}
+
+			if (value != null) {
+				Program.Expression folded = getExpression(value);
+				if (folded != null) {
+					changed();
+					return folded;
+				}
+			}
+
+			return result;
+		}
+
+		private static Value evaluate(Program.Expression expr) {
+			if (expr instanceof Program.BinaryExpression) {
+				Program.BinaryExpression binary = (Program.BinaryExpression)expr;
+				Value left = getConstant(binary.getLeftExpression());
+				Value right = getConstant(binary.getRightExpression());
+				if (left == null || right == null) {
+					return null;
+				}
+
+				if (expr instanceof Program.SumExpression) {
+					return Operations.sum(left, right);
+				}
+				if (expr instanceof Program.DiffExpression) {
+					return Operations.diff(left, right);
+				}
+				if (expr instanceof Program.ProduktExpression) {
+					return Operations.produkt(left, right);
+				}
+				if (expr instanceof Program.QuoshuntExpression) {
+					return Operations.quoshunt(left, right);
+				}
+				if (expr instanceof Program.ModExpression) {
+					return Operations.mod(left, right);
+				}
+				if (expr instanceof Program.BiggrExpression) {
+					return Operations.biggr(left, right);
+				}
+				if (expr instanceof Program.SmallrExpression) {
+					return Operations.smallr(left, right);
+				}
+				if (expr instanceof Program.WonExpression) {
+					return Operations.won(left, right);
+				}
+				if (expr instanceof Program.BothSaemExpression) {
+					return Operations.bothSaem(left, right);
+				}
+				if (expr instanceof Program.DiffrintExpression) {
+					return Operations.diffrint(left, right);
+				}
+				if (expr instanceof Program.BigrThanExpression) {
+					return Operations.bigrThan(left, right);
+				}
+				if (expr instanceof Program.SmalrThanExpression) {
+					return Operations.smalrThan(left, right);
+				}
+
+				return null;
+			}
+
+			if (expr instanceof Program.UnaryExpression) {
+				Value value = getConstant(((Program.UnaryExpression)expr).getExpression());
+				if (value == null) {
+					return null;
+				}
+
+				if (expr instanceof Program.NotExpression) {
+					return TroofValue.getInstance(!value.getBoolean());
+				}
+				if (expr instanceof Program.NoobCastExpression) {
+					return NoobValue.INSTANCE;
+				}
+				if (expr instanceof Program.TroofCastExpression) {
+					return value.castToTroof();
+				}
+				if (expr instanceof Program.NumbrCastExpression) {
+					return value.castToNumbr();
+				}
+				if (expr instanceof Program.NumbarCastExpression) {
+					return value.castToNumbar();
+				}
+				if (expr instanceof Program.YarnCastExpression) {
+					return value.castToYarn();
+				}
+				if (expr instanceof Program.MathNumbrExpression) {
+					return value.castToMathNumbr();
+				}
+
+				return null;
+			}
+
+			if (expr instanceof Program.AllExpression || expr instanceof Program.AnyExpression || expr instanceof Program.SmooshExpression) {
+				List<Program.Expression> exprs = ((Program.InfiniteArityExpression)expr).getExpressions();
+				Value[] values = new Value[exprs.size()];
+				for (int i = 0; i < values.length; i++) {
+					values[i] = getConstant(exprs.get(i));
+					if (values[i] == null) {
+						return null;
+					}
+				}
+
+				if (expr instanceof Program.SmooshExpression) {
+					StringBuilder builder = new StringBuilder();
+					for (Value value : values) {
+						builder.append(value.getString());
+					}
+
+					return new YarnValue(builder.toString());
+				}
+
+				boolean all = expr instanceof Program.AllExpression;
+				boolean result = all;
+				for (Value value : values) {
+					if (all) {
+						result &= value.getBoolean();
+					} else {
+						result |= value.getBoolean();
+					}
+				}
+
+				return TroofValue.getInstance(result);
+			}
+
+			return null;
+		}
+	}
+
+	public static class CastRemoval extends Pass {
+		public String getName() {
+			return "cast removal";
+		}
+
+		@Override
+		protected Program.Expression rewrite(Program.Expression expr) {
+			Program.Expression result = super.rewrite(expr);
+
+			if (result instanceof Program.YarnCastExpression) {
+				Program.Expression operand = ((Program.YarnCastExpression)result).getExpression();
+				if (operand instanceof Program.YarnExpression || operand instanceof Program.SmooshExpression ||
+						operand instanceof Program.YarnCastExpression) {
+					changed();
+					return operand;
+				}
+
+				return result;
+			}
+
+			int type;
+			if (result instanceof Program.TroofCastExpression) {
+				type = TypeInference.TROOF;
+			} else if (result instanceof Program.NumbrCastExpression || result instanceof Program.MathNumbrExpression) {
+				type = TypeInference.NUMBR;
+			} else if (result instanceof Program.NumbarCastExpression) {
+				type = TypeInference.NUMBAR;
+			} else {
+				return result;
+			}
+
+			Program.Expression operand = ((Program.UnaryExpression)result).getExpression();
+			if (type == TypeInference.getType(operand, null, null)) {
+				changed();
+				return operand;
+			}
+
+			return result;
+		}
+	}
+
+	public static class BranchPruning extends Pass {
+		private Value it;
+
+		public String getName() {
+			return "branch pruning";
+		}
+
+		@Override
+		protected List<Program.Statement> rewrite(List<Program.Statement> stmts) {
+			Value saveIt = it;
+			it = null;
+
+			List<Program.Statement> result = super.rewrite(stmts);
+
+			it = saveIt;
+			return result;
+		}
+
+		@Override
+		protected void rewriteStatement(Program.Statement stmt) {
+			// it holds the constant assigned to IT by the previous statement.
+			Value previousIt = it;
+			it = null;
+
+			if (stmt instanceof Program.ORlyStatement && !isFixedLength()) {
+				Program.ORlyStatement oRly = (Program.ORlyStatement)stmt;
+				Program.Expression expr = oRly.getExpression();
+				Value value = expr == Program.ItExpression.INSTANCE ? previousIt : getConstant(expr);
+
+				if (value != null) {
+					changed();
+
+					it = previousIt;
+					for (Program.Statement child : value.getBoolean() ? oRly.getYaRly() : oRly.getNoWai()) {
+						rewriteStatement(child);
+					}
+
+					return;
+				}
+			}
+
+			super.rewriteStatement(stmt);
+
+			if (stmt instanceof Program.AssignItStatement) {
+				it = getConstant(((Program.AssignItStatement)stmt).getValue());
+			}
+		}
+	}
+
+	public static class DeadCodeRemoval extends Pass {
+		public String getName() {
+			return "dead code removal";
+		}
+
+		@Override
+		protected List<Program.Statement> rewrite(List<Program.Statement> stmts) {
+			List<Program.Statement> result = super.rewrite(stmts);
+
+			for (int i = 0; i < result.size() - 1; i++) {
+				Program.Statement stmt = result.get(i);
+				if (stmt instanceof Program.GTFOStatement || stmt instanceof Program.FoundYrStatement) {
+					changed(result.size() - i - 1);
+					return new ArrayList<Program.Statement>(result.subList(0, i + 1));
+				}
+			}
+
+			return result;
+		}
+	}
+
+	public static class Fusion extends Pass {
+		private int numSlotCaches;
+
+		public String getName() {
+			return "fusion";
+		}
+
+		@Override
+		public int run(Program program) {
+			numSlotCaches = program.getNumSlotCaches();
+			int numChanges = super.run(program);
+			program.setNumSlotCaches(numSlotCaches);
+			return numChanges;
+		}
+
+		@Override
+		protected List<Program.Statement> rewrite(List<Program.Statement> stmts) {
+			List<Program.Statement> result = super.rewrite(stmts);
+
+			// Fuse IT R BOTH SAEM <variable> AN <literal>, O RLY?
+			List<Program.Statement> fused = null;
+			for (int i = 0; i < result.size(); i++) {
+				Program.Statement stmt = result.get(i);
+
+				if (i + 1 < result.size() && stmt instanceof Program.AssignItStatement) {
+					Program.Statement next = result.get(i + 1);
+					Program.Expression value = ((Program.AssignItStatement)stmt).getValue();
+					Value constant = getComparisonConstant(value);
+
+					if (constant != null && next instanceof Program.ORlyStatement &&
+							((Program.ORlyStatement)next).getExpression() == Program.ItExpression.INSTANCE) {
+						if (fused == null) {
+							fused = new ArrayList<Program.Statement>(result.subList(0, i));
+						}
+
+						Program.ORlyStatement oRly = (Program.ORlyStatement)next;
+						fused.add(new Program.CompareORlyStatement((Program.BothSaemExpression)value, constant, true,
+							oRly.getYaRly(), oRly.getNoWai()));
+						changed();
+						i++;
+						continue;
+					}
+				}
+
+				if (fused != null) {
+					fused.add(stmt);
+				}
+			}
+
+			return fused == null ? result : fused;
+		}
+
+		@Override
+		protected Program.Expression rewrite(Program.Expression expr) {
+			Program.Expression result = super.rewrite(expr);
+
+			if (result instanceof Program.SlotExpression) {
+				Program.SlotExpression slot = (Program.SlotExpression)result;
+				if (slot.getIndex() instanceof Program.YarnExpression) {
+					changed();
+					return new Program.NamedSlotExpression(slot.getBukkit(), (Program.YarnExpression)slot.getIndex(), numSlotCaches++);
+				}
+			}
+
+			return result;
+		}
+
+		@Override
+		public void visit(Program.AssignVariableStatement stmt) {
+			int index = stmt.getVariableIndex();
+			Program.Expression value = rewrite(stmt.getValue());
+
+			if (value instanceof Program.SumExpression) {
+				Program.SumExpression sum = (Program.SumExpression)value;
+				Program.Expression left = sum.getLeftExpression();
+				if (left instanceof Program.VariableExpression && ((Program.VariableExpression)left).getIndex() == index &&
+						sum.getRightExpression() instanceof Program.NumbrExpression) {
+					changed();
+					add(new Program.IncrementVariableStatement(index, sum));
+					return;
+				}
+			}
+
+			add(new Program.AssignVariableStatement(index, value));
+		}
+
+		@Override
+		public void visit(Program.VisibleStatement stmt) {
+			List<Program.Expression> exprs = stmt.getExpressions();
+			if (exprs.size() != 1) {
+				super.visit(stmt);
+				return;
+			}
+
+			Program.Expression expr = rewrite(exprs.get(0));
+			if (expr instanceof Program.SmooshExpression) {
+				changed();
+				add(new Program.VisibleSmooshStatement(stmt.isInvisible(), (Program.SmooshExpression)expr, stmt.isSuppressNewLine()));
+			} else {
+				add(new Program.VisibleStatement(stmt.isInvisible(), Collections.singletonList(expr), stmt.isSuppressNewLine()));
+			}
+		}
+
+		@Override
+		public void visit(Program.ORlyStatement stmt) {
+			Program.Expression expr = rewrite(stmt.getExpression());
+			List<Program.Statement> yaRly = rewrite(stmt.getYaRly());
+			List<Program.Statement> noWai = rewrite(stmt.getNoWai());
+
+			Value constant = getComparisonConstant(expr);
+			if (constant != null) {
+				changed();
+				add(new Program.CompareORlyStatement((Program.BothSaemExpression)expr, constant, false, yaRly, noWai));
+			} else {
+				add(new Program.ORlyStatement(expr, yaRly, noWai));
+			}
+		}
+
+		private static Value getComparisonConstant(Program.Expression expr) {
+			if (!(expr instanceof Program.BothSaemExpression)) {
+				return null;
+			}
+
+			Program.BothSaemExpression bothSaem = (Program.BothSaemExpression)expr;
+			Program.Expression left = bothSaem.getLeftExpression();
+			if (!(left instanceof Program.VariableExpression) && !(left instanceof Program.GlobalVariableExpression)) {
+				return null;
+			}
+
+			return getConstant(bothSaem.getRightExpression());
+		}
+	}
+}
@@ -25,6 +25,7 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.PrintStream;
 import java.io.Reader;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -46,12 +47,10 @@ class Parser {
 	private ProgramBlock programBlock = new ProgramBlock();
 	private StatementBlock statementBlock = new StatementBlock();
 	private List<FunctionBlock> functions = new ArrayList<FunctionBlock>();
-	public static Cmd cmd;
 
 	public Parser(String path, File file, Reader reader, Version version, Cmd cmmd) {
-		cmd = cmmd;
 		tokenSource = new TokenSource(null, path, file, reader, statementBlock);
-		tokenizer = new Tokenizer(tokenSource);
+		tokenizer = new Tokenizer(tokenSource, cmmd);
 		tokenizer.addVersion(version.module());
 	}
 
@@ -641,22 +640,13 @@ class Parser {
 									programBlock.variables.add("<watchin-slots>");
 									Program.Expression slotsExpr = new Program.VariableExpression(slotsIndex);
 
-									int indexIndex = programBlock.variables.size();
-									programBlock.variables.add("<watchin-index>");
-									Program.Expression indexExpr = new Program.VariableExpression(indexIndex);
-
-									statementBlock.statements.add(
-										new Program.DeclareVariableStatement(slotsIndex, new Program.BukkitSlotsExpression(from)));
 									statementBlock.statements.add(
-										new Program.DeclareVariableStatement(indexIndex, new Program.NumbrExpression(0)));
+										new Program.DeclareVariableStatement(slotsIndex, new Program.SlotIteratorExpression(from)));
 
-									watchinStmts = new ArrayList<Program.Statement>(2);
-									watchinStmts.add(createAssignStatement(
-										variable, new Program.SlotExpression(slotsExpr, indexExpr)));
-									watchinStmts.add(new Program.DeclareVariableStatement(indexIndex,
-											new Program.SumExpression(indexExpr, new Program.NumbrExpression(1))));
+									watchinStmts = Collections.singletonList(createAssignStatement(
+										variable, new Program.NextSlotExpression(slotsExpr)));
 
-									expr = new Program.SmalrThanExpression(indexExpr, new Program.HowBigIzExpression(slotsExpr));
+									expr = new Program.HasNextSlotExpression(slotsExpr);
 									update = Collections.emptyList();
 								} else {
 									watchinStmts = Collections.emptyList();
@@ -2283,10 +2273,14 @@ class Parser {
 		}
 
 		public void setStatements(List<Program.Statement> statements) {
-			function = new Program.Function(variables.size(), statements, numArguments);
+			getFunction().setStatements(variables.size(), statements);
 		}
 
 		public Program.Function getFunction() {
+			if (function == null) {
+				function = new Program.Function(0, null, numArguments);
+			}
+
 			return function;
 		}
 
@@ -2686,9 +2680,11 @@ class Parser {
 		private float floatValue;
 		private String stringValue;
 		private List<String> interpolatedStringValue;
+		private final Cmd cmd;
 
-		public Tokenizer(TokenSource tokenSource) {
+		public Tokenizer(TokenSource tokenSource, Cmd cmd) {
 			this.tokenSource = tokenSource;
+			this.cmd = cmd;
 		}
 
 		public void setTokenSource(TokenSource tokenSource) {
@@ -2717,14 +2713,18 @@ class Parser {
 
 		public void error(String message)/* throws IOException*/ {
 			//throw new ParseException(tokenSource.path, tokenSource.line, tokenSource.column, message);
-			cmd.stdOut.print(tokenSource.path + ":" + tokenSource.line + ":" + tokenSource.column);
+			getErrorStream().print(tokenSource.path + ":" + tokenSource.line + ":" + tokenSource.column);
 		}
 
 		public void error(String message, Throwable throwable) /*throws IOException*/ {
 			//ParseException ex = new ParseException(tokenSource.path, tokenSource.line, tokenSource.column, message);
 			//ex.initCause(throwable);
 			//throw ex;
-			cmd.stdOut.print(tokenSource.path + ":" + tokenSource.line + ":" + tokenSource.column);
+			getErrorStream().print(tokenSource.path + ":" + tokenSource.line + ":" + tokenSource.column);
+		}
+
+		private PrintStream getErrorStream() {
+			return cmd == null ? System.err : cmd.stdOut;
 		}
 
 		public void errorExpected(String what) throws IOException {
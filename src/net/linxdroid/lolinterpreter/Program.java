@@ -20,12 +20,14 @@
 package net.linxdroid.lolinterpreter;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
 class Program {
 	private boolean version1_1;
 	private Block mainBlock;
+	private int numSlotCaches;
 
 	public Program(boolean version1_1, Block mainBlock) {
 		this.version1_1 = version1_1;
@@ -40,6 +42,15 @@ class Program {
 		return mainBlock;
 	}
 
+	// Slot caches are per execution, indexed by NamedSlotExpression.
+	public int getNumSlotCaches() {
+		return numSlotCaches;
+	}
+
+	void setNumSlotCaches(int numSlotCaches) {
+		this.numSlotCaches = numSlotCaches;
+	}
+
 	public static class Block {
 		private int numVariables;
 		private List<Statement> statements;
@@ -56,6 +67,11 @@ class Program {
 		public List<Statement> getStatements() {
 			return statements;
 		}
+
+		void setStatements(int numVariables, List<Statement> statements) {
+			this.numVariables = numVariables;
+			this.statements = statements;
+		}
 	}
 
 	public static class Function extends Block {
@@ -64,6 +80,54 @@ class Program {
 		public Function(int numVariables, List<Statement> statements, int numArguments) {
 			super(numVariables, statements);
 			this.numArguments = numArguments;
+			markTailCalls(statements, true);
+		}
+
+		void setStatements(int numVariables, List<Statement> statements) {
+			super.setStatements(numVariables, statements);
+			markTailCalls(statements, true);
+		}
+
+		// A call is in tail position when it is the operand of FOUND YR, or
+		// when it sets IT as the last statement of the function.  Calls
+		// under PLZ are never tail calls since the handlers must stay live.
+		private static void markTailCalls(List<Statement> statements, boolean last) {
+			if (statements == null) {
+				return;
+			}
+
+			for (int i = 0, size = statements.size(); i < size; i++) {
+				Statement stmt = statements.get(i);
+				boolean tail = last && i == size - 1;
+
+				if (stmt instanceof FoundYrStatement) {
+					markTailCall(((FoundYrStatement)stmt).getExpression());
+				} else if (stmt instanceof AssignItStatement) {
+					if (tail) {
+						markTailCall(((AssignItStatement)stmt).getValue());
+					}
+				} else if (stmt instanceof ORlyStatement) {
+					ORlyStatement oRly = (ORlyStatement)stmt;
+					markTailCalls(oRly.getYaRly(), tail);
+					markTailCalls(oRly.getNoWai(), tail);
+				} else if (stmt instanceof CompareORlyStatement) {
+					CompareORlyStatement oRly = (CompareORlyStatement)stmt;
+					markTailCalls(oRly.getYaRly(), tail);
+					markTailCalls(oRly.getNoWai(), tail);
+				} else if (stmt instanceof WTFStatement) {
+					markTailCalls(((WTFStatement)stmt).getStatements(), false);
+				} else if (stmt instanceof ImInYrStatement) {
+					markTailCalls(((ImInYrStatement)stmt).getStatements(), false);
+				} else if (stmt instanceof OHaiStatement) {
+					markTailCalls(((OHaiStatement)stmt).getStatements(), tail);
+				}
+			}
+		}
+
+		private static void markTailCall(Expression expr) {
+			if (expr instanceof FunctionCallExpression) {
+				((FunctionCallExpression)expr).tailCall = true;
+			}
 		}
 
 		public int getNumArguments() {
@@ -101,6 +165,11 @@ class Program {
 
 		// 1.3 loop2
 		public void visit(WhateverStatement stmt);
+
+		// fused
+		public void visit(IncrementVariableStatement stmt);
+		public void visit(VisibleSmooshStatement stmt);
+		public void visit(CompareORlyStatement stmt);
 	}
 
 	public interface ExpressionVisitor {
@@ -165,11 +234,15 @@ class Program {
 		public void visit(SmalrThanExpression expr);
 
 		// 1.3 loop2
-		public void visit(BukkitSlotsExpression expr);
-		public void visit(HowBigIzExpression expr);
+		public void visit(SlotIteratorExpression expr);
+		public void visit(HasNextSlotExpression expr);
+		public void visit(NextSlotExpression expr);
 
 		// java
 		public void visit(JavaExpression expr);
+
+		// fused
+		public void visit(NamedSlotExpression expr);
 	}
 
 	public interface Statement {
@@ -201,11 +274,13 @@ class Program {
 	public static class DeclareSlotStatement implements Statement {
 		private Expression bukkit;
 		private String name;
+		private Value nameValue;
 		private Expression value;
 
 		public DeclareSlotStatement(Expression bukkit, String name, Expression value) {
 			this.bukkit = bukkit;
 			this.name = name;
+			this.nameValue = new YarnValue(name);
 			this.value = value;
 		}
 
@@ -221,6 +296,10 @@ class Program {
 			return name;
 		}
 
+		public Value getNameValue() {
+			return nameValue;
+		}
+
 		public Expression getValue() {
 			return value;
 		}
@@ -431,12 +510,14 @@ class Program {
 		private Map<Value, Integer> labels;
 		private int omgWTFIndex;
 		private Expression expr;
+		private WTFTable table;
 
 		public WTFStatement(List<Statement> statements, Map<Value, Integer> labels, int omgWTFIndex, Expression expr) {
 			this.statements = statements;
 			this.labels = labels;
 			this.omgWTFIndex = omgWTFIndex;
 			this.expr = expr;
+			this.table = new WTFTable(labels, omgWTFIndex);
 		}
 
 		public void visit(StatementVisitor visitor) {
@@ -455,6 +536,10 @@ class Program {
 			return omgWTFIndex;
 		}
 
+		public WTFTable getTable() {
+			return table;
+		}
+
 		public Expression getExpression() {
 			return expr;
 		}
@@ -630,6 +715,132 @@ class Program {
 		}
 	}
 
+	// Fused statements are built by Optimizer.Fusion to run a common pattern
+	// in one step.  Visitors without a faster path can treat them as the
+	// statements they replaced.
+
+	// x R SUM OF x AN <NUMBR>, which is also what UPPIN and NERFIN become.
+	public static class IncrementVariableStatement extends AssignVariableStatement {
+		private int delta;
+		private Value constant;
+
+		public IncrementVariableStatement(int index, SumExpression value) {
+			super(index, value);
+
+			NumbrExpression right = (NumbrExpression)value.getRightExpression();
+			this.delta = right.getValue();
+			this.constant = right.getConstant();
+		}
+
+		@Override
+		public void visit(StatementVisitor visitor) {
+			visitor.visit(this);
+		}
+
+		public int getDelta() {
+			return delta;
+		}
+
+		public Value getConstant() {
+			return constant;
+		}
+	}
+
+	// VISIBLE SMOOSH ... MKAY
+	public static class VisibleSmooshStatement extends VisibleStatement {
+		private Expression[] parts;
+
+		public VisibleSmooshStatement(boolean invisible, SmooshExpression smoosh, boolean suppressNewLine) {
+			super(invisible, Collections.<Expression>singletonList(smoosh), suppressNewLine);
+
+			List<Expression> exprs = smoosh.getExpressions();
+			this.parts = exprs.toArray(new Expression[exprs.size()]);
+		}
+
+		@Override
+		public void visit(StatementVisitor visitor) {
+			visitor.visit(this);
+		}
+
+		public Expression[] getParts() {
+			return parts;
+		}
+	}
+
+	// BOTH SAEM <variable> AN <literal> as an O RLY? condition, either
+	// directly or as the IT set by the previous statement.
+	public static class CompareORlyStatement implements Statement {
+		private BothSaemExpression comparison;
+		private boolean assignIt;
+		private int index;
+		private boolean global;
+		private Value constant;
+		private List<Statement> yaRly;
+		private List<Statement> noWai;
+		private List<Statement> statements;
+
+		public CompareORlyStatement(BothSaemExpression comparison, Value constant, boolean assignIt, List<Statement> yaRly, List<Statement> noWai) {
+			this.comparison = comparison;
+			this.constant = constant;
+			this.assignIt = assignIt;
+			this.yaRly = yaRly;
+			this.noWai = noWai;
+
+			Expression variable = comparison.getLeftExpression();
+			if (variable instanceof GlobalVariableExpression) {
+				this.index = ((GlobalVariableExpression)variable).getIndex();
+				this.global = true;
+			} else {
+				this.index = ((VariableExpression)variable).getIndex();
+			}
+
+			if (assignIt) {
+				statements = new ArrayList<Statement>(2);
+				statements.add(new AssignItStatement(comparison));
+				statements.add(new ORlyStatement(ItExpression.INSTANCE, yaRly, noWai));
+			} else {
+				statements = Collections.<Statement>singletonList(new ORlyStatement(comparison, yaRly, noWai));
+			}
+		}
+
+		public void visit(StatementVisitor visitor) {
+			visitor.visit(this);
+		}
+
+		public BothSaemExpression getComparison() {
+			return comparison;
+		}
+
+		public boolean isAssignIt() {
+			return assignIt;
+		}
+
+		public int getVariableIndex() {
+			return index;
+		}
+
+		public boolean isGlobal() {
+			return global;
+		}
+
+		public Value getConstant() {
+			return constant;
+		}
+
+		public List<Statement> getYaRly() {
+			return yaRly;
+		}
+
+		public List<Statement> getNoWai() {
+			return noWai;
+		}
+
+		// The unfused statements.
+		public List<Statement> getStatements() {
+			return statements;
+		}
+	}
+
 	public interface Expression {
 		void visit(ExpressionVisitor visitor);
 	}
@@ -717,9 +928,11 @@ class Program {
 
 	public static class NumbrExpression implements Expression {
 		private int value;
+		private Value constant;
 
 		public NumbrExpression(int value) {
 			this.value = value;
+			this.constant = NumbrValue.valueOf(value);
 		}
 
 		@Override
@@ -734,13 +947,19 @@ class Program {
 		public int getValue() {
 			return value;
 		}
+
+		public Value getConstant() {
+			return constant;
+		}
 	}
 
 	public static class NumbarExpression implements Expression {
 		private float value;
+		private Value constant;
 
 		public NumbarExpression(float value) {
 			this.value = value;
+			this.constant = new NumbarValue(value);
 		}
 
 		@Override
@@ -755,13 +974,19 @@ class Program {
 		public float getValue() {
 			return value;
 		}
+
+		public Value getConstant() {
+			return constant;
+		}
 	}
 
 	public static class YarnExpression implements Expression {
 		private String value;
+		private Value constant;
 
 		public YarnExpression(String value) {
 			this.value = value;
+			this.constant = new YarnValue(value);
 		}
 
 		public void visit(ExpressionVisitor visitor) {
@@ -771,6 +996,10 @@ class Program {
 		public String getValue() {
 			return value;
 		}
+
+		public Value getConstant() {
+			return constant;
+		}
 	}
 
 	public static class BukkitExpression implements Expression {
@@ -854,6 +1083,7 @@ class Program {
 	public static class FunctionCallExpression implements Expression {
 		private Function function;
 		private Expression[] arguments;
+		private boolean tailCall;
 
 		public FunctionCallExpression(Function function, Expression[] arguments) {
 			this.function = function;
@@ -871,6 +1101,10 @@ class Program {
 		public Expression[] getArguments() {
 			return arguments;
 		}
+
+		public boolean isTailCall() {
+			return tailCall;
+		}
 	}
 
 	public static class ObjectExpression implements Expression {
@@ -1251,8 +1485,18 @@ class Program {
 		}
 	}
 
-	public static class BukkitSlotsExpression extends UnaryExpression {
-		public BukkitSlotsExpression(Expression expr) {
+	public static class SlotIteratorExpression extends UnaryExpression {
+		public SlotIteratorExpression(Expression expr) {
+			super(expr);
+		}
+
+		public void visit(ExpressionVisitor visitor) {
+			visitor.visit(this);
+		}
+	}
+
+	public static class HasNextSlotExpression extends UnaryExpression {
+		public HasNextSlotExpression(Expression expr) {
 			super(expr);
 		}
 
@@ -1261,8 +1505,8 @@ class Program {
 		}
 	}
 
-	public static class HowBigIzExpression extends UnaryExpression {
-		public HowBigIzExpression(Expression expr) {
+	public static class NextSlotExpression extends UnaryExpression {
+		public NextSlotExpression(Expression expr) {
 			super(expr);
 		}
 
@@ -1280,4 +1524,29 @@ class Program {
 			visitor.visit(this);
 		}
 	}
+
+	// <bukkit>'Z <name> with a literal name, fused by Optimizer.Fusion.
+	public static class NamedSlotExpression extends SlotExpression {
+		private Value name;
+		private int cacheIndex;
+
+		public NamedSlotExpression(Expression bukkit, YarnExpression index, int cacheIndex) {
+			super(bukkit, index);
+			this.name = index.getConstant();
+			this.cacheIndex = cacheIndex;
+		}
+
+		@Override
+		public void visit(ExpressionVisitor visitor) {
+			visitor.visit(this);
+		}
+
+		public Value getName() {
+			return name;
+		}
+
+		public int getCacheIndex() {
+			return cacheIndex;
+		}
+	}
 }
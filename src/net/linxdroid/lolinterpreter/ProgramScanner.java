@@ -0,0 +1,318 @@
+/*
+ * Java LOLCODE - LOLCODE parser and interpreter (http://lolcode.com/)
+ * Copyright (C) 2007-2011  Brett Kail (bkail@iastate.edu)
+ * http://bkail.public.iastate.edu/lolcode/
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.linxdroid.lolinterpreter;
+
+import java.util.List;
+
+abstract class ProgramScanner implements Program.StatementVisitor, Program.ExpressionVisitor {
+	protected void scan(List<Program.Statement> stmts) {
+		for (Program.Statement stmt : stmts) {
+			stmt.visit(this);
+		}
+	}
+
+	protected void scan(Program.Expression expr) {
+		if (expr != null) {
+			expr.visit(this);
+		}
+	}
+
+	protected void scanExpressions(List<Program.Expression> exprs) {
+		for (Program.Expression expr : exprs) {
+			expr.visit(this);
+		}
+	}
+
+	protected abstract void scanFunction(Program.Function function);
+
+	public void visit(Program.DeclareVariableStatement stmt) {
+		scan(stmt.getValue());
+	}
+
+	public void visit(Program.DeclareSlotStatement stmt) {
+		scan(stmt.getBukkit());
+		scan(stmt.getValue());
+	}
+
+	public void visit(Program.AssignItStatement stmt) {
+		scan(stmt.getValue());
+	}
+
+	public void visit(Program.AssignVariableStatement stmt) {
+		scan(stmt.getValue());
+	}
+
+	public void visit(Program.AssignGlobalVariableStatement stmt) {
+		scan(stmt.getValue());
+	}
+
+	public void visit(Program.AssignSlotStatement stmt) {
+		scan(stmt.getBukkit());
+		scan(stmt.getIndex());
+		scan(stmt.getValue());
+	}
+
+	public void visit(Program.AssignInMahStatement stmt) {
+		stmt.getAssignStatement().visit(this);
+		scan(stmt.getBukkit());
+		scan(stmt.getIndex());
+		scan(stmt.getValue());
+	}
+
+	public void visit(Program.ByesStatement stmt) {
+		scan(stmt.getMessage());
+		scan(stmt.getExitCode());
+	}
+
+	public void visit(Program.VisibleStatement stmt) {
+		scanExpressions(stmt.getExpressions());
+	}
+
+	public void visit(Program.ORlyStatement stmt) {
+		scan(stmt.getExpression());
+		scan(stmt.getYaRly());
+		scan(stmt.getNoWai());
+	}
+
+	public void visit(Program.WTFStatement stmt) {
+		scan(stmt.getExpression());
+		scan(stmt.getStatements());
+	}
+
+	public void visit(Program.GTFOStatement stmt) { }
+
+	public void visit(Program.ImInYrStatement stmt) {
+		scan(stmt.getExpression());
+		scan(stmt.getVariable());
+		scan(stmt.getStatements());
+	}
+
+	public void visit(Program.FoundYrStatement stmt) {
+		scan(stmt.getExpression());
+	}
+
+	public void visit(Program.OHaiStatement stmt) {
+		scan(stmt.getExpression());
+		scan(stmt.getStatements());
+	}
+
+	public void visit(Program.PlzStatement stmt) {
+		scan(stmt.getStatements());
+		for (Program.PlzStatement.ONoes oNoes : stmt.getONoes()) {
+			scan(oNoes.getExpression());
+			scan(oNoes.getStatements());
+		}
+		scan(stmt.getAwsumThx());
+	}
+
+	public void visit(Program.RTFMStatement stmt) {
+		scan(stmt.getExpression());
+	}
+
+	public void visit(Program.WhateverStatement stmt) {
+		scan(stmt.getUpdateStatements());
+	}
+
+	public void visit(Program.IncrementVariableStatement stmt) {
+		visit((Program.AssignVariableStatement)stmt);
+	}
+
+	public void visit(Program.VisibleSmooshStatement stmt) {
+		visit((Program.VisibleStatement)stmt);
+	}
+
+	public void visit(Program.CompareORlyStatement stmt) {
+		scan(stmt.getStatements());
+	}
+
+	public void visit(Program.NoobExpression expr) { }
+
+	public void visit(Program.TroofExpression expr) { }
+
+	public void visit(Program.NumbrExpression expr) { }
+
+	public void visit(Program.NumbarExpression expr) { }
+
+	public void visit(Program.YarnExpression expr) { }
+
+	public void visit(Program.BukkitExpression expr) {
+		scan(expr.getLiek());
+	}
+
+	public void visit(Program.FunctionExpression expr) {
+		scanFunction(expr.getFunction());
+	}
+
+	public void visit(Program.ItExpression expr) { }
+
+	public void visit(Program.VariableExpression expr) { }
+
+	public void visit(Program.GlobalVariableExpression expr) { }
+
+	public void visit(Program.FunctionCallExpression expr) {
+		for (Program.Expression argument : expr.getArguments()) {
+			argument.visit(this);
+		}
+
+		scanFunction(expr.getFunction());
+	}
+
+	public void visit(Program.ObjectExpression expr) { }
+
+	public void visit(Program.SlotExpression expr) {
+		scan(expr.getBukkit());
+		scan(expr.getIndex());
+	}
+
+	public void visit(Program.SlotFunctionCallExpression expr) {
+		scan(expr.getBukkit());
+		scan(expr.getIndex());
+		scanExpressions(expr.getArguments());
+	}
+
+	public void visit(Program.InMahExpression expr) {
+		scan(expr.getBukkit());
+		scan(expr.getIndex());
+	}
+
+	public void visit(Program.GetInMahBukkitExpression expr) {
+		scan(expr.getExpression());
+	}
+
+	public void visit(Program.AssignInMahBukkitInMahExpression expr) {
+		scan(expr.getBukkit());
+		scan(expr.getIndex());
+	}
+
+	private void scanBinary(Program.BinaryExpression expr) {
+		scan(expr.getLeftExpression());
+		scan(expr.getRightExpression());
+	}
+
+	public void visit(Program.SumExpression expr) {
+		scanBinary(expr);
+	}
+
+	public void visit(Program.DiffExpression expr) {
+		scanBinary(expr);
+	}
+
+	public void visit(Program.ProduktExpression expr) {
+		scanBinary(expr);
+	}
+
+	public void visit(Program.QuoshuntExpression expr) {
+		scanBinary(expr);
+	}
+
+	public void visit(Program.ModExpression expr) {
+		scanBinary(expr);
+	}
+
+	public void visit(Program.BiggrExpression expr) {
+		scanBinary(expr);
+	}
+
+	public void visit(Program.SmallrExpression expr) {
+		scanBinary(expr);
+	}
+
+	public void visit(Program.WonExpression expr) {
+		scanBinary(expr);
+	}
+
+	public void visit(Program.NotExpression expr) {
+		scan(expr.getExpression());
+	}
+
+	public void visit(Program.AllExpression expr) {
+		scanExpressions(expr.getExpressions());
+	}
+
+	public void visit(Program.AnyExpression expr) {
+		scanExpressions(expr.getExpressions());
+	}
+
+	public void visit(Program.BothSaemExpression expr) {
+		scanBinary(expr);
+	}
+
+	public void visit(Program.DiffrintExpression expr) {
+		scanBinary(expr);
+	}
+
+	public void visit(Program.SmooshExpression expr) {
+		scanExpressions(expr.getExpressions());
+	}
+
+	public void visit(Program.NoobCastExpression expr) {
+		scan(expr.getExpression());
+	}
+
+	public void visit(Program.TroofCastExpression expr) {
+		scan(expr.getExpression());
+	}
+
+	public void visit(Program.NumbrCastExpression expr) {
+		scan(expr.getExpression());
+	}
+
+	public void visit(Program.NumbarCastExpression expr) {
+		scan(expr.getExpression());
+	}
+
+	public void visit(Program.YarnCastExpression expr) {
+		scan(expr.getExpression());
+	}
+
+	public void visit(Program.GimmehExpression expr) { }
+
+	public void visit(Program.MathNumbrExpression expr) {
+		scan(expr.getExpression());
+	}
+
+	public void visit(Program.BigrThanExpression expr) {
+		scanBinary(expr);
+	}
+
+	public void visit(Program.SmalrThanExpression expr) {
+		scanBinary(expr);
+	}
+
+	public void visit(Program.SlotIteratorExpression expr) {
+		scan(expr.getExpression());
+	}
+
+	public void visit(Program.HasNextSlotExpression expr) {
+		scan(expr.getExpression());
+	}
+
+	public void visit(Program.NextSlotExpression expr) {
+		scan(expr.getExpression());
+	}
+
+	public void visit(Program.JavaExpression expr) {
+		scan(expr.getExpression());
+	}
+
+	public void visit(Program.NamedSlotExpression expr) {
+		visit((Program.SlotExpression)expr);
+	}
+}
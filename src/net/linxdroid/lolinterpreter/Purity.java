@@ -0,0 +1,183 @@
+/*
+ * Java LOLCODE - LOLCODE parser and interpreter (http://lolcode.com/)
+ * Copyright (C) 2007-2011  Brett Kail (bkail@iastate.edu)
+ * http://bkail.public.iastate.edu/lolcode/
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.linxdroid.lolinterpreter;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Finds functions whose result depends only on their arguments.  A pure
+// function does no I/O or JAVA, touches no globals, slots or bukkits, and
+// calls only other pure functions.
+final class Purity {
+	private final Map<Program.Function, Body> bodies = new IdentityHashMap<Program.Function, Body>();
+
+	public Purity(Program program) {
+		new Collector().scan(program.getMainBlock().getStatements());
+
+		// Recursion is assumed pure until a callee is known not to be.
+		boolean changed;
+		do {
+			changed = false;
+			for (Body body : bodies.values()) {
+				if (body.pure) {
+					for (Program.Function callee : body.callees) {
+						if (!isPure(callee)) {
+							body.pure = false;
+							changed = true;
+							break;
+						}
+					}
+				}
+			}
+		} while (changed);
+	}
+
+	public boolean isPure(Program.Function function) {
+		Body body = bodies.get(function);
+		return body != null && body.pure;
+	}
+
+	private class Collector extends ProgramScanner {
+		protected void scanFunction(Program.Function function) {
+			if (!bodies.containsKey(function)) {
+				Body body = new Body();
+				bodies.put(function, body);
+				body.scan(function.getStatements());
+				scan(function.getStatements());
+			}
+		}
+	}
+
+	private static class Body extends ProgramScanner {
+		private boolean pure = true;
+		private final List<Program.Function> callees = new ArrayList<Program.Function>();
+
+		protected void scanFunction(Program.Function function) {
+			callees.add(function);
+		}
+
+		@Override
+		public void visit(Program.DeclareSlotStatement stmt) {
+			pure = false;
+		}
+
+		@Override
+		public void visit(Program.AssignGlobalVariableStatement stmt) {
+			pure = false;
+		}
+
+		@Override
+		public void visit(Program.AssignSlotStatement stmt) {
+			pure = false;
+		}
+
+		@Override
+		public void visit(Program.AssignInMahStatement stmt) {
+			pure = false;
+		}
+
+		@Override
+		public void visit(Program.ByesStatement stmt) {
+			pure = false;
+		}
+
+		@Override
+		public void visit(Program.VisibleStatement stmt) {
+			pure = false;
+		}
+
+		@Override
+		public void visit(Program.OHaiStatement stmt) {
+			pure = false;
+		}
+
+		@Override
+		public void visit(Program.BukkitExpression expr) {
+			pure = false;
+		}
+
+		@Override
+		public void visit(Program.FunctionExpression expr) {
+			pure = false;
+		}
+
+		@Override
+		public void visit(Program.GlobalVariableExpression expr) {
+			pure = false;
+		}
+
+		@Override
+		public void visit(Program.ObjectExpression expr) {
+			pure = false;
+		}
+
+		@Override
+		public void visit(Program.SlotExpression expr) {
+			pure = false;
+		}
+
+		@Override
+		public void visit(Program.SlotFunctionCallExpression expr) {
+			pure = false;
+		}
+
+		@Override
+		public void visit(Program.InMahExpression expr) {
+			pure = false;
+		}
+
+		@Override
+		public void visit(Program.GetInMahBukkitExpression expr) {
+			pure = false;
+		}
+
+		@Override
+		public void visit(Program.AssignInMahBukkitInMahExpression expr) {
+			pure = false;
+		}
+
+		@Override
+		public void visit(Program.GimmehExpression expr) {
+			pure = false;
+		}
+
+		@Override
+		public void visit(Program.SlotIteratorExpression expr) {
+			pure = false;
+		}
+
+		@Override
+		public void visit(Program.HasNextSlotExpression expr) {
+			pure = false;
+		}
+
+		@Override
+		public void visit(Program.NextSlotExpression expr) {
+			pure = false;
+		}
+
+		@Override
+		public void visit(Program.JavaExpression expr) {
+			pure = false;
+		}
+	}
+}
@@ -0,0 +1,151 @@
+/*
+ * Java LOLCODE - LOLCODE parser and interpreter (http://lolcode.com/)
+ * Copyright (C) 2007-2011  Brett Kail (bkail@iastate.edu)
+ * http://bkail.public.iastate.edu/lolcode/
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.linxdroid.lolinterpreter;
+
+final class RegisterCode {
+	public static final int MOVE = 0;
+	public static final int NOOB = 1;
+	public static final int LOAD_GLOBAL = 2;
+	public static final int ASSIGN = 3;
+	public static final int ASSIGN_GLOBAL = 4;
+	public static final int DECLARE_SLOT = 5;
+	public static final int SET_SLOT = 6;
+	public static final int ASSIGN_IN_MAH = 7;
+	public static final int BYES_MESSAGE = 8;
+	public static final int BYES = 9;
+	public static final int VISIBLE = 10;
+	public static final int VISIBLE_END = 11;
+	public static final int JUMP = 12;
+	public static final int JUMP_IF_FALSE = 13;
+	public static final int WTF = 14;
+	public static final int LOOP_TEST = 15;
+	public static final int RETURN = 16;
+	public static final int RTFM = 17;
+	public static final int CAUGHT = 18;
+	public static final int RETHROW = 19;
+	public static final int PUSH_OBJECT = 20;
+	public static final int POP_OBJECT = 21;
+	public static final int BUKKIT = 22;
+	public static final int FUNCTION = 23;
+	public static final int CALL = 24;
+	public static final int GET_SLOT = 25;
+	public static final int SLOT_CALL = 26;
+	public static final int IN_MAH = 27;
+	public static final int GET_IN_MAH_BUKKIT = 28;
+	public static final int ASSIGN_IN_MAH_BUKKIT_IN_MAH = 29;
+	public static final int SUM = 30;
+	public static final int DIFF = 31;
+	public static final int PRODUKT = 32;
+	public static final int QUOSHUNT = 33;
+	public static final int MOD = 34;
+	public static final int BIGGR = 35;
+	public static final int SMALLR = 36;
+	public static final int WON = 37;
+	public static final int BOTH_SAEM = 38;
+	public static final int DIFFRINT = 39;
+	public static final int BIGR_THAN = 40;
+	public static final int SMALR_THAN = 41;
+	public static final int NOT = 42;
+	public static final int ALL = 43;
+	public static final int ANY = 44;
+	public static final int SMOOSH = 45;
+	public static final int TROOF_CAST = 46;
+	public static final int NUMBR_CAST = 47;
+	public static final int NUMBAR_CAST = 48;
+	public static final int YARN_CAST = 49;
+	public static final int MATH_NUMBR = 50;
+	public static final int SLOT_ITERATOR = 51;
+	public static final int HAS_NEXT_SLOT = 52;
+	public static final int JAVA = 53;
+	public static final int GIMMEH = 54;
+	public static final int NEXT_SLOT = 55;
+
+	public static final int HANDLER_CATCH = 0;
+	public static final int HANDLER_ANY = 1;
+	public static final int HANDLER_SIZE = 5;
+
+	private int[] instructions;
+	private Object[] constants;
+	private int[] handlers;
+	private int numArguments;
+	private Value[] registers;
+	private int numConstantRegisters;
+	private int numExceptions;
+	private int objectRegister;
+
+	public RegisterCode(int[] instructions, Object[] constants, int[] handlers, int numArguments, Value[] registers, int numConstantRegisters, int numExceptions, int objectRegister) {
+		this.instructions = instructions;
+		this.constants = constants;
+		this.handlers = handlers;
+		this.numArguments = numArguments;
+		this.registers = registers;
+		this.numConstantRegisters = numConstantRegisters;
+		this.numExceptions = numExceptions;
+		this.objectRegister = objectRegister;
+	}
+
+	public int[] getInstructions() {
+		return instructions;
+	}
+
+	public Object[] getConstants() {
+		return constants;
+	}
+
+	public int getNumArguments() {
+		return numArguments;
+	}
+
+	public Value[] newRegisters() {
+		return registers.clone();
+	}
+
+	public int getNumConstantRegisters() {
+		return numConstantRegisters;
+	}
+
+	public int getNumExceptions() {
+		return numExceptions;
+	}
+
+	public int getObjectRegister() {
+		return objectRegister;
+	}
+
+	public int findHandler(int position, Throwable ex) {
+		for (int i = 0; i < handlers.length; i += HANDLER_SIZE) {
+			if (position >= handlers[i] && position < handlers[i + 1]) {
+				if (handlers[i + 4] == HANDLER_ANY || ex instanceof RuntimeException) {
+					return i;
+				}
+			}
+		}
+
+		return -1;
+	}
+
+	public int getHandlerPosition(int handler) {
+		return handlers[handler + 2];
+	}
+
+	public int getHandlerException(int handler) {
+		return handlers[handler + 3];
+	}
+}
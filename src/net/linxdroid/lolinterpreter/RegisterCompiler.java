@@ -0,0 +1,973 @@
+/*
+ * Java LOLCODE - LOLCODE parser and interpreter (http://lolcode.com/)
+ * Copyright (C) 2007-2011  Brett Kail (bkail@iastate.edu)
+ * http://bkail.public.iastate.edu/lolcode/
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.linxdroid.lolinterpreter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static net.linxdroid.lolinterpreter.RegisterCode.*;
+
+class RegisterCompiler {
+	private Map<Program.Function, Integer> functionIds = new IdentityHashMap<Program.Function, Integer>();
+	private List<Program.Function> functions = new ArrayList<Program.Function>();
+
+	public RegisterCode[] compile(Program program) {
+		functions.add(null);
+
+		List<RegisterCode> codes = new ArrayList<RegisterCode>();
+		codes.add(compile(null, program.getMainBlock()));
+		for (int i = 1; i < functions.size(); i++) {
+			codes.add(compile(functions.get(i), functions.get(i)));
+		}
+
+		return codes.toArray(new RegisterCode[codes.size()]);
+	}
+
+	private RegisterCode compile(Program.Function function, Program.Block block) {
+		int numConstants = new CodeCompiler(function, 0).compile(block).getNumConstantRegisters();
+		return new CodeCompiler(function, numConstants).compile(block);
+	}
+
+	private int getFunctionId(Program.Function function) {
+		Integer id = functionIds.get(function);
+		if (id == null) {
+			id = functions.size();
+			functionIds.put(function, id);
+			functions.add(function);
+		}
+
+		return id.intValue();
+	}
+
+	private static boolean isSimple(Program.Expression expr) {
+		if (expr instanceof Program.BinaryExpression) {
+			Program.BinaryExpression binary = (Program.BinaryExpression)expr;
+			return isSimple(binary.getLeftExpression()) && isSimple(binary.getRightExpression());
+		}
+
+		return expr instanceof Program.VariableExpression
+			|| expr instanceof Program.GlobalVariableExpression
+			|| expr instanceof Program.ItExpression
+			|| expr instanceof Program.ObjectExpression
+			|| expr instanceof Program.NoobExpression
+			|| expr instanceof Program.TroofExpression
+			|| expr instanceof Program.NumbrExpression
+			|| expr instanceof Program.NumbarExpression
+			|| expr instanceof Program.YarnExpression;
+	}
+
+	private static class Label {
+		public int position = -1;
+		public List<Integer> fixups = new ArrayList<Integer>();
+	}
+
+	private static class Region {
+		public static final int LOOP = 0;
+		public static final int WTF = 1;
+		public static final int OHAI = 2;
+		public static final int PLZ = 3;
+
+		public int kind;
+		public Label breakLabel;
+		public Label continueLabel;
+		public int savedObject;
+		public List<Program.Statement> awsumThx;
+
+		public List<int[]> catchRanges = new ArrayList<int[]>();
+		public List<int[]> anyRanges = new ArrayList<int[]>();
+		private int catchStart = -1;
+		private int anyStart = -1;
+		private boolean catchSuspended;
+		private boolean anySuspended;
+
+		public Region(int kind) {
+			this.kind = kind;
+		}
+
+		public boolean hasFinally() {
+			return kind == OHAI || kind == PLZ;
+		}
+
+		public void open(int position, boolean withCatch) {
+			if (withCatch) {
+				catchStart = position;
+			}
+			anyStart = position;
+		}
+
+		public void closeCatch(int position) {
+			if (catchStart >= 0) {
+				catchRanges.add(new int[] { catchStart, position });
+				catchStart = -1;
+			}
+		}
+
+		public void closeAny(int position) {
+			if (anyStart >= 0) {
+				anyRanges.add(new int[] { anyStart, position });
+				anyStart = -1;
+			}
+		}
+
+		public void suspend(int position) {
+			catchSuspended = catchStart >= 0;
+			anySuspended = anyStart >= 0;
+			closeCatch(position);
+			closeAny(position);
+		}
+
+		public void resume(int position) {
+			if (catchSuspended) {
+				catchStart = position;
+			}
+			if (anySuspended) {
+				anyStart = position;
+			}
+		}
+	}
+
+	private class CodeCompiler implements Program.StatementVisitor, Program.ExpressionVisitor {
+		private Program.Function function;
+
+		private int[] code = new int[64];
+		private int size;
+		private boolean reachable = true;
+		private List<Object> constants = new ArrayList<Object>();
+		private List<Value> constantValues = new ArrayList<Value>();
+		private List<Label> labels = new ArrayList<Label>();
+		private List<Object> handlers = new ArrayList<Object>();
+
+		private int numVariables;
+		private int it;
+		private int object;
+		private int outerObject;
+		private int nextRegister;
+		private int numRegisters;
+		private int numExceptions;
+		private int firstConstant;
+		private int numConstants;
+
+		private List<Region> regions = new ArrayList<Region>();
+		private int target = -1;
+		private int result;
+
+		public CodeCompiler(Program.Function function, int numConstants) {
+			this.function = function;
+			this.numConstants = numConstants;
+		}
+
+		public RegisterCode compile(Program.Block block) {
+			numVariables = block.getNumVariables();
+			it = numVariables;
+			object = numVariables + 1;
+			outerObject = numVariables + 2;
+			firstConstant = numVariables + 3;
+			nextRegister = numRegisters = firstConstant + numConstants;
+
+			compileStatements(block.getStatements());
+			if (reachable) {
+				emit(RETURN, it);
+			}
+
+			for (Label label : labels) {
+				for (int fixup : label.fixups) {
+					code[fixup] = label.position;
+				}
+			}
+
+			int[] handlerTable = new int[handlers.size()];
+			for (int i = 0; i < handlerTable.length; i++) {
+				Object handler = handlers.get(i);
+				handlerTable[i] = handler instanceof Label ? ((Label)handler).position : ((Integer)handler).intValue();
+			}
+
+			int[] instructions = new int[size];
+			System.arraycopy(code, 0, instructions, 0, size);
+
+			Value[] registers = new Value[Math.max(numRegisters, firstConstant + constantValues.size())];
+			registers[it] = NoobValue.INSTANCE;
+			for (int i = 0; i < constantValues.size(); i++) {
+				registers[firstConstant + i] = constantValues.get(i);
+			}
+
+			return new RegisterCode(instructions, constants.toArray(), handlerTable, function == null ? 0 : function.getNumArguments(), registers, constantValues.size(), numExceptions, object);
+		}
+
+		private void emit(int value) {
+			if (size == code.length) {
+				int[] newCode = new int[size * 2];
+				System.arraycopy(code, 0, newCode, 0, size);
+				code = newCode;
+			}
+
+			code[size++] = value;
+		}
+
+		private void emit(int op, int a) {
+			emit(op);
+			emit(a);
+		}
+
+		private void emit(int op, int a, int b) {
+			emit(op);
+			emit(a);
+			emit(b);
+		}
+
+		private void emit(int op, int a, int b, int c) {
+			emit(op);
+			emit(a);
+			emit(b);
+			emit(c);
+		}
+
+		private void emit(int op, int a, int b, int c, int d) {
+			emit(op);
+			emit(a);
+			emit(b);
+			emit(c);
+			emit(d);
+		}
+
+		private Label newLabel() {
+			Label label = new Label();
+			labels.add(label);
+			return label;
+		}
+
+		private void emitLabel(Label label) {
+			if (label.position >= 0) {
+				emit(label.position);
+			} else {
+				label.fixups.add(size);
+				emit(-1);
+			}
+		}
+
+		private void mark(Label label) {
+			label.position = size;
+			reachable = true;
+		}
+
+		private void jump(Label label) {
+			emit(JUMP);
+			emitLabel(label);
+			reachable = false;
+		}
+
+		private int addConstant(Object value) {
+			constants.add(value);
+			return constants.size() - 1;
+		}
+
+		private int newRegister() {
+			int register = nextRegister++;
+			if (nextRegister > numRegisters) {
+				numRegisters = nextRegister;
+			}
+
+			return register;
+		}
+
+		private int newException() {
+			return numExceptions++;
+		}
+
+		private void compileStatements(List<Program.Statement> stmts) {
+			for (Program.Statement stmt : stmts) {
+				if (!reachable) {
+					break;
+				}
+
+				int mark = nextRegister;
+				stmt.visit(this);
+				nextRegister = mark;
+			}
+		}
+
+		private int compile(Program.Expression expr, int target) {
+			this.target = target;
+			expr.visit(this);
+			return result;
+		}
+
+		private int compile(Program.Expression expr) {
+			return compile(expr, -1);
+		}
+
+		private int protect(int register, boolean needed) {
+			if (needed && function == null && register < numVariables) {
+				int copy = newRegister();
+				emit(MOVE, copy, register);
+				return copy;
+			}
+
+			return register;
+		}
+
+		private int[] compileOperands(Program.Expression... exprs) {
+			int[] operands = new int[exprs.length];
+
+			boolean simple = true;
+			for (int i = exprs.length - 1; i >= 0; i--) {
+				operands[i] = simple ? 0 : 1;
+				simple &= isSimple(exprs[i]);
+			}
+
+			for (int i = 0; i < exprs.length; i++) {
+				operands[i] = protect(compile(exprs[i]), operands[i] != 0);
+			}
+
+			return operands;
+		}
+
+		private int compileSequence(List<Program.Expression> exprs) {
+			int first = nextRegister;
+			for (int i = 0; i < exprs.size(); i++) {
+				newRegister();
+			}
+
+			for (int i = 0; i < exprs.size(); i++) {
+				compile(exprs.get(i), first + i);
+			}
+
+			return first;
+		}
+
+		private int getTarget() {
+			int register = target;
+			target = -1;
+			return register;
+		}
+
+		private void setResult(int register, int target) {
+			if (target >= 0 && target != register) {
+				emit(MOVE, target, register);
+				register = target;
+			}
+
+			result = register;
+		}
+
+		private int resultRegister(int target) {
+			result = target >= 0 ? target : newRegister();
+			return result;
+		}
+
+		private void compileConstant(Value value) {
+			int index = 0;
+			while (index < constantValues.size()) {
+				Value constant = constantValues.get(index);
+				if (constant.getClass() == value.getClass() && constant.equals(value)) {
+					break;
+				}
+				index++;
+			}
+
+			if (index == constantValues.size()) {
+				constantValues.add(value);
+			}
+
+			setResult(firstConstant + index, getTarget());
+		}
+
+		private void compileUnary(int op, Program.Expression expr) {
+			int target = getTarget();
+			int operand = compile(expr);
+			emit(op, resultRegister(target), operand);
+		}
+
+		private void compileBinary(int op, Program.BinaryExpression expr) {
+			int target = getTarget();
+			int[] operands = compileOperands(expr.getLeftExpression(), expr.getRightExpression());
+			emit(op, resultRegister(target), operands[0], operands[1]);
+		}
+
+		private void compileSequence(int op, List<Program.Expression> exprs) {
+			int target = getTarget();
+			int first = compileSequence(exprs);
+			emit(op, resultRegister(target), first, exprs.size());
+		}
+
+		private void exitRegions(int depth) {
+			for (int i = regions.size() - 1; i >= depth; i--) {
+				Region region = regions.get(i);
+				region.suspend(size);
+
+				if (region.hasFinally()) {
+					List<Region> saved = regions;
+					regions = new ArrayList<Region>(saved.subList(0, i));
+					compileFinally(region);
+					regions = saved;
+				}
+			}
+		}
+
+		private void resumeRegions(int depth) {
+			for (int i = depth; i < regions.size(); i++) {
+				regions.get(i).resume(size);
+			}
+		}
+
+		private void jump(int depth, Label label) {
+			exitRegions(depth);
+			jump(label);
+			resumeRegions(depth);
+		}
+
+		private void exit(int register) {
+			exitRegions(0);
+			emit(RETURN, register);
+			reachable = false;
+			resumeRegions(0);
+		}
+
+		private void compileFinally(Region region) {
+			if (region.kind == Region.OHAI) {
+				emit(POP_OBJECT, object, outerObject, region.savedObject);
+			} else {
+				int mark = nextRegister;
+				boolean wasReachable = reachable;
+				compileStatements(region.awsumThx);
+				reachable = wasReachable;
+				nextRegister = mark;
+			}
+		}
+
+		private void addHandlers(List<int[]> ranges, Label handler, int exception, int kind) {
+			for (int[] range : ranges) {
+				if (range[0] < range[1]) {
+					handlers.add(range[0]);
+					handlers.add(range[1]);
+					handlers.add(handler);
+					handlers.add(exception);
+					handlers.add(kind);
+				}
+			}
+		}
+
+		public void visit(Program.DeclareVariableStatement stmt) {
+			compile(stmt.getValue(), stmt.getVariableIndex());
+		}
+
+		public void visit(Program.DeclareSlotStatement stmt) {
+			int[] operands = compileOperands(stmt.getBukkit(), stmt.getValue());
+			emit(DECLARE_SLOT, operands[0], addConstant(stmt.getNameValue()), operands[1]);
+		}
+
+		public void visit(Program.AssignItStatement stmt) {
+			compile(stmt.getValue(), it);
+		}
+
+		public void visit(Program.AssignVariableStatement stmt) {
+			emit(ASSIGN, stmt.getVariableIndex(), compile(stmt.getValue()));
+		}
+
+		public void visit(Program.AssignGlobalVariableStatement stmt) {
+			int index = stmt.getVariableIndex();
+			int value = compile(stmt.getValue());
+
+			if (function == null) {
+				emit(ASSIGN, index, value);
+			} else {
+				emit(ASSIGN_GLOBAL, index, value);
+			}
+		}
+
+		public void visit(Program.AssignSlotStatement stmt) {
+			int[] operands = compileOperands(stmt.getBukkit(), stmt.getIndex(), stmt.getValue());
+			emit(SET_SLOT, operands[0], operands[1], operands[2]);
+		}
+
+		public void visit(Program.AssignInMahStatement stmt) {
+			stmt.getAssignStatement().visit(this);
+			int[] operands = compileOperands(stmt.getBukkit(), stmt.getIndex(), stmt.getValue());
+			emit(ASSIGN_IN_MAH, operands[0], operands[1], operands[2]);
+		}
+
+		public void visit(Program.ByesStatement stmt) {
+			Program.Expression message = stmt.getMessage();
+			if (message != null) {
+				emit(BYES_MESSAGE, compile(message));
+			}
+
+			emit(BYES, compile(stmt.getExitCode()));
+		}
+
+		public void visit(Program.VisibleStatement stmt) {
+			int invisible = stmt.isInvisible() ? 1 : 0;
+
+			for (Program.Expression expr : stmt.getExpressions()) {
+				int mark = nextRegister;
+				emit(VISIBLE, compile(expr), invisible);
+				nextRegister = mark;
+			}
+
+			emit(VISIBLE_END, invisible, stmt.isSuppressNewLine() ? 1 : 0);
+		}
+
+		public void visit(Program.ORlyStatement stmt) {
+			Label noWai = newLabel();
+			Label end = newLabel();
+
+			emit(JUMP_IF_FALSE, compile(stmt.getExpression()));
+			emitLabel(noWai);
+
+			compileStatements(stmt.getYaRly());
+			if (reachable) {
+				jump(end);
+			}
+
+			mark(noWai);
+			compileStatements(stmt.getNoWai());
+			mark(end);
+		}
+
+		public void visit(Program.WTFStatement stmt) {
+			List<Program.Statement> stmts = stmt.getStatements();
+			int value = compile(stmt.getExpression());
+
+			if (stmts.isEmpty()) {
+				return;
+			}
+
+			Region region = new Region(Region.WTF);
+			region.breakLabel = newLabel();
+
+			Label[] cases = new Label[stmts.size()];
+			for (int i = 0; i < cases.length; i++) {
+				cases[i] = newLabel();
+			}
+
+			emit(WTF, value, addConstant(stmt), cases.length);
+			for (Label label : cases) {
+				emitLabel(label);
+			}
+			emitLabel(region.breakLabel);
+
+			regions.add(region);
+			for (int i = 0; i < cases.length; i++) {
+				mark(cases[i]);
+				int mark = nextRegister;
+				stmts.get(i).visit(this);
+				nextRegister = mark;
+			}
+			regions.remove(regions.size() - 1);
+
+			mark(region.breakLabel);
+		}
+
+		public void visit(Program.GTFOStatement stmt) {
+			int depth = stmt.getDepth();
+
+			for (int i = regions.size() - 1; i >= 0; i--) {
+				Region region = regions.get(i);
+				if (region.breakLabel != null && depth-- == 0) {
+					jump(i + 1, region.breakLabel);
+					return;
+				}
+			}
+
+			if (function == null) {
+				exit(-1);
+			} else {
+				int register = newRegister();
+				emit(NOOB, register);
+				exit(register);
+			}
+		}
+
+		public void visit(Program.ImInYrStatement stmt) {
+			Region region = new Region(Region.LOOP);
+			region.breakLabel = newLabel();
+			region.continueLabel = newLabel();
+
+			mark(region.continueLabel);
+
+			int mark = nextRegister;
+			int value = compile(stmt.getExpression());
+			Program.Expression variable = stmt.getVariable();
+			emit(LOOP_TEST, value, variable == null ? -1 : compile(variable), stmt.isTil() ? 1 : 0);
+			emitLabel(region.breakLabel);
+			nextRegister = mark;
+
+			regions.add(region);
+			compileStatements(stmt.getStatements());
+			regions.remove(regions.size() - 1);
+
+			if (reachable) {
+				jump(region.continueLabel);
+			}
+
+			mark(region.breakLabel);
+		}
+
+		public void visit(Program.FoundYrStatement stmt) {
+			int value = compile(stmt.getExpression());
+			if (function == null) {
+				exit(-1);
+			} else {
+				if (value <= outerObject) {
+					int register = newRegister();
+					emit(MOVE, register, value);
+					value = register;
+				}
+				exit(value);
+			}
+		}
+
+		public void visit(Program.OHaiStatement stmt) {
+			Region region = new Region(Region.OHAI);
+			region.savedObject = newRegister();
+
+			emit(PUSH_OBJECT, object, outerObject, region.savedObject, compile(stmt.getExpression()));
+
+			Label handler = newLabel();
+			Label end = newLabel();
+
+			regions.add(region);
+			region.open(size, false);
+			compileStatements(stmt.getStatements());
+			region.closeAny(size);
+			regions.remove(regions.size() - 1);
+
+			if (reachable) {
+				compileFinally(region);
+				jump(end);
+			}
+
+			int exception = newException();
+			mark(handler);
+			compileFinally(region);
+			emit(RETHROW, exception);
+
+			addHandlers(region.anyRanges, handler, exception, HANDLER_ANY);
+			mark(end);
+		}
+
+		public void visit(Program.PlzStatement stmt) {
+			Region region = new Region(Region.PLZ);
+			region.awsumThx = stmt.getAwsumThx();
+
+			Label catchHandler = newLabel();
+			Label anyHandler = newLabel();
+			Label awsumThx = newLabel();
+
+			regions.add(region);
+			region.open(size, true);
+			compileStatements(stmt.getStatements());
+			region.closeCatch(size);
+			region.closeAny(size);
+
+			if (reachable) {
+				jump(awsumThx);
+			}
+
+			int exception = newException();
+			mark(catchHandler);
+			region.open(size, false);
+			emit(CAUGHT, it, exception);
+
+			for (Program.PlzStatement.ONoes oNoes : stmt.getONoes()) {
+				Label next = newLabel();
+
+				int mark = nextRegister;
+				emit(JUMP_IF_FALSE, compile(oNoes.getExpression()));
+				emitLabel(next);
+				nextRegister = mark;
+
+				compileStatements(oNoes.getStatements());
+				if (reachable) {
+					jump(awsumThx);
+				}
+				mark(next);
+			}
+
+			emit(RETHROW, exception);
+			region.closeAny(size);
+			regions.remove(regions.size() - 1);
+
+			int anyException = newException();
+			mark(anyHandler);
+			compileStatements(region.awsumThx);
+			if (reachable) {
+				emit(RETHROW, anyException);
+			}
+
+			addHandlers(region.catchRanges, catchHandler, exception, HANDLER_CATCH);
+			addHandlers(region.anyRanges, anyHandler, anyException, HANDLER_ANY);
+
+			mark(awsumThx);
+			compileStatements(region.awsumThx);
+		}
+
+		public void visit(Program.RTFMStatement stmt) {
+			emit(RTFM, compile(stmt.getExpression()));
+			reachable = false;
+		}
+
+		public void visit(Program.WhateverStatement stmt) {
+			for (Program.Statement child : stmt.getUpdateStatements()) {
+				child.visit(this);
+			}
+
+			for (int i = regions.size() - 1; i >= 0; i--) {
+				Region region = regions.get(i);
+				if (region.continueLabel != null) {
+					jump(i + 1, region.continueLabel);
+					return;
+				}
+			}
+
+			throw new IllegalStateException("WHATEVER outside of IM IN YR");
+		}
+
+		public void visit(Program.IncrementVariableStatement stmt) {
+			visit((Program.AssignVariableStatement)stmt);
+		}
+
+		public void visit(Program.VisibleSmooshStatement stmt) {
+			visit((Program.VisibleStatement)stmt);
+		}
+
+		public void visit(Program.CompareORlyStatement stmt) {
+			compileStatements(stmt.getStatements());
+		}
+
+		public void visit(Program.NoobExpression expr) {
+			emit(NOOB, resultRegister(getTarget()));
+		}
+
+		public void visit(Program.TroofExpression expr) {
+			compileConstant(TroofValue.getInstance(expr.getValue()));
+		}
+
+		public void visit(Program.NumbrExpression expr) {
+			compileConstant(expr.getConstant());
+		}
+
+		public void visit(Program.NumbarExpression expr) {
+			compileConstant(expr.getConstant());
+		}
+
+		public void visit(Program.YarnExpression expr) {
+			compileConstant(expr.getConstant());
+		}
+
+		public void visit(Program.BukkitExpression expr) {
+			int target = getTarget();
+			Program.Expression liek = expr.getLiek();
+			int operand = liek == null ? -1 : compile(liek);
+			emit(BUKKIT, resultRegister(target), operand);
+		}
+
+		public void visit(Program.FunctionExpression expr) {
+			emit(FUNCTION, resultRegister(getTarget()), getFunctionId(expr.getFunction()));
+		}
+
+		public void visit(Program.ItExpression expr) {
+			setResult(it, getTarget());
+		}
+
+		public void visit(Program.VariableExpression expr) {
+			setResult(expr.getIndex(), getTarget());
+		}
+
+		public void visit(Program.GlobalVariableExpression expr) {
+			if (function == null) {
+				setResult(expr.getIndex(), getTarget());
+			} else {
+				emit(LOAD_GLOBAL, resultRegister(getTarget()), expr.getIndex());
+			}
+		}
+
+		public void visit(Program.FunctionCallExpression expr) {
+			int target = getTarget();
+			Program.Expression[] arguments = expr.getArguments();
+
+			int first = compileSequence(Arrays.asList(arguments));
+
+			emit(CALL, resultRegister(target), getFunctionId(expr.getFunction()), first, arguments.length);
+		}
+
+		public void visit(Program.ObjectExpression expr) {
+			setResult(expr.isOuter() ? outerObject : object, getTarget());
+		}
+
+		public void visit(Program.SlotExpression expr) {
+			int target = getTarget();
+			int[] operands = compileOperands(expr.getBukkit(), expr.getIndex());
+			emit(GET_SLOT, resultRegister(target), operands[0], operands[1]);
+			emit(addConstant(new SlotCache()));
+		}
+
+		public void visit(Program.SlotFunctionCallExpression expr) {
+			int target = getTarget();
+			List<Program.Expression> arguments = expr.getArguments();
+
+			boolean simple = true;
+			for (Program.Expression argument : arguments) {
+				simple &= isSimple(argument);
+			}
+
+			int bukkit = protect(compile(expr.getBukkit()), !simple || !isSimple(expr.getIndex()));
+			int index = protect(compile(expr.getIndex()), !simple);
+			int first = compileSequence(arguments);
+
+			emit(SLOT_CALL, resultRegister(target), bukkit, index, first);
+			emit(arguments.size(), addConstant(new SlotCache()));
+		}
+
+		public void visit(Program.InMahExpression expr) {
+			compileBinaryOperands(IN_MAH, expr.getBukkit(), expr.getIndex());
+		}
+
+		private void compileBinaryOperands(int op, Program.Expression left, Program.Expression right) {
+			int target = getTarget();
+			int[] operands = compileOperands(left, right);
+			emit(op, resultRegister(target), operands[0], operands[1]);
+		}
+
+		public void visit(Program.GetInMahBukkitExpression expr) {
+			compileUnary(GET_IN_MAH_BUKKIT, expr.getExpression());
+		}
+
+		public void visit(Program.AssignInMahBukkitInMahExpression expr) {
+			compileBinaryOperands(ASSIGN_IN_MAH_BUKKIT_IN_MAH, expr.getBukkit(), expr.getIndex());
+		}
+
+		public void visit(Program.SumExpression expr) {
+			compileBinary(SUM, expr);
+		}
+
+		public void visit(Program.DiffExpression expr) {
+			compileBinary(DIFF, expr);
+		}
+
+		public void visit(Program.ProduktExpression expr) {
+			compileBinary(PRODUKT, expr);
+		}
+
+		public void visit(Program.QuoshuntExpression expr) {
+			compileBinary(QUOSHUNT, expr);
+		}
+
+		public void visit(Program.ModExpression expr) {
+			compileBinary(MOD, expr);
+		}
+
+		public void visit(Program.BiggrExpression expr) {
+			compileBinary(BIGGR, expr);
+		}
+
+		public void visit(Program.SmallrExpression expr) {
+			compileBinary(SMALLR, expr);
+		}
+
+		public void visit(Program.WonExpression expr) {
+			compileBinary(WON, expr);
+		}
+
+		public void visit(Program.NotExpression expr) {
+			compileUnary(NOT, expr.getExpression());
+		}
+
+		public void visit(Program.AllExpression expr) {
+			compileSequence(ALL, expr.getExpressions());
+		}
+
+		public void visit(Program.AnyExpression expr) {
+			compileSequence(ANY, expr.getExpressions());
+		}
+
+		public void visit(Program.BothSaemExpression expr) {
+			compileBinary(BOTH_SAEM, expr);
+		}
+
+		public void visit(Program.DiffrintExpression expr) {
+			compileBinary(DIFFRINT, expr);
+		}
+
+		public void visit(Program.SmooshExpression expr) {
+			compileSequence(SMOOSH, expr.getExpressions());
+		}
+
+		public void visit(Program.NoobCastExpression expr) {
+			int target = getTarget();
+			compile(expr.getExpression());
+			emit(NOOB, resultRegister(target));
+		}
+
+		public void visit(Program.TroofCastExpression expr) {
+			compileUnary(TROOF_CAST, expr.getExpression());
+		}
+
+		public void visit(Program.NumbrCastExpression expr) {
+			compileUnary(NUMBR_CAST, expr.getExpression());
+		}
+
+		public void visit(Program.NumbarCastExpression expr) {
+			compileUnary(NUMBAR_CAST, expr.getExpression());
+		}
+
+		public void visit(Program.YarnCastExpression expr) {
+			compileUnary(YARN_CAST, expr.getExpression());
+		}
+
+		public void visit(Program.GimmehExpression expr) {
+			emit(GIMMEH, resultRegister(getTarget()), expr.getWhat());
+		}
+
+		public void visit(Program.MathNumbrExpression expr) {
+			compileUnary(MATH_NUMBR, expr.getExpression());
+		}
+
+		public void visit(Program.BigrThanExpression expr) {
+			compileBinary(BIGR_THAN, expr);
+		}
+
+		public void visit(Program.SmalrThanExpression expr) {
+			compileBinary(SMALR_THAN, expr);
+		}
+
+		public void visit(Program.SlotIteratorExpression expr) {
+			compileUnary(SLOT_ITERATOR, expr.getExpression());
+		}
+
+		public void visit(Program.HasNextSlotExpression expr) {
+			compileUnary(HAS_NEXT_SLOT, expr.getExpression());
+		}
+
+		public void visit(Program.NextSlotExpression expr) {
+			compileUnary(NEXT_SLOT, expr.getExpression());
+		}
+
+		public void visit(Program.JavaExpression expr) {
+			compileUnary(JAVA, expr.getExpression());
+		}
+
+		public void visit(Program.NamedSlotExpression expr) {
+			visit((Program.SlotExpression)expr);
+		}
+	}
+}
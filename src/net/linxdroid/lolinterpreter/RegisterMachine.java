@@ -0,0 +1,627 @@
+/*
+ * Java LOLCODE - LOLCODE parser and interpreter (http://lolcode.com/)
+ * Copyright (C) 2007-2011  Brett Kail (bkail@iastate.edu)
+ * http://bkail.public.iastate.edu/lolcode/
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.linxdroid.lolinterpreter;
+
+import java.io.PrintWriter;
+
+import static net.linxdroid.lolinterpreter.RegisterCode.*;
+
+class RegisterMachine implements CompiledProgram {
+	private Environment environment;
+	private Cmd cmd;
+	private InMahBukkitFactory inMahBukkitFactory;
+	private RegisterCode[] codes;
+	private BukkitHeap heap = new BukkitHeap();
+
+	private Value[] globals;
+	private int exitCode;
+
+	public RegisterMachine(Program program, Environment environment, Cmd cmd) {
+		this.environment = environment;
+		this.cmd = cmd;
+		this.inMahBukkitFactory = program.isVersion1_1() ? InMahBukkitFactory.VERSION_1_1_FACTORY : InMahBukkitFactory.VERSION_1_0_FACTORY;
+		this.codes = new RegisterCompiler().compile(program);
+	}
+
+	public Value execute() {
+		Frame frame = new Frame(codes[0], null);
+		globals = frame.registers;
+		return run(frame);
+	}
+
+	public int getExitCode() {
+		return exitCode;
+	}
+
+	private Frame newFrame(int id, Value target, int numArguments) {
+		RegisterCode code = codes[id];
+		checkArgumentCount(code, numArguments);
+		return new Frame(code, target);
+	}
+
+	private static void checkArgumentCount(RegisterCode code, int numArguments) {
+		AbstractFunction.checkArgumentCount(numArguments, code.getNumArguments());
+	}
+
+	private int getFunctionId(Value value) {
+		if (value instanceof FunctionValue) {
+			Function function = ((FunctionValue)value).getFunction();
+			if (function instanceof FunctionImpl && ((FunctionImpl)function).getMachine() == this) {
+				return ((FunctionImpl)function).id;
+			}
+		}
+
+		return -1;
+	}
+
+	private Frame unwind(Frame frame, Frame entry, int position, Throwable ex) {
+		for (;;) {
+			int handler = frame.code.findHandler(position, ex);
+			if (handler >= 0) {
+				frame.exceptions[frame.code.getHandlerException(handler)] = ex;
+				frame.pc = frame.code.getHandlerPosition(handler);
+				return frame;
+			}
+
+			if (frame == entry) {
+				return null;
+			}
+
+			frame = frame.caller;
+			position = frame.callPosition;
+		}
+	}
+
+	private static void rethrow(Throwable ex) {
+		if (ex instanceof RuntimeException) {
+			throw (RuntimeException)ex;
+		}
+
+		throw (Error)ex;
+	}
+
+	private Value run(Frame entry) {
+		Frame frame = entry;
+
+		for (;;) {
+			RegisterCode code = frame.code;
+			int[] ins = code.getInstructions();
+			Object[] constants = code.getConstants();
+			Value[] regs = frame.registers;
+			int pc = frame.pc;
+			int position = pc;
+
+			try {
+				for (;;) {
+					position = pc;
+
+					switch (ins[pc]) {
+						case MOVE:
+							regs[ins[pc + 1]] = regs[ins[pc + 2]];
+							pc += 3;
+							break;
+
+						case NOOB:
+							regs[ins[pc + 1]] = NoobValue.INSTANCE;
+							pc += 2;
+							break;
+
+						case LOAD_GLOBAL:
+							regs[ins[pc + 1]] = globals[ins[pc + 2]];
+							pc += 3;
+							break;
+
+						case ASSIGN: {
+							int index = ins[pc + 1];
+							regs[index] = regs[index].assign(regs[ins[pc + 2]]);
+							pc += 3;
+							break;
+						}
+
+						case ASSIGN_GLOBAL: {
+							int index = ins[pc + 1];
+							globals[index] = globals[index].assign(regs[ins[pc + 2]]);
+							pc += 3;
+							break;
+						}
+
+						case DECLARE_SLOT:
+							regs[ins[pc + 1]].declareSlot((Value)constants[ins[pc + 2]], regs[ins[pc + 3]]);
+							pc += 4;
+							break;
+
+						case SET_SLOT:
+							regs[ins[pc + 1]].setSlot(regs[ins[pc + 2]], regs[ins[pc + 3]]);
+							pc += 4;
+							break;
+
+						case ASSIGN_IN_MAH:
+							((InMahBukkit)regs[ins[pc + 1]]).assignInMah(regs[ins[pc + 2]], regs[ins[pc + 3]]);
+							pc += 4;
+							break;
+
+						case BYES_MESSAGE: {
+							PrintWriter err = environment.getErr();
+							err.println(regs[ins[pc + 1]].getString());
+							err.flush();
+							pc += 2;
+							break;
+						}
+
+						case BYES:
+							exitCode = regs[ins[pc + 1]].getInt();
+							environment.exit(exitCode);
+							pc += 2;
+							break;
+
+						case VISIBLE:
+							Operations.print(environment, cmd, ins[pc + 2] != 0, regs[ins[pc + 1]].getString());
+							pc += 3;
+							break;
+
+						case VISIBLE_END:
+							Operations.println(environment, cmd, ins[pc + 1] != 0, ins[pc + 2] != 0);
+							pc += 3;
+							break;
+
+						case JUMP:
+							pc = ins[pc + 1];
+							break;
+
+						case JUMP_IF_FALSE:
+							if (Operations.getBoolean(regs[ins[pc + 1]])) {
+								pc += 3;
+							} else {
+								pc = ins[pc + 2];
+							}
+							break;
+
+						case WTF: {
+							int index = Operations.getWTFIndex((Program.WTFStatement)constants[ins[pc + 2]], regs[ins[pc + 1]]);
+							int numCases = ins[pc + 3];
+							pc = index < numCases ? ins[pc + 4 + index] : ins[pc + 4 + numCases];
+							break;
+						}
+
+						case LOOP_TEST: {
+							Value value = regs[ins[pc + 1]];
+							int variable = ins[pc + 2];
+							boolean result;
+
+							if (variable < 0 || value.isTroof()) {
+								result = Operations.getBoolean(value);
+							} else {
+								result = Operations.equal(regs[variable], value);
+							}
+
+							if (result != (ins[pc + 3] != 0)) {
+								pc += 5;
+							} else {
+								pc = ins[pc + 4];
+							}
+							break;
+						}
+
+						case RETURN: {
+							int register = ins[pc + 1];
+							Value result = register < 0 ? null : regs[register];
+
+							if (frame == entry) {
+								return result;
+							}
+
+							frame = frame.caller;
+							frame.registers[frame.resultRegister] = result;
+							pc = frame.pc;
+
+							code = frame.code;
+							ins = code.getInstructions();
+							constants = code.getConstants();
+							regs = frame.registers;
+							break;
+						}
+
+						case RTFM:
+							throw new LOLCodeException(regs[ins[pc + 1]].getString());
+
+						case CAUGHT:
+							regs[ins[pc + 1]] = new YarnValue(Operations.getExceptionType((RuntimeException)frame.exceptions[ins[pc + 2]]));
+							pc += 3;
+							break;
+
+						case RETHROW: {
+							int index = ins[pc + 1];
+							Throwable ex = frame.exceptions[index];
+							frame.exceptions[index] = null;
+							rethrow(ex);
+							break;
+						}
+
+						case PUSH_OBJECT: {
+							int object = ins[pc + 1];
+							int outerObject = ins[pc + 2];
+							regs[ins[pc + 3]] = regs[outerObject];
+							regs[outerObject] = regs[object];
+							regs[object] = regs[ins[pc + 4]];
+							pc += 5;
+							break;
+						}
+
+						case POP_OBJECT: {
+							int object = ins[pc + 1];
+							int outerObject = ins[pc + 2];
+							regs[object] = regs[outerObject];
+							regs[outerObject] = regs[ins[pc + 3]];
+							pc += 4;
+							break;
+						}
+
+						case BUKKIT: {
+							int liek = ins[pc + 2];
+							regs[ins[pc + 1]] = Operations.bukkit(liek < 0 ? null : regs[liek], heap);
+							pc += 3;
+							break;
+						}
+
+						case FUNCTION:
+							regs[ins[pc + 1]] = new FunctionValue(new FunctionImpl(ins[pc + 2]));
+							pc += 3;
+							break;
+
+						case CALL: {
+							Frame callee = new Frame(codes[ins[pc + 2]], null);
+							System.arraycopy(regs, ins[pc + 3], callee.registers, 0, ins[pc + 4]);
+
+							frame.resultRegister = ins[pc + 1];
+							frame.callPosition = position;
+							frame.pc = pc + 5;
+							callee.caller = frame;
+							frame = callee;
+
+							pc = 0;
+							code = frame.code;
+							ins = code.getInstructions();
+							constants = code.getConstants();
+							regs = frame.registers;
+							break;
+						}
+
+						case GET_SLOT: {
+							Value bukkit = regs[ins[pc + 2]];
+							Value slot = ((SlotCache)constants[ins[pc + 4]]).getSlot(bukkit, regs[ins[pc + 3]]);
+
+							int id = getFunctionId(slot);
+							if (id < 0) {
+								regs[ins[pc + 1]] = slot.call(bukkit);
+								pc += 5;
+								break;
+							}
+
+							checkArgumentCount(codes[id], 0);
+							Frame callee = new Frame(codes[id], bukkit);
+
+							frame.resultRegister = ins[pc + 1];
+							frame.callPosition = position;
+							frame.pc = pc + 5;
+							callee.caller = frame;
+							frame = callee;
+
+							pc = 0;
+							code = frame.code;
+							ins = code.getInstructions();
+							constants = code.getConstants();
+							regs = frame.registers;
+							break;
+						}
+
+						case SLOT_CALL: {
+							Value bukkit = regs[ins[pc + 2]];
+							Value slot = ((SlotCache)constants[ins[pc + 6]]).getSlot(bukkit, regs[ins[pc + 3]]);
+							int first = ins[pc + 4];
+							int numArguments = ins[pc + 5];
+
+							int id = getFunctionId(slot);
+							if (id < 0) {
+								Value result;
+								switch (numArguments) {
+									case 0:
+										result = slot.call(bukkit);
+										break;
+									case 1:
+										result = slot.call(bukkit, regs[first]);
+										break;
+									case 2:
+										result = slot.call(bukkit, regs[first], regs[first + 1]);
+										break;
+									case 3:
+										result = slot.call(bukkit, regs[first], regs[first + 1], regs[first + 2]);
+										break;
+									default:
+										Value[] arguments = new Value[numArguments];
+										System.arraycopy(regs, first, arguments, 0, numArguments);
+										result = slot.call(bukkit, arguments);
+								}
+
+								regs[ins[pc + 1]] = result;
+								pc += 7;
+								break;
+							}
+
+							checkArgumentCount(codes[id], numArguments);
+							Frame callee = new Frame(codes[id], bukkit);
+							System.arraycopy(regs, first, callee.registers, 0, numArguments);
+
+							frame.resultRegister = ins[pc + 1];
+							frame.callPosition = position;
+							frame.pc = pc + 7;
+							callee.caller = frame;
+							frame = callee;
+
+							pc = 0;
+							code = frame.code;
+							ins = code.getInstructions();
+							constants = code.getConstants();
+							regs = frame.registers;
+							break;
+						}
+
+						case IN_MAH:
+							regs[ins[pc + 1]] = regs[ins[pc + 2]].inMah(regs[ins[pc + 3]]);
+							pc += 4;
+							break;
+
+						case GET_IN_MAH_BUKKIT:
+							regs[ins[pc + 1]] = regs[ins[pc + 2]].getInMahBukkit(inMahBukkitFactory);
+							pc += 3;
+							break;
+
+						case ASSIGN_IN_MAH_BUKKIT_IN_MAH:
+							regs[ins[pc + 1]] = ((InMahBukkit)regs[ins[pc + 2]]).assignInMahBukkitInMah(regs[ins[pc + 3]], inMahBukkitFactory);
+							pc += 4;
+							break;
+
+						case SUM:
+							regs[ins[pc + 1]] = Operations.sum(regs[ins[pc + 2]], regs[ins[pc + 3]]);
+							pc += 4;
+							break;
+
+						case DIFF:
+							regs[ins[pc + 1]] = Operations.diff(regs[ins[pc + 2]], regs[ins[pc + 3]]);
+							pc += 4;
+							break;
+
+						case PRODUKT:
+							regs[ins[pc + 1]] = Operations.produkt(regs[ins[pc + 2]], regs[ins[pc + 3]]);
+							pc += 4;
+							break;
+
+						case QUOSHUNT:
+							regs[ins[pc + 1]] = Operations.quoshunt(regs[ins[pc + 2]], regs[ins[pc + 3]]);
+							pc += 4;
+							break;
+
+						case MOD:
+							regs[ins[pc + 1]] = Operations.mod(regs[ins[pc + 2]], regs[ins[pc + 3]]);
+							pc += 4;
+							break;
+
+						case BIGGR:
+							regs[ins[pc + 1]] = Operations.biggr(regs[ins[pc + 2]], regs[ins[pc + 3]]);
+							pc += 4;
+							break;
+
+						case SMALLR:
+							regs[ins[pc + 1]] = Operations.smallr(regs[ins[pc + 2]], regs[ins[pc + 3]]);
+							pc += 4;
+							break;
+
+						case WON:
+							regs[ins[pc + 1]] = Operations.won(regs[ins[pc + 2]], regs[ins[pc + 3]]);
+							pc += 4;
+							break;
+
+						case BOTH_SAEM:
+							regs[ins[pc + 1]] = Operations.bothSaem(regs[ins[pc + 2]], regs[ins[pc + 3]]);
+							pc += 4;
+							break;
+
+						case DIFFRINT:
+							regs[ins[pc + 1]] = Operations.diffrint(regs[ins[pc + 2]], regs[ins[pc + 3]]);
+							pc += 4;
+							break;
+
+						case BIGR_THAN:
+							regs[ins[pc + 1]] = Operations.bigrThan(regs[ins[pc + 2]], regs[ins[pc + 3]]);
+							pc += 4;
+							break;
+
+						case SMALR_THAN:
+							regs[ins[pc + 1]] = Operations.smalrThan(regs[ins[pc + 2]], regs[ins[pc + 3]]);
+							pc += 4;
+							break;
+
+						case NOT:
+							regs[ins[pc + 1]] = TroofValue.getInstance(!Operations.getBoolean(regs[ins[pc + 2]]));
+							pc += 3;
+							break;
+
+						case ALL: {
+							boolean result = true;
+							for (int i = ins[pc + 2], end = i + ins[pc + 3]; i < end; i++) {
+								result &= Operations.getBoolean(regs[i]);
+							}
+
+							regs[ins[pc + 1]] = TroofValue.getInstance(result);
+							pc += 4;
+							break;
+						}
+
+						case ANY: {
+							boolean result = false;
+							for (int i = ins[pc + 2], end = i + ins[pc + 3]; i < end; i++) {
+								result |= Operations.getBoolean(regs[i]);
+							}
+
+							regs[ins[pc + 1]] = TroofValue.getInstance(result);
+							pc += 4;
+							break;
+						}
+
+						case SMOOSH: {
+							StringBuilder builder = new StringBuilder();
+							for (int i = ins[pc + 2], end = i + ins[pc + 3]; i < end; i++) {
+								builder.append(regs[i].getString());
+							}
+
+							regs[ins[pc + 1]] = new YarnValue(builder.toString());
+							pc += 4;
+							break;
+						}
+
+						case TROOF_CAST:
+							regs[ins[pc + 1]] = Operations.castToTroof(regs[ins[pc + 2]]);
+							pc += 3;
+							break;
+
+						case NUMBR_CAST:
+							regs[ins[pc + 1]] = Operations.castToNumbr(regs[ins[pc + 2]]);
+							pc += 3;
+							break;
+
+						case NUMBAR_CAST:
+							regs[ins[pc + 1]] = Operations.castToNumbar(regs[ins[pc + 2]]);
+							pc += 3;
+							break;
+
+						case YARN_CAST:
+							regs[ins[pc + 1]] = Operations.castToYarn(regs[ins[pc + 2]]);
+							pc += 3;
+							break;
+
+						case MATH_NUMBR:
+							regs[ins[pc + 1]] = Operations.castToMathNumbr(regs[ins[pc + 2]]);
+							pc += 3;
+							break;
+
+						case SLOT_ITERATOR:
+							regs[ins[pc + 1]] = regs[ins[pc + 2]].getSlotIterator();
+							pc += 3;
+							break;
+
+						case HAS_NEXT_SLOT:
+							regs[ins[pc + 1]] = Operations.hasNextSlot(regs[ins[pc + 2]]);
+							pc += 3;
+							break;
+
+						case NEXT_SLOT:
+							regs[ins[pc + 1]] = Operations.nextSlot(regs[ins[pc + 2]]);
+							pc += 3;
+							break;
+
+						case JAVA:
+							regs[ins[pc + 1]] = Operations.java(regs[ins[pc + 2]]);
+							pc += 3;
+							break;
+
+						case GIMMEH:
+							regs[ins[pc + 1]] = Operations.gimmeh(ins[pc + 2], environment, cmd);
+							pc += 3;
+							break;
+
+						default:
+							throw new IllegalStateException("bad instruction " + ins[pc] + " at " + pc);
+					}
+				}
+			} catch (RuntimeException ex) {
+				frame = unwind(frame, entry, position, ex);
+				if (frame == null) {
+					throw ex;
+				}
+			} catch (Error ex) {
+				frame = unwind(frame, entry, position, ex);
+				if (frame == null) {
+					throw ex;
+				}
+			}
+		}
+	}
+
+	private static class Frame {
+		private static final Throwable[] NO_EXCEPTIONS = new Throwable[0];
+
+		public RegisterCode code;
+		public Value[] registers;
+		public Throwable[] exceptions;
+		public Frame caller;
+		public int pc;
+		public int callPosition;
+		public int resultRegister;
+
+		public Frame(RegisterCode code, Value object) {
+			this.code = code;
+			this.registers = code.newRegisters();
+			this.exceptions = code.getNumExceptions() == 0 ? NO_EXCEPTIONS : new Throwable[code.getNumExceptions()];
+			registers[code.getObjectRegister()] = object;
+		}
+	}
+
+	private class FunctionImpl implements Function {
+		private int id;
+
+		public FunctionImpl(int id) {
+			this.id = id;
+		}
+
+		public RegisterMachine getMachine() {
+			return RegisterMachine.this;
+		}
+
+		public Value call(Value target) {
+			return run(newFrame(id, target, 0));
+		}
+
+		public Value call(Value target, Value argument) {
+			Frame frame = newFrame(id, target, 1);
+			frame.registers[0] = argument;
+			return run(frame);
+		}
+
+		public Value call(Value target, Value argument1, Value argument2) {
+			Frame frame = newFrame(id, target, 2);
+			frame.registers[0] = argument1;
+			frame.registers[1] = argument2;
+			return run(frame);
+		}
+
+		public Value call(Value target, Value argument1, Value argument2, Value argument3) {
+			Frame frame = newFrame(id, target, 3);
+			frame.registers[0] = argument1;
+			frame.registers[1] = argument2;
+			frame.registers[2] = argument3;
+			return run(frame);
+		}
+
+		public Value call(Value target, Value[] arguments) {
+			Frame frame = newFrame(id, target, arguments.length);
+			System.arraycopy(arguments, 0, frame.registers, 0, arguments.length);
+			return run(frame);
+		}
+	}
+}
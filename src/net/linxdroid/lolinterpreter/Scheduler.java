@@ -0,0 +1,222 @@
+/*
+ * Java LOLCODE - LOLCODE parser and interpreter (http://lolcode.com/)
+ * Copyright (C) 2007-2011  Brett Kail (bkail@iastate.edu)
+ * http://bkail.public.iastate.edu/lolcode/
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.linxdroid.lolinterpreter;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+// Runs many interpreters in time slices over a fixed number of workers.  The
+// interpreter keeps its state on the Java stack, so a script cannot be
+// suspended and picked up by another thread; instead each started script
+// keeps a thread that runs only while it holds one of the worker permits.
+// When a slice is up and other scripts are waiting, the script hands its
+// permit to the longest waiting one and queues again.  A script waiting in
+// GIMMEH or in a Java call gives its permit up until the call returns.
+//
+// At most maxThreads scripts are started at once.  Later submissions wait,
+// without a thread, until a started script finishes; only started scripts
+// share the time slices.
+public class Scheduler {
+	public static final long DEFAULT_SLICE_MILLIS = 10;
+	public static final int DEFAULT_MAX_THREADS = 64;
+
+	private static final long KEEP_ALIVE_SECONDS = 60;
+
+	private final Semaphore workers;
+	private final int numWorkers;
+	private final int maxThreads;
+	private final long sliceNanos;
+	private final ThreadPoolExecutor executor;
+	private int numThreads;
+
+	public Scheduler(int numWorkers) {
+		this(numWorkers, DEFAULT_SLICE_MILLIS);
+	}
+
+	public Scheduler(int numWorkers, long sliceMillis) {
+		this(numWorkers, Math.max(numWorkers, DEFAULT_MAX_THREADS), sliceMillis);
+	}
+
+	public Scheduler(int numWorkers, int maxThreads, long sliceMillis) {
+		if (numWorkers <= 0) {
+			throw new IllegalArgumentException("numWorkers: " + numWorkers);
+		}
+		if (maxThreads < numWorkers) {
+			throw new IllegalArgumentException("maxThreads: " + maxThreads);
+		}
+
+		this.workers = new Semaphore(numWorkers, true);
+		this.numWorkers = numWorkers;
+		this.maxThreads = maxThreads;
+		this.sliceNanos = sliceMillis * 1000000;
+
+		executor = new ThreadPoolExecutor(maxThreads, maxThreads, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+			public Thread newThread(Runnable runnable) {
+				Thread thread;
+				synchronized (Scheduler.this) {
+					thread = new Worker(runnable, "lolcode-" + numThreads++);
+				}
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		executor.allowCoreThreadTimeOut(true);
+	}
+
+	public int getNumWorkers() {
+		return numWorkers;
+	}
+
+	public int getMaxThreads() {
+		return maxThreads;
+	}
+
+	// The task running on the current thread, or null outside a scheduler.
+	static Task getCurrentTask() {
+		Thread thread = Thread.currentThread();
+		return thread instanceof Worker ? ((Worker)thread).task : null;
+	}
+
+	Task submit(Interpreter interpreter, Fuel fuel) {
+		if (fuel.task != null) {
+			throw new IllegalArgumentException("fuel already in use");
+		}
+
+		Task task = new Task(interpreter, fuel);
+		fuel.task = task;
+		interpreter.setFuel(fuel);
+
+		executor.execute(task);
+		return task;
+	}
+
+	private static final class Worker extends Thread {
+		private Task task;
+
+		public Worker(Runnable runnable, String name) {
+			super(runnable, name);
+		}
+	}
+
+	public final class Task implements Runnable {
+		private final Interpreter interpreter;
+		private final Fuel fuel;
+		private long sliceEnd;
+		private volatile int numSlices;
+		private int blockingDepth;
+		private boolean done;
+		private Value result;
+		private Throwable failure;
+
+		Task(Interpreter interpreter, Fuel fuel) {
+			this.interpreter = interpreter;
+			this.fuel = fuel;
+		}
+
+		public void run() {
+			Value result = null;
+			Throwable failure = null;
+			Worker worker = (Worker)Thread.currentThread();
+
+			worker.task = this;
+			workers.acquireUninterruptibly();
+			try {
+				startSlice();
+				result = interpreter.execute();
+			} catch (RuntimeException ex) {
+				failure = ex;
+			} catch (Error ex) {
+				failure = ex;
+			} finally {
+				workers.release();
+				worker.task = null;
+			}
+
+			synchronized (this) {
+				this.result = result;
+				this.failure = failure;
+				done = true;
+				notifyAll();
+			}
+		}
+
+		private void startSlice() {
+			sliceEnd = System.nanoTime() + sliceNanos;
+			numSlices++;
+		}
+
+		// Called by Fuel between grants on the script's own thread.
+		void checkSlice() {
+			if (blockingDepth == 0 && System.nanoTime() - sliceEnd >= 0 && workers.hasQueuedThreads()) {
+				workers.release();
+				workers.acquireUninterruptibly();
+				startSlice();
+			}
+		}
+
+		// Brackets a call that may block, on the script's own thread.  Java
+		// code can call back into the script, so the calls nest; callbacks
+		// run without a permit until the outermost call returns.
+		void beginBlocking() {
+			if (blockingDepth++ == 0) {
+				workers.release();
+			}
+		}
+
+		void endBlocking() {
+			if (--blockingDepth == 0) {
+				workers.acquireUninterruptibly();
+				startSlice();
+			}
+		}
+
+		public Fuel getFuel() {
+			return fuel;
+		}
+
+		public long getFuelConsumed() {
+			return fuel.getConsumed();
+		}
+
+		public int getNumSlices() {
+			return numSlices;
+		}
+
+		public synchronized boolean isDone() {
+			return done;
+		}
+
+		// The error or exception the script ended with, or null.
+		public synchronized Throwable getFailure() {
+			return failure;
+		}
+
+		public synchronized Value waitFor() throws InterruptedException {
+			while (!done) {
+				wait();
+			}
+
+			return result;
+		}
+	}
+}
@@ -0,0 +1,69 @@
+/*
+ * Java LOLCODE - LOLCODE parser and interpreter (http://lolcode.com/)
+ * Copyright (C) 2007-2011  Brett Kail (bkail@iastate.edu)
+ * http://bkail.public.iastate.edu/lolcode/
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.linxdroid.lolinterpreter;
+
+// A parsed and optimized program together with the analyses the engines
+// derive from it.  None of it changes once built, so one Script can be
+// executed any number of times on any number of threads; each execution
+// keeps its variables, caches and tiering counts in its own Interpreter.
+final class Script {
+	private final Program program;
+	private final CountedLoop.Finder countedLoops;
+	private TypeInference inference;
+	private Purity purity;
+
+	public Script(Program program) {
+		this.program = program;
+		this.countedLoops = new CountedLoop.Finder(program);
+	}
+
+	public Program getProgram() {
+		return program;
+	}
+
+	public CountedLoop.Finder getCountedLoops() {
+		return countedLoops;
+	}
+
+	// Only executions that compile or memoize need these, once each.
+	public synchronized TypeInference getTypeInference() {
+		if (inference == null) {
+			inference = new TypeInference(program);
+		}
+
+		return inference;
+	}
+
+	public synchronized Purity getPurity() {
+		if (purity == null) {
+			purity = new Purity(program);
+		}
+
+		return purity;
+	}
+
+	public Interpreter newExecution(Environment environment, Cmd cmd) {
+		return new Interpreter(this, environment, cmd, new Tiering());
+	}
+
+	public Interpreter newExecution(Environment environment, Cmd cmd, Tiering tiering) {
+		return new Interpreter(this, environment, cmd, tiering);
+	}
+}
@@ -0,0 +1,161 @@
+/*
+ * Java LOLCODE - LOLCODE parser and interpreter (http://lolcode.com/)
+ * Copyright (C) 2007-2011  Brett Kail (bkail@iastate.edu)
+ * http://bkail.public.iastate.edu/lolcode/
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.linxdroid.lolinterpreter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+final class SlotCache {
+	private static final int MAX_ENTRIES = 4;
+
+	private Value name;
+	private Entry[] entries = new Entry[0];
+	private boolean megamorphic;
+
+	public Value getSlot(Value bukkit, Value index) {
+		if (index == name && bukkit instanceof BukkitValue) {
+			BukkitLayout layout = ((BukkitValue)bukkit).getLayout();
+			Entry[] entries = this.entries;
+
+			for (int i = 0; i < entries.length; i++) {
+				Entry entry = entries[i];
+				if (entry.layout == layout) {
+					if (entry.offset >= 0) {
+						return ((BukkitValue)bukkit).getField(entry.offset);
+					}
+					if (entry.isValid()) {
+						return entry.value;
+					}
+				}
+			}
+		}
+
+		return miss(bukkit, index);
+	}
+
+	private Value miss(Value bukkit, Value index) {
+		if (megamorphic || !(bukkit instanceof BukkitValue) || !index.isYarn() || index.isNumeric()) {
+			return bukkit.getSlot(index);
+		}
+
+		if (name == null) {
+			name = index;
+		} else if (index != name) {
+			megamorphic = true;
+			return bukkit.getSlot(index);
+		}
+
+		BukkitValue receiver = (BukkitValue)bukkit;
+		BukkitLayout layout = receiver.getLayout();
+		int offset = layout.getOffset(index);
+		if (offset >= 0) {
+			// Every bukkit on a shared layout keeps the slot at this offset.
+			addEntry(new Entry(layout, offset));
+			return receiver.getField(offset);
+		}
+
+		Value value = receiver.getOwnSlot(index);
+		if (value != null) {
+			// Own slots in a table change without a layout change.
+			return value;
+		}
+
+		List<BukkitValue> chain = new ArrayList<BukkitValue>();
+		for (Bukkit parent = receiver.getParent(); parent instanceof BukkitValue; parent = parent.getParent()) {
+			BukkitValue holder = (BukkitValue)parent;
+			chain.add(holder);
+
+			value = holder.getOwnSlot(index);
+			if (value != null) {
+				receiver.getHeap().countHops(chain.size());
+				addEntry(new Entry(layout, chain.toArray(new BukkitValue[chain.size()]), value));
+				return value;
+			}
+		}
+
+		if (!chain.isEmpty()) {
+			receiver.getHeap().countHops(chain.size());
+		}
+
+		return bukkit.getSlot(index);
+	}
+
+	private void addEntry(Entry entry) {
+		Entry[] entries = this.entries;
+
+		for (int i = 0; i < entries.length; i++) {
+			if (entries[i].layout == entry.layout) {
+				Entry[] newEntries = entries.clone();
+				newEntries[i] = entry;
+				this.entries = newEntries;
+				return;
+			}
+		}
+
+		if (entries.length == MAX_ENTRIES) {
+			megamorphic = true;
+			this.entries = new Entry[0];
+			return;
+		}
+
+		Entry[] newEntries = new Entry[entries.length + 1];
+		System.arraycopy(entries, 0, newEntries, 0, entries.length);
+		newEntries[entries.length] = entry;
+		this.entries = newEntries;
+	}
+
+	private static final class Entry {
+		private final BukkitLayout layout;
+		private final int offset;
+		private final BukkitValue[] chain;
+		private final BukkitLayout[] chainLayouts;
+		private final Value value;
+
+		public Entry(BukkitLayout layout, int offset) {
+			this.layout = layout;
+			this.offset = offset;
+			chain = null;
+			chainLayouts = null;
+			value = null;
+		}
+
+		public Entry(BukkitLayout layout, BukkitValue[] chain, Value value) {
+			this.layout = layout;
+			this.chain = chain;
+			this.value = value;
+			offset = -1;
+
+			chainLayouts = new BukkitLayout[chain.length];
+			for (int i = 0; i < chain.length; i++) {
+				chainLayouts[i] = chain[i].getLayout();
+			}
+		}
+
+		public boolean isValid() {
+			for (int i = 0; i < chain.length; i++) {
+				if (chain[i].getLayout() != chainLayouts[i]) {
+					return false;
+				}
+			}
+
+			return true;
+		}
+	}
+}
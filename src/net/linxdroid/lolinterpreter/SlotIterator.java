@@ -0,0 +1,57 @@
+/*
+ * Java LOLCODE - LOLCODE parser and interpreter (http://lolcode.com/)
+ * Copyright (C) 2007-2011  Brett Kail (bkail@iastate.edu)
+ * http://bkail.public.iastate.edu/lolcode/
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.linxdroid.lolinterpreter;
+
+// The cursor of an IM IN YR WATCHIN loop over a bukkit's slots.  It walks
+// the slots where they are stored, so the loop sees later writes to them.
+// Slots are only ever added, in insertion order, so the cursor takes the
+// number of slots each bukkit on the chain has when the loop starts and
+// stops there: slots added during the loop are not visited, as if the loop
+// ran over a snapshot of the names.
+abstract class SlotIterator extends AbstractTypedScalarValue {
+	protected SlotIterator() {
+		super(ValueTag.OTHER);
+	}
+
+	public String getType() {
+		return "SLOT ITERATOR";
+	}
+
+	public boolean getBoolean() {
+		throw new UnsupportedOperationException();
+	}
+
+	public int getInt() {
+		throw new UnsupportedOperationException();
+	}
+
+	public float getFloat() {
+		throw new UnsupportedOperationException();
+	}
+
+	public String getString() {
+		throw new UnsupportedOperationException();
+	}
+
+	public abstract boolean hasNext();
+
+	// Returns the next slot name; only called after hasNext.
+	public abstract Value next();
+}
@@ -0,0 +1,260 @@
+/*
+ * Java LOLCODE - LOLCODE parser and interpreter (http://lolcode.com/)
+ * Copyright (C) 2007-2011  Brett Kail (bkail@iastate.edu)
+ * http://bkail.public.iastate.edu/lolcode/
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.linxdroid.lolinterpreter;
+
+// The slots of a bukkit in insertion order.  Entries live in parallel arrays
+// and are found through an open-addressing index of entry numbers.  NUMBR
+// keys are kept as raw ints in the hash array with a null key, YARN keys
+// keep their hash next to them, and other keys fall back to Value.equals.
+// Slots are never removed, so entries are only ever appended.
+final class SlotTable {
+	private static final int MIN_ENTRIES = 4;
+
+	private int[] hashes;
+	private Value[] keys;
+	private Value[] values;
+	private int size;
+
+	// Entry number plus one, zero for an empty bucket.
+	private int[] index;
+
+	public SlotTable() {
+		this(MIN_ENTRIES);
+	}
+
+	public SlotTable(int capacity) {
+		int numEntries = MIN_ENTRIES;
+		while (numEntries < capacity) {
+			numEntries <<= 1;
+		}
+
+		hashes = new int[numEntries];
+		keys = new Value[numEntries];
+		values = new Value[numEntries];
+		index = new int[numEntries * 2];
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	// NUMBR keys are boxed again here.
+	public Value getKey(int entry) {
+		Value key = keys[entry];
+		return key == null ? NumbrValue.valueOf(hashes[entry]) : key;
+	}
+
+	// Only for entries with NUMBR keys.
+	public int getInt(int entry) {
+		return hashes[entry];
+	}
+
+	public Value getValue(int entry) {
+		return values[entry];
+	}
+
+	// The first bucket is the low bits of the hash, so dense NUMBR keys sit
+	// next to each other in the index.  Collisions walk a sequence that mixes
+	// in the rest of the hash, so keys that share their low bits spread out
+	// instead of forming one long run.
+	private static int next(int bucket, int perturb, int mask) {
+		return (bucket * 5 + perturb + 1) & mask;
+	}
+
+	public Value get(int key) {
+		int entry = find(key);
+		return entry < 0 ? null : values[entry];
+	}
+
+	public Value get(Value key) {
+		int entry = find(key);
+		return entry < 0 ? null : values[entry];
+	}
+
+	public boolean containsKey(Value key) {
+		return find(key) >= 0;
+	}
+
+	// Entries are numbered in insertion order; -1 when the key is missing.
+	public int indexOf(Value key) {
+		return find(key);
+	}
+
+	private int find(int key) {
+		int[] index = this.index;
+		int mask = index.length - 1;
+
+		for (int i = key & mask, perturb = key; ; perturb >>>= 5, i = next(i, perturb, mask)) {
+			int entry = index[i] - 1;
+			if (entry < 0) {
+				return -1;
+			}
+			if (hashes[entry] == key && keys[entry] == null) {
+				return entry;
+			}
+		}
+	}
+
+	private int find(Value key) {
+		switch (ValueTag.of(key)) {
+			case ValueTag.NUMBR:
+				return find(key.getInt());
+
+			case ValueTag.NUMBAR: {
+				// Integral NUMBARs are equal to the NUMBR with that value.
+				float floatKey = key.getFloat();
+				int intKey = (int)floatKey;
+				if (intKey == floatKey) {
+					return find(intKey);
+				}
+				break;
+			}
+
+			case ValueTag.YARN:
+				return findYarn(key, key.getString());
+		}
+
+		int hash = key.hashCode();
+		int[] index = this.index;
+		int mask = index.length - 1;
+
+		for (int i = hash & mask, perturb = hash; ; perturb >>>= 5, i = next(i, perturb, mask)) {
+			int entry = index[i] - 1;
+			if (entry < 0) {
+				return -1;
+			}
+			if (hashes[entry] == hash && keys[entry] != null && keys[entry].equals(key)) {
+				return entry;
+			}
+		}
+	}
+
+	private int findYarn(Value key, String string) {
+		int hash = string.hashCode();
+		int[] index = this.index;
+		int mask = index.length - 1;
+
+		for (int i = hash & mask, perturb = hash; ; perturb >>>= 5, i = next(i, perturb, mask)) {
+			int entry = index[i] - 1;
+			if (entry < 0) {
+				return -1;
+			}
+			if (hashes[entry] == hash) {
+				Value entryKey = keys[entry];
+				if (entryKey == key || (entryKey != null && ValueTag.of(entryKey) == ValueTag.YARN && entryKey.getString().equals(string))) {
+					return entry;
+				}
+			}
+		}
+	}
+
+	// Returns the previous value, or null for a new slot.
+	public Value put(int key, Value value) {
+		int entry = find(key);
+		if (entry >= 0) {
+			Value previous = values[entry];
+			values[entry] = value;
+			return previous;
+		}
+
+		add(key, null, value);
+		return null;
+	}
+
+	public Value put(Value key, Value value) {
+		int entry = find(key);
+		if (entry >= 0) {
+			Value previous = values[entry];
+			values[entry] = value;
+			return previous;
+		}
+
+		switch (ValueTag.of(key)) {
+			case ValueTag.NUMBR:
+				add(key.getInt(), null, value);
+				return null;
+
+			case ValueTag.NUMBAR: {
+				float floatKey = key.getFloat();
+				int intKey = (int)floatKey;
+				if (intKey == floatKey) {
+					add(intKey, null, value);
+					return null;
+				}
+				break;
+			}
+
+			case ValueTag.YARN:
+				add(key.getString().hashCode(), key, value);
+				return null;
+		}
+
+		add(key.hashCode(), key, value);
+		return null;
+	}
+
+	private void add(int hash, Value key, Value value) {
+		if (size == hashes.length) {
+			grow();
+		}
+
+		int entry = size++;
+		hashes[entry] = hash;
+		keys[entry] = key;
+		values[entry] = value;
+		insert(index, entry);
+	}
+
+	private void insert(int[] index, int entry) {
+		int mask = index.length - 1;
+		int hash = hashes[entry];
+		int i = hash & mask;
+		for (int perturb = hash; index[i] != 0; ) {
+			perturb >>>= 5;
+			i = next(i, perturb, mask);
+		}
+
+		index[i] = entry + 1;
+	}
+
+	private void grow() {
+		int numEntries = hashes.length * 2;
+		int[] newHashes = new int[numEntries];
+		Value[] newKeys = new Value[numEntries];
+		Value[] newValues = new Value[numEntries];
+		System.arraycopy(hashes, 0, newHashes, 0, size);
+		System.arraycopy(keys, 0, newKeys, 0, size);
+		System.arraycopy(values, 0, newValues, 0, size);
+		hashes = newHashes;
+		keys = newKeys;
+		values = newValues;
+
+		// The index stays at most half full.
+		int[] newIndex = new int[numEntries * 2];
+		for (int entry = 0; entry < size; entry++) {
+			insert(newIndex, entry);
+		}
+		index = newIndex;
+	}
+}
@@ -47,6 +47,8 @@ public class TestMain {
 					String stdout = readFile(new File(versionDir, base + ".out"));
 					String stderr = readFile(new File(versionDir, base + ".err"));
 					int exit = Integer.parseInt("0" + readFile(new File(versionDir, base + ".exit")).trim());
+					long fuel = Long.parseLong("0" + readFile(new File(versionDir, base + ".fuel")).trim());
+					String memo = readFile(new File(versionDir, base + ".memo")).trim();
 
 					File file = new File(versionDir, path);
 					System.out.println(file);
@@ -55,7 +57,16 @@ public class TestMain {
 					Parser parser = new Parser(file.toString(), file, reader, version, null);
 					Program program = parser.parse();
 
-					testInterpreter(program, stdin, stdout, stderr, exit);
+					if (fuel != 0) {
+						testFuel(program, stdin, stdout, stderr, fuel);
+					} else {
+						testInterpreter(program, stdin, stdout, stderr, exit);
+						testInterpreter(new Optimizer().optimize(program), stdin, stdout, stderr, exit);
+					}
+
+					if (memo.length() != 0) {
+						testMemo(program, stdin, stdout, stderr, exit, memo.split("\\s+"));
+					}
 				}
 			}
 		}
@@ -103,26 +114,75 @@ public class TestMain {
 	}
 
 	private static void testInterpreter(Program program, String stdin, String stdout, String stderr, int exit) {
+		EnvironmentImpl environment = new EnvironmentImpl(stdin);
+		new Interpreter(program, environment, null).execute();
+		checkEnvironment("Interpreter", environment, stdout, stderr, exit);
+
+		environment = new EnvironmentImpl(stdin);
+		new BytecodeCompiler(program, environment, null).execute();
+		checkEnvironment("BytecodeCompiler", environment, stdout, stderr, exit);
+
+		environment = new EnvironmentImpl(stdin);
+		new RegisterMachine(program, environment, null).execute();
+		checkEnvironment("RegisterMachine", environment, stdout, stderr, exit);
+
+		environment = new EnvironmentImpl(stdin);
+		new TreeCompiler(program, environment, null).execute();
+		checkEnvironment("TreeCompiler", environment, stdout, stderr, exit);
+	}
+
+	// The .memo file gives the table capacity and the hits, misses and
+	// evictions expected with it.
+	private static void testMemo(Program program, String stdin, String stdout, String stderr, int exit, String[] memo) {
 		EnvironmentImpl environment = new EnvironmentImpl(stdin);
 		Interpreter interpreter = new Interpreter(program, environment, null);
+		MemoTable memoTable = new MemoTable(Integer.parseInt(memo[0]));
+		interpreter.setMemoTable(memoTable);
 		interpreter.execute();
+		checkEnvironment("Interpreter (memo)", environment, stdout, stderr, exit);
+
+		String expected = memo[1] + " " + memo[2] + " " + memo[3];
+		String received = memoTable.getHits() + " " + memoTable.getMisses() + " " + memoTable.getEvictions();
+		if (!received.equals(expected)) {
+			System.err.println("Interpreter (memo): hits, misses and evictions mismatch");
+			System.err.println("  expected: " + expected);
+			System.err.println("  received: " + received);
+		}
+	}
+
+	// Only the interpreter and the code it tiers up to are metered, so a
+	// script that is meant to run out of fuel is not run by the others.
+	private static void testFuel(Program program, String stdin, String stdout, String stderr, long fuel) {
+		EnvironmentImpl environment = new EnvironmentImpl(stdin);
+		Interpreter interpreter = new Interpreter(program, environment, null);
+		interpreter.setFuel(new Fuel(fuel));
+
+		try {
+			interpreter.execute();
+			System.err.println("Interpreter: fuel not exhausted");
+		} catch (FuelExhaustedError error) {
+		}
+
+		checkEnvironment("Interpreter", environment, stdout, stderr, 0);
+	}
 
+	private static void checkEnvironment(String name, EnvironmentImpl environment, String stdout, String stderr, int exit) {
 		String receivedStdout = environment.outString.getBuffer().toString();
 		if (!receivedStdout.equals(stdout)) {
-			System.err.println("stdout mismatch");
+			System.err.println(name + ": stdout mismatch");
 			System.err.println("  expected: " + toPrintableString(stdout));
 			System.err.println("  received: " + toPrintableString(receivedStdout));
 		}
 
 		String receivedStderr = environment.errString.getBuffer().toString();
 		if (!receivedStderr.equals(stderr)) {
-			System.err.println("stderr mismatch");
+			System.err.println(name + ": stderr mismatch");
 			System.err.println("  expected: " + toPrintableString(stderr));
 			System.err.println("  received: " + toPrintableString(receivedStderr));
 		}
 
 		if (environment.exit != exit) {
-			System.err.println("exit mismatch");
+			System.err.println(name + ": exit mismatch");
 			System.err.println("  expected: " + exit);
 			System.err.println("  received: " + environment.exit);
 		}
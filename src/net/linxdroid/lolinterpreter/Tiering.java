@@ -0,0 +1,60 @@
+/*
+ * Java LOLCODE - LOLCODE parser and interpreter (http://lolcode.com/)
+ * Copyright (C) 2007-2011  Brett Kail (bkail@iastate.edu)
+ * http://bkail.public.iastate.edu/lolcode/
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.linxdroid.lolinterpreter;
+
+public class Tiering {
+	public static final int DEFAULT_CALL_THRESHOLD = 1000;
+	public static final int DEFAULT_BACK_EDGE_THRESHOLD = 10000;
+
+	public interface Listener {
+		void functionCompiled(Program.Function function, int numCalls);
+		void loopCompiled(Program.ImInYrStatement loop, int numBackEdges);
+	}
+
+	private int callThreshold = DEFAULT_CALL_THRESHOLD;
+	private int backEdgeThreshold = DEFAULT_BACK_EDGE_THRESHOLD;
+	private Listener listener;
+
+	public int getCallThreshold() {
+		return callThreshold;
+	}
+
+	// Integer.MAX_VALUE keeps functions interpreted.
+	public void setCallThreshold(int callThreshold) {
+		this.callThreshold = callThreshold;
+	}
+
+	public int getBackEdgeThreshold() {
+		return backEdgeThreshold;
+	}
+
+	// Integer.MAX_VALUE keeps loops interpreted.
+	public void setBackEdgeThreshold(int backEdgeThreshold) {
+		this.backEdgeThreshold = backEdgeThreshold;
+	}
+
+	public Listener getListener() {
+		return listener;
+	}
+
+	public void setListener(Listener listener) {
+		this.listener = listener;
+	}
+}
@@ -0,0 +1,673 @@
+/*
+ * Java LOLCODE - LOLCODE parser and interpreter (http://lolcode.com/)
+ * Copyright (C) 2007-2011  Brett Kail (bkail@iastate.edu)
+ * http://bkail.public.iastate.edu/lolcode/
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.linxdroid.lolinterpreter;
+
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+class TreeCompiler implements CompiledProgram, Program.StatementVisitor, Program.ExpressionVisitor {
+	private Program program;
+	private ExecutionTree.Context context;
+	private Map<Program.Function, ExecutionTree.Function> functions = new IdentityHashMap<Program.Function, ExecutionTree.Function>();
+	private ExecutionTree.Statement[] main;
+	private TypeInference inference;
+	private CountedLoop.Finder countedLoops;
+
+	// The block being compiled and whether its locals and the globals live in
+	// the typed frame arrays; frames shared with the interpreter stay boxed.
+	private Program.Block block;
+	private boolean unboxed;
+	private boolean unboxGlobals;
+	private boolean tailCalls;
+
+	private ExecutionTree.Statement statement;
+	private ExecutionTree.Expression expression;
+
+	public TreeCompiler(Program program, Environment environment, Cmd cmd) {
+		this.program = program;
+		this.context = new ExecutionTree.Context(environment, cmd, program.isVersion1_1() ? InMahBukkitFactory.VERSION_1_1_FACTORY : InMahBukkitFactory.VERSION_1_0_FACTORY);
+		this.inference = new TypeInference(program);
+		this.countedLoops = new CountedLoop.Finder(program);
+		this.block = program.getMainBlock();
+		this.unboxed = true;
+		this.unboxGlobals = true;
+		this.main = compileStatements(program.getMainBlock().getStatements());
+		this.functions = null;
+	}
+
+	TreeCompiler(ExecutionTree.Context context, Script script) {
+		this.program = script.getProgram();
+		this.context = context;
+		this.inference = script.getTypeInference();
+		this.countedLoops = script.getCountedLoops();
+	}
+
+	public Value execute() {
+		Program.Block mainBlock = program.getMainBlock();
+		ExecutionTree.Frame frame = new ExecutionTree.Frame(context, null, mainBlock.getNumVariables(), null);
+		ExecutionTree.allocate(frame,
+				inference.getNumSlots(mainBlock, TypeInference.NUMBR),
+				inference.getNumSlots(mainBlock, TypeInference.NUMBAR),
+				inference.getNumSlots(mainBlock, TypeInference.TROOF));
+		if (!ExecutionTree.exec(main, frame)) {
+			return null;
+		}
+
+		return frame.it;
+	}
+
+	public int getExitCode() {
+		return context.exitCode;
+	}
+
+	private ExecutionTree.Statement compileStatement(Program.Statement stmt) {
+		stmt.visit(this);
+		return statement;
+	}
+
+	private ExecutionTree.Statement[] compileStatements(List<Program.Statement> stmts) {
+		ExecutionTree.Statement[] result = new ExecutionTree.Statement[stmts.size()];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = compileStatement(stmts.get(i));
+		}
+
+		return result;
+	}
+
+	private ExecutionTree.Expression compileExpression(Program.Expression expr) {
+		if (expr == null) {
+			return null;
+		}
+
+		expr.visit(this);
+		return expression;
+	}
+
+	private ExecutionTree.Expression[] compileExpressions(Program.Expression[] exprs) {
+		ExecutionTree.Expression[] result = new ExecutionTree.Expression[exprs.length];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = compileExpression(exprs[i]);
+		}
+
+		return result;
+	}
+
+	private ExecutionTree.Expression[] compileExpressions(List<Program.Expression> exprs) {
+		return compileExpressions(exprs.toArray(new Program.Expression[exprs.size()]));
+	}
+
+	ExecutionTree.Statement compileStatement(Program.Block block, Program.Statement stmt) {
+		this.block = block;
+		this.unboxed = false;
+		this.tailCalls = false;
+		return compileStatement(stmt);
+	}
+
+	ExecutionTree.Function getFunction(Program.Function function) {
+		ExecutionTree.Function result = functions.get(function);
+		if (result == null) {
+			Program.Block oldBlock = block;
+			boolean oldUnboxed = unboxed;
+			boolean oldTailCalls = tailCalls;
+			block = function;
+			tailCalls = true;
+			unboxed = inference.getTypes(function) != null;
+
+			if (unboxed) {
+				result = new ExecutionTree.Function(function.getNumVariables(), function.getNumArguments(),
+						inference.getNumSlots(function, TypeInference.NUMBR),
+						inference.getNumSlots(function, TypeInference.NUMBAR),
+						inference.getNumSlots(function, TypeInference.TROOF));
+			} else {
+				result = new ExecutionTree.Function(function.getNumVariables(), function.getNumArguments(), 0, 0, 0);
+			}
+
+			functions.put(function, result);
+			result.setStatements(compileStatements(function.getStatements()));
+
+			block = oldBlock;
+			unboxed = oldUnboxed;
+			tailCalls = oldTailCalls;
+		}
+
+		return result;
+	}
+
+	private int getType(Program.Expression expr) {
+		return TypeInference.getType(expr, inference.getTypes(block), inference.getGlobalTypes());
+	}
+
+	// The storage type of a local or global variable; VALUE when it is boxed.
+	private int getStorageType(int index, boolean global) {
+		if (global ? !unboxGlobals : !unboxed) {
+			return TypeInference.VALUE;
+		}
+
+		return global ? inference.getGlobalTypes()[index] : inference.getType(block, index);
+	}
+
+	private ExecutionTree.Statement compileStore(int index, boolean global, Program.Expression value) {
+		int type = getStorageType(index, global);
+		if (type == TypeInference.VALUE) {
+			return null;
+		}
+
+		int slot = inference.getSlot(global ? program.getMainBlock() : block, index);
+		switch (type) {
+		case TypeInference.NUMBR:
+			return new ExecutionTree.IntStore(slot, global, compileExpression(value));
+		case TypeInference.NUMBAR:
+			return new ExecutionTree.FloatStore(slot, global, compileExpression(value));
+		default:
+			return new ExecutionTree.TroofStore(slot, global, compileExpression(value));
+		}
+	}
+
+	private ExecutionTree.Expression compileLoad(int index, boolean global) {
+		int type = getStorageType(index, global);
+		if (type == TypeInference.VALUE) {
+			return null;
+		}
+
+		int slot = inference.getSlot(global ? program.getMainBlock() : block, index);
+		switch (type) {
+		case TypeInference.NUMBR:
+			return new ExecutionTree.IntVariable(slot, global);
+		case TypeInference.NUMBAR:
+			return new ExecutionTree.FloatVariable(slot, global);
+		default:
+			return new ExecutionTree.TroofVariable(slot, global);
+		}
+	}
+
+	// A boxed NUMBAR is always the same as itself, even NaN, which an
+	// unboxed float comparison would not preserve.
+	private boolean isSameFloatVariable(Program.Expression left, Program.Expression right) {
+		if (left instanceof Program.VariableExpression && right instanceof Program.VariableExpression) {
+			int index = ((Program.VariableExpression)left).getIndex();
+			return index == ((Program.VariableExpression)right).getIndex() && getStorageType(index, false) == TypeInference.NUMBAR;
+		}
+		if (left instanceof Program.GlobalVariableExpression && right instanceof Program.GlobalVariableExpression) {
+			int index = ((Program.GlobalVariableExpression)left).getIndex();
+			return index == ((Program.GlobalVariableExpression)right).getIndex() && getStorageType(index, true) == TypeInference.NUMBAR;
+		}
+
+		return false;
+	}
+
+	public void visit(Program.DeclareVariableStatement stmt) {
+		statement = compileStore(stmt.getVariableIndex(), false, stmt.getValue());
+		if (statement == null) {
+			statement = new ExecutionTree.DeclareVariable(stmt.getVariableIndex(), compileExpression(stmt.getValue()));
+		}
+	}
+
+	public void visit(Program.DeclareSlotStatement stmt) {
+		statement = new ExecutionTree.DeclareSlot(compileExpression(stmt.getBukkit()), stmt.getNameValue(), compileExpression(stmt.getValue()));
+	}
+
+	public void visit(Program.AssignItStatement stmt) {
+		statement = compileTailCall(stmt.getValue());
+		if (statement == null) {
+			statement = new ExecutionTree.AssignIt(compileExpression(stmt.getValue()));
+		}
+	}
+
+	public void visit(Program.AssignVariableStatement stmt) {
+		statement = compileStore(stmt.getVariableIndex(), false, stmt.getValue());
+		if (statement == null) {
+			statement = new ExecutionTree.AssignVariable(stmt.getVariableIndex(), compileExpression(stmt.getValue()));
+		}
+	}
+
+	public void visit(Program.AssignGlobalVariableStatement stmt) {
+		statement = compileStore(stmt.getVariableIndex(), true, stmt.getValue());
+		if (statement == null) {
+			statement = new ExecutionTree.AssignGlobalVariable(stmt.getVariableIndex(), compileExpression(stmt.getValue()));
+		}
+	}
+
+	public void visit(Program.AssignSlotStatement stmt) {
+		statement = new ExecutionTree.AssignSlot(compileExpression(stmt.getBukkit()), compileExpression(stmt.getIndex()), compileExpression(stmt.getValue()));
+	}
+
+	public void visit(Program.AssignInMahStatement stmt) {
+		ExecutionTree.Statement assign = compileStatement(stmt.getAssignStatement());
+		statement = new ExecutionTree.AssignInMah(assign, compileExpression(stmt.getBukkit()), compileExpression(stmt.getIndex()), compileExpression(stmt.getValue()));
+	}
+
+	public void visit(Program.ByesStatement stmt) {
+		statement = new ExecutionTree.Byes(compileExpression(stmt.getMessage()), compileExpression(stmt.getExitCode()));
+	}
+
+	public void visit(Program.VisibleStatement stmt) {
+		statement = new ExecutionTree.Visible(compileExpressions(stmt.getExpressions()), stmt.isInvisible(), stmt.isSuppressNewLine());
+	}
+
+	public void visit(Program.ORlyStatement stmt) {
+		statement = new ExecutionTree.ORly(compileExpression(stmt.getExpression()), compileStatements(stmt.getYaRly()), compileStatements(stmt.getNoWai()));
+	}
+
+	public void visit(Program.WTFStatement stmt) {
+		statement = new ExecutionTree.WTF(stmt, compileExpression(stmt.getExpression()), compileStatements(stmt.getStatements()));
+	}
+
+	public void visit(Program.GTFOStatement stmt) {
+		statement = new ExecutionTree.GTFO(stmt.getDepth());
+	}
+
+	public void visit(Program.ImInYrStatement stmt) {
+		boolean troof = getType(stmt.getExpression()) == TypeInference.TROOF;
+		ExecutionTree.Statement[] stmts = compileStatements(stmt.getStatements());
+		ExecutionTree.ImInYr loop = new ExecutionTree.ImInYr(compileExpression(stmt.getExpression()), compileExpression(stmt.getVariable()), stmt.isTil(), troof, stmts);
+
+		// Unboxed counters are already plain ints.
+		CountedLoop counted = countedLoops.get(stmt);
+		if (counted != null && getStorageType(counted.getVariableIndex(), false) == TypeInference.VALUE) {
+			ExecutionTree.Statement[] body = new ExecutionTree.Statement[stmts.length - 1];
+			System.arraycopy(stmts, 0, body, 0, body.length);
+			statement = new ExecutionTree.CountedLoop(counted, compileExpression(counted.getBound()), body, loop);
+		} else {
+			statement = loop;
+		}
+	}
+
+	public void visit(Program.FoundYrStatement stmt) {
+		statement = compileTailCall(stmt.getExpression());
+		if (statement == null) {
+			statement = new ExecutionTree.FoundYr(compileExpression(stmt.getExpression()));
+		}
+	}
+
+	// Loops compiled on their own run inside an interpreted call, so only
+	// whole functions hand tail calls back to ExecutionTree.Function.call.
+	private ExecutionTree.Statement compileTailCall(Program.Expression expr) {
+		if (!tailCalls || !(expr instanceof Program.FunctionCallExpression)) {
+			return null;
+		}
+
+		Program.FunctionCallExpression call = (Program.FunctionCallExpression)expr;
+		if (!call.isTailCall()) {
+			return null;
+		}
+
+		boolean self = call.getFunction() == block;
+		ExecutionTree.Function function = getFunction(call.getFunction());
+		return new ExecutionTree.TailCall(function, compileExpressions(call.getArguments()), self);
+	}
+
+	public void visit(Program.OHaiStatement stmt) {
+		statement = new ExecutionTree.OHai(compileExpression(stmt.getExpression()), compileStatements(stmt.getStatements()));
+	}
+
+	public void visit(Program.PlzStatement stmt) {
+		List<Program.PlzStatement.ONoes> oNoes = stmt.getONoes();
+		ExecutionTree.Expression[] oNoesExprs = new ExecutionTree.Expression[oNoes.size()];
+		ExecutionTree.Statement[][] oNoesStmts = new ExecutionTree.Statement[oNoes.size()][];
+
+		ExecutionTree.Statement[] stmts = compileStatements(stmt.getStatements());
+		for (int i = 0; i < oNoesExprs.length; i++) {
+			oNoesExprs[i] = compileExpression(oNoes.get(i).getExpression());
+			oNoesStmts[i] = compileStatements(oNoes.get(i).getStatements());
+		}
+
+		statement = new ExecutionTree.Plz(stmts, oNoesExprs, oNoesStmts, compileStatements(stmt.getAwsumThx()));
+	}
+
+	public void visit(Program.RTFMStatement stmt) {
+		statement = new ExecutionTree.RTFM(compileExpression(stmt.getExpression()));
+	}
+
+	public void visit(Program.WhateverStatement stmt) {
+		statement = new ExecutionTree.Whatever(compileStatements(stmt.getUpdateStatements()));
+	}
+
+	public void visit(Program.IncrementVariableStatement stmt) {
+		visit((Program.AssignVariableStatement)stmt);
+	}
+
+	public void visit(Program.VisibleSmooshStatement stmt) {
+		visit((Program.VisibleStatement)stmt);
+	}
+
+	public void visit(Program.CompareORlyStatement stmt) {
+		ExecutionTree.Expression expr = compileExpression(stmt.getComparison());
+		if (stmt.isAssignIt()) {
+			expr = new ExecutionTree.SetIt(expr);
+		}
+
+		statement = new ExecutionTree.ORly(expr, compileStatements(stmt.getYaRly()), compileStatements(stmt.getNoWai()));
+	}
+
+	public void visit(Program.NoobExpression expr) {
+		expression = new ExecutionTree.Constant(NoobValue.INSTANCE);
+	}
+
+	public void visit(Program.TroofExpression expr) {
+		expression = new ExecutionTree.Constant(TroofValue.getInstance(expr.getValue()));
+	}
+
+	public void visit(Program.NumbrExpression expr) {
+		expression = new ExecutionTree.Constant(expr.getConstant());
+	}
+
+	public void visit(Program.NumbarExpression expr) {
+		expression = new ExecutionTree.Constant(expr.getConstant());
+	}
+
+	public void visit(Program.YarnExpression expr) {
+		expression = new ExecutionTree.Constant(expr.getConstant());
+	}
+
+	public void visit(Program.BukkitExpression expr) {
+		expression = new ExecutionTree.Bukkit(compileExpression(expr.getLiek()));
+	}
+
+	public void visit(Program.FunctionExpression expr) {
+		expression = new ExecutionTree.FunctionLiteral(getFunction(expr.getFunction()));
+	}
+
+	public void visit(Program.ItExpression expr) {
+		expression = new ExecutionTree.It();
+	}
+
+	public void visit(Program.VariableExpression expr) {
+		expression = compileLoad(expr.getIndex(), false);
+		if (expression == null) {
+			expression = new ExecutionTree.Variable(expr.getIndex());
+		}
+	}
+
+	public void visit(Program.GlobalVariableExpression expr) {
+		expression = compileLoad(expr.getIndex(), true);
+		if (expression == null) {
+			expression = new ExecutionTree.GlobalVariable(expr.getIndex());
+		}
+	}
+
+	public void visit(Program.FunctionCallExpression expr) {
+		ExecutionTree.Function function = getFunction(expr.getFunction());
+		expression = new ExecutionTree.FunctionCall(function, compileExpressions(expr.getArguments()));
+	}
+
+	public void visit(Program.ObjectExpression expr) {
+		expression = new ExecutionTree.ObjectReference(expr.isOuter());
+	}
+
+	public void visit(Program.SlotExpression expr) {
+		expression = new ExecutionTree.Slot(compileExpression(expr.getBukkit()), compileExpression(expr.getIndex()));
+	}
+
+	public void visit(Program.SlotFunctionCallExpression expr) {
+		ExecutionTree.Expression bukkit = compileExpression(expr.getBukkit());
+		ExecutionTree.Expression index = compileExpression(expr.getIndex());
+		expression = new ExecutionTree.SlotFunctionCall(bukkit, index, compileExpressions(expr.getArguments()));
+	}
+
+	public void visit(Program.InMahExpression expr) {
+		expression = new ExecutionTree.InMah(compileExpression(expr.getBukkit()), compileExpression(expr.getIndex()));
+	}
+
+	public void visit(Program.GetInMahBukkitExpression expr) {
+		expression = new ExecutionTree.GetInMahBukkit(compileExpression(expr.getExpression()));
+	}
+
+	public void visit(Program.AssignInMahBukkitInMahExpression expr) {
+		expression = new ExecutionTree.AssignInMahBukkitInMah(compileExpression(expr.getBukkit()), compileExpression(expr.getIndex()));
+	}
+
+	public void visit(Program.SumExpression expr) {
+		ExecutionTree.Expression left = compileExpression(expr.getLeftExpression());
+		ExecutionTree.Expression right = compileExpression(expr.getRightExpression());
+		switch (getType(expr)) {
+		case TypeInference.NUMBR:
+			expression = new ExecutionTree.IntSum(left, right);
+			break;
+		case TypeInference.NUMBAR:
+			expression = new ExecutionTree.FloatSum(left, right);
+			break;
+		default:
+			expression = new ExecutionTree.Sum(left, right);
+		}
+	}
+
+	public void visit(Program.DiffExpression expr) {
+		ExecutionTree.Expression left = compileExpression(expr.getLeftExpression());
+		ExecutionTree.Expression right = compileExpression(expr.getRightExpression());
+		switch (getType(expr)) {
+		case TypeInference.NUMBR:
+			expression = new ExecutionTree.IntDiff(left, right);
+			break;
+		case TypeInference.NUMBAR:
+			expression = new ExecutionTree.FloatDiff(left, right);
+			break;
+		default:
+			expression = new ExecutionTree.Diff(left, right);
+		}
+	}
+
+	public void visit(Program.ProduktExpression expr) {
+		ExecutionTree.Expression left = compileExpression(expr.getLeftExpression());
+		ExecutionTree.Expression right = compileExpression(expr.getRightExpression());
+		switch (getType(expr)) {
+		case TypeInference.NUMBR:
+			expression = new ExecutionTree.IntProdukt(left, right);
+			break;
+		case TypeInference.NUMBAR:
+			expression = new ExecutionTree.FloatProdukt(left, right);
+			break;
+		default:
+			expression = new ExecutionTree.Produkt(left, right);
+		}
+	}
+
+	public void visit(Program.QuoshuntExpression expr) {
+		ExecutionTree.Expression left = compileExpression(expr.getLeftExpression());
+		ExecutionTree.Expression right = compileExpression(expr.getRightExpression());
+		switch (getType(expr)) {
+		case TypeInference.NUMBR:
+			expression = new ExecutionTree.IntQuoshunt(left, right);
+			break;
+		case TypeInference.NUMBAR:
+			expression = new ExecutionTree.FloatQuoshunt(left, right);
+			break;
+		default:
+			expression = new ExecutionTree.Quoshunt(left, right);
+		}
+	}
+
+	public void visit(Program.ModExpression expr) {
+		ExecutionTree.Expression left = compileExpression(expr.getLeftExpression());
+		ExecutionTree.Expression right = compileExpression(expr.getRightExpression());
+		switch (getType(expr)) {
+		case TypeInference.NUMBR:
+			expression = new ExecutionTree.IntMod(left, right);
+			break;
+		case TypeInference.NUMBAR:
+			expression = new ExecutionTree.FloatMod(left, right);
+			break;
+		default:
+			expression = new ExecutionTree.Mod(left, right);
+		}
+	}
+
+	public void visit(Program.BiggrExpression expr) {
+		ExecutionTree.Expression left = compileExpression(expr.getLeftExpression());
+		ExecutionTree.Expression right = compileExpression(expr.getRightExpression());
+		switch (getType(expr)) {
+		case TypeInference.NUMBR:
+			expression = new ExecutionTree.IntBiggr(left, right);
+			break;
+		case TypeInference.NUMBAR:
+			expression = new ExecutionTree.FloatBiggr(left, right);
+			break;
+		default:
+			expression = new ExecutionTree.Biggr(left, right);
+		}
+	}
+
+	public void visit(Program.SmallrExpression expr) {
+		ExecutionTree.Expression left = compileExpression(expr.getLeftExpression());
+		ExecutionTree.Expression right = compileExpression(expr.getRightExpression());
+		switch (getType(expr)) {
+		case TypeInference.NUMBR:
+			expression = new ExecutionTree.IntSmallr(left, right);
+			break;
+		case TypeInference.NUMBAR:
+			expression = new ExecutionTree.FloatSmallr(left, right);
+			break;
+		default:
+			expression = new ExecutionTree.Smallr(left, right);
+		}
+	}
+
+	public void visit(Program.WonExpression expr) {
+		expression = new ExecutionTree.Won(compileExpression(expr.getLeftExpression()), compileExpression(expr.getRightExpression()));
+	}
+
+	public void visit(Program.NotExpression expr) {
+		expression = new ExecutionTree.Not(compileExpression(expr.getExpression()));
+	}
+
+	public void visit(Program.AllExpression expr) {
+		expression = new ExecutionTree.All(compileExpressions(expr.getExpressions()));
+	}
+
+	public void visit(Program.AnyExpression expr) {
+		expression = new ExecutionTree.Any(compileExpressions(expr.getExpressions()));
+	}
+
+	public void visit(Program.BothSaemExpression expr) {
+		ExecutionTree.Expression left = compileExpression(expr.getLeftExpression());
+		ExecutionTree.Expression right = compileExpression(expr.getRightExpression());
+		int leftType = getType(expr.getLeftExpression());
+		int rightType = getType(expr.getRightExpression());
+		if (isSameFloatVariable(expr.getLeftExpression(), expr.getRightExpression())) {
+			expression = new ExecutionTree.Constant(TroofValue.WIN);
+		} else if (leftType == TypeInference.NUMBR && rightType == TypeInference.NUMBR) {
+			expression = new ExecutionTree.IntBothSaem(left, right);
+		} else if (leftType == TypeInference.TROOF && rightType == TypeInference.TROOF) {
+			expression = new ExecutionTree.TroofBothSaem(left, right);
+		} else {
+			expression = new ExecutionTree.BothSaem(left, right);
+		}
+	}
+
+	public void visit(Program.DiffrintExpression expr) {
+		ExecutionTree.Expression left = compileExpression(expr.getLeftExpression());
+		ExecutionTree.Expression right = compileExpression(expr.getRightExpression());
+		int leftType = getType(expr.getLeftExpression());
+		int rightType = getType(expr.getRightExpression());
+		if (isSameFloatVariable(expr.getLeftExpression(), expr.getRightExpression())) {
+			expression = new ExecutionTree.Constant(TroofValue.FAIL);
+		} else if (leftType == TypeInference.NUMBR && rightType == TypeInference.NUMBR) {
+			expression = new ExecutionTree.IntDiffrint(left, right);
+		} else if (leftType == TypeInference.TROOF && rightType == TypeInference.TROOF) {
+			expression = new ExecutionTree.TroofDiffrint(left, right);
+		} else {
+			expression = new ExecutionTree.Diffrint(left, right);
+		}
+	}
+
+	public void visit(Program.SmooshExpression expr) {
+		expression = new ExecutionTree.Smoosh(compileExpressions(expr.getExpressions()));
+	}
+
+	public void visit(Program.NoobCastExpression expr) {
+		expression = new ExecutionTree.NoobCast(compileExpression(expr.getExpression()));
+	}
+
+	public void visit(Program.TroofCastExpression expr) {
+		expression = new ExecutionTree.TroofCast(compileExpression(expr.getExpression()));
+	}
+
+	public void visit(Program.NumbrCastExpression expr) {
+		if (getType(expr.getExpression()) == TypeInference.NUMBR) {
+			expression = compileExpression(expr.getExpression());
+		} else {
+			expression = new ExecutionTree.NumbrCast(compileExpression(expr.getExpression()));
+		}
+	}
+
+	public void visit(Program.NumbarCastExpression expr) {
+		expression = new ExecutionTree.NumbarCast(compileExpression(expr.getExpression()));
+	}
+
+	public void visit(Program.YarnCastExpression expr) {
+		expression = new ExecutionTree.YarnCast(compileExpression(expr.getExpression()));
+	}
+
+	public void visit(Program.GimmehExpression expr) {
+		expression = new ExecutionTree.Gimmeh(expr.getWhat());
+	}
+
+	public void visit(Program.MathNumbrExpression expr) {
+		if (getType(expr.getExpression()) == TypeInference.NUMBR) {
+			expression = compileExpression(expr.getExpression());
+		} else {
+			expression = new ExecutionTree.MathNumbr(compileExpression(expr.getExpression()));
+		}
+	}
+
+	public void visit(Program.BigrThanExpression expr) {
+		ExecutionTree.Expression left = compileExpression(expr.getLeftExpression());
+		ExecutionTree.Expression right = compileExpression(expr.getRightExpression());
+		int leftType = getType(expr.getLeftExpression());
+		int rightType = getType(expr.getRightExpression());
+		if (leftType == TypeInference.NUMBR && rightType == TypeInference.NUMBR) {
+			expression = new ExecutionTree.IntBigrThan(left, right);
+		} else {
+			expression = new ExecutionTree.BigrThan(left, right);
+		}
+	}
+
+	public void visit(Program.SmalrThanExpression expr) {
+		ExecutionTree.Expression left = compileExpression(expr.getLeftExpression());
+		ExecutionTree.Expression right = compileExpression(expr.getRightExpression());
+		int leftType = getType(expr.getLeftExpression());
+		int rightType = getType(expr.getRightExpression());
+		if (leftType == TypeInference.NUMBR && rightType == TypeInference.NUMBR) {
+			expression = new ExecutionTree.IntSmalrThan(left, right);
+		} else {
+			expression = new ExecutionTree.SmalrThan(left, right);
+		}
+	}
+
+	public void visit(Program.SlotIteratorExpression expr) {
+		expression = new ExecutionTree.NewSlotIterator(compileExpression(expr.getExpression()));
+	}
+
+	public void visit(Program.HasNextSlotExpression expr) {
+		expression = new ExecutionTree.HasNextSlot(compileExpression(expr.getExpression()));
+	}
+
+	public void visit(Program.NextSlotExpression expr) {
+		expression = new ExecutionTree.NextSlot(compileExpression(expr.getExpression()));
+	}
+
+	public void visit(Program.JavaExpression expr) {
+		expression = new ExecutionTree.Java(compileExpression(expr.getExpression()));
+	}
+
+	public void visit(Program.NamedSlotExpression expr) {
+		visit((Program.SlotExpression)expr);
+	}
+}
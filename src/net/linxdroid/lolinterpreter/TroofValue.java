@@ -35,6 +35,7 @@ class TroofValue extends AbstractTypedScalarValue {
 	}
 
 	private TroofValue(boolean value) {
+		super(ValueTag.TROOF);
 		this.value = value;
 
 		if (value) {
@@ -59,11 +60,6 @@ class TroofValue extends AbstractTypedScalarValue {
 		return "TROOF";
 	}
 
-	@Override
-	public boolean isTroof() {
-		return true;
-	}
-
 	public boolean getBoolean() {
 		return value;
 	}
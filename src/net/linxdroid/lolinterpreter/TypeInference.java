@@ -0,0 +1,203 @@
+/*
+ * Java LOLCODE - LOLCODE parser and interpreter (http://lolcode.com/)
+ * Copyright (C) 2007-2011  Brett Kail (bkail@iastate.edu)
+ * http://bkail.public.iastate.edu/lolcode/
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.linxdroid.lolinterpreter;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+final class TypeInference {
+	public static final int NONE = 0;
+	public static final int NUMBR = 1;
+	public static final int NUMBAR = 2;
+	public static final int TROOF = 3;
+	public static final int VALUE = 4;
+
+	private final Program.Block mainBlock;
+	private final List<Program.Block> blocks = new ArrayList<Program.Block>();
+	private final Map<Program.Block, int[]> types = new IdentityHashMap<Program.Block, int[]>();
+	private final Map<Program.Block, int[]> slots = new IdentityHashMap<Program.Block, int[]>();
+	private final Map<Program.Block, int[]> numSlots = new IdentityHashMap<Program.Block, int[]>();
+
+	public TypeInference(Program program) {
+		mainBlock = program.getMainBlock();
+		addBlock(mainBlock, 0);
+
+		// Types only ever widen, so this reaches a fixed point.
+		Scanner scanner = new Scanner();
+		do {
+			scanner.changed = false;
+			for (int i = 0; i < blocks.size(); i++) {
+				scanner.block = blocks.get(i);
+				scanner.scan(scanner.block.getStatements());
+			}
+		} while (scanner.changed);
+
+		for (Program.Block block : blocks) {
+			int[] blockTypes = types.get(block);
+			int[] blockSlots = new int[blockTypes.length];
+			int[] counts = new int[VALUE];
+
+			for (int i = 0; i < blockTypes.length; i++) {
+				if (blockTypes[i] == NONE) {
+					blockTypes[i] = VALUE;
+				}
+
+				blockSlots[i] = blockTypes[i] == VALUE ? i : counts[blockTypes[i]]++;
+			}
+
+			slots.put(block, blockSlots);
+			numSlots.put(block, counts);
+		}
+	}
+
+	private void addBlock(Program.Block block, int numArguments) {
+		if (!types.containsKey(block)) {
+			int[] blockTypes = new int[block.getNumVariables()];
+			for (int i = 0; i < numArguments; i++) {
+				blockTypes[i] = VALUE;
+			}
+
+			blocks.add(block);
+			types.put(block, blockTypes);
+		}
+	}
+
+	// The type every value stored in the variable has, NUMBR, NUMBAR, TROOF or
+	// VALUE for anything else.
+	public int getType(Program.Block block, int index) {
+		return types.get(block)[index];
+	}
+
+	public int[] getTypes(Program.Block block) {
+		return block == null ? null : types.get(block);
+	}
+
+	public int[] getGlobalTypes() {
+		return types.get(mainBlock);
+	}
+
+	// The index into the frame array for the variable's type.
+	public int getSlot(Program.Block block, int index) {
+		return slots.get(block)[index];
+	}
+
+	public int getNumSlots(Program.Block block, int type) {
+		return numSlots.get(block)[type];
+	}
+
+	private static int join(int left, int right) {
+		if (left == NONE || left == right) {
+			return right;
+		}
+
+		return right == NONE ? left : VALUE;
+	}
+
+	// Returns the type of expr given the types of the local and global
+	// variables; null arrays mean nothing is known about variables.
+	static int getType(Program.Expression expr, int[] locals, int[] globals) {
+		if (expr instanceof Program.NumbrExpression || expr instanceof Program.NumbrCastExpression) {
+			return NUMBR;
+		}
+		if (expr instanceof Program.NumbarExpression || expr instanceof Program.NumbarCastExpression) {
+			return NUMBAR;
+		}
+		if (expr instanceof Program.TroofExpression || expr instanceof Program.TroofCastExpression ||
+				expr instanceof Program.WonExpression || expr instanceof Program.NotExpression ||
+				expr instanceof Program.AllExpression || expr instanceof Program.AnyExpression ||
+				expr instanceof Program.BothSaemExpression || expr instanceof Program.DiffrintExpression ||
+				expr instanceof Program.BigrThanExpression || expr instanceof Program.SmalrThanExpression ||
+				expr instanceof Program.HasNextSlotExpression) {
+			return TROOF;
+		}
+
+		if (expr instanceof Program.VariableExpression) {
+			return locals == null ? VALUE : locals[((Program.VariableExpression)expr).getIndex()];
+		}
+		if (expr instanceof Program.GlobalVariableExpression) {
+			return globals == null ? VALUE : globals[((Program.GlobalVariableExpression)expr).getIndex()];
+		}
+
+		if (expr instanceof Program.MathNumbrExpression) {
+			int type = getType(((Program.MathNumbrExpression)expr).getExpression(), locals, globals);
+			return type == NONE || type == NUMBR ? type : VALUE;
+		}
+
+		if (expr instanceof Program.SumExpression || expr instanceof Program.DiffExpression ||
+				expr instanceof Program.ProduktExpression || expr instanceof Program.QuoshuntExpression ||
+				expr instanceof Program.ModExpression || expr instanceof Program.BiggrExpression ||
+				expr instanceof Program.SmallrExpression) {
+			Program.BinaryExpression binary = (Program.BinaryExpression)expr;
+			int left = getType(binary.getLeftExpression(), locals, globals);
+			int right = getType(binary.getRightExpression(), locals, globals);
+
+			if (left == NONE || right == NONE) {
+				return left == VALUE || right == VALUE ? VALUE : NONE;
+			}
+			if (left == NUMBR && right == NUMBR) {
+				return NUMBR;
+			}
+			if ((left == NUMBR || left == NUMBAR) && (right == NUMBR || right == NUMBAR)) {
+				return NUMBAR;
+			}
+		}
+
+		return VALUE;
+	}
+
+	private class Scanner extends ProgramScanner {
+		private Program.Block block;
+		private boolean changed;
+
+		private void define(Program.Block definedBlock, int index, Program.Expression value) {
+			int[] blockTypes = types.get(definedBlock);
+			int type = join(blockTypes[index], getType(value, types.get(block), types.get(mainBlock)));
+
+			if (type != blockTypes[index]) {
+				blockTypes[index] = type;
+				changed = true;
+			}
+		}
+
+		protected void scanFunction(Program.Function function) {
+			addBlock(function, function.getNumArguments());
+		}
+
+		@Override
+		public void visit(Program.DeclareVariableStatement stmt) {
+			super.visit(stmt);
+			define(block, stmt.getVariableIndex(), stmt.getValue());
+		}
+
+		@Override
+		public void visit(Program.AssignVariableStatement stmt) {
+			super.visit(stmt);
+			define(block, stmt.getVariableIndex(), stmt.getValue());
+		}
+
+		@Override
+		public void visit(Program.AssignGlobalVariableStatement stmt) {
+			super.visit(stmt);
+			define(mainBlock, stmt.getVariableIndex(), stmt.getValue());
+		}
+	}
+}
@@ -19,8 +19,6 @@
 
 package net.linxdroid.lolinterpreter;
 
-import java.util.List;
-
 public interface Value {
 	String getType();
 
@@ -47,13 +45,15 @@ public interface Value {
 	void declareSlot(Value index, Value value);
 	void setSlot(Value index, Value value);
 	Value getSlot(Value index);
-	int getNumSlots();
-	Value getSlots();
+	SlotIterator getSlotIterator();
 
 	InMahBukkit getInMahBukkit(InMahBukkitFactory factory);
 	Value assign(Value value);
 	Value inMah(Value index);
 
 	Value call(Value target);
-	Value call(Value target, List<Value> arguments);
+	Value call(Value target, Value argument);
+	Value call(Value target, Value argument1, Value argument2);
+	Value call(Value target, Value argument1, Value argument2, Value argument3);
+	Value call(Value target, Value[] arguments);
 }
@@ -0,0 +1,49 @@
+/*
+ * Java LOLCODE - LOLCODE parser and interpreter (http://lolcode.com/)
+ * Copyright (C) 2007-2011  Brett Kail (bkail@iastate.edu)
+ * http://bkail.public.iastate.edu/lolcode/
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.linxdroid.lolinterpreter;
+
+// Compact type tags for the values the engines operate on. Scalars carry
+// their tag in a final field so hot paths can switch on it instead of making
+// interface calls; anything else reports OTHER and is handled through Value.
+final class ValueTag {
+	public static final int NOOB = 0;
+	public static final int TROOF = 1;
+	public static final int NUMBR = 2;
+	public static final int NUMBAR = 3;
+	public static final int YARN = 4;
+	public static final int FUNCTION = 5;
+	public static final int JAVA = 6;
+	public static final int BUKKIT = 7;
+	public static final int OTHER = 8;
+
+	private ValueTag() { }
+
+	public static int of(Value value) {
+		if (value instanceof AbstractScalarValue) {
+			return ((AbstractScalarValue)value).tag;
+		}
+
+		if (value instanceof BukkitValue) {
+			return BUKKIT;
+		}
+
+		return OTHER;
+	}
+}
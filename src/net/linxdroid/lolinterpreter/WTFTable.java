@@ -0,0 +1,154 @@
+/*
+ * Java LOLCODE - LOLCODE parser and interpreter (http://lolcode.com/)
+ * Copyright (C) 2007-2011  Brett Kail (bkail@iastate.edu)
+ * http://bkail.public.iastate.edu/lolcode/
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.linxdroid.lolinterpreter;
+
+import java.util.Arrays;
+import java.util.Map;
+
+// Finds the statement index a WTF? jumps to.  When every OMG label is a
+// NUMBR the subject indexes an array (or a sorted key array when the labels
+// are sparse); when every label is a YARN the string is looked up in an
+// open-addressed table.  Other subjects and mixed labels use the label map,
+// whose equals also matches across types.
+final class WTFTable {
+	private static final int MAP = 0;
+	private static final int DENSE = 1;
+	private static final int SPARSE = 2;
+	private static final int STRINGS = 3;
+
+	private final Map<Value, Integer> labels;
+	private final int defaultIndex;
+	private final int kind;
+
+	private int min;
+	private int[] keys;
+	private int[] indexes;
+	private String[] strings;
+
+	public WTFTable(Map<Value, Integer> labels, int omgWTFIndex) {
+		this.labels = labels;
+		this.defaultIndex = omgWTFIndex & 0x7fffffff;
+
+		int numbrs = 0;
+		int yarns = 0;
+		for (Value label : labels.keySet()) {
+			int tag = ValueTag.of(label);
+			if (tag == ValueTag.NUMBR) {
+				numbrs++;
+			} else if (tag == ValueTag.YARN) {
+				yarns++;
+			}
+		}
+
+		int size = labels.size();
+		if (size == 0) {
+			kind = MAP;
+		} else if (numbrs == size) {
+			kind = createNumbrs();
+		} else if (yarns == size) {
+			createStrings();
+			kind = STRINGS;
+		} else {
+			kind = MAP;
+		}
+	}
+
+	private int createNumbrs() {
+		int size = labels.size();
+		keys = new int[size];
+		int i = 0;
+		for (Value label : labels.keySet()) {
+			keys[i++] = label.getInt();
+		}
+		Arrays.sort(keys);
+
+		min = keys[0];
+		long span = (long)keys[size - 1] - min + 1;
+		if (span <= 2L * size + 8) {
+			indexes = new int[(int)span];
+			Arrays.fill(indexes, defaultIndex);
+			for (Map.Entry<Value, Integer> entry : labels.entrySet()) {
+				indexes[entry.getKey().getInt() - min] = entry.getValue();
+			}
+			keys = null;
+			return DENSE;
+		}
+
+		indexes = new int[size];
+		for (Map.Entry<Value, Integer> entry : labels.entrySet()) {
+			indexes[Arrays.binarySearch(keys, entry.getKey().getInt())] = entry.getValue();
+		}
+		return SPARSE;
+	}
+
+	private void createStrings() {
+		int capacity = Integer.highestOneBit(labels.size() * 2 + 1) << 1;
+		strings = new String[capacity];
+		indexes = new int[capacity];
+
+		for (Map.Entry<Value, Integer> entry : labels.entrySet()) {
+			String string = entry.getKey().getString();
+			int slot = hash(string) & (capacity - 1);
+			while (strings[slot] != null) {
+				slot = (slot + 1) & (capacity - 1);
+			}
+			strings[slot] = string;
+			indexes[slot] = entry.getValue();
+		}
+	}
+
+	private static int hash(String string) {
+		int h = string.hashCode();
+		return h ^ (h >>> 16);
+	}
+
+	public int getIndex(Value value) {
+		switch (kind) {
+		case DENSE:
+			if (ValueTag.of(value) == ValueTag.NUMBR) {
+				int offset = value.getInt() - min;
+				return offset >= 0 && offset < indexes.length ? indexes[offset] : defaultIndex;
+			}
+			break;
+		case SPARSE:
+			if (ValueTag.of(value) == ValueTag.NUMBR) {
+				int position = Arrays.binarySearch(keys, value.getInt());
+				return position >= 0 ? indexes[position] : defaultIndex;
+			}
+			break;
+		case STRINGS:
+			if (ValueTag.of(value) == ValueTag.YARN) {
+				String string = value.getString();
+				String[] strings = this.strings;
+				int mask = strings.length - 1;
+				for (int slot = hash(string) & mask; strings[slot] != null; slot = (slot + 1) & mask) {
+					if (strings[slot].equals(string)) {
+						return indexes[slot];
+					}
+				}
+				return defaultIndex;
+			}
+			break;
+		}
+
+		Integer index = labels.get(value);
+		return index != null ? index.intValue() : defaultIndex;
+	}
+}
@@ -20,9 +20,10 @@
 package net.linxdroid.lolinterpreter;
 
 class YarnValue extends AbstractTypedScalarValue {
-	private String value;
+	private final String value;
 
 	public YarnValue(String value) {
+		super(ValueTag.YARN);
 		this.value = value;
 	}
 
@@ -96,11 +97,6 @@ class YarnValue extends AbstractTypedScalarValue {
 		}
 	}
 
-	@Override
-	public boolean isYarn() {
-		return true;
-	}
-
 	public String getString() {
 		return value;
 	}